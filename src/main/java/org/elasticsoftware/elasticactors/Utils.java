@@ -1,11 +1,34 @@
 package org.elasticsoftware.elasticactors;
 
+import com.intellij.lang.java.JavaLanguage;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiAnnotation;
 import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiImportList;
+import com.intellij.psi.PsiImportStatement;
+import com.intellij.psi.PsiInstanceOfExpression;
+import com.intellij.psi.PsiJavaCodeReferenceElement;
+import com.intellij.psi.PsiJavaFile;
 import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.PsiModifierList;
+import com.intellij.psi.PsiModifierListOwner;
+import com.intellij.psi.PsiReferenceList;
+import com.intellij.psi.PsiTypeElement;
+import com.intellij.psi.PsiTypeTestPattern;
+import com.intellij.psi.util.CachedValueProvider.Result;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.EnumSet;
 import java.util.Objects;
+import java.util.Set;
 
 import static com.intellij.psi.PsiModifier.ABSTRACT;
 import static com.intellij.psi.util.InheritanceUtil.isInheritor;
@@ -26,46 +49,143 @@ public final class Utils {
     public static final String ELASTIC_ACTOR_CLASS =
             "org.elasticsoftware.elasticactors.ElasticActor";
 
+    /**
+     * The supertypes which make a class an actor while indexing, when only direct supertypes can
+     * be checked.
+     */
+    private static final Set<String> ELASTIC_ACTOR_BASE_CLASSES = Set.of(
+            ELASTIC_ACTOR_CLASS,
+            "org.elasticsoftware.elasticactors.TypedActor",
+            "org.elasticsoftware.elasticactors.UntypedActor",
+            "org.elasticsoftware.elasticactors.MethodActor");
+
     private Utils() {
     }
 
     public static boolean isHandler(@NotNull PsiMethod psiMethod) {
-        return psiMethod.hasAnnotation(MESSAGE_HANDLER_ANNOTATION_CLASS);
+        return isDumb(psiMethod)
+                ? isAnnotatedSyntactically(psiMethod, MESSAGE_HANDLER_ANNOTATION_CLASS)
+                : psiMethod.hasAnnotation(MESSAGE_HANDLER_ANNOTATION_CLASS);
+    }
+
+    /**
+     * Checks if the project of the element is being indexed, in which case only the syntactic
+     * checks of this class are used and nothing is cached, so the full checks take over once
+     * indexing is done.
+     */
+    public static boolean isDumb(@NotNull PsiElement element) {
+        return DumbService.isDumb(element.getProject());
     }
 
     public static boolean isActorRefMethod(@NotNull PsiMethod method) {
-        return stream(getDeepestSuperMethod(method))
-                .map(PsiMethod::getContainingClass)
-                .filter(Objects::nonNull)
-                .map(PsiClass::getQualifiedName)
-                .filter(Objects::nonNull)
-                .anyMatch(fqn -> fqn.equals(ACTOR_REF_CLASS));
+        return getMethodKinds(method).contains(MethodKind.ACTOR_REF);
+    }
+
+    /**
+     * Checks if the call is made to a method declared in {@code ActorRef} (such as {@code tell} or
+     * {@code ask}) which takes at least one argument. Always false while indexing.
+     */
+    public static boolean isActorRefCall(@NotNull PsiMethodCallExpression methodCall) {
+        if (methodCall.getArgumentList().isEmpty() || isDumb(methodCall)) {
+            return false;
+        }
+        PsiMethod method = methodCall.resolveMethod();
+        return method != null
+                && isActorRef(method.getContainingClass())
+                && isActorRefMethod(method);
     }
 
     public static boolean isActorDelegateBuilderMethod(@NotNull PsiMethod method) {
-        return stream(getDeepestSuperMethod(method))
-                .map(PsiMethod::getContainingClass)
-                .filter(Objects::nonNull)
-                .map(PsiClass::getQualifiedName)
-                .filter(Objects::nonNull)
-                .anyMatch(fqn -> fqn.startsWith(ACTOR_DELEGATE_BUILDER_INNER_CLASS));
+        return getMethodKinds(method).contains(MethodKind.ACTOR_DELEGATE_BUILDER);
     }
 
     public static boolean isActorRef(@Nullable PsiClass containingClass) {
-        return isInheritor(containingClass, ACTOR_REF_CLASS);
+        return containingClass != null
+                && getClassKinds(containingClass).contains(ClassKind.ACTOR_REF);
     }
 
     public static boolean isElasticActorMethod(@NotNull PsiMethod method) {
-        return stream(getDeepestSuperMethod(method))
+        return getMethodKinds(method).contains(MethodKind.ELASTIC_ACTOR);
+    }
+
+    public static boolean isElasticActor(@Nullable PsiClass containingClass) {
+        return containingClass != null
+                && getClassKinds(containingClass).contains(ClassKind.ELASTIC_ACTOR);
+    }
+
+    public static boolean isOnReceiveMethod(@NotNull PsiMethod method) {
+        return "onReceive".equals(method.getName())
+                && isElasticActor(method.getContainingClass())
+                && (isDumb(method)
+                ? method.getParameterList().getParametersCount() == 2
+                : isElasticActorMethod(method));
+    }
+
+    @Nullable
+    public static PsiTypeElement getInstanceOfCheckType(
+            @NotNull PsiInstanceOfExpression instanceOfExpression) {
+        PsiTypeElement checkType = instanceOfExpression.getCheckType();
+        if (checkType == null
+                && instanceOfExpression.getPattern() instanceof PsiTypeTestPattern pattern) {
+            checkType = pattern.getCheckType();
+        }
+        return checkType;
+    }
+
+    public static boolean isActorState(@Nullable PsiClass psiClass) {
+        return psiClass != null && getClassKinds(psiClass).contains(ClassKind.ACTOR_STATE);
+    }
+
+    public static boolean isMessage(@Nullable PsiClass argClass) {
+        return argClass != null && getClassKinds(argClass).contains(ClassKind.MESSAGE);
+    }
+
+    private enum MethodKind {
+        ACTOR_REF,
+        ACTOR_DELEGATE_BUILDER,
+        ELASTIC_ACTOR
+    }
+
+    private enum ClassKind {
+        ACTOR_REF,
+        ELASTIC_ACTOR,
+        ACTOR_STATE,
+        MESSAGE
+    }
+
+    /**
+     * Classifies the method based on the classes declaring its deepest super methods.
+     * The result is cached until the Java PSI changes. Super methods can't be found while
+     * indexing, so no kind is reported then.
+     */
+    @NotNull
+    private static Set<MethodKind> getMethodKinds(@NotNull PsiMethod method) {
+        if (isDumb(method)) {
+            return EnumSet.noneOf(MethodKind.class);
+        }
+        return CachedValuesManager.getCachedValue(method, () -> Result.create(
+                computeMethodKinds(method),
+                getJavaModificationTracker(method)));
+    }
+
+    @NotNull
+    private static Set<MethodKind> computeMethodKinds(@NotNull PsiMethod method) {
+        Set<MethodKind> kinds = EnumSet.noneOf(MethodKind.class);
+        stream(getDeepestSuperMethod(method))
                 .map(PsiMethod::getContainingClass)
                 .filter(Objects::nonNull)
                 .map(PsiClass::getQualifiedName)
                 .filter(Objects::nonNull)
-                .anyMatch(fqn -> fqn.equals(ELASTIC_ACTOR_CLASS));
-    }
-
-    public static boolean isElasticActor(@Nullable PsiClass containingClass) {
-        return isInheritor(containingClass, ELASTIC_ACTOR_CLASS);
+                .forEach(fqn -> {
+                    if (fqn.equals(ACTOR_REF_CLASS)) {
+                        kinds.add(MethodKind.ACTOR_REF);
+                    } else if (fqn.equals(ELASTIC_ACTOR_CLASS)) {
+                        kinds.add(MethodKind.ELASTIC_ACTOR);
+                    } else if (fqn.startsWith(ACTOR_DELEGATE_BUILDER_INNER_CLASS)) {
+                        kinds.add(MethodKind.ACTOR_DELEGATE_BUILDER);
+                    }
+                });
+        return kinds;
     }
 
     private static PsiMethod[] getDeepestSuperMethod(@NotNull PsiMethod method) {
@@ -73,8 +193,93 @@ public final class Utils {
         return deepestSuperMethods.length > 0 ? deepestSuperMethods : new PsiMethod[]{method};
     }
 
-    public static boolean isMessage(@Nullable PsiClass argClass) {
-        return argClass != null && argClass.hasAnnotation(MESSAGE_ANNOTATION_CLASS);
+    /**
+     * Classifies the class based on its supertypes and annotations.
+     * The result is cached until the Java PSI changes. While indexing, the class is classified
+     * from its source text only, without caching.
+     */
+    @NotNull
+    private static Set<ClassKind> getClassKinds(@NotNull PsiClass psiClass) {
+        if (isDumb(psiClass)) {
+            return computeClassKindsSyntactically(psiClass);
+        }
+        return CachedValuesManager.getCachedValue(psiClass, () -> Result.create(
+                computeClassKinds(psiClass),
+                getJavaModificationTracker(psiClass)));
+    }
+
+    @NotNull
+    private static Set<ClassKind> computeClassKinds(@NotNull PsiClass psiClass) {
+        Set<ClassKind> kinds = EnumSet.noneOf(ClassKind.class);
+        if (isInheritor(psiClass, ACTOR_REF_CLASS)) {
+            kinds.add(ClassKind.ACTOR_REF);
+        }
+        if (isInheritor(psiClass, ELASTIC_ACTOR_CLASS)) {
+            kinds.add(ClassKind.ELASTIC_ACTOR);
+        }
+        if (isInheritor(psiClass, ACTOR_STATE_CLASS)) {
+            kinds.add(ClassKind.ACTOR_STATE);
+        }
+        if (psiClass.hasAnnotation(MESSAGE_ANNOTATION_CLASS)) {
+            kinds.add(ClassKind.MESSAGE);
+        }
+        return kinds;
+    }
+
+    /**
+     * Classifies the class based on its annotations and direct supertypes, as written in the
+     * source, so classes only inheriting from the framework's classes through other classes of
+     * the project are not recognized.
+     */
+    @NotNull
+    private static Set<ClassKind> computeClassKindsSyntactically(@NotNull PsiClass psiClass) {
+        Set<ClassKind> kinds = EnumSet.noneOf(ClassKind.class);
+        if (ACTOR_REF_CLASS.equals(psiClass.getQualifiedName())
+                || extendsSyntactically(psiClass, Set.of(ACTOR_REF_CLASS))) {
+            kinds.add(ClassKind.ACTOR_REF);
+        }
+        if (extendsSyntactically(psiClass, ELASTIC_ACTOR_BASE_CLASSES)) {
+            kinds.add(ClassKind.ELASTIC_ACTOR);
+        }
+        if (extendsSyntactically(psiClass, Set.of(ACTOR_STATE_CLASS))) {
+            kinds.add(ClassKind.ACTOR_STATE);
+        }
+        if (isAnnotatedSyntactically(psiClass, MESSAGE_ANNOTATION_CLASS)) {
+            kinds.add(ClassKind.MESSAGE);
+        }
+        return kinds;
+    }
+
+    private static boolean extendsSyntactically(
+            @NotNull PsiClass psiClass,
+            @NotNull Set<String> classFqns) {
+        for (PsiReferenceList list : new PsiReferenceList[]{
+                psiClass.getExtendsList(),
+                psiClass.getImplementsList()}) {
+            if (list == null) {
+                continue;
+            }
+            for (PsiJavaCodeReferenceElement reference : list.getReferenceElements()) {
+                for (String classFqn : classFqns) {
+                    if (refersToSyntactically(reference, classFqn)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The tracker used to invalidate cached values depending on the Java PSI. It only changes when
+     * Java code outside of code blocks changes, e.g. declarations, signatures and annotations, so
+     * cached values which also depend on the code inside method bodies must also depend on the
+     * files containing it.
+     */
+    @NotNull
+    public static ModificationTracker getJavaModificationTracker(@NotNull PsiElement element) {
+        return PsiModificationTracker.getInstance(element.getProject())
+                .forLanguage(JavaLanguage.INSTANCE);
     }
 
     public static boolean isConcrete(@NotNull PsiClass argClass) {
@@ -82,4 +287,75 @@ public final class Utils {
                 && !argClass.isInterface()
                 && !argClass.hasModifierProperty(ABSTRACT);
     }
+
+    /**
+     * Checks if the given element is annotated with the given annotation using only the source
+     * text and the containing file's imports, so it can be used where resolving is not allowed
+     * (e.g. while indexing).
+     */
+    public static boolean isAnnotatedSyntactically(
+            @NotNull PsiModifierListOwner owner,
+            @NotNull String annotationFqn) {
+        return findAnnotationSyntactically(owner, annotationFqn) != null;
+    }
+
+    /**
+     * Finds the given annotation on the element using only the source text and the containing
+     * file's imports. See {@link #isAnnotatedSyntactically}.
+     */
+    @Nullable
+    public static PsiAnnotation findAnnotationSyntactically(
+            @NotNull PsiModifierListOwner owner,
+            @NotNull String annotationFqn) {
+        PsiModifierList modifierList = owner.getModifierList();
+        if (modifierList == null) {
+            return null;
+        }
+        for (PsiAnnotation annotation : modifierList.getAnnotations()) {
+            PsiJavaCodeReferenceElement reference = annotation.getNameReferenceElement();
+            if (reference != null && refersToSyntactically(reference, annotationFqn)) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the reference is written as the given class's qualified name, or as its short
+     * name imported in the containing file, ignoring type arguments.
+     */
+    private static boolean refersToSyntactically(
+            @NotNull PsiJavaCodeReferenceElement reference,
+            @NotNull String classFqn) {
+        String text = StringUtil.substringBefore(reference.getText(), "<");
+        if (classFqn.equals(StringUtil.trim(text != null ? text : reference.getText()))) {
+            return true;
+        }
+        return !reference.isQualified()
+                && StringUtil.getShortName(classFqn).equals(reference.getReferenceName())
+                && isImported(reference.getContainingFile(), classFqn);
+    }
+
+    private static boolean isImported(@Nullable PsiFile file, @NotNull String fqn) {
+        if (!(file instanceof PsiJavaFile javaFile)) {
+            return false;
+        }
+        String packageName = StringUtil.getPackageName(fqn);
+        if (packageName.equals(javaFile.getPackageName())) {
+            return true;
+        }
+        PsiImportList importList = javaFile.getImportList();
+        if (importList == null) {
+            return false;
+        }
+        for (PsiImportStatement importStatement : importList.getImportStatements()) {
+            String importedName = importStatement.getQualifiedName();
+            if (importStatement.isOnDemand()
+                    ? packageName.equals(importedName)
+                    : fqn.equals(importedName)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,136 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.codeInspection.options.OptPane;
+import com.intellij.psi.JavaElementVisitor;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassObjectAccessExpression;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiElementVisitor;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiLocalVariable;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.PsiReferenceExpression;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.PsiUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.intellij.codeInspection.options.OptPane.pane;
+import static com.intellij.codeInspection.options.OptPane.stringList;
+import static com.intellij.psi.util.InheritanceUtil.isInheritor;
+import static com.intellij.psi.util.PsiTreeUtil.getParentOfType;
+import static org.elasticsoftware.elasticactors.Utils.ACTOR_SYSTEM_CLASS;
+import static org.elasticsoftware.elasticactors.Utils.isHandler;
+import static org.elasticsoftware.elasticactors.Utils.isOnReceiveMethod;
+
+public class ActorLookupInHandlerInspection extends AbstractBaseJavaLocalInspectionTool {
+
+    private static final List<String> DEFAULT_LOOKUP_METHODS = List.of(
+            ACTOR_SYSTEM_CLASS + "#actorFor",
+            ACTOR_SYSTEM_CLASS + "#actorOf",
+            ACTOR_SYSTEM_CLASS + "#serviceActorFor",
+            "org.elasticsoftware.elasticactors.ActorSystems#get",
+            "org.elasticsoftware.elasticactors.ActorSystems#getRemote",
+            "org.elasticsoftware.elasticactors.cluster.ActorRefFactory#create");
+
+    /**
+     * Methods looking up or creating actors, in the format
+     * {@code fully.qualified.ClassName#methodName}. Overriding methods in subclasses are matched
+     * as well.
+     */
+    public List<String> lookupMethods = new ArrayList<>(DEFAULT_LOOKUP_METHODS);
+
+    @NotNull
+    @Override
+    public OptPane getOptionsPane() {
+        return pane(stringList("lookupMethods", "Actor lookup methods (ClassName#methodName):"));
+    }
+
+    @NotNull
+    @Override
+    public PsiElementVisitor buildVisitor(
+            @NotNull ProblemsHolder holder, boolean isOnTheFly) {
+        List<String> methods = List.copyOf(lookupMethods);
+        return new JavaElementVisitor() {
+            @Override
+            public void visitMethodCallExpression(@NotNull PsiMethodCallExpression methodCall) {
+                super.visitMethodCallExpression(methodCall);
+                PsiElement nameElement = methodCall.getMethodExpression().getReferenceNameElement();
+                if (nameElement == null
+                        || !hasConstantArguments(methodCall)
+                        || !isInHandler(methodCall)) {
+                    return;
+                }
+                PsiMethod calledMethod = methodCall.resolveMethod();
+                if (calledMethod != null && isLookupMethod(calledMethod, methods)) {
+                    LocalQuickFix[] fixes = HoistActorLookupFix.isAvailable(methodCall)
+                            ? new LocalQuickFix[]{new HoistActorLookupFix()}
+                            : LocalQuickFix.EMPTY_ARRAY;
+                    holder.registerProblem(
+                            nameElement,
+                            "'" + calledMethod.getName() + "()' is called with the same "
+                                    + "arguments for every message; resolve it once when the "
+                                    + "actor is created",
+                            fixes);
+                }
+            }
+        };
+    }
+
+    /**
+     * Checks if the arguments of the call can't change between messages, i.e. they're all
+     * compile-time constants or class literals. Constants declared in the handler itself don't
+     * count, since they wouldn't be in scope where the lookup is moved to.
+     */
+    private static boolean hasConstantArguments(@NotNull PsiMethodCallExpression methodCall) {
+        PsiExpression[] arguments = methodCall.getArgumentList().getExpressions();
+        if (arguments.length == 0) {
+            return false;
+        }
+        for (PsiExpression argument : arguments) {
+            if (!(PsiUtil.skipParenthesizedExprDown(argument)
+                    instanceof PsiClassObjectAccessExpression)
+                    && !PsiUtil.isConstantExpression(argument)) {
+                return false;
+            }
+            for (PsiReferenceExpression reference :
+                    PsiTreeUtil.collectElementsOfType(argument, PsiReferenceExpression.class)) {
+                PsiElement target = reference.resolve();
+                if (target instanceof PsiLocalVariable || target instanceof PsiParameter) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isInHandler(@NotNull PsiElement element) {
+        PsiMethod method = getParentOfType(element, PsiMethod.class);
+        return method != null && (isHandler(method) || isOnReceiveMethod(method));
+    }
+
+    private static boolean isLookupMethod(
+            @NotNull PsiMethod method,
+            @NotNull List<String> lookupMethods) {
+        PsiClass containingClass = method.getContainingClass();
+        if (containingClass == null) {
+            return false;
+        }
+        for (String lookupMethod : lookupMethods) {
+            int separator = lookupMethod.indexOf('#');
+            if (separator > 0
+                    && method.getName().equals(lookupMethod.substring(separator + 1))
+                    && isInheritor(containingClass, lookupMethod.substring(0, separator))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,252 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.psi.CommonClassNames;
+import com.intellij.psi.PsiAssignmentExpression;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassObjectAccessExpression;
+import com.intellij.psi.PsiCodeBlock;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiExpressionList;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiLocalVariable;
+import com.intellij.psi.PsiMember;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.PsiReferenceExpression;
+import com.intellij.psi.PsiReturnStatement;
+import com.intellij.psi.search.searches.ReferencesSearch;
+import com.intellij.psi.util.CachedValueProvider.Result;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.PsiUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static com.intellij.psi.PsiModifier.STATIC;
+import static com.intellij.psi.PsiModifier.TRANSIENT;
+import static com.intellij.psi.util.InheritanceUtil.isInheritor;
+import static com.intellij.psi.util.PsiTreeUtil.getParentOfType;
+import static com.intellij.psi.util.PsiTypesUtil.getPsiClass;
+import static org.elasticsoftware.elasticactors.Utils.isActorState;
+import static org.elasticsoftware.elasticactors.Utils.isElasticActor;
+import static org.elasticsoftware.elasticactors.Utils.isHandler;
+
+/**
+ * Models the persisted footprint of an {@code ActorState} class: its estimated serialized size,
+ * the classes serialized along with it and its collection fields which only ever grow.
+ * <p>
+ * A collection or map field is considered to be growing when elements are added to it by a
+ * Message Handler, an actor or the state class itself, but it's never trimmed: no elements are
+ * removed from it, it's never cleared or reassigned outside of constructors, and it's never
+ * passed to other methods, which might do either. Usages through getters and local variables
+ * are followed one level deep.
+ */
+public final class ActorStateFootprint {
+
+    private static final Set<String> GROWING_METHODS = Set.of(
+            "add",
+            "addAll",
+            "addFirst",
+            "addLast",
+            "offer",
+            "offerFirst",
+            "offerLast",
+            "push",
+            "put",
+            "putAll",
+            "putIfAbsent",
+            "computeIfAbsent",
+            "merge");
+
+    private static final Set<String> TRIMMING_METHODS = Set.of(
+            "remove",
+            "removeAll",
+            "removeIf",
+            "retainAll",
+            "clear",
+            "poll",
+            "pollFirst",
+            "pollLast",
+            "pollFirstEntry",
+            "pollLastEntry",
+            "pop",
+            "removeFirst",
+            "removeLast",
+            "compute",
+            "computeIfPresent",
+            "replaceAll",
+            "iterator",
+            "listIterator");
+
+    /**
+     * The footprint of a state class.
+     *
+     * @param estimate the estimated serialized size of the class
+     * @param growingFields the fields, including inherited ones, holding collections which are
+     * added to but never trimmed
+     */
+    public record Footprint(
+            @NotNull MessageSizeEstimator.Estimate estimate,
+            @NotNull List<PsiField> growingFields) {
+    }
+
+    private static final class Usage {
+
+        private boolean grows;
+        private boolean trimmed;
+    }
+
+    private ActorStateFootprint() {
+    }
+
+    /**
+     * Computes the footprint of the given state class, cached until the PSI changes. Finding the
+     * growing collections searches the whole project, so this must not be called while
+     * highlighting.
+     */
+    @NotNull
+    public static Footprint compute(@NotNull PsiClass stateClass) {
+        return CachedValuesManager.getCachedValue(stateClass, () -> {
+            List<PsiField> growingFields = new ArrayList<>();
+            for (PsiField field : stateClass.getAllFields()) {
+                if (isGrowing(field)) {
+                    growingFields.add(field);
+                }
+            }
+            return Result.create(
+                    new Footprint(
+                            MessageSizeEstimator.estimate(stateClass, getEncoding(stateClass)),
+                            Collections.unmodifiableList(growingFields)),
+                    PsiModificationTracker.getInstance(stateClass.getProject()));
+        });
+    }
+
+    /**
+     * Returns the encoding of the serialization framework returned by the class'
+     * {@code getSerializationFramework()} method, defaulting to JSON.
+     */
+    @NotNull
+    public static MessageSizeEstimator.Encoding getEncoding(@NotNull PsiClass stateClass) {
+        for (PsiMethod method : stateClass.findMethodsByName("getSerializationFramework", true)) {
+            PsiCodeBlock body = method.getBody();
+            if (body == null) {
+                continue;
+            }
+            for (PsiClassObjectAccessExpression classObjectAccess : PsiTreeUtil.findChildrenOfType(
+                    body,
+                    PsiClassObjectAccessExpression.class)) {
+                MessageSizeEstimator.Encoding encoding = MessageSizeEstimator.getFrameworkEncoding(
+                        classObjectAccess.getOperand().getType());
+                if (encoding == MessageSizeEstimator.Encoding.PROTOBUF) {
+                    return encoding;
+                }
+            }
+            return MessageSizeEstimator.Encoding.JSON;
+        }
+        return MessageSizeEstimator.Encoding.JSON;
+    }
+
+    /**
+     * Checks if the given field holds a collection or map which is added to but never trimmed.
+     * Searches the usages of the field, of its getters and of the variables it's assigned to in
+     * the whole project, so this must not be called while highlighting.
+     */
+    public static boolean isGrowing(@NotNull PsiField field) {
+        if (field.hasModifierProperty(STATIC)
+                || field.hasModifierProperty(TRANSIENT)
+                || !isCollection(getPsiClass(field.getType()))) {
+            return false;
+        }
+        Usage usage = new Usage();
+        for (PsiReference reference : ReferencesSearch.search(field).findAll()) {
+            if (reference.getElement() instanceof PsiReferenceExpression expression) {
+                classify(expression, usage, true);
+            }
+            if (usage.trimmed) {
+                break;
+            }
+        }
+        return usage.grows && !usage.trimmed;
+    }
+
+    private static boolean isCollection(@Nullable PsiClass psiClass) {
+        return psiClass != null
+                && (isInheritor(psiClass, CommonClassNames.JAVA_UTIL_COLLECTION)
+                || isInheritor(psiClass, CommonClassNames.JAVA_UTIL_MAP));
+    }
+
+    private static void classify(
+            @NotNull PsiExpression expression,
+            @NotNull Usage usage,
+            boolean followIndirections) {
+        ProgressManager.checkCanceled();
+        if (expression instanceof PsiReferenceExpression reference
+                && PsiUtil.isAccessedForWriting(reference)) {
+            if (!isInConstructor(reference)) {
+                usage.trimmed = true;
+            }
+            return;
+        }
+        PsiElement parent = PsiUtil.skipParenthesizedExprUp(expression.getParent());
+        if (parent instanceof PsiReferenceExpression qualified
+                && qualified.getParent() instanceof PsiMethodCallExpression call) {
+            String name = qualified.getReferenceName();
+            if (TRIMMING_METHODS.contains(name)) {
+                usage.trimmed = true;
+            } else if (GROWING_METHODS.contains(name) && isInMutator(call)) {
+                usage.grows = true;
+            }
+        } else if (parent instanceof PsiExpressionList
+                || parent instanceof PsiAssignmentExpression) {
+            // Passed to another method or aliased by another field, which might trim it
+            usage.trimmed = true;
+        } else if (followIndirections && parent instanceof PsiReturnStatement) {
+            PsiMethod getter = getParentOfType(parent, PsiMethod.class);
+            if (getter != null) {
+                for (PsiReference reference : ReferencesSearch.search(getter).findAll()) {
+                    if (reference.getElement() instanceof PsiReferenceExpression methodExpression
+                            && methodExpression.getParent()
+                            instanceof PsiMethodCallExpression getterCall) {
+                        classify(getterCall, usage, false);
+                    }
+                }
+            }
+        } else if (parent instanceof PsiLocalVariable variable) {
+            for (PsiReference reference : ReferencesSearch.search(variable).findAll()) {
+                if (reference.getElement() instanceof PsiReferenceExpression variableReference) {
+                    classify(variableReference, usage, false);
+                }
+            }
+        }
+    }
+
+    private static boolean isInConstructor(@NotNull PsiElement element) {
+        PsiMember member = getParentOfType(element, PsiMethod.class, PsiField.class);
+        return member instanceof PsiField
+                || (member instanceof PsiMethod method && method.isConstructor());
+    }
+
+    /**
+     * Checks if the element is inside a method which runs while handling messages: a Message
+     * Handler, a method of an actor or a method of a state class, other than constructors.
+     */
+    private static boolean isInMutator(@NotNull PsiElement element) {
+        PsiMethod method = getParentOfType(element, PsiMethod.class);
+        if (method == null || method.isConstructor()) {
+            return false;
+        }
+        PsiClass containingClass = method.getContainingClass();
+        return isHandler(method)
+                || isElasticActor(containingClass)
+                || isActorState(containingClass);
+    }
+}
@@ -0,0 +1,85 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.codeInspection.options.OptPane;
+import com.intellij.psi.JavaElementVisitor;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElementVisitor;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiIdentifier;
+import org.jetbrains.annotations.NotNull;
+
+import static com.intellij.codeInspection.options.OptPane.checkbox;
+import static com.intellij.codeInspection.options.OptPane.number;
+import static com.intellij.codeInspection.options.OptPane.pane;
+import static org.elasticsoftware.elasticactors.Utils.isActorState;
+import static org.elasticsoftware.elasticactors.Utils.isConcrete;
+import static org.elasticsoftware.elasticactors.plugin.ActorStateFootprint.getEncoding;
+import static org.elasticsoftware.elasticactors.plugin.ActorStateFootprint.isGrowing;
+import static org.elasticsoftware.elasticactors.plugin.MessageSizeEstimator.estimate;
+import static org.elasticsoftware.elasticactors.plugin.MessageSizeEstimator.formatSize;
+
+public class ActorStateFootprintInspection extends AbstractBaseJavaLocalInspectionTool {
+
+    /**
+     * Maximum estimated serialized size, in bytes.
+     */
+    public int maxSize = 32 * 1024;
+
+    public boolean reportGrowingCollections = true;
+
+    @NotNull
+    @Override
+    public OptPane getOptionsPane() {
+        return pane(
+                number("maxSize",
+                        "Maximum estimated serialized size (bytes):",
+                        1,
+                        Integer.MAX_VALUE),
+                checkbox("reportGrowingCollections",
+                        "Report collections which are added to but never trimmed "
+                                + "(batch mode only)"));
+    }
+
+    @NotNull
+    @Override
+    public PsiElementVisitor buildVisitor(
+            @NotNull ProblemsHolder holder, boolean isOnTheFly) {
+        return new JavaElementVisitor() {
+            @Override
+            public void visitClass(@NotNull PsiClass aClass) {
+                super.visitClass(aClass);
+                PsiIdentifier nameIdentifier = aClass.getNameIdentifier();
+                if (nameIdentifier != null && isActorState(aClass) && isConcrete(aClass)) {
+                    MessageSizeEstimator.Estimate estimate = estimate(aClass, getEncoding(aClass));
+                    if (estimate.bytes() > maxSize) {
+                        holder.registerProblem(
+                                nameIdentifier,
+                                "Estimated serialized size of ActorState class ("
+                                        + formatSize(estimate.bytes()) + ") exceeds "
+                                        + formatSize(maxSize)
+                                        + "; it's persisted on every state change");
+                    }
+                }
+            }
+
+            @Override
+            public void visitField(@NotNull PsiField field) {
+                super.visitField(field);
+                PsiIdentifier nameIdentifier = field.getNameIdentifier();
+                // Searching the usages of the field is too expensive for on-the-fly highlighting
+                if (reportGrowingCollections
+                        && !isOnTheFly
+                        && isActorState(field.getContainingClass())
+                        && isGrowing(field)) {
+                    holder.registerProblem(
+                            nameIdentifier,
+                            "Collection in ActorState class is added to but never trimmed, so "
+                                    + "the persisted state grows without bound");
+                }
+            }
+        };
+    }
+
+}
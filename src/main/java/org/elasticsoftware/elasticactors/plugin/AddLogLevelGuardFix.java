@@ -0,0 +1,58 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiExpressionStatement;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.codeStyle.CodeStyleManager;
+import org.jetbrains.annotations.NotNull;
+
+import static com.intellij.psi.util.PsiTreeUtil.getParentOfType;
+
+/**
+ * Wraps a logging statement such as {@code logger.debug(...)} in
+ * {@code if (logger.isDebugEnabled())}.
+ */
+class AddLogLevelGuardFix implements LocalQuickFix {
+
+    @NotNull
+    @Override
+    public String getFamilyName() {
+        return "Add log level guard";
+    }
+
+    static boolean isAvailable(@NotNull PsiMethodCallExpression logCall) {
+        return logCall.getMethodExpression().getQualifierExpression() != null
+                && logCall.getParent() instanceof PsiExpressionStatement;
+    }
+
+    @NotNull
+    static String getGuardName(@NotNull String level) {
+        return "is" + Character.toUpperCase(level.charAt(0)) + level.substring(1) + "Enabled";
+    }
+
+    @Override
+    public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+        PsiMethodCallExpression logCall =
+                getParentOfType(descriptor.getPsiElement(), PsiMethodCallExpression.class);
+        if (logCall == null
+                || !isAvailable(logCall)
+                || !(logCall.resolveMethod() instanceof PsiMethod method)) {
+            return;
+        }
+        String level = AllocationInHandlerInspection.getLogLevel(method);
+        PsiExpression qualifier = logCall.getMethodExpression().getQualifierExpression();
+        if (level == null || qualifier == null) {
+            return;
+        }
+        PsiExpressionStatement statement = (PsiExpressionStatement) logCall.getParent();
+        String text = "if (" + qualifier.getText() + "." + getGuardName(level) + "()) {\n"
+                + statement.getText() + "\n}";
+        CodeStyleManager.getInstance(project).reformat(statement.replace(
+                JavaPsiFacade.getElementFactory(project).createStatementFromText(text, statement)));
+    }
+}
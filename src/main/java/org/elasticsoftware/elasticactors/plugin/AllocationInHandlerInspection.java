@@ -0,0 +1,336 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.codeInspection.options.OptPane;
+import com.intellij.psi.JavaElementVisitor;
+import com.intellij.psi.JavaRecursiveElementWalkingVisitor;
+import com.intellij.psi.JavaResolveResult;
+import com.intellij.psi.JavaTokenType;
+import com.intellij.psi.PsiAssignmentExpression;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiElementVisitor;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiIfStatement;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.PsiNewExpression;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.PsiPolyadicExpression;
+import com.intellij.psi.PsiPostfixExpression;
+import com.intellij.psi.PsiPrefixExpression;
+import com.intellij.psi.PsiPrimitiveType;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.PsiTypes;
+import com.intellij.psi.PsiUnaryExpression;
+import com.intellij.psi.util.PsiUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static com.intellij.codeInspection.options.OptPane.checkbox;
+import static com.intellij.codeInspection.options.OptPane.pane;
+import static com.intellij.codeInspection.options.OptPane.stringList;
+import static com.intellij.psi.util.InheritanceUtil.isInheritor;
+import static com.intellij.psi.util.PsiTreeUtil.getParentOfType;
+import static com.intellij.psi.util.PsiTreeUtil.isAncestor;
+import static org.elasticsoftware.elasticactors.Utils.isHandler;
+import static org.elasticsoftware.elasticactors.Utils.isOnReceiveMethod;
+
+public class AllocationInHandlerInspection extends AbstractBaseJavaLocalInspectionTool {
+
+    private static final List<String> DEFAULT_SHARED_CLASSES = List.of(
+            "com.fasterxml.jackson.databind.ObjectMapper",
+            "com.google.gson.Gson",
+            "java.security.SecureRandom");
+
+    private static final List<String> DEFAULT_SHARED_FACTORIES = List.of(
+            "java.util.regex.Pattern#compile",
+            "java.time.format.DateTimeFormatter#ofPattern",
+            "javax.xml.bind.JAXBContext#newInstance");
+
+    private static final List<String> LOGGER_CLASSES = List.of(
+            "org.slf4j.Logger",
+            "org.apache.logging.log4j.Logger");
+
+    private static final Set<String> LOG_LEVELS = Set.of("trace", "debug", "info", "warn", "error");
+
+    /**
+     * Classes whose instances are expensive to create and can be shared.
+     */
+    public List<String> sharedClasses = new ArrayList<>(DEFAULT_SHARED_CLASSES);
+
+    /**
+     * Factory methods creating instances which can be shared, in the format
+     * {@code fully.qualified.ClassName#methodName}.
+     */
+    public List<String> sharedFactories = new ArrayList<>(DEFAULT_SHARED_FACTORIES);
+
+    public boolean reportBoxing = true;
+
+    public boolean reportUnguardedLogFormatting = true;
+
+    public boolean reportStreams = true;
+
+    @NotNull
+    @Override
+    public OptPane getOptionsPane() {
+        return pane(
+                stringList("sharedClasses",
+                        "Classes which should not be instantiated per message:"),
+                stringList("sharedFactories",
+                        "Factory methods which should not be called per message "
+                                + "(ClassName#methodName):"),
+                checkbox("reportBoxing", "Report implicit boxing"),
+                checkbox("reportUnguardedLogFormatting",
+                        "Report log messages formatted without a log level guard"),
+                checkbox("reportStreams", "Report stream pipelines"));
+    }
+
+    @NotNull
+    @Override
+    public PsiElementVisitor buildVisitor(
+            @NotNull ProblemsHolder holder, boolean isOnTheFly) {
+        return new JavaElementVisitor() {
+            @Override
+            public void visitMethod(@NotNull PsiMethod method) {
+                super.visitMethod(method);
+                if (method.getBody() != null && (isHandler(method) || isOnReceiveMethod(method))) {
+                    method.getBody().accept(new AllocationVisitor(holder));
+                }
+            }
+        };
+    }
+
+    /**
+     * Visits the code running for every message. Lambdas are included, since they are usually
+     * run synchronously (e.g. by {@code forEach}), but local and anonymous classes are not.
+     */
+    private class AllocationVisitor extends JavaRecursiveElementWalkingVisitor {
+
+        private final ProblemsHolder holder;
+
+        private AllocationVisitor(@NotNull ProblemsHolder holder) {
+            this.holder = holder;
+        }
+
+        @Override
+        public void visitClass(@NotNull PsiClass aClass) {
+        }
+
+        @Override
+        public void visitNewExpression(@NotNull PsiNewExpression expression) {
+            super.visitNewExpression(expression);
+            if (expression.getAnonymousClass() != null
+                    || expression.getClassReference() == null
+                    || !(expression.getClassReference().resolve() instanceof PsiClass psiClass)) {
+                return;
+            }
+            for (String sharedClass : sharedClasses) {
+                if (isInheritor(psiClass, sharedClass)) {
+                    registerSharedInstanceProblem(
+                            expression,
+                            "New '" + psiClass.getName() + "' instance created for every message");
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void visitMethodCallExpression(@NotNull PsiMethodCallExpression methodCall) {
+            super.visitMethodCallExpression(methodCall);
+            PsiElement nameElement = methodCall.getMethodExpression().getReferenceNameElement();
+            JavaResolveResult resolveResult = methodCall.resolveMethodGenerics();
+            if (nameElement == null || !(resolveResult.getElement() instanceof PsiMethod method)) {
+                return;
+            }
+            PsiClass containingClass = method.getContainingClass();
+            if (containingClass == null) {
+                return;
+            }
+            for (String sharedFactory : sharedFactories) {
+                int separator = sharedFactory.indexOf('#');
+                if (separator > 0
+                        && method.getName().equals(sharedFactory.substring(separator + 1))
+                        && isInheritor(containingClass, sharedFactory.substring(0, separator))) {
+                    registerSharedInstanceProblem(
+                            methodCall,
+                            "'" + containingClass.getName() + "." + method.getName()
+                                    + "()' called for every message");
+                }
+            }
+            if (reportStreams && isStreamCreation(method, containingClass)) {
+                holder.registerProblem(
+                        nameElement,
+                        "Stream pipeline allocates several objects for every message");
+            }
+            if (reportUnguardedLogFormatting && isUnguardedFormattedLogCall(methodCall, method)) {
+                LocalQuickFix[] fixes = AddLogLevelGuardFix.isAvailable(methodCall)
+                        ? new LocalQuickFix[]{new AddLogLevelGuardFix()}
+                        : LocalQuickFix.EMPTY_ARRAY;
+                holder.registerProblem(
+                        nameElement,
+                        "Log message is formatted for every message, "
+                                + "even if the log level is disabled",
+                        fixes);
+            }
+            if (reportBoxing) {
+                PsiExpression[] arguments = methodCall.getArgumentList().getExpressions();
+                PsiParameter[] parameters = method.getParameterList().getParameters();
+                for (int i = 0; i < arguments.length && i < parameters.length; i++) {
+                    if (!parameters[i].isVarArgs()) {
+                        checkBoxing(
+                                arguments[i],
+                                resolveResult.getSubstitutor().substitute(parameters[i].getType()));
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void visitAssignmentExpression(@NotNull PsiAssignmentExpression expression) {
+            super.visitAssignmentExpression(expression);
+            if (reportBoxing && expression.getRExpression() != null) {
+                PsiType targetType = expression.getLExpression().getType();
+                if (expression.getOperationTokenType() != JavaTokenType.EQ
+                        && PsiPrimitiveType.getUnboxedType(targetType) != null) {
+                    registerBoxingProblem(expression, targetType);
+                } else {
+                    checkBoxing(expression.getRExpression(), targetType);
+                }
+            }
+        }
+
+        @Override
+        public void visitPrefixExpression(@NotNull PsiPrefixExpression expression) {
+            super.visitPrefixExpression(expression);
+            checkIncrement(expression);
+        }
+
+        @Override
+        public void visitPostfixExpression(@NotNull PsiPostfixExpression expression) {
+            super.visitPostfixExpression(expression);
+            checkIncrement(expression);
+        }
+
+        private void checkIncrement(@NotNull PsiUnaryExpression expression) {
+            PsiType type = expression.getOperand() != null
+                    ? expression.getOperand().getType()
+                    : null;
+            if (reportBoxing
+                    && PsiUtil.isIncrementDecrementOperation(expression)
+                    && PsiPrimitiveType.getUnboxedType(type) != null) {
+                registerBoxingProblem(expression, type);
+            }
+        }
+
+        private void checkBoxing(@NotNull PsiExpression expression, @Nullable PsiType targetType) {
+            if (expression.getType() instanceof PsiPrimitiveType
+                    && !PsiTypes.nullType().equals(expression.getType())
+                    && targetType != null
+                    && !(targetType instanceof PsiPrimitiveType)) {
+                registerBoxingProblem(expression, expression.getType());
+            }
+        }
+
+        private void registerBoxingProblem(
+                @NotNull PsiExpression expression,
+                @NotNull PsiType type) {
+            PsiType primitiveType = type instanceof PsiPrimitiveType
+                    ? type
+                    : PsiPrimitiveType.getUnboxedType(type);
+            holder.registerProblem(
+                    expression,
+                    "Implicit boxing of '"
+                            + (primitiveType != null ? primitiveType : type).getPresentableText()
+                            + "' allocates for every message");
+        }
+
+        private void registerSharedInstanceProblem(
+                @NotNull PsiExpression expression,
+                @NotNull String message) {
+            LocalQuickFix[] fixes = HoistToStaticFieldFix.isAvailable(expression)
+                    ? new LocalQuickFix[]{new HoistToStaticFieldFix()}
+                    : LocalQuickFix.EMPTY_ARRAY;
+            holder.registerProblem(expression, message, fixes);
+        }
+    }
+
+    private static boolean isStreamCreation(
+            @NotNull PsiMethod method,
+            @NotNull PsiClass containingClass) {
+        return ("stream".equals(method.getName())
+                && method.getParameterList().isEmpty()
+                && isInheritor(containingClass, "java.util.Collection"))
+                || ("of".equals(method.getName())
+                && "java.util.stream.Stream".equals(containingClass.getQualifiedName()));
+    }
+
+    private static boolean isUnguardedFormattedLogCall(
+            @NotNull PsiMethodCallExpression methodCall,
+            @NotNull PsiMethod method) {
+        if (getLogLevel(method) == null) {
+            return false;
+        }
+        boolean formatted = false;
+        for (PsiExpression argument : methodCall.getArgumentList().getExpressions()) {
+            formatted |= isFormatted(argument);
+        }
+        return formatted && !isGuarded(methodCall, method.getName());
+    }
+
+    /**
+     * Returns the log level of a logging method such as {@code Logger.debug(...)}, or
+     * {@code null} if the method is not one.
+     */
+    @Nullable
+    static String getLogLevel(@NotNull PsiMethod method) {
+        PsiClass containingClass = method.getContainingClass();
+        if (containingClass == null || !LOG_LEVELS.contains(method.getName())) {
+            return null;
+        }
+        for (String loggerClass : LOGGER_CLASSES) {
+            if (isInheritor(containingClass, loggerClass)) {
+                return method.getName();
+            }
+        }
+        return null;
+    }
+
+    private static boolean isFormatted(@NotNull PsiExpression argument) {
+        if (argument instanceof PsiPolyadicExpression polyadic) {
+            return polyadic.getType() != null
+                    && polyadic.getType().equalsToText("java.lang.String")
+                    && !PsiUtil.isConstantExpression(polyadic);
+        }
+        if (argument instanceof PsiMethodCallExpression call
+                && "format".equals(call.getMethodExpression().getReferenceName())) {
+            PsiMethod method = call.resolveMethod();
+            return method != null
+                    && method.getContainingClass() != null
+                    && "java.lang.String".equals(method.getContainingClass().getQualifiedName());
+        }
+        return false;
+    }
+
+    private static boolean isGuarded(
+            @NotNull PsiMethodCallExpression methodCall,
+            @NotNull String level) {
+        String guardName = AddLogLevelGuardFix.getGuardName(level);
+        for (PsiIfStatement ifStatement = getParentOfType(methodCall, PsiIfStatement.class);
+             ifStatement != null;
+             ifStatement = getParentOfType(ifStatement, PsiIfStatement.class)) {
+            if (ifStatement.getCondition() != null
+                    && isAncestor(ifStatement.getThenBranch(), methodCall, false)
+                    && ifStatement.getCondition().getText().contains(guardName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,50 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.psi.JavaElementVisitor;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiElementVisitor;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import org.jetbrains.annotations.NotNull;
+
+import static com.intellij.psi.util.PsiTreeUtil.getParentOfType;
+import static org.elasticsoftware.elasticactors.Utils.isHandler;
+import static org.elasticsoftware.elasticactors.Utils.isOnReceiveMethod;
+
+public class AskInHandlerInspection extends AbstractBaseJavaLocalInspectionTool {
+
+    @NotNull
+    @Override
+    public PsiElementVisitor buildVisitor(
+            @NotNull ProblemsHolder holder, boolean isOnTheFly) {
+        return new JavaElementVisitor() {
+            @Override
+            public void visitMethodCallExpression(@NotNull PsiMethodCallExpression methodCall) {
+                super.visitMethodCallExpression(methodCall);
+                PsiElement nameElement = methodCall.getMethodExpression().getReferenceNameElement();
+                if (nameElement != null
+                        && "ask".equals(nameElement.getText())
+                        && methodCall.getArgumentList().getExpressionCount() == 2) {
+                    PsiMethod enclosingMethod = getParentOfType(methodCall, PsiMethod.class);
+                    if (enclosingMethod != null
+                            && (isHandler(enclosingMethod) || isOnReceiveMethod(enclosingMethod))
+                            && ElasticActorsFileModel.getInstance(methodCall)
+                            .getSendSite(methodCall) != null) {
+                        LocalQuickFix[] fixes = ReplaceAskWithTellFix.isAvailable(methodCall)
+                                ? new LocalQuickFix[]{new ReplaceAskWithTellFix()}
+                                : LocalQuickFix.EMPTY_ARRAY;
+                        holder.registerProblem(
+                                nameElement,
+                                "Calling 'ask()' inside a message handler creates a temporary "
+                                        + "actor for every message",
+                                fixes);
+                    }
+                }
+            }
+        };
+    }
+
+}
@@ -0,0 +1,399 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInsight.intention.preview.IntentionPreviewInfo;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiAnnotation;
+import com.intellij.psi.PsiAnnotationMemberValue;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiCodeBlock;
+import com.intellij.psi.PsiCompiledElement;
+import com.intellij.psi.PsiDirectory;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiElementFactory;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiExpressionStatement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiFileFactory;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiLabeledStatement;
+import com.intellij.psi.PsiLambdaExpression;
+import com.intellij.psi.PsiLoopStatement;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.PsiNameValuePair;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.PsiReturnStatement;
+import com.intellij.psi.PsiStatement;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.psi.codeStyle.CodeStyleManager;
+import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.indexing.FileBasedIndex;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static com.intellij.psi.util.PsiTreeUtil.getParentOfType;
+import static com.intellij.psi.util.PsiTypesUtil.getPsiClass;
+import static org.elasticsoftware.elasticactors.Utils.MESSAGE_ANNOTATION_CLASS;
+import static org.elasticsoftware.elasticactors.Utils.MESSAGE_HANDLER_ANNOTATION_CLASS;
+
+/**
+ * Replaces the {@code tell} calls made in a loop to the same actor with a single {@code tell} of a
+ * batch message after the loop. The batch message, {@code <Message>Batch}, is created next to the
+ * message if it doesn't exist yet, and a {@code @MessageHandler} for it, delegating to the
+ * handler of the single message for each one, is added to every actor of the project handling
+ * the message. Handlers are searched under a modal progress, so this fix does not start in a
+ * write action.
+ */
+class BatchTellsFix implements LocalQuickFix {
+
+    private static final String BATCH_SUFFIX = "Batch";
+    private static final String JSON_CREATOR_ANNOTATION =
+            "com.fasterxml.jackson.annotation.JsonCreator";
+
+    /**
+     * What the fix changes outside the loop.
+     *
+     * @param batchClassName the qualified name of the batch message
+     * @param batchClass the batch message, if it already exists
+     * @param handlers the handlers of the message which don't have a batch counterpart yet
+     */
+    private record Preparation(
+            @NotNull String batchClassName,
+            @Nullable PsiClass batchClass,
+            @NotNull List<SmartPsiElementPointer<PsiMethod>> handlers) {
+    }
+
+    @NotNull
+    @Override
+    public String getFamilyName() {
+        return "Send a single batch message after the loop";
+    }
+
+    @Override
+    public boolean startInWriteAction() {
+        return false;
+    }
+
+    @NotNull
+    @Override
+    public IntentionPreviewInfo generatePreview(
+            @NotNull Project project,
+            @NotNull ProblemDescriptor previewDescriptor) {
+        return IntentionPreviewInfo.EMPTY;
+    }
+
+    /**
+     * The fix is available when the call is a statement of its own, the message is declared in
+     * the project's sources and the loop can be followed by the batch {@code tell}, i.e. it's a
+     * statement, or a statement calling the lambda, which can't return from the method halfway.
+     */
+    static boolean isAvailable(
+            @NotNull ElasticActorsFileModel.SendSite sendSite,
+            @NotNull PsiElement loop) {
+        PsiMethodCallExpression call = sendSite.call();
+        PsiClass messageClass = sendSite.messageClass();
+        PsiExpression[] arguments = call.getArgumentList().getExpressions();
+        return call.getParent() instanceof PsiExpressionStatement
+                && messageClass != null
+                && messageClass.getName() != null
+                && !(messageClass instanceof PsiCompiledElement)
+                && messageClass.getContainingFile() instanceof PsiJavaFile messageFile
+                && messageFile.getContainingDirectory() != null
+                && messageClass.getManager().isInProject(messageClass)
+                && arguments.length <= 2
+                && (arguments.length < 2
+                || TellInLoopInspection.isLoopInvariant(arguments[1], loop))
+                && getAnchor(loop) != null;
+    }
+
+    /**
+     * Returns the statement before which the batch is created and after which it's sent.
+     */
+    @Nullable
+    private static PsiStatement getAnchor(@NotNull PsiElement loop) {
+        PsiStatement anchor;
+        if (loop instanceof PsiLoopStatement loopStatement) {
+            if (PsiTreeUtil.findChildrenOfType(loopStatement, PsiReturnStatement.class).stream()
+                    .anyMatch(returnStatement -> !isInNestedLambdaOrClass(returnStatement, loop))) {
+                return null;
+            }
+            anchor = loopStatement;
+            while (anchor.getParent() instanceof PsiLabeledStatement labeled) {
+                anchor = labeled;
+            }
+        } else {
+            anchor = getParentOfType(loop, PsiStatement.class);
+            if (!(anchor instanceof PsiExpressionStatement)) {
+                return null;
+            }
+        }
+        return anchor.getParent() instanceof PsiCodeBlock ? anchor : null;
+    }
+
+    private static boolean isInNestedLambdaOrClass(
+            @NotNull PsiElement element,
+            @NotNull PsiElement loop) {
+        PsiElement parent = PsiTreeUtil.getParentOfType(
+                element,
+                PsiLambdaExpression.class,
+                PsiClass.class);
+        return parent != null && PsiTreeUtil.isAncestor(loop, parent, true);
+    }
+
+    @Override
+    public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+        PsiMethodCallExpression call =
+                getParentOfType(descriptor.getPsiElement(), PsiMethodCallExpression.class);
+        if (call == null) {
+            return;
+        }
+        ElasticActorsFileModel.SendSite sendSite =
+                ElasticActorsFileModel.getInstance(call).getSendSite(call);
+        PsiElement loop = TellInLoopInspection.findEnclosingLoop(call);
+        if (sendSite == null || loop == null || !isAvailable(sendSite, loop)) {
+            return;
+        }
+        PsiClass messageClass = Objects.requireNonNull(sendSite.messageClass());
+        Preparation preparation = ProgressManager.getInstance()
+                .runProcessWithProgressSynchronously(
+                        () -> ReadAction.compute(() -> prepare(project, messageClass)),
+                        "Looking for handlers of " + messageClass.getName(),
+                        true,
+                        project);
+        List<String> updatedActors = new ArrayList<>();
+        WriteCommandAction.writeCommandAction(project)
+                .withName(getFamilyName())
+                .run(() -> {
+                    PsiClass batchClass = preparation.batchClass() != null
+                            ? preparation.batchClass()
+                            : createBatchClass(messageClass);
+                    replaceTells(call, loop, messageClass, batchClass);
+                    for (SmartPsiElementPointer<PsiMethod> pointer : preparation.handlers()) {
+                        PsiMethod handler = pointer.getElement();
+                        if (handler != null && addBatchHandler(handler, messageClass, batchClass)) {
+                            updatedActors.add(
+                                    Objects.requireNonNull(handler.getContainingClass()).getName());
+                        }
+                    }
+                });
+        String content = updatedActors.isEmpty()
+                ? "No @MessageHandler for " + messageClass.getName() + " was found in the project, "
+                + "so the receiving actor must handle " + preparation.batchClassName() + " itself"
+                : "Added a handler of " + StringUtil.getShortName(preparation.batchClassName())
+                + " to " + String.join(", ", updatedActors);
+        NotificationGroupManager.getInstance()
+                .getNotificationGroup("Elastic Actors")
+                .createNotification(
+                        content,
+                        updatedActors.isEmpty()
+                                ? NotificationType.WARNING
+                                : NotificationType.INFORMATION)
+                .notify(project);
+    }
+
+    @NotNull
+    private static Preparation prepare(@NotNull Project project, @NotNull PsiClass messageClass) {
+        String packageName = ((PsiJavaFile) messageClass.getContainingFile()).getPackageName();
+        String batchClassName =
+                StringUtil.getQualifiedName(packageName, messageClass.getName() + BATCH_SUFFIX);
+        PsiClass batchClass = JavaPsiFacade.getInstance(project)
+                .findClass(batchClassName, GlobalSearchScope.projectScope(project));
+
+        SmartPointerManager pointerManager = SmartPointerManager.getInstance(project);
+        PsiManager psiManager = PsiManager.getInstance(project);
+        List<SmartPsiElementPointer<PsiMethod>> handlers = new ArrayList<>();
+        for (VirtualFile file : FileBasedIndex.getInstance().getContainingFiles(
+                MessageFlowIndex.NAME,
+                MessageFlow.Kind.HANDLER.name(),
+                GlobalSearchScope.projectScope(project))) {
+            PsiFile psiFile = psiManager.findFile(file);
+            if (psiFile == null) {
+                continue;
+            }
+            for (ElasticActorsFileModel.Handler handler
+                    : ElasticActorsFileModel.getInstance(psiFile).getHandlers()) {
+                if (messageClass.equals(handler.messageClass())
+                        && !hasBatchHandler(
+                        handler.method().getContainingClass(),
+                        batchClassName)) {
+                    handlers.add(pointerManager.createSmartPsiElementPointer(handler.method()));
+                }
+            }
+        }
+        return new Preparation(batchClassName, batchClass, handlers);
+    }
+
+    private static boolean hasBatchHandler(
+            @Nullable PsiClass actorClass,
+            @NotNull String batchClassName) {
+        if (actorClass == null) {
+            return true;
+        }
+        for (PsiMethod method : actorClass.getMethods()) {
+            if (method.hasAnnotation(MESSAGE_HANDLER_ANNOTATION_CLASS)
+                    && batchClassName.equals(MessageFlow.getHandledMessageClass(method))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates the batch message next to the message, with the same {@code @Message} attributes.
+     */
+    @NotNull
+    private static PsiClass createBatchClass(@NotNull PsiClass messageClass) {
+        Project project = messageClass.getProject();
+        PsiJavaFile messageFile = (PsiJavaFile) messageClass.getContainingFile();
+        PsiDirectory directory = Objects.requireNonNull(messageFile.getContainingDirectory());
+        PsiAnnotation messageAnnotation =
+                Objects.requireNonNull(messageClass.getAnnotation(MESSAGE_ANNOTATION_CLASS));
+        String message = messageClass.getQualifiedName();
+        String name = messageClass.getName() + BATCH_SUFFIX;
+        String attributes = Arrays.stream(messageAnnotation.getParameterList().getAttributes())
+                .map(PsiNameValuePair::getText)
+                .collect(Collectors.joining(", "));
+        PsiAnnotationMemberValue immutableValue = messageAnnotation.findAttributeValue("immutable");
+        boolean immutable = immutableValue != null && "true".equals(immutableValue.getText());
+        boolean jackson = JavaPsiFacade.getInstance(project)
+                .findClass(JSON_CREATOR_ANNOTATION, messageClass.getResolveScope()) != null;
+        String listType = "java.util.List<" + message + ">";
+
+        String text = (messageFile.getPackageName().isEmpty()
+                ? ""
+                : "package " + messageFile.getPackageName() + ";\n\n")
+                + "/**\n"
+                + " * A batch of {@link " + message + "} messages, sent at once instead of one\n"
+                + " * message each.\n"
+                + " */\n"
+                + "@" + MESSAGE_ANNOTATION_CLASS + "(" + attributes + ")\n"
+                + "public final class " + name + " {\n\n"
+                + "private " + (immutable ? "final " : "") + listType + " messages;\n\n"
+                + (jackson ? "@" + JSON_CREATOR_ANNOTATION + "\n" : "")
+                + "public " + name + "("
+                + (jackson ? "@com.fasterxml.jackson.annotation.JsonProperty(\"messages\") " : "")
+                + listType + " messages) {\n"
+                + "this.messages = java.util.Collections.unmodifiableList("
+                + "new java.util.ArrayList<>(messages));\n"
+                + "}\n\n"
+                + "public " + listType + " getMessages() {\n"
+                + "return messages;\n"
+                + "}\n"
+                + "}\n";
+        PsiFile file = PsiFileFactory.getInstance(project).createFileFromText(
+                name + "." + JavaFileType.DEFAULT_EXTENSION,
+                JavaFileType.INSTANCE,
+                text);
+        PsiJavaFile added = (PsiJavaFile) directory.add(file);
+        JavaCodeStyleManager.getInstance(project).shortenClassReferences(added);
+        CodeStyleManager.getInstance(project).reformat(added);
+        return added.getClasses()[0];
+    }
+
+    /**
+     * Collects the messages into a list declared before the loop, and sends them in a single
+     * batch message after it.
+     */
+    private static void replaceTells(
+            @NotNull PsiMethodCallExpression call,
+            @NotNull PsiElement loop,
+            @NotNull PsiClass messageClass,
+            @NotNull PsiClass batchClass) {
+        Project project = call.getProject();
+        PsiStatement anchor = Objects.requireNonNull(getAnchor(loop));
+        PsiElementFactory factory = JavaPsiFacade.getElementFactory(project);
+        JavaCodeStyleManager codeStyleManager = JavaCodeStyleManager.getInstance(project);
+        PsiExpression[] arguments = call.getArgumentList().getExpressions();
+        PsiExpression receiver = call.getMethodExpression().getQualifierExpression();
+
+        String name = codeStyleManager.suggestUniqueVariableName(
+                StringUtil.decapitalize(Objects.requireNonNull(messageClass.getName())) + "s",
+                anchor,
+                true);
+        String listType = "java.util.List<" + messageClass.getQualifiedName() + ">";
+        PsiStatement declaration = factory.createStatementFromText(
+                listType + " " + name + " = new java.util.ArrayList<>();",
+                anchor);
+        PsiStatement send = factory.createStatementFromText(
+                "if (!" + name + ".isEmpty()) {\n"
+                        + (receiver != null ? receiver.getText() + "." : "")
+                        + "tell(new " + batchClass.getQualifiedName() + "(" + name + ")"
+                        + (arguments.length > 1 ? ", " + arguments[1].getText() : "")
+                        + ");\n"
+                        + "}",
+                anchor);
+        PsiElement parent = anchor.getParent();
+        codeStyleManager.shortenClassReferences(parent.addBefore(declaration, anchor));
+        codeStyleManager.shortenClassReferences(parent.addAfter(send, anchor));
+        call.replace(factory.createExpressionFromText(
+                name + ".add(" + arguments[0].getText() + ")",
+                call));
+    }
+
+    /**
+     * Adds a handler of the batch message next to the given handler, calling it for each message
+     * of the batch with the same other arguments.
+     *
+     * @return whether the handler was added
+     */
+    private static boolean addBatchHandler(
+            @NotNull PsiMethod handler,
+            @NotNull PsiClass messageClass,
+            @NotNull PsiClass batchClass) {
+        PsiClass actorClass = handler.getContainingClass();
+        if (actorClass == null || !handler.isWritable()) {
+            return false;
+        }
+        List<String> parameters = new ArrayList<>();
+        List<String> arguments = new ArrayList<>();
+        String batchName = "batch";
+        String elementName = "message";
+        for (PsiParameter parameter : handler.getParameterList().getParameters()) {
+            if (messageClass.equals(getPsiClass(parameter.getType()))) {
+                parameters.add(batchClass.getQualifiedName() + " " + batchName);
+                arguments.add(elementName);
+            } else {
+                parameters.add(parameter.getType().getCanonicalText() + " " + parameter.getName());
+                arguments.add(parameter.getName());
+            }
+        }
+        String throwsList = handler.getThrowsList().getReferencedTypes().length > 0
+                ? " " + handler.getThrowsList().getText()
+                : "";
+        PsiMethod batchHandler = JavaPsiFacade.getElementFactory(actorClass.getProject())
+                .createMethodFromText(
+                        "@" + MESSAGE_HANDLER_ANNOTATION_CLASS + "\n"
+                                + "public void handle" + batchClass.getName() + "("
+                                + String.join(", ", parameters) + ")" + throwsList + " {\n"
+                                + "for (" + messageClass.getQualifiedName() + " " + elementName
+                                + " : " + batchName + ".getMessages()) {\n"
+                                + handler.getName() + "(" + String.join(", ", arguments) + ");\n"
+                                + "}\n"
+                                + "}",
+                        actorClass);
+        JavaCodeStyleManager.getInstance(actorClass.getProject())
+                .shortenClassReferences(actorClass.addAfter(batchHandler, handler));
+        return true;
+    }
+}
@@ -0,0 +1,225 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.codeInspection.options.OptPane;
+import com.intellij.psi.JavaElementVisitor;
+import com.intellij.psi.JavaRecursiveElementWalkingVisitor;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiCodeBlock;
+import com.intellij.psi.PsiCompiledElement;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiElementVisitor;
+import com.intellij.psi.PsiLambdaExpression;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.util.CachedValueProvider.Result;
+import com.intellij.psi.util.CachedValuesManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static com.intellij.codeInspection.options.OptPane.number;
+import static com.intellij.codeInspection.options.OptPane.pane;
+import static com.intellij.codeInspection.options.OptPane.stringList;
+import static com.intellij.psi.PsiModifier.PRIVATE;
+import static com.intellij.psi.util.InheritanceUtil.isInheritor;
+import static org.elasticsoftware.elasticactors.Utils.getJavaModificationTracker;
+import static org.elasticsoftware.elasticactors.Utils.isHandler;
+import static org.elasticsoftware.elasticactors.Utils.isOnReceiveMethod;
+
+public class BlockingCallInHandlerInspection extends AbstractBaseJavaLocalInspectionTool {
+
+    private static final List<String> DEFAULT_BLOCKING_METHODS = List.of(
+            "java.lang.Thread#sleep",
+            "java.lang.Thread#join",
+            "java.lang.Object#wait",
+            "java.util.concurrent.Future#get",
+            "java.util.concurrent.CompletableFuture#join",
+            "java.util.concurrent.CountDownLatch#await",
+            "java.util.concurrent.BlockingQueue#take",
+            "java.util.concurrent.BlockingQueue#put",
+            "java.sql.DriverManager#getConnection",
+            "javax.sql.DataSource#getConnection",
+            "java.sql.Statement#execute",
+            "java.sql.Statement#executeQuery",
+            "java.sql.Statement#executeUpdate",
+            "java.sql.Statement#executeBatch",
+            "java.net.URLConnection#connect",
+            "java.net.URLConnection#getInputStream",
+            "java.net.http.HttpClient#send",
+            "org.apache.http.client.HttpClient#execute",
+            "okhttp3.Call#execute",
+            "org.springframework.web.client.RestOperations#exchange",
+            "org.springframework.web.client.RestOperations#getForObject",
+            "org.springframework.web.client.RestOperations#getForEntity",
+            "org.springframework.web.client.RestOperations#postForObject",
+            "org.springframework.web.client.RestOperations#postForEntity");
+
+    /**
+     * Blocking methods, in the format {@code fully.qualified.ClassName#methodName}.
+     * Overriding methods in subclasses are matched as well.
+     */
+    public List<String> blockingMethods = new ArrayList<>(DEFAULT_BLOCKING_METHODS);
+
+    /**
+     * How many levels of private helper methods are followed when looking for blocking calls.
+     */
+    public int maxDepth = 2;
+
+    /**
+     * The blocking methods and remaining depth used for a cached lookup.
+     */
+    private record LookupKey(@NotNull List<String> blockingMethods, int depth) {
+    }
+
+    @NotNull
+    @Override
+    public OptPane getOptionsPane() {
+        return pane(
+                stringList("blockingMethods", "Blocking methods (ClassName#methodName):"),
+                number("maxDepth", "Maximum depth of private helper methods to analyze:", 0, 10));
+    }
+
+    @NotNull
+    @Override
+    public PsiElementVisitor buildVisitor(
+            @NotNull ProblemsHolder holder, boolean isOnTheFly) {
+        List<String> methods = List.copyOf(blockingMethods);
+        return new JavaElementVisitor() {
+            @Override
+            public void visitMethod(@NotNull PsiMethod method) {
+                super.visitMethod(method);
+                if (isHandler(method) || isOnReceiveMethod(method)) {
+                    processCalls(method.getBody(), methodCall -> {
+                        PsiElement nameElement =
+                                methodCall.getMethodExpression().getReferenceNameElement();
+                        PsiMethod calledMethod = methodCall.resolveMethod();
+                        if (nameElement == null || calledMethod == null) {
+                            return;
+                        }
+                        String blockingMethod = getBlockingMethod(calledMethod, methods);
+                        if (blockingMethod != null) {
+                            holder.registerProblem(
+                                    nameElement,
+                                    "Blocking call to '" + blockingMethod
+                                            + "' inside a message handler");
+                        } else if (maxDepth > 0 && isHelperMethod(calledMethod)) {
+                            findBlockingCall(calledMethod, new LookupKey(methods, maxDepth - 1))
+                                    .ifPresent(found -> holder.registerProblem(
+                                            nameElement,
+                                            "Call to '" + calledMethod.getName()
+                                                    + "()' inside a message handler may block: "
+                                                    + "it calls '" + found + "'"));
+                        }
+                    });
+                }
+            }
+        };
+    }
+
+    /**
+     * Finds a blocking call made by the given helper method, following other helper methods up to
+     * the key's depth. The result is cached per method until the Java PSI or the method's file
+     * changes.
+     */
+    @NotNull
+    private static Optional<String> findBlockingCall(
+            @NotNull PsiMethod helper,
+            @NotNull LookupKey key) {
+        Map<LookupKey, Optional<String>> cache = CachedValuesManager.getCachedValue(
+                helper,
+                () -> Result.create(
+                        new ConcurrentHashMap<LookupKey, Optional<String>>(),
+                        getJavaModificationTracker(helper),
+                        helper.getContainingFile()));
+        Optional<String> result = cache.get(key);
+        if (result == null) {
+            // Recursive calls are bounded by the depth, so it's fine to compute outside the map
+            result = computeBlockingCall(helper, key);
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    @NotNull
+    private static Optional<String> computeBlockingCall(
+            @NotNull PsiMethod helper,
+            @NotNull LookupKey key) {
+        String[] found = {null};
+        processCalls(helper.getBody(), methodCall -> {
+            if (found[0] != null) {
+                return;
+            }
+            PsiMethod calledMethod = methodCall.resolveMethod();
+            if (calledMethod != null) {
+                found[0] = getBlockingMethod(calledMethod, key.blockingMethods());
+                if (found[0] == null && key.depth() > 0 && isHelperMethod(calledMethod)) {
+                    found[0] = findBlockingCall(
+                            calledMethod,
+                            new LookupKey(key.blockingMethods(), key.depth() - 1))
+                            .orElse(null);
+                }
+            }
+        });
+        return Optional.ofNullable(found[0]);
+    }
+
+    /**
+     * Visits the method calls in the given body which run synchronously, i.e. skipping lambdas and
+     * local or anonymous classes.
+     */
+    private static void processCalls(
+            @Nullable PsiCodeBlock body,
+            @NotNull Consumer<PsiMethodCallExpression> consumer) {
+        if (body == null) {
+            return;
+        }
+        body.accept(new JavaRecursiveElementWalkingVisitor() {
+            @Override
+            public void visitMethodCallExpression(@NotNull PsiMethodCallExpression methodCall) {
+                super.visitMethodCallExpression(methodCall);
+                consumer.accept(methodCall);
+            }
+
+            @Override
+            public void visitLambdaExpression(@NotNull PsiLambdaExpression expression) {
+            }
+
+            @Override
+            public void visitClass(@NotNull PsiClass aClass) {
+            }
+        });
+    }
+
+    @Nullable
+    private static String getBlockingMethod(
+            @NotNull PsiMethod method,
+            @NotNull List<String> blockingMethods) {
+        PsiClass containingClass = method.getContainingClass();
+        if (containingClass == null) {
+            return null;
+        }
+        for (String blockingMethod : blockingMethods) {
+            int separator = blockingMethod.indexOf('#');
+            if (separator > 0
+                    && method.getName().equals(blockingMethod.substring(separator + 1))
+                    && isInheritor(containingClass, blockingMethod.substring(0, separator))) {
+                return containingClass.getName() + "." + method.getName() + "()";
+            }
+        }
+        return null;
+    }
+
+    private static boolean isHelperMethod(@NotNull PsiMethod method) {
+        return method.hasModifierProperty(PRIVATE)
+                && !(method instanceof PsiCompiledElement)
+                && method.getBody() != null;
+    }
+}
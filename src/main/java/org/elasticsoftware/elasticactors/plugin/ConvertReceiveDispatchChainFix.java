@@ -0,0 +1,64 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiMethod;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+import static com.intellij.psi.util.PsiTreeUtil.getParentOfType;
+
+/**
+ * Converts the {@code instanceof} chain of {@code onReceive} into {@code @MessageHandler} methods
+ * or into a pattern-matching {@code switch}. See {@link ReceiveDispatchChain}.
+ */
+class ConvertReceiveDispatchChainFix implements LocalQuickFix {
+
+    private final boolean toHandlers;
+
+    ConvertReceiveDispatchChainFix(boolean toHandlers) {
+        this.toHandlers = toHandlers;
+    }
+
+    @NotNull
+    @Override
+    public String getName() {
+        return toHandlers
+                ? "Split 'onReceive()' into Message Handler methods"
+                : "Replace instanceof chain with pattern-matching switch";
+    }
+
+    @NotNull
+    @Override
+    public String getFamilyName() {
+        return "Convert onReceive dispatch chain";
+    }
+
+    @Override
+    public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+        PsiMethod onReceive = getParentOfType(descriptor.getPsiElement(), PsiMethod.class);
+        ReceiveDispatchChain chain =
+                onReceive != null ? ReceiveDispatchChain.find(onReceive) : null;
+        if (chain == null) {
+            return;
+        }
+        if (!toHandlers) {
+            chain.convertToSwitch();
+            return;
+        }
+        List<String> problems = chain.convertToHandlers();
+        if (!problems.isEmpty()) {
+            NotificationGroupManager.getInstance()
+                    .getNotificationGroup("Elastic Actors")
+                    .createNotification(
+                            "Could not split 'onReceive()' into Message Handler methods: "
+                                    + String.join("; ", problems),
+                            NotificationType.WARNING)
+                    .notify(project);
+        }
+    }
+}
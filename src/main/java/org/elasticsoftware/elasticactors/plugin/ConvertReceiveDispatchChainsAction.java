@@ -0,0 +1,167 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.profile.codeInspection.InspectionProjectProfileManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.FileBasedIndex;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.intellij.psi.util.PsiTreeUtil.getParentOfType;
+
+/**
+ * Splits the {@code onReceive} methods of all actors in the project which are reported by
+ * {@link ReceiveDispatchChainInspection} into {@code @MessageHandler} methods, when possible.
+ * <p>
+ * Candidate files are found through {@link MessageFlowIndex} and analyzed in chunks in
+ * background read actions, and each chunk is converted in its own write command.
+ */
+public class ConvertReceiveDispatchChainsAction extends AnAction {
+
+    private static final int CHUNK_SIZE = 20;
+
+    @NotNull
+    @Override
+    public ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(e.getProject() != null);
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+        new Task.Backgroundable(project, "Splitting onReceive methods", true) {
+
+            private int converted;
+            private int skipped;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                indicator.setText("Looking for onReceive methods");
+                DumbService dumbService = DumbService.getInstance(project);
+                List<VirtualFile> files =
+                        dumbService.runReadActionInSmartMode(() -> findFiles(project));
+                indicator.setIndeterminate(false);
+                for (int i = 0; i < files.size(); i += CHUNK_SIZE) {
+                    indicator.checkCanceled();
+                    indicator.setFraction((double) i / files.size());
+                    indicator.setText("Analyzing actors (" + i + "/" + files.size() + ")");
+                    List<VirtualFile> chunk =
+                            files.subList(i, Math.min(i + CHUNK_SIZE, files.size()));
+                    List<SmartPsiElementPointer<PsiMethod>> methods =
+                            dumbService.runReadActionInSmartMode(() -> prepare(project, chunk));
+                    if (!methods.isEmpty()) {
+                        ApplicationManager.getApplication().invokeAndWait(() ->
+                                WriteCommandAction.writeCommandAction(project)
+                                        .withName("Split onReceive into Message Handlers")
+                                        .run(() -> methods.forEach(this::convert)));
+                    }
+                }
+            }
+
+            private void convert(@NotNull SmartPsiElementPointer<PsiMethod> pointer) {
+                PsiMethod onReceive = pointer.getElement();
+                ReceiveDispatchChain chain =
+                        onReceive != null ? ReceiveDispatchChain.find(onReceive) : null;
+                if (chain != null
+                        && chain.canConvertToHandlers()
+                        && chain.convertToHandlers().isEmpty()) {
+                    converted++;
+                } else {
+                    skipped++;
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                String content = converted + " onReceive methods were split into Message "
+                        + "Handler methods";
+                if (skipped > 0) {
+                    content += ", " + skipped + " could not be converted";
+                }
+                NotificationGroupManager.getInstance()
+                        .getNotificationGroup("Elastic Actors")
+                        .createNotification(content, NotificationType.INFORMATION)
+                        .notify(project);
+            }
+        }.queue();
+    }
+
+    @NotNull
+    private static List<VirtualFile> findFiles(@NotNull Project project) {
+        return new ArrayList<>(FileBasedIndex.getInstance().getContainingFiles(
+                MessageFlowIndex.NAME,
+                MessageFlow.Kind.RECEIVE.name(),
+                GlobalSearchScope.projectScope(project)));
+    }
+
+    /**
+     * Returns the {@code onReceive} methods in the given files which are reported by the
+     * inspection, with the threshold configured in the project's inspection profile, and can be
+     * split into Message Handler methods.
+     */
+    @NotNull
+    private static List<SmartPsiElementPointer<PsiMethod>> prepare(
+            @NotNull Project project,
+            @NotNull List<VirtualFile> files) {
+        PsiManager psiManager = PsiManager.getInstance(project);
+        SmartPointerManager pointerManager = SmartPointerManager.getInstance(project);
+        List<SmartPsiElementPointer<PsiMethod>> result = new ArrayList<>();
+        for (VirtualFile file : files) {
+            PsiFile psiFile = file.isValid() ? psiManager.findFile(file) : null;
+            if (psiFile == null) {
+                continue;
+            }
+            int maxChecks = InspectionProjectProfileManager.getInstance(project)
+                    .getCurrentProfile()
+                    .getUnwrappedTool(ReceiveDispatchChainInspection.SHORT_NAME, psiFile)
+                    instanceof ReceiveDispatchChainInspection inspection
+                    ? inspection.maxChecks
+                    : new ReceiveDispatchChainInspection().maxChecks;
+            Set<PsiMethod> methods = new LinkedHashSet<>();
+            for (ElasticActorsFileModel.ReceiveBranch branch
+                    : ElasticActorsFileModel.getInstance(psiFile).getReceiveBranches()) {
+                PsiMethod method = getParentOfType(branch.typeElement(), PsiMethod.class);
+                if (method != null) {
+                    methods.add(method);
+                }
+            }
+            for (PsiMethod method : methods) {
+                ReceiveDispatchChain chain = ReceiveDispatchChain.find(method);
+                if (ReceiveDispatchChain.countChecks(method) > maxChecks
+                        && chain != null
+                        && chain.canConvertToHandlers()) {
+                    result.add(pointerManager.createSmartPsiElementPointer(method));
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,325 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.openapi.util.RecursionManager;
+import com.intellij.psi.PsiAnnotation;
+import com.intellij.psi.PsiAnnotationMemberValue;
+import com.intellij.psi.PsiArrayType;
+import com.intellij.psi.PsiAssignmentExpression;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassInitializer;
+import com.intellij.psi.PsiClassType;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.PsiReferenceExpression;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.PsiTypeParameter;
+import com.intellij.psi.PsiWildcardType;
+import com.intellij.psi.util.CachedValueProvider.Result;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.JavaPsiRecordUtil;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.PsiUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static com.intellij.psi.PsiModifier.ABSTRACT;
+import static com.intellij.psi.PsiModifier.FINAL;
+import static com.intellij.psi.PsiModifier.STATIC;
+import static com.intellij.psi.util.InheritanceUtil.isInheritor;
+import static org.elasticsoftware.elasticactors.Utils.MESSAGE_ANNOTATION_CLASS;
+import static org.elasticsoftware.elasticactors.Utils.getJavaModificationTracker;
+import static org.elasticsoftware.elasticactors.Utils.isMessage;
+
+/**
+ * Decides whether instances of a class can be modified after construction, following the types
+ * of its fields: a {@code final List<Foo>} field is only safe if the list can't be modified and
+ * {@code Foo} is deeply immutable itself.
+ * <p>
+ * The verdict of each class is cached until the Java PSI or the class' file changes (since
+ * constructor bodies are inspected too), so classes shared by many messages are only analyzed
+ * once. Cycles between classes are assumed to be immutable, as are type parameters, interfaces
+ * and abstract classes, whose actual implementation is unknown.
+ */
+public final class DeepImmutability {
+
+    /**
+     * Classes which are immutable even though they have non-final fields, e.g. to cache their
+     * hash code.
+     */
+    private static final Set<String> IMMUTABLE_CLASSES = Set.of(
+            "java.lang.String",
+            "java.lang.Boolean",
+            "java.lang.Byte",
+            "java.lang.Character",
+            "java.lang.Short",
+            "java.lang.Integer",
+            "java.lang.Long",
+            "java.lang.Float",
+            "java.lang.Double",
+            "java.lang.Class",
+            "java.math.BigDecimal",
+            "java.math.BigInteger",
+            "java.net.URI",
+            "java.util.Locale",
+            "java.util.UUID",
+            "java.util.regex.Pattern");
+
+    private static final String IMMUTABLE_PACKAGE = "java.time.";
+
+    private static final Set<String> UNMODIFIABLE_COLLECTIONS = Set.of(
+            "com.google.common.collect.ImmutableCollection",
+            "com.google.common.collect.ImmutableMap",
+            "com.google.common.collect.ImmutableMultimap");
+
+    private static final Set<String> MODIFIABLE_COLLECTIONS = Set.of(
+            "java.util.Collection",
+            "java.util.Map");
+
+    /**
+     * Methods returning collections which can't be modified, in the format
+     * {@code fully.qualified.ClassName#methodName}.
+     */
+    private static final Set<String> UNMODIFIABLE_FACTORIES = Set.of(
+            "java.util.List#of",
+            "java.util.List#copyOf",
+            "java.util.Set#of",
+            "java.util.Set#copyOf",
+            "java.util.Map#of",
+            "java.util.Map#copyOf",
+            "java.util.Map#ofEntries",
+            "java.util.Collections#emptyList",
+            "java.util.Collections#emptySet",
+            "java.util.Collections#emptyMap",
+            "java.util.Collections#singleton",
+            "java.util.Collections#singletonList",
+            "java.util.Collections#singletonMap",
+            "java.util.Collections#unmodifiableCollection",
+            "java.util.Collections#unmodifiableList",
+            "java.util.Collections#unmodifiableSet",
+            "java.util.Collections#unmodifiableSortedSet",
+            "java.util.Collections#unmodifiableMap",
+            "java.util.Collections#unmodifiableSortedMap",
+            "java.util.stream.Stream#toList");
+
+    /**
+     * The reason why instances of a class can be modified after construction.
+     *
+     * @param field the field through which instances can be modified
+     * @param reason why the field allows modifying instances
+     */
+    public record Violation(@NotNull PsiField field, @NotNull String reason) {
+    }
+
+    /**
+     * The cached outcome of analyzing a class.
+     *
+     * @param violation the first violation found, or {@code null} if the class is deeply immutable
+     */
+    private record Verdict(@Nullable Violation violation) {
+    }
+
+    private DeepImmutability() {
+    }
+
+    /**
+     * Returns the first field through which instances of the given class can be modified after
+     * construction, or {@code null} if there's none.
+     */
+    @Nullable
+    public static Violation findViolation(@NotNull PsiClass psiClass) {
+        PluginDiagnostics.lookup(PluginDiagnostics.Cache.IMMUTABILITY_VERDICTS);
+        return CachedValuesManager.getCachedValue(psiClass, () -> Result.create(
+                computeVerdict(psiClass),
+                getJavaModificationTracker(psiClass),
+                psiClass.getContainingFile())).violation();
+    }
+
+    @NotNull
+    private static Verdict computeVerdict(@NotNull PsiClass psiClass) {
+        PluginDiagnostics.miss(PluginDiagnostics.Cache.IMMUTABILITY_VERDICTS);
+        for (PsiField field : getInstanceFields(psiClass)) {
+            String reason = checkField(field);
+            if (reason != null) {
+                return new Verdict(new Violation(field, reason));
+            }
+        }
+        return new Verdict(null);
+    }
+
+    /**
+     * Returns why the value of the given field can be modified after construction, or
+     * {@code null} if it can't.
+     */
+    @Nullable
+    public static String checkField(@NotNull PsiField field) {
+        if (!field.hasModifierProperty(FINAL)) {
+            return "the field is not final";
+        }
+        return findModifiableType(field.getType(), field);
+    }
+
+    /**
+     * Returns the non-static fields of the class and its superclasses, except the ones declared by
+     * {@link Throwable}.
+     */
+    @NotNull
+    public static List<PsiField> getInstanceFields(@NotNull PsiClass psiClass) {
+        List<PsiField> fields = new ArrayList<>();
+        for (PsiField field : psiClass.getAllFields()) {
+            PsiClass containingClass = field.getContainingClass();
+            if (field.isValid()
+                    && !field.hasModifierProperty(STATIC)
+                    && containingClass != null
+                    && !Throwable.class.getName().equals(containingClass.getQualifiedName())) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Returns why a value of the given type can be modified, or {@code null} if it can't.
+     *
+     * @param field the field holding the value, used to check if collections are made
+     * unmodifiable when assigned; {@code null} for nested types
+     */
+    @Nullable
+    private static String findModifiableType(@NotNull PsiType type, @Nullable PsiField field) {
+        if (type instanceof PsiArrayType) {
+            return "arrays can always be modified";
+        }
+        if (!(type instanceof PsiClassType classType)) {
+            return null;
+        }
+        PsiClass psiClass = classType.resolve();
+        if (psiClass == null || psiClass instanceof PsiTypeParameter || psiClass.isEnum()) {
+            return null;
+        }
+        String qualifiedName = psiClass.getQualifiedName();
+        String presentableText = "'" + type.getPresentableText() + "'";
+        if (qualifiedName != null
+                && (IMMUTABLE_CLASSES.contains(qualifiedName)
+                || qualifiedName.startsWith(IMMUTABLE_PACKAGE))) {
+            return null;
+        }
+        if (UNMODIFIABLE_COLLECTIONS.stream().anyMatch(name -> isInheritor(psiClass, name))) {
+            return findModifiableTypeArgument(classType);
+        }
+        if (MODIFIABLE_COLLECTIONS.stream().anyMatch(name -> isInheritor(psiClass, name))) {
+            if (field == null || !isAlwaysUnmodifiable(field)) {
+                return presentableText + " may be a modifiable collection; assign it with "
+                        + "List.copyOf(...) or a similar method";
+            }
+            return findModifiableTypeArgument(classType);
+        }
+        if (isMessage(psiClass) && !isDeclaredImmutable(psiClass)) {
+            return presentableText + " is a mutable @Message";
+        }
+        if (!psiClass.isInterface() && !psiClass.hasModifierProperty(ABSTRACT)) {
+            // Returns null when the class is already being analyzed, i.e. on cycles
+            Violation violation = RecursionManager.doPreventingRecursion(
+                    psiClass,
+                    true,
+                    () -> findViolation(psiClass));
+            if (violation != null) {
+                return presentableText + " can be modified through its field '"
+                        + violation.field().getName() + "'";
+            }
+        }
+        return findModifiableTypeArgument(classType);
+    }
+
+    @Nullable
+    private static String findModifiableTypeArgument(@NotNull PsiClassType classType) {
+        for (PsiType parameter : classType.getParameters()) {
+            PsiType bound = parameter instanceof PsiWildcardType wildcardType
+                    ? wildcardType.getExtendsBound()
+                    : parameter;
+            String reason = findModifiableType(bound, null);
+            if (reason != null) {
+                return reason;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if every value assigned to the field, in its initializer, constructors and
+     * initializer blocks, is created by one of the {@link #UNMODIFIABLE_FACTORIES}. For records,
+     * reassigning the parameter in the compact constructor counts as well.
+     */
+    private static boolean isAlwaysUnmodifiable(@NotNull PsiField field) {
+        PsiClass containingClass = field.getContainingClass();
+        if (containingClass == null) {
+            return false;
+        }
+        List<PsiExpression> values = new ArrayList<>();
+        if (field.getInitializer() != null) {
+            values.add(field.getInitializer());
+        }
+        List<PsiElement> initializers =
+                new ArrayList<>(List.of(containingClass.getConstructors()));
+        initializers.addAll(List.of(containingClass.getInitializers()));
+        for (PsiElement initializer : initializers) {
+            if (initializer instanceof PsiClassInitializer classInitializer
+                    && classInitializer.hasModifierProperty(STATIC)) {
+                continue;
+            }
+            boolean compactConstructor = initializer instanceof PsiMethod method
+                    && JavaPsiRecordUtil.isCompactConstructor(method);
+            for (PsiAssignmentExpression assignment
+                    : PsiTreeUtil.findChildrenOfType(initializer, PsiAssignmentExpression.class)) {
+                if (assignment.getLExpression() instanceof PsiReferenceExpression reference
+                        && assignment.getRExpression() != null
+                        && isAssignmentTo(reference, field, compactConstructor)) {
+                    values.add(assignment.getRExpression());
+                }
+            }
+        }
+        return !values.isEmpty() && values.stream().allMatch(DeepImmutability::isUnmodifiable);
+    }
+
+    private static boolean isAssignmentTo(
+            @NotNull PsiReferenceExpression reference,
+            @NotNull PsiField field,
+            boolean compactConstructor) {
+        PsiElement target = reference.resolve();
+        return field.equals(target)
+                || compactConstructor
+                && target instanceof PsiParameter
+                && field.getName().equals(reference.getReferenceName());
+    }
+
+    private static boolean isUnmodifiable(@NotNull PsiExpression expression) {
+        if (!(PsiUtil.skipParenthesizedExprDown(expression)
+                instanceof PsiMethodCallExpression call)) {
+            return false;
+        }
+        PsiMethod method = call.resolveMethod();
+        PsiClass containingClass = method != null ? method.getContainingClass() : null;
+        if (containingClass == null) {
+            return false;
+        }
+        if (UNMODIFIABLE_COLLECTIONS.stream()
+                .anyMatch(name -> isInheritor(containingClass, name))) {
+            return true;
+        }
+        return UNMODIFIABLE_FACTORIES.contains(
+                containingClass.getQualifiedName() + "#" + method.getName());
+    }
+
+    private static boolean isDeclaredImmutable(@NotNull PsiClass messageClass) {
+        PsiAnnotation message = messageClass.getAnnotation(MESSAGE_ANNOTATION_CLASS);
+        PsiAnnotationMemberValue immutable =
+                message != null ? message.findAttributeValue("immutable") : null;
+        return immutable != null && Boolean.parseBoolean(immutable.getText());
+    }
+}
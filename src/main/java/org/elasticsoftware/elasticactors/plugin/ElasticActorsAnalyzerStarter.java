@@ -0,0 +1,364 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.intellij.codeHighlighting.HighlightDisplayLevel;
+import com.intellij.codeInsight.daemon.HighlightDisplayKey;
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.codeInspection.LocalInspectionTool;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.codeInspection.ProblemDescriptorUtil;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.codeInspection.ex.InspectionProfileImpl;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.process.ProcessOutput;
+import com.intellij.execution.util.ExecUtil;
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.ide.impl.ProjectUtil;
+import com.intellij.openapi.application.ApplicationStarter;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.profile.codeInspection.InspectionProjectProfileManager;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiElementVisitor;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiRecursiveElementWalkingVisitor;
+import com.intellij.psi.search.FileTypeIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Headless entry point running the checks of the plugin without opening an IDE window, meant for
+ * CI builds:
+ * <pre>
+ * idea.sh elasticactors-analyze &lt;project&gt; &lt;report.json&gt; [--threads=N] [--since=REV]
+ * </pre>
+ * The rules of {@link MessageHandlerAnnotator}, {@link SuspectActorRefCallsInspection} and
+ * {@link IncorrectMessageMutabilityInspection} are applied to every Java file in the project, or,
+ * with {@code --since}, only to the files changed since the given revision of the project's local
+ * git repository (including uncommitted and untracked files). Files are analyzed by a fixed
+ * number of worker threads, each file in its own read action, and the problems found are written
+ * as JSON. The inspections use the severities and options of the project's inspection profile.
+ * <p>
+ * The exit code is 0 if no problems were found, 1 if some were and 2 if the analysis failed.
+ */
+public class ElasticActorsAnalyzerStarter implements ApplicationStarter {
+
+    private static final String THREADS_OPTION = "--threads=";
+    private static final String SINCE_OPTION = "--since=";
+
+    /**
+     * The inspections run by the analyzer, by short name.
+     */
+    private static final List<Inspection> INSPECTIONS = List.of(
+            new Inspection("ElasticActorRefCall", SuspectActorRefCallsInspection::new),
+            new Inspection(
+                    "IncorrectMessageMutabilityCall",
+                    IncorrectMessageMutabilityInspection::new));
+
+    private record Inspection(
+            @NotNull String shortName,
+            @NotNull Supplier<LocalInspectionTool> factory) {
+    }
+
+    private record Options(
+            @NotNull Path projectPath,
+            @NotNull Path reportPath,
+            int threads,
+            @Nullable String sinceRevision) {
+    }
+
+    private record Problem(
+            @NotNull String file,
+            int line,
+            @NotNull String severity,
+            @NotNull String rule,
+            @NotNull String message) {
+    }
+
+    @Override
+    public int getRequiredModality() {
+        return NOT_IN_EDT;
+    }
+
+    @Override
+    public void main(@NotNull List<String> args) {
+        int exitCode;
+        try {
+            Options options = parseOptions(args);
+            if (options == null) {
+                System.err.println("Usage: elasticactors-analyze <project> <report.json> "
+                        + "[" + THREADS_OPTION + "N] [" + SINCE_OPTION + "REVISION]");
+                exitCode = 2;
+            } else {
+                exitCode = analyze(options);
+            }
+        } catch (Exception e) {
+            e.printStackTrace(System.err);
+            exitCode = 2;
+        }
+        System.exit(exitCode);
+    }
+
+    @Nullable
+    private static Options parseOptions(@NotNull List<String> args) {
+        // The first argument is the command name
+        List<String> positional = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        String sinceRevision = null;
+        for (String arg : args.subList(Math.min(1, args.size()), args.size())) {
+            if (arg.startsWith(THREADS_OPTION)) {
+                try {
+                    threads = Integer.parseInt(arg.substring(THREADS_OPTION.length()));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+                if (threads < 1) {
+                    return null;
+                }
+            } else if (arg.startsWith(SINCE_OPTION)) {
+                sinceRevision = arg.substring(SINCE_OPTION.length());
+                if (sinceRevision.isEmpty()) {
+                    return null;
+                }
+            } else {
+                positional.add(arg);
+            }
+        }
+        if (positional.size() != 2) {
+            return null;
+        }
+        return new Options(
+                Path.of(positional.get(0)).toAbsolutePath().normalize(),
+                Path.of(positional.get(1)).toAbsolutePath().normalize(),
+                threads,
+                sinceRevision);
+    }
+
+    private static int analyze(@NotNull Options options) throws Exception {
+        long start = System.nanoTime();
+        Project project = ProjectUtil.openOrImport(options.projectPath(), null, false);
+        if (project == null) {
+            System.err.println("Could not open project " + options.projectPath());
+            return 2;
+        }
+        DumbService.getInstance(project).waitForSmartMode();
+
+        List<VirtualFile> files = options.sinceRevision() != null
+                ? findChangedFiles(project, options.projectPath(), options.sinceRevision())
+                : ReadAction.compute(() -> new ArrayList<>(FileTypeIndex.getFiles(
+                        JavaFileType.INSTANCE,
+                        GlobalSearchScope.projectScope(project))));
+
+        List<Problem> problems = new ArrayList<>();
+        ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor(
+                "Elastic Actors Analyzer",
+                options.threads());
+        try {
+            List<Future<List<Problem>>> results = new ArrayList<>();
+            for (VirtualFile file : files) {
+                results.add(executor.submit(() -> ReadAction
+                        .nonBlocking(() -> analyzeFile(project, options.projectPath(), file))
+                        .inSmartMode(project)
+                        .executeSynchronously()));
+            }
+            for (Future<List<Problem>> result : results) {
+                problems.addAll(result.get());
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } finally {
+            executor.shutdownNow();
+        }
+        problems.sort(Comparator.comparing(Problem::file).thenComparingInt(Problem::line));
+
+        Files.writeString(
+                options.reportPath(),
+                toJson(options, files.size(), problems),
+                StandardCharsets.UTF_8);
+        System.out.printf(
+                "Analyzed %d files in %d ms, found %d problems%n",
+                files.size(),
+                (System.nanoTime() - start) / 1_000_000,
+                problems.size());
+        return problems.isEmpty() ? 0 : 1;
+    }
+
+    /**
+     * Returns the Java files of the project changed in the working tree since the given revision,
+     * as reported by the local git repository, along with untracked files.
+     */
+    @NotNull
+    private static List<VirtualFile> findChangedFiles(
+            @NotNull Project project,
+            @NotNull Path projectPath,
+            @NotNull String sinceRevision) throws IOException {
+        Set<String> paths = new LinkedHashSet<>();
+        paths.addAll(runGit(
+                projectPath,
+                "diff", "--name-only", "--relative", "--diff-filter=d", sinceRevision, "--"));
+        paths.addAll(runGit(projectPath, "ls-files", "--others", "--exclude-standard"));
+
+        LocalFileSystem fileSystem = LocalFileSystem.getInstance();
+        List<VirtualFile> files = new ArrayList<>();
+        for (String path : paths) {
+            VirtualFile file = fileSystem.refreshAndFindFileByNioFile(projectPath.resolve(path));
+            if (file != null) {
+                files.add(file);
+            }
+        }
+        ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(project);
+        return ReadAction.compute(() -> files.stream()
+                .filter(file -> file.getFileType() == JavaFileType.INSTANCE
+                        && fileIndex.isInContent(file))
+                .toList());
+    }
+
+    @NotNull
+    private static List<String> runGit(
+            @NotNull Path workingDirectory,
+            @NotNull String... args) throws IOException {
+        GeneralCommandLine commandLine = new GeneralCommandLine("git")
+                .withParameters(args)
+                .withWorkDirectory(workingDirectory.toFile())
+                .withCharset(StandardCharsets.UTF_8);
+        try {
+            ProcessOutput output = ExecUtil.execAndGetOutput(commandLine);
+            if (output.getExitCode() != 0) {
+                throw new IOException(
+                        "git " + String.join(" ", args) + " failed: " + output.getStderr());
+            }
+            return output.getStdoutLines();
+        } catch (com.intellij.execution.ExecutionException e) {
+            throw new IOException("Could not run git", e);
+        }
+    }
+
+    @NotNull
+    private static List<Problem> analyzeFile(
+            @NotNull Project project,
+            @NotNull Path projectPath,
+            @NotNull VirtualFile file) {
+        PsiFile psiFile = file.isValid() ? PsiManager.getInstance(project).findFile(file) : null;
+        if (psiFile == null) {
+            return List.of();
+        }
+        String path = getRelativePath(projectPath, file);
+        Document document = PsiDocumentManager.getInstance(project).getDocument(psiFile);
+        List<Problem> problems = new ArrayList<>();
+
+        psiFile.accept(new PsiRecursiveElementWalkingVisitor() {
+            @Override
+            public void visitElement(@NotNull PsiElement element) {
+                super.visitElement(element);
+                MessageHandlerAnnotator.checkElement(element, (severity, message, range) ->
+                        problems.add(new Problem(
+                                path,
+                                getLine(document, range),
+                                severity.getName(),
+                                "MessageHandlerSignature",
+                                message)));
+            }
+        });
+
+        InspectionProfileImpl profile =
+                InspectionProjectProfileManager.getInstance(project).getCurrentProfile();
+        InspectionManager inspectionManager = InspectionManager.getInstance(project);
+        for (Inspection inspection : INSPECTIONS) {
+            HighlightDisplayKey key = HighlightDisplayKey.find(inspection.shortName());
+            if (key != null && !profile.isToolEnabled(key, psiFile)) {
+                continue;
+            }
+            LocalInspectionTool tool =
+                    profile.getUnwrappedTool(inspection.shortName(), psiFile)
+                            instanceof LocalInspectionTool configured
+                            ? configured
+                            : inspection.factory().get();
+            HighlightDisplayLevel level = key != null
+                    ? profile.getErrorLevel(key, psiFile)
+                    : HighlightDisplayLevel.WARNING;
+            ProblemsHolder holder = new ProblemsHolder(inspectionManager, psiFile, false);
+            PsiElementVisitor visitor = tool.buildVisitor(holder, false);
+            psiFile.accept(new PsiRecursiveElementWalkingVisitor() {
+                @Override
+                public void visitElement(@NotNull PsiElement element) {
+                    super.visitElement(element);
+                    element.accept(visitor);
+                }
+            });
+            for (ProblemDescriptor descriptor : holder.getResults()) {
+                problems.add(new Problem(
+                        path,
+                        descriptor.getLineNumber() + 1,
+                        level.getName(),
+                        inspection.shortName(),
+                        ProblemDescriptorUtil.renderDescriptionMessage(
+                                descriptor,
+                                descriptor.getPsiElement())));
+            }
+        }
+        return problems;
+    }
+
+    private static int getLine(@Nullable Document document, @NotNull PsiElement element) {
+        return document != null
+                ? document.getLineNumber(element.getTextRange().getStartOffset()) + 1
+                : 0;
+    }
+
+    @NotNull
+    private static String getRelativePath(@NotNull Path projectPath, @NotNull VirtualFile file) {
+        Path path = file.toNioPath();
+        return path.startsWith(projectPath)
+                ? projectPath.relativize(path).toString()
+                : path.toString();
+    }
+
+    @NotNull
+    private static String toJson(
+            @NotNull Options options,
+            int fileCount,
+            @NotNull Collection<Problem> problems) {
+        JsonObject root = new JsonObject();
+        root.addProperty("project", options.projectPath().toString());
+        root.addProperty("since", options.sinceRevision());
+        root.addProperty("files", fileCount);
+        JsonArray problemArray = new JsonArray();
+        for (Problem problem : problems) {
+            JsonObject object = new JsonObject();
+            object.addProperty("file", problem.file());
+            object.addProperty("line", problem.line());
+            object.addProperty("severity", problem.severity());
+            object.addProperty("rule", problem.rule());
+            object.addProperty("message", problem.message());
+            problemArray.add(object);
+        }
+        root.add("problems", problemArray);
+        return new GsonBuilder().setPrettyPrinting().create().toJson(root);
+    }
+}
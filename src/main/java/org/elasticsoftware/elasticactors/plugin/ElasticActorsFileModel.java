@@ -0,0 +1,360 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.psi.JavaRecursiveElementWalkingVisitor;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassObjectAccessExpression;
+import com.intellij.psi.PsiClassType.ClassResolveResult;
+import com.intellij.psi.PsiCompiledElement;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiInstanceOfExpression;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.PsiTypeCastExpression;
+import com.intellij.psi.PsiTypeElement;
+import com.intellij.psi.PsiTypeParameter;
+import com.intellij.psi.util.CachedValueProvider.Result;
+import com.intellij.psi.util.CachedValuesManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.intellij.psi.util.PsiTreeUtil.getParentOfType;
+import static com.intellij.psi.util.PsiTypesUtil.getParameterType;
+import static com.intellij.psi.util.PsiTypesUtil.getPsiClass;
+import static com.intellij.psi.util.PsiUtil.resolveGenericsClassInType;
+import static org.elasticsoftware.elasticactors.Utils.ACTOR_REF_CLASS;
+import static org.elasticsoftware.elasticactors.Utils.ACTOR_SYSTEM_CLASS;
+import static org.elasticsoftware.elasticactors.Utils.getInstanceOfCheckType;
+import static org.elasticsoftware.elasticactors.Utils.getJavaModificationTracker;
+import static org.elasticsoftware.elasticactors.Utils.isActorDelegateBuilderMethod;
+import static org.elasticsoftware.elasticactors.Utils.isActorRefCall;
+import static org.elasticsoftware.elasticactors.Utils.isActorState;
+import static org.elasticsoftware.elasticactors.Utils.isHandler;
+import static org.elasticsoftware.elasticactors.Utils.isMessage;
+import static org.elasticsoftware.elasticactors.Utils.isOnReceiveMethod;
+
+/**
+ * The Elastic Actors constructs found in a file, with everything they reference already
+ * resolved: calls sending messages, Message Handler methods, the type checks inside
+ * {@code ElasticActor.onReceive(...)} and the message types handled by {@code ActorDelegate}s.
+ * <p>
+ * The model is computed in a single pass over the file and cached until the file or the Java
+ * declarations outside of code blocks change, so the annotator, inspections, usage type provider
+ * and other extensions share the resolution work instead of repeating it, and editing a file
+ * doesn't invalidate the models of the other open files.
+ */
+public final class ElasticActorsFileModel {
+
+    public enum ParameterKind {
+        MESSAGE,
+        ACTOR_REF,
+        ACTOR_STATE,
+        ACTOR_SYSTEM,
+        UNEXPECTED
+    }
+
+    /**
+     * A call to {@code ActorRef.tell(...)} or {@code ActorRef.ask(...)}.
+     *
+     * @param call the call
+     * @param ask whether the call is made to {@code ask}
+     * @param messageClass the class of the message argument
+     * @param responseTypeArgument the response type argument of {@code ask}, if its type could be
+     * resolved
+     * @param responseClass the class referenced by the response type argument
+     */
+    public record SendSite(
+            @NotNull PsiMethodCallExpression call,
+            boolean ask,
+            @Nullable PsiClass messageClass,
+            @Nullable PsiExpression responseTypeArgument,
+            @Nullable PsiClass responseClass) {
+
+        @NotNull
+        public PsiExpression messageArgument() {
+            return call.getArgumentList().getExpressions()[0];
+        }
+    }
+
+    /**
+     * A method annotated with {@code @MessageHandler}.
+     *
+     * @param method the method
+     * @param parameterKinds the classification of each of the method's parameters
+     * @param messageClass the class of the first parameter annotated with {@code @Message}
+     */
+    public record Handler(
+            @NotNull PsiMethod method,
+            @NotNull List<ParameterKind> parameterKinds,
+            @Nullable PsiClass messageClass) {
+    }
+
+    /**
+     * An {@code instanceof} check or a cast inside {@code ElasticActor.onReceive(...)}.
+     *
+     * @param typeElement the checked type
+     * @param cast whether the type is used in a cast, rather than in an {@code instanceof}
+     * @param checkedClass the checked class
+     */
+    public record ReceiveBranch(
+            @NotNull PsiTypeElement typeElement,
+            boolean cast,
+            @Nullable PsiClass checkedClass) {
+    }
+
+    /**
+     * A call to {@code ActorDelegate.Builder.onReceive(...)}, registering a handler for a message
+     * type.
+     *
+     * @param call the call
+     * @param classArgument the message type argument
+     * @param messageClass the class referenced by the message type argument
+     */
+    public record DelegateHandler(
+            @NotNull PsiMethodCallExpression call,
+            @NotNull PsiClassObjectAccessExpression classArgument,
+            @Nullable PsiClass messageClass) {
+    }
+
+    /**
+     * The name of the {@code ActorDelegate.Builder} method registering message handlers.
+     */
+    static final String DELEGATE_HANDLER_METHOD = "onReceive";
+
+    private static final ElasticActorsFileModel EMPTY =
+            new ElasticActorsFileModel(Map.of(), Map.of(), Map.of(), Map.of());
+
+    private final Map<PsiMethodCallExpression, SendSite> sendSites;
+    private final Map<PsiMethod, Handler> handlers;
+    private final Map<PsiTypeElement, ReceiveBranch> receiveBranches;
+    private final Map<PsiMethodCallExpression, DelegateHandler> delegateHandlers;
+
+    private ElasticActorsFileModel(
+            @NotNull Map<PsiMethodCallExpression, SendSite> sendSites,
+            @NotNull Map<PsiMethod, Handler> handlers,
+            @NotNull Map<PsiTypeElement, ReceiveBranch> receiveBranches,
+            @NotNull Map<PsiMethodCallExpression, DelegateHandler> delegateHandlers) {
+        this.sendSites = sendSites;
+        this.handlers = handlers;
+        this.receiveBranches = receiveBranches;
+        this.delegateHandlers = delegateHandlers;
+    }
+
+    /**
+     * Returns the model of the file containing the given element.
+     */
+    @NotNull
+    public static ElasticActorsFileModel getInstance(@NotNull PsiElement element) {
+        PsiFile file = element.getContainingFile();
+        if (file == null || file instanceof PsiCompiledElement) {
+            return EMPTY;
+        }
+        PluginDiagnostics.lookup(PluginDiagnostics.Cache.FILE_MODEL);
+        // The model depends on the code of the file, and on the declarations of the classes it
+        // refers to in other files
+        return CachedValuesManager.getCachedValue(file, () -> Result.create(
+                compute(file),
+                file,
+                getJavaModificationTracker(file)));
+    }
+
+    @NotNull
+    public Collection<SendSite> getSendSites() {
+        return sendSites.values();
+    }
+
+    @Nullable
+    public SendSite getSendSite(@NotNull PsiMethodCallExpression call) {
+        return sendSites.get(call);
+    }
+
+    @NotNull
+    public Collection<Handler> getHandlers() {
+        return handlers.values();
+    }
+
+    @Nullable
+    public Handler getHandler(@NotNull PsiMethod method) {
+        return handlers.get(method);
+    }
+
+    @NotNull
+    public Collection<ReceiveBranch> getReceiveBranches() {
+        return receiveBranches.values();
+    }
+
+    @Nullable
+    public ReceiveBranch getReceiveBranch(@NotNull PsiTypeElement typeElement) {
+        return receiveBranches.get(typeElement);
+    }
+
+    @NotNull
+    public Collection<DelegateHandler> getDelegateHandlers() {
+        return delegateHandlers.values();
+    }
+
+    @Nullable
+    public DelegateHandler getDelegateHandler(@NotNull PsiMethodCallExpression call) {
+        return delegateHandlers.get(call);
+    }
+
+    @NotNull
+    private static ElasticActorsFileModel compute(@NotNull PsiFile file) {
+        PluginDiagnostics.miss(PluginDiagnostics.Cache.FILE_MODEL);
+        Map<PsiMethodCallExpression, SendSite> sendSites = new HashMap<>();
+        Map<PsiMethod, Handler> handlers = new HashMap<>();
+        Map<PsiTypeElement, ReceiveBranch> receiveBranches = new HashMap<>();
+        Map<PsiMethodCallExpression, DelegateHandler> delegateHandlers = new HashMap<>();
+        file.accept(new JavaRecursiveElementWalkingVisitor() {
+            @Override
+            public void visitMethod(@NotNull PsiMethod method) {
+                super.visitMethod(method);
+                if (isHandler(method)) {
+                    List<ParameterKind> kinds = new ArrayList<>();
+                    PsiClass messageClass = classifyParameters(method, kinds);
+                    handlers.put(method, new Handler(
+                            method,
+                            Collections.unmodifiableList(kinds),
+                            messageClass));
+                }
+            }
+
+            @Override
+            public void visitMethodCallExpression(@NotNull PsiMethodCallExpression methodCall) {
+                super.visitMethodCallExpression(methodCall);
+                String name = methodCall.getMethodExpression().getReferenceName();
+                boolean ask = "ask".equals(name);
+                if ((ask || "tell".equals(name)) && isActorRefCall(methodCall)) {
+                    sendSites.put(methodCall, createSendSite(methodCall, ask));
+                } else if (DELEGATE_HANDLER_METHOD.equals(name)) {
+                    DelegateHandler delegateHandler = createDelegateHandler(methodCall);
+                    if (delegateHandler != null) {
+                        delegateHandlers.put(methodCall, delegateHandler);
+                    }
+                }
+            }
+
+            @Override
+            public void visitInstanceOfExpression(@NotNull PsiInstanceOfExpression expression) {
+                super.visitInstanceOfExpression(expression);
+                addReceiveBranch(getInstanceOfCheckType(expression), false);
+            }
+
+            @Override
+            public void visitTypeCastExpression(@NotNull PsiTypeCastExpression expression) {
+                super.visitTypeCastExpression(expression);
+                addReceiveBranch(expression.getCastType(), true);
+            }
+
+            private void addReceiveBranch(@Nullable PsiTypeElement typeElement, boolean cast) {
+                if (typeElement == null) {
+                    return;
+                }
+                PsiMethod method = getParentOfType(typeElement, PsiMethod.class);
+                if (method != null && isOnReceiveMethod(method)) {
+                    receiveBranches.put(
+                            typeElement,
+                            new ReceiveBranch(
+                                    typeElement,
+                                    cast,
+                                    getPsiClass(typeElement.getType())));
+                }
+            }
+        });
+        if (sendSites.isEmpty()
+                && handlers.isEmpty()
+                && receiveBranches.isEmpty()
+                && delegateHandlers.isEmpty()) {
+            return EMPTY;
+        }
+        return new ElasticActorsFileModel(sendSites, handlers, receiveBranches, delegateHandlers);
+    }
+
+    @NotNull
+    private static SendSite createSendSite(
+            @NotNull PsiMethodCallExpression methodCall,
+            boolean ask) {
+        PsiExpression[] arguments = methodCall.getArgumentList().getExpressions();
+        PsiClass messageClass = getPsiClass(arguments[0].getType());
+        PsiExpression responseTypeArgument = null;
+        PsiClass responseClass = null;
+        if (ask && arguments.length > 1) {
+            ClassResolveResult resolveResult = resolveGenericsClassInType(arguments[1].getType());
+            PsiClass genericClass = resolveResult.getElement();
+            if (genericClass != null) {
+                responseTypeArgument = arguments[1];
+                PsiTypeParameter[] typeParameters = genericClass.getTypeParameters();
+                responseClass = typeParameters.length > 0
+                        ? getPsiClass(resolveResult.getSubstitutor().substitute(typeParameters[0]))
+                        : null;
+            }
+        }
+        return new SendSite(methodCall, ask, messageClass, responseTypeArgument, responseClass);
+    }
+
+    @Nullable
+    private static DelegateHandler createDelegateHandler(
+            @NotNull PsiMethodCallExpression methodCall) {
+        PsiExpression[] arguments = methodCall.getArgumentList().getExpressions();
+        if (arguments.length == 0
+                || !(arguments[0] instanceof PsiClassObjectAccessExpression classArgument)) {
+            return null;
+        }
+        PsiMethod method = methodCall.resolveMethod();
+        if (method == null || !isActorDelegateBuilderMethod(method)) {
+            return null;
+        }
+        return new DelegateHandler(
+                methodCall,
+                classArgument,
+                getPsiClass(classArgument.getOperand().getType()));
+    }
+
+    /**
+     * Classifies the parameters of a handler method, returning the class of the message.
+     * <p>
+     * Only the parameters' own types are resolved, and the checks on the resolved classes
+     * (qualified names, annotations and supertypes) are all answered from stubs, so this does not
+     * load the AST of the files declaring them.
+     */
+    @Nullable
+    private static PsiClass classifyParameters(
+            @NotNull PsiMethod method,
+            @NotNull List<ParameterKind> kinds) {
+        PsiParameter[] parameters = method.getParameterList().getParameters();
+        PsiClass messageClass = null;
+        for (int i = 0; i < parameters.length; i++) {
+            PsiClass paramClass =
+                    getPsiClass(getParameterType(parameters, i, parameters[i].isVarArgs()));
+            if (isMessage(paramClass)) {
+                kinds.add(ParameterKind.MESSAGE);
+                if (messageClass == null) {
+                    messageClass = paramClass;
+                }
+            } else if (hasQualifiedName(paramClass, ACTOR_REF_CLASS)) {
+                kinds.add(ParameterKind.ACTOR_REF);
+            } else if (isActorState(paramClass)) {
+                kinds.add(ParameterKind.ACTOR_STATE);
+            } else if (hasQualifiedName(paramClass, ACTOR_SYSTEM_CLASS)) {
+                kinds.add(ParameterKind.ACTOR_SYSTEM);
+            } else {
+                kinds.add(ParameterKind.UNEXPECTED);
+            }
+        }
+        return messageClass;
+    }
+
+    private static boolean hasQualifiedName(@Nullable PsiClass psiClass, @NotNull String fqn) {
+        return psiClass != null && Objects.equals(psiClass.getQualifiedName(), fqn);
+    }
+}
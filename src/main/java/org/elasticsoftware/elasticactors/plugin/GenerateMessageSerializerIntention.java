@@ -0,0 +1,107 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInsight.intention.PsiElementBaseIntentionAction;
+import com.intellij.codeInsight.intention.preview.IntentionPreviewInfo;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiIdentifier;
+import com.intellij.refactoring.util.CommonRefactoringUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+
+import static org.elasticsoftware.elasticactors.Utils.isMessage;
+
+/**
+ * Generates a reflection-free serializer, and its round-trip test, for the {@code @Message} class
+ * under the caret. See {@link MessageSerializerGenerator}.
+ */
+public class GenerateMessageSerializerIntention extends PsiElementBaseIntentionAction {
+
+    @NotNull
+    @Override
+    public String getFamilyName() {
+        return "Generate reflection-free message serializer";
+    }
+
+    @Override
+    public boolean isAvailable(
+            @NotNull Project project,
+            Editor editor,
+            @NotNull PsiElement element) {
+        PsiClass messageClass = getMessageClass(element);
+        if (messageClass == null) {
+            return false;
+        }
+        setText(MessageSerializerGenerator.findSerializer(messageClass) != null
+                ? "Regenerate '" + messageClass.getName() + "' serializer"
+                : "Generate reflection-free serializer for '" + messageClass.getName() + "'");
+        return true;
+    }
+
+    @NotNull
+    @Override
+    public IntentionPreviewInfo generatePreview(
+            @NotNull Project project,
+            @NotNull Editor editor,
+            @NotNull PsiFile file) {
+        return IntentionPreviewInfo.EMPTY;
+    }
+
+    @Override
+    public void invoke(
+            @NotNull Project project,
+            Editor editor,
+            @NotNull PsiElement element) {
+        PsiClass messageClass = getMessageClass(element);
+        if (messageClass != null) {
+            generate(messageClass, editor, getFamilyName());
+        }
+    }
+
+    /**
+     * Generates the serializer of the message class, or shows why it can't be generated. Must be
+     * called in a write action.
+     */
+    static void generate(
+            @NotNull PsiClass messageClass,
+            @Nullable Editor editor,
+            @NotNull String title) {
+        Project project = messageClass.getProject();
+        MessageSerializerGenerator.Plan plan = MessageSerializerGenerator.analyze(messageClass);
+        if (!plan.problems().isEmpty()) {
+            CommonRefactoringUtil.showErrorHint(
+                    project,
+                    editor,
+                    "Cannot generate a serializer for " + messageClass.getName() + ": "
+                            + String.join("; ", plan.problems()),
+                    title,
+                    null);
+            return;
+        }
+        try {
+            MessageSerializerGenerator.generate(plan);
+        } catch (IOException e) {
+            CommonRefactoringUtil.showErrorHint(
+                    project,
+                    editor,
+                    "Cannot create the test of the serializer: " + e.getMessage(),
+                    title,
+                    null);
+        }
+    }
+
+    @Nullable
+    private static PsiClass getMessageClass(@NotNull PsiElement element) {
+        return element instanceof PsiIdentifier
+                && element.getParent() instanceof PsiClass psiClass
+                && psiClass.getNameIdentifier() == element
+                && isMessage(psiClass)
+                ? psiClass
+                : null;
+    }
+}
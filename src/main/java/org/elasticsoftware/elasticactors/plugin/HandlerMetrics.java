@@ -0,0 +1,288 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.io.HttpRequests;
+import com.intellij.util.messages.Topic;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Latency and throughput measured in production for each Message Handler, loaded from a JSON or
+ * CSV file or from an HTTP endpoint.
+ * <p>
+ * JSON sources contain an array of objects, and CSV sources a header line followed by one line
+ * per handler, both with the following keys:
+ * <ul>
+ *     <li>{@code actor}: the actor class, either qualified or simple</li>
+ *     <li>{@code message}: the message class, either qualified or simple</li>
+ *     <li>{@code p50} and {@code p99}: latency percentiles, in milliseconds</li>
+ *     <li>{@code rate}: throughput, in messages per second</li>
+ * </ul>
+ * The loaded metrics are kept in immutable hash maps, so lookups are cheap enough to be done
+ * while rendering inlay hints.
+ */
+@Service(Service.Level.PROJECT)
+public final class HandlerMetrics {
+
+    public static final Topic<Listener> TOPIC =
+            Topic.create("Elastic Actors handler metrics", Listener.class);
+
+    public interface Listener {
+
+        void metricsLoaded();
+    }
+
+    /**
+     * The metrics of a single handler, or of all handlers of a message type.
+     */
+    public record Metric(
+            @NotNull String actor,
+            @NotNull String message,
+            double p50,
+            double p99,
+            double rate) {
+    }
+
+    private record Key(@NotNull String actor, @NotNull String message) {
+    }
+
+    private record Snapshot(
+            @Nullable String source,
+            @NotNull List<Metric> metrics,
+            @NotNull Map<Key, Metric> byHandler,
+            @NotNull Map<String, Metric> byMessage) {
+
+        private static final Snapshot EMPTY =
+                new Snapshot(null, List.of(), Map.of(), Map.of());
+    }
+
+    private final Project project;
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public HandlerMetrics(@NotNull Project project) {
+        this.project = project;
+    }
+
+    @NotNull
+    public static HandlerMetrics getInstance(@NotNull Project project) {
+        return project.getService(HandlerMetrics.class);
+    }
+
+    public boolean isEmpty() {
+        return snapshot.metrics().isEmpty();
+    }
+
+    @Nullable
+    public String getSource() {
+        return snapshot.source();
+    }
+
+    @NotNull
+    public List<Metric> getMetrics() {
+        return snapshot.metrics();
+    }
+
+    /**
+     * Finds the metrics of the handler for the given message type in the given actor class.
+     * Both qualified and simple names are matched.
+     */
+    @Nullable
+    public Metric getHandlerMetric(@NotNull String actorClass, @NotNull String messageClass) {
+        Map<Key, Metric> byHandler = snapshot.byHandler();
+        if (byHandler.isEmpty()) {
+            return null;
+        }
+        Metric metric = byHandler.get(new Key(actorClass, messageClass));
+        return metric != null
+                ? metric
+                : byHandler.get(new Key(
+                StringUtil.getShortName(actorClass),
+                StringUtil.getShortName(messageClass)));
+    }
+
+    /**
+     * Finds the metrics of all handlers for the given message type, combined.
+     */
+    @Nullable
+    public Metric getMessageMetric(@NotNull String messageClass) {
+        Map<String, Metric> byMessage = snapshot.byMessage();
+        if (byMessage.isEmpty()) {
+            return null;
+        }
+        Metric metric = byMessage.get(messageClass);
+        return metric != null ? metric : byMessage.get(StringUtil.getShortName(messageClass));
+    }
+
+    /**
+     * Loads the metrics from a file path or an HTTP(S) URL. Must not be called on the UI thread.
+     */
+    public void load(@NotNull String source) throws IOException {
+        String content = isUrl(source)
+                ? HttpRequests.request(source).readString()
+                : Files.readString(Path.of(source), StandardCharsets.UTF_8);
+        List<Metric> metrics = isJson(source, content) ? parseJson(content) : parseCsv(content);
+        snapshot = createSnapshot(source, metrics);
+        project.getMessageBus().syncPublisher(TOPIC).metricsLoaded();
+        DaemonCodeAnalyzer.getInstance(project).restart();
+    }
+
+    @NotNull
+    private static Snapshot createSnapshot(@NotNull String source, @NotNull List<Metric> metrics) {
+        Map<Key, Metric> byHandler = new HashMap<>();
+        Map<String, Metric> byMessage = new HashMap<>();
+        for (Metric metric : metrics) {
+            byHandler.put(new Key(metric.actor(), metric.message()), metric);
+            byHandler.putIfAbsent(
+                    new Key(
+                            StringUtil.getShortName(metric.actor()),
+                            StringUtil.getShortName(metric.message())),
+                    metric);
+            byMessage.merge(metric.message(), metric, HandlerMetrics::combine);
+            if (!StringUtil.getShortName(metric.message()).equals(metric.message())) {
+                byMessage.merge(
+                        StringUtil.getShortName(metric.message()),
+                        metric,
+                        HandlerMetrics::combine);
+            }
+        }
+        List<Metric> sorted = new ArrayList<>(metrics);
+        sorted.sort((a, b) -> Double.compare(b.p99(), a.p99()));
+        return new Snapshot(
+                source,
+                Collections.unmodifiableList(sorted),
+                Map.copyOf(byHandler),
+                Map.copyOf(byMessage));
+    }
+
+    /**
+     * Combines the metrics of two handlers of the same message type, e.g. in different actors.
+     */
+    @NotNull
+    private static Metric combine(@NotNull Metric a, @NotNull Metric b) {
+        return new Metric(
+                "*",
+                a.message(),
+                Math.max(a.p50(), b.p50()),
+                Math.max(a.p99(), b.p99()),
+                a.rate() + b.rate());
+    }
+
+    private static boolean isUrl(@NotNull String source) {
+        return source.startsWith("http://") || source.startsWith("https://");
+    }
+
+    private static boolean isJson(@NotNull String source, @NotNull String content) {
+        return source.endsWith(".json") || content.stripLeading().startsWith("[");
+    }
+
+    @NotNull
+    private static List<Metric> parseJson(@NotNull String content) throws IOException {
+        List<Metric> metrics = new ArrayList<>();
+        try {
+            for (JsonElement element : JsonParser.parseString(content).getAsJsonArray()) {
+                JsonObject object = element.getAsJsonObject();
+                metrics.add(new Metric(
+                        getString(object, "actor"),
+                        getString(object, "message"),
+                        getNumber(object, "p50"),
+                        getNumber(object, "p99"),
+                        getNumber(object, "rate")));
+            }
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Invalid handler metrics: " + e.getMessage(), e);
+        }
+        return metrics;
+    }
+
+    @NotNull
+    private static String getString(@NotNull JsonObject object, @NotNull String key)
+            throws IOException {
+        JsonElement value = object.get(key);
+        if (value == null || !value.isJsonPrimitive()) {
+            throw new IOException("Invalid handler metrics: missing '" + key + "' in " + object);
+        }
+        return value.getAsString();
+    }
+
+    private static double getNumber(@NotNull JsonObject object, @NotNull String key) {
+        JsonElement value = object.get(key);
+        return value != null && value.isJsonPrimitive() ? value.getAsDouble() : 0;
+    }
+
+    @NotNull
+    private static List<Metric> parseCsv(@NotNull String content) throws IOException {
+        List<String> lines = content.lines().filter(line -> !line.isBlank()).toList();
+        if (lines.isEmpty()) {
+            return List.of();
+        }
+        List<String> header = List.of(lines.get(0).strip().split("\\s*,\\s*"));
+        int actor = header.indexOf("actor");
+        int message = header.indexOf("message");
+        if (actor < 0 || message < 0) {
+            throw new IOException(
+                    "Invalid handler metrics: the header must contain 'actor' and 'message'");
+        }
+        int p50 = header.indexOf("p50");
+        int p99 = header.indexOf("p99");
+        int rate = header.indexOf("rate");
+        List<Metric> metrics = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            String[] values = line.strip().split("\\s*,\\s*");
+            if (values.length != header.size()) {
+                throw new IOException("Invalid handler metrics: unexpected line '" + line + "'");
+            }
+            try {
+                metrics.add(new Metric(
+                        values[actor],
+                        values[message],
+                        p50 >= 0 ? Double.parseDouble(values[p50]) : 0,
+                        p99 >= 0 ? Double.parseDouble(values[p99]) : 0,
+                        rate >= 0 ? Double.parseDouble(values[rate]) : 0));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid handler metrics: unexpected line '" + line + "'", e);
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Formats a latency in milliseconds for display.
+     */
+    @NotNull
+    public static String formatLatency(double millis) {
+        if (millis >= 1000) {
+            return String.format(Locale.ROOT, "%.1fs", millis / 1000);
+        }
+        return millis >= 10
+                ? Math.round(millis) + "ms"
+                : String.format(Locale.ROOT, "%.1fms", millis);
+    }
+
+    /**
+     * Formats a throughput in messages per second for display.
+     */
+    @NotNull
+    public static String formatRate(double rate) {
+        return rate >= 10
+                ? Math.round(rate) + " msg/s"
+                : String.format(Locale.ROOT, "%.1f msg/s", rate);
+    }
+}
@@ -0,0 +1,115 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInsight.hints.declarative.InlayHintsCollector;
+import com.intellij.codeInsight.hints.declarative.InlayHintsProvider;
+import com.intellij.codeInsight.hints.declarative.InlayTreeSink;
+import com.intellij.codeInsight.hints.declarative.InlineInlayPosition;
+import com.intellij.codeInsight.hints.declarative.SharedBypassCollector;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiIdentifier;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import kotlin.Unit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static org.elasticsoftware.elasticactors.plugin.HandlerMetrics.formatLatency;
+import static org.elasticsoftware.elasticactors.plugin.HandlerMetrics.formatRate;
+
+/**
+ * Shows the latency and throughput loaded into {@link HandlerMetrics} next to the names of
+ * Message Handler methods and after calls sending the handled messages.
+ */
+public class HandlerMetricsInlayHintsProvider implements InlayHintsProvider {
+
+    @Nullable
+    @Override
+    public InlayHintsCollector createCollector(@NotNull PsiFile file, @NotNull Editor editor) {
+        HandlerMetrics metrics = HandlerMetrics.getInstance(file.getProject());
+        if (metrics.isEmpty()) {
+            return null;
+        }
+        return new SharedBypassCollector() {
+            @Override
+            public void collectFromElement(
+                    @NotNull PsiElement element,
+                    @NotNull InlayTreeSink sink) {
+                if (element instanceof PsiMethod method
+                        && MessageHandlerImplicitUsageProvider.isMessageHandler(method)) {
+                    collectFromHandler(method, metrics, sink);
+                } else if (element instanceof PsiMethodCallExpression methodCall) {
+                    ElasticActorsFileModel.SendSite sendSite =
+                            ElasticActorsFileModel.getInstance(methodCall).getSendSite(methodCall);
+                    if (sendSite != null) {
+                        collectFromSendSite(sendSite, metrics, sink);
+                    }
+                }
+            }
+        };
+    }
+
+    private static void collectFromHandler(
+            @NotNull PsiMethod method,
+            @NotNull HandlerMetrics metrics,
+            @NotNull InlayTreeSink sink) {
+        PsiIdentifier nameIdentifier = method.getNameIdentifier();
+        PsiClass actorClass = method.getContainingClass();
+        String messageClass = MessageFlow.getHandledMessageClass(method);
+        if (nameIdentifier == null
+                || actorClass == null
+                || actorClass.getQualifiedName() == null
+                || messageClass == null) {
+            return;
+        }
+        HandlerMetrics.Metric metric =
+                metrics.getHandlerMetric(actorClass.getQualifiedName(), messageClass);
+        if (metric != null) {
+            addPresentation(
+                    sink,
+                    nameIdentifier.getTextRange().getEndOffset(),
+                    metric,
+                    "Measured latency and throughput of this handler");
+        }
+    }
+
+    private static void collectFromSendSite(
+            @NotNull ElasticActorsFileModel.SendSite sendSite,
+            @NotNull HandlerMetrics metrics,
+            @NotNull InlayTreeSink sink) {
+        PsiClass messageClass = sendSite.messageClass();
+        if (messageClass == null || messageClass.getQualifiedName() == null) {
+            return;
+        }
+        HandlerMetrics.Metric metric = metrics.getMessageMetric(messageClass.getQualifiedName());
+        if (metric != null) {
+            addPresentation(
+                    sink,
+                    sendSite.call().getTextRange().getEndOffset(),
+                    metric,
+                    "Measured latency and throughput of the handlers of "
+                            + messageClass.getName());
+        }
+    }
+
+    private static void addPresentation(
+            @NotNull InlayTreeSink sink,
+            int offset,
+            @NotNull HandlerMetrics.Metric metric,
+            @NotNull String tooltip) {
+        String text = "p50 " + formatLatency(metric.p50())
+                + " · p99 " + formatLatency(metric.p99())
+                + " · " + formatRate(metric.rate());
+        sink.addPresentation(
+                new InlineInlayPosition(offset, true, 0),
+                null,
+                tooltip,
+                true,
+                builder -> {
+                    builder.text(text, null);
+                    return Unit.INSTANCE;
+                });
+    }
+}
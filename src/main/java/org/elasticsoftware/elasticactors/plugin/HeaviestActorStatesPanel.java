@@ -0,0 +1,183 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.actionSystem.ActionManager;
+import com.intellij.openapi.actionSystem.ActionToolbar;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.DefaultActionGroup;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.searches.ClassInheritorsSearch;
+import com.intellij.ui.DoubleClickListener;
+import com.intellij.ui.ScrollPaneFactory;
+import com.intellij.ui.table.TableView;
+import com.intellij.util.PsiNavigateUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.ui.ColumnInfo;
+import com.intellij.util.ui.ListTableModel;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.elasticsoftware.elasticactors.Utils.ACTOR_STATE_CLASS;
+import static org.elasticsoftware.elasticactors.Utils.isConcrete;
+import static org.elasticsoftware.elasticactors.plugin.MessageSizeEstimator.formatSize;
+
+/**
+ * Ranks the {@code ActorState} classes in the project by their estimated serialized size, as
+ * computed by {@link ActorStateFootprint}. Double-clicking a row navigates to the class.
+ * <p>
+ * Computing the footprints searches for the usages of every collection field, so the ranking is
+ * only rebuilt when the tab is opened and when refreshed explicitly.
+ */
+class HeaviestActorStatesPanel extends SimpleToolWindowPanel implements Disposable {
+
+    private final Project project;
+    private final ListTableModel<Row> model;
+    private final TableView<Row> table;
+
+    private record Row(
+            @NotNull String stateClass,
+            long bytes,
+            int reachableTypes,
+            @NotNull String growingFields,
+            @NotNull SmartPsiElementPointer<PsiClass> pointer) {
+    }
+
+    HeaviestActorStatesPanel(@NotNull Project project) {
+        super(true, true);
+        this.project = project;
+        this.model = new ListTableModel<>(
+                new Column<>("State", Row::stateClass, Row::stateClass),
+                new Column<>("Estimated Size", Row::bytes, row -> formatSize(row.bytes())),
+                new Column<>(
+                        "Reachable Types",
+                        Row::reachableTypes,
+                        row -> String.valueOf(row.reachableTypes())),
+                new Column<>("Growing Collections", Row::growingFields, Row::growingFields));
+        model.setSortable(true);
+        this.table = new TableView<>(model);
+        table.getEmptyText().setText("No ActorState classes found");
+        new DoubleClickListener() {
+            @Override
+            protected boolean onDoubleClick(@NotNull MouseEvent event) {
+                Row row = table.getSelectedObject();
+                PsiClass stateClass = row != null ? row.pointer().getElement() : null;
+                if (stateClass != null) {
+                    PsiNavigateUtil.navigate(stateClass);
+                    return true;
+                }
+                return false;
+            }
+        }.installOn(table);
+        setContent(ScrollPaneFactory.createScrollPane(table));
+
+        DefaultActionGroup actions = new DefaultActionGroup();
+        actions.add(new DumbAwareAction(
+                "Refresh",
+                "Recompute the footprint of all ActorState classes",
+                AllIcons.Actions.Refresh) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                refresh();
+            }
+        });
+        ActionToolbar toolbar = ActionManager.getInstance()
+                .createActionToolbar("ElasticActorsHeaviestActorStates", actions, true);
+        toolbar.setTargetComponent(this);
+        setToolbar(toolbar.getComponent());
+
+        refresh();
+    }
+
+    private void refresh() {
+        table.getEmptyText().setText("Computing footprints...");
+        ReadAction.nonBlocking(this::computeRows)
+                .inSmartMode(project)
+                .expireWith(this)
+                .coalesceBy(this)
+                .finishOnUiThread(ModalityState.defaultModalityState(), rows -> {
+                    table.getEmptyText().setText("No ActorState classes found");
+                    model.setItems(rows);
+                })
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    @NotNull
+    private List<Row> computeRows() {
+        List<Row> rows = new ArrayList<>();
+        PsiClass actorStateClass = JavaPsiFacade.getInstance(project)
+                .findClass(ACTOR_STATE_CLASS, GlobalSearchScope.allScope(project));
+        if (actorStateClass == null) {
+            return rows;
+        }
+        SmartPointerManager pointerManager = SmartPointerManager.getInstance(project);
+        ClassInheritorsSearch.search(
+                actorStateClass,
+                GlobalSearchScope.projectScope(project),
+                true).forEach(stateClass -> {
+            ProgressManager.checkCanceled();
+            String name = stateClass.getQualifiedName();
+            if (name == null || !isConcrete(stateClass)) {
+                return;
+            }
+            ActorStateFootprint.Footprint footprint = ActorStateFootprint.compute(stateClass);
+            List<String> growingFields = new ArrayList<>();
+            for (PsiField field : footprint.growingFields()) {
+                growingFields.add(field.getName());
+            }
+            rows.add(new Row(
+                    name,
+                    footprint.estimate().bytes(),
+                    footprint.estimate().reachableTypes().size(),
+                    String.join(", ", growingFields),
+                    pointerManager.createSmartPsiElementPointer(stateClass)));
+        });
+        rows.sort(Comparator.comparingLong(Row::bytes).reversed());
+        return rows;
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    private static class Column<T extends Comparable<T>> extends ColumnInfo<Row, String> {
+
+        private final Function<Row, T> key;
+        private final Function<Row, String> formatter;
+
+        private Column(
+                @NotNull String name,
+                @NotNull Function<Row, T> key,
+                @NotNull Function<Row, String> formatter) {
+            super(name);
+            this.key = key;
+            this.formatter = formatter;
+        }
+
+        @Override
+        public String valueOf(Row row) {
+            return formatter.apply(row);
+        }
+
+        @Override
+        public Comparator<Row> getComparator() {
+            return Comparator.comparing(key);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiCodeBlock;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiElementFactory;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiExpressionStatement;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.PsiReferenceExpression;
+import com.intellij.psi.PsiStatement;
+import com.intellij.psi.PsiSuperExpression;
+import com.intellij.psi.PsiThisExpression;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+import com.intellij.psi.codeStyle.VariableKind;
+import com.intellij.psi.util.PsiUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static com.intellij.psi.util.PsiTreeUtil.getParentOfType;
+import static org.elasticsoftware.elasticactors.Utils.ACTOR_REF_CLASS;
+import static org.elasticsoftware.elasticactors.Utils.isElasticActor;
+
+/**
+ * Moves an actor lookup with constant arguments, such as {@code getSystem().actorFor("...")},
+ * into a new field of the actor, assigned when the actor is created and when it's activated
+ * again after being loaded from persistence, so it's only resolved once per activation instead
+ * of once per message.
+ */
+class HoistActorLookupFix implements LocalQuickFix {
+
+    private static final String FRAMEWORK_PACKAGE = "org.elasticsoftware.elasticactors.";
+
+    /**
+     * The lifecycle methods of {@code ElasticActor} in which the field is assigned, with their
+     * parameter declarations.
+     */
+    private static final String[][] LIFECYCLE_METHODS = {
+            {"postCreate", ACTOR_REF_CLASS + " creator"},
+            {"postActivate", "java.lang.String previousVersion"}
+    };
+
+    @NotNull
+    @Override
+    public String getFamilyName() {
+        return "Move to a field assigned when the actor is created";
+    }
+
+    /**
+     * The fix is only available if the call is made on something which is also available outside
+     * the handler, i.e. the actor itself, one of its fields or a static method.
+     */
+    static boolean isAvailable(@NotNull PsiMethodCallExpression call) {
+        return getTargetClass(call) != null
+                && call.getType() != null
+                && isInvariant(call.getMethodExpression().getQualifierExpression());
+    }
+
+    private static boolean isInvariant(@Nullable PsiExpression qualifier) {
+        qualifier = PsiUtil.skipParenthesizedExprDown(qualifier);
+        if (qualifier == null || qualifier instanceof PsiThisExpression) {
+            return true;
+        }
+        if (qualifier instanceof PsiMethodCallExpression call) {
+            // e.g. getSystem()
+            return call.getArgumentList().isEmpty()
+                    && isInvariant(call.getMethodExpression().getQualifierExpression());
+        }
+        if (qualifier instanceof PsiReferenceExpression reference) {
+            PsiElement target = reference.resolve();
+            return target instanceof PsiClass || target instanceof PsiField;
+        }
+        return false;
+    }
+
+    @Override
+    public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+        PsiMethodCallExpression call =
+                getParentOfType(descriptor.getPsiElement(), PsiMethodCallExpression.class);
+        PsiClass targetClass = call != null ? getTargetClass(call) : null;
+        PsiType type = call != null ? call.getType() : null;
+        if (targetClass == null || type == null) {
+            return;
+        }
+        JavaCodeStyleManager codeStyleManager = JavaCodeStyleManager.getInstance(project);
+        String[] names = codeStyleManager
+                .suggestVariableName(VariableKind.FIELD, null, call, type)
+                .names;
+        String name = codeStyleManager.suggestUniqueVariableName(
+                names.length > 0 ? names[0] : "actorRef",
+                targetClass,
+                true);
+
+        PsiElementFactory factory = JavaPsiFacade.getElementFactory(project);
+        PsiField field = factory.createFieldFromText(
+                "private " + type.getCanonicalText() + " " + name + ";",
+                targetClass);
+        PsiField[] fields = targetClass.getFields();
+        PsiElement addedField = fields.length > 0
+                ? targetClass.addAfter(field, fields[fields.length - 1])
+                : targetClass.addAfter(field, targetClass.getLBrace());
+        codeStyleManager.shortenClassReferences(addedField);
+
+        for (String[] lifecycleMethod : LIFECYCLE_METHODS) {
+            PsiMethod method = findOrCreateLifecycleMethod(
+                    factory,
+                    targetClass,
+                    lifecycleMethod[0],
+                    lifecycleMethod[1]);
+            PsiCodeBlock body = method.getBody();
+            if (body == null) {
+                continue;
+            }
+            PsiStatement assignment = factory.createStatementFromText(
+                    "this." + name + " = " + call.getText() + ";",
+                    method);
+            PsiStatement[] statements = body.getStatements();
+            PsiElement anchor = statements.length > 0 && isSuperCall(statements[0])
+                    ? statements[0]
+                    : body.getLBrace();
+            codeStyleManager.shortenClassReferences(body.addAfter(assignment, anchor));
+        }
+        call.replace(factory.createExpressionFromText(name, call));
+    }
+
+    @NotNull
+    private static PsiMethod findOrCreateLifecycleMethod(
+            @NotNull PsiElementFactory factory,
+            @NotNull PsiClass targetClass,
+            @NotNull String name,
+            @NotNull String parameter) {
+        for (PsiMethod method : targetClass.findMethodsByName(name, false)) {
+            if (method.getParameterList().getParametersCount() == 1) {
+                return method;
+            }
+        }
+        // Keep the behavior of lifecycle methods overridden in the project's own base classes
+        boolean callSuper = false;
+        for (PsiMethod method : targetClass.findMethodsByName(name, true)) {
+            PsiClass containingClass = method.getContainingClass();
+            String qualifiedName = containingClass != null
+                    ? containingClass.getQualifiedName()
+                    : null;
+            if (qualifiedName != null
+                    && !qualifiedName.startsWith(FRAMEWORK_PACKAGE)
+                    && method.getBody() != null) {
+                callSuper = true;
+                break;
+            }
+        }
+        String parameterName = parameter.substring(parameter.lastIndexOf(' ') + 1);
+        PsiMethod method = factory.createMethodFromText(
+                "@java.lang.Override\npublic void " + name + "(" + parameter + ") "
+                        + "throws java.lang.Exception {\n"
+                        + (callSuper ? "super." + name + "(" + parameterName + ");\n" : "")
+                        + "}",
+                targetClass);
+        PsiMethod added = (PsiMethod) targetClass.add(method);
+        JavaCodeStyleManager.getInstance(targetClass.getProject())
+                .shortenClassReferences(added);
+        return added;
+    }
+
+    private static boolean isSuperCall(@NotNull PsiStatement statement) {
+        return statement instanceof PsiExpressionStatement expressionStatement
+                && expressionStatement.getExpression() instanceof PsiMethodCallExpression call
+                && call.getMethodExpression().getQualifierExpression()
+                instanceof PsiSuperExpression;
+    }
+
+    @Nullable
+    private static PsiClass getTargetClass(@NotNull PsiMethodCallExpression call) {
+        PsiMethod method = getParentOfType(call, PsiMethod.class);
+        PsiClass containingClass = method != null ? method.getContainingClass() : null;
+        return containingClass != null
+                && containingClass.getQualifiedName() != null
+                && !containingClass.isInterface()
+                && containingClass.getLBrace() != null
+                && isElasticActor(containingClass)
+                ? containingClass
+                : null;
+    }
+}
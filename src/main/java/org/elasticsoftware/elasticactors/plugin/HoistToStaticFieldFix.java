@@ -0,0 +1,193 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.JavaTokenType;
+import com.intellij.psi.PsiAssignmentExpression;
+import com.intellij.psi.PsiCall;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiElementFactory;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiExpressionList;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiLocalVariable;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.PsiReferenceExpression;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.PsiVariable;
+import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+import com.intellij.psi.codeStyle.VariableKind;
+import com.intellij.psi.search.LocalSearchScope;
+import com.intellij.psi.search.searches.ReferencesSearch;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.PsiUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+import static com.intellij.psi.PsiModifier.STATIC;
+import static com.intellij.psi.util.PsiTreeUtil.getParentOfType;
+
+/**
+ * Moves an expression creating a shareable instance, such as {@code Pattern.compile("...")},
+ * into a new {@code private static final} field of the actor, so it's only evaluated once.
+ */
+class HoistToStaticFieldFix implements LocalQuickFix {
+
+    /**
+     * The prefixes of the names of methods which configure an instance, such as
+     * {@code ObjectMapper.configure(...)} or {@code registerModule(...)}. An instance configured
+     * while handling a message must not be shared.
+     */
+    private static final List<String> MUTATOR_PREFIXES = List.of(
+            "set",
+            "configure",
+            "enable",
+            "disable",
+            "register",
+            "findAndRegister",
+            "add");
+
+    @NotNull
+    @Override
+    public String getFamilyName() {
+        return "Move to a static final field";
+    }
+
+    /**
+     * The fix is only available if the expression doesn't depend on the message being handled,
+     * i.e. all its arguments are compile-time constants which can be used in a static field
+     * initializer, and if the instance isn't configured after its creation.
+     */
+    static boolean isAvailable(@NotNull PsiExpression expression) {
+        if (!(expression instanceof PsiCall call) || getTargetClass(expression) == null) {
+            return false;
+        }
+        PsiExpressionList argumentList = call.getArgumentList();
+        if (argumentList == null) {
+            return false;
+        }
+        for (PsiExpression argument : argumentList.getExpressions()) {
+            if (!isStaticConstant(argument)) {
+                return false;
+            }
+        }
+        return !isMutated(expression);
+    }
+
+    /**
+     * Checks if the argument is a compile-time constant which only refers to static fields, since
+     * local variables, parameters and instance fields can't be used in a static field initializer
+     * even if they're constants themselves.
+     */
+    private static boolean isStaticConstant(@NotNull PsiExpression argument) {
+        if (!PsiUtil.isConstantExpression(argument)) {
+            return false;
+        }
+        for (PsiReferenceExpression reference :
+                PsiTreeUtil.collectElementsOfType(argument, PsiReferenceExpression.class)) {
+            PsiElement target = reference.resolve();
+            if (!(target instanceof PsiClass)
+                    && !(target instanceof PsiField field && field.hasModifierProperty(STATIC))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the instance created by the expression may be changed after its creation, i.e. a
+     * configuring method is called on it, directly or through the local variable it's assigned
+     * to, or it's passed to another method. Instances used in other ways, such as being returned,
+     * are conservatively considered changed as well.
+     */
+    private static boolean isMutated(@NotNull PsiExpression expression) {
+        PsiElement parent = PsiUtil.skipParenthesizedExprUp(expression.getParent());
+        if (parent instanceof PsiReferenceExpression reference) {
+            return isMutatorCall(reference);
+        }
+        PsiVariable variable = null;
+        if (parent instanceof PsiLocalVariable localVariable) {
+            variable = localVariable;
+        } else if (parent instanceof PsiAssignmentExpression assignment
+                && assignment.getOperationTokenType() == JavaTokenType.EQ
+                && PsiUtil.skipParenthesizedExprDown(assignment.getLExpression())
+                instanceof PsiReferenceExpression target
+                && target.resolve() instanceof PsiLocalVariable localVariable) {
+            variable = localVariable;
+        }
+        PsiMethod method = getParentOfType(expression, PsiMethod.class);
+        if (variable == null || method == null) {
+            return true;
+        }
+        for (PsiReference reference :
+                ReferencesSearch.search(variable, new LocalSearchScope(method)).findAll()) {
+            if (!(reference.getElement() instanceof PsiReferenceExpression variableReference)
+                    || PsiUtil.isAccessedForWriting(variableReference)) {
+                continue;
+            }
+            PsiElement usage = PsiUtil.skipParenthesizedExprUp(variableReference.getParent());
+            if (!(usage instanceof PsiReferenceExpression qualified) || isMutatorCall(qualified)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isMutatorCall(@NotNull PsiReferenceExpression methodExpression) {
+        String name = methodExpression.getReferenceName();
+        return methodExpression.getParent() instanceof PsiMethodCallExpression
+                && name != null
+                && MUTATOR_PREFIXES.stream().anyMatch(name::startsWith);
+    }
+
+    @Override
+    public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+        if (!(descriptor.getPsiElement() instanceof PsiExpression expression)) {
+            return;
+        }
+        PsiClass targetClass = getTargetClass(expression);
+        PsiType type = expression.getType();
+        if (targetClass == null || type == null) {
+            return;
+        }
+        JavaCodeStyleManager codeStyleManager = JavaCodeStyleManager.getInstance(project);
+        String[] names = codeStyleManager
+                .suggestVariableName(VariableKind.STATIC_FINAL_FIELD, null, expression, type)
+                .names;
+        String name = codeStyleManager.suggestUniqueVariableName(
+                names.length > 0 ? names[0] : "INSTANCE",
+                targetClass,
+                true);
+
+        PsiElementFactory factory = JavaPsiFacade.getElementFactory(project);
+        PsiField field = factory.createFieldFromText(
+                "private static final " + type.getCanonicalText() + " " + name + " = "
+                        + expression.getText() + ";",
+                targetClass);
+        PsiField[] fields = targetClass.getFields();
+        PsiElement added = fields.length > 0
+                ? targetClass.addAfter(field, fields[fields.length - 1])
+                : targetClass.addAfter(field, targetClass.getLBrace());
+        codeStyleManager.shortenClassReferences(added);
+        expression.replace(factory.createExpressionFromText(name, expression));
+    }
+
+    @Nullable
+    private static PsiClass getTargetClass(@NotNull PsiExpression expression) {
+        PsiMethod method = getParentOfType(expression, PsiMethod.class);
+        PsiClass containingClass = method != null ? method.getContainingClass() : null;
+        return containingClass != null
+                && containingClass.getQualifiedName() != null
+                && !containingClass.isInterface()
+                && containingClass.getLBrace() != null
+                ? containingClass
+                : null;
+    }
+}
@@ -0,0 +1,203 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.actionSystem.ActionManager;
+import com.intellij.openapi.actionSystem.ActionToolbar;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.DefaultActionGroup;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.PsiShortNamesCache;
+import com.intellij.ui.DoubleClickListener;
+import com.intellij.ui.ScrollPaneFactory;
+import com.intellij.ui.table.TableView;
+import com.intellij.util.PsiNavigateUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.ui.ColumnInfo;
+import com.intellij.util.ui.ListTableModel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.function.Function;
+
+/**
+ * Lists the handlers loaded into {@link HandlerMetrics}, the ones with the highest p99 latency
+ * first. Double-clicking a row navigates to the handler.
+ */
+class HottestHandlersPanel extends SimpleToolWindowPanel implements Disposable {
+
+    private final Project project;
+    private final ListTableModel<HandlerMetrics.Metric> model;
+    private final TableView<HandlerMetrics.Metric> table;
+
+    HottestHandlersPanel(@NotNull Project project) {
+        super(true, true);
+        this.project = project;
+        this.model = new ListTableModel<>(
+                new TextColumn("Actor", metric -> StringUtil.getShortName(metric.actor())),
+                new TextColumn("Message", metric -> StringUtil.getShortName(metric.message())),
+                new NumberColumn(
+                        "p50",
+                        HandlerMetrics.Metric::p50,
+                        HandlerMetrics::formatLatency),
+                new NumberColumn(
+                        "p99",
+                        HandlerMetrics.Metric::p99,
+                        HandlerMetrics::formatLatency),
+                new NumberColumn(
+                        "Throughput",
+                        HandlerMetrics.Metric::rate,
+                        HandlerMetrics::formatRate));
+        model.setSortable(true);
+        this.table = new TableView<>(model);
+        table.getEmptyText().setText("No handler metrics loaded");
+        new DoubleClickListener() {
+            @Override
+            protected boolean onDoubleClick(@NotNull MouseEvent event) {
+                HandlerMetrics.Metric metric = table.getSelectedObject();
+                if (metric != null) {
+                    navigate(metric);
+                    return true;
+                }
+                return false;
+            }
+        }.installOn(table);
+        setContent(ScrollPaneFactory.createScrollPane(table));
+
+        ActionManager actionManager = ActionManager.getInstance();
+        DefaultActionGroup actions = new DefaultActionGroup();
+        actions.add(actionManager.getAction("ElasticActors.LoadHandlerMetrics"));
+        actions.add(actionManager.getAction("ElasticActors.LoadHandlerMetricsFromUrl"));
+        actions.add(new DumbAwareAction(
+                "Reload",
+                "Reload the handler metrics from the same source",
+                AllIcons.Actions.Refresh) {
+            @Override
+            public void update(@NotNull AnActionEvent e) {
+                e.getPresentation().setEnabled(
+                        HandlerMetrics.getInstance(project).getSource() != null);
+            }
+
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                String source = HandlerMetrics.getInstance(project).getSource();
+                if (source != null) {
+                    LoadHandlerMetricsAction.load(project, source);
+                }
+            }
+        });
+        ActionToolbar toolbar = actionManager
+                .createActionToolbar("ElasticActorsHottestHandlers", actions, true);
+        toolbar.setTargetComponent(this);
+        setToolbar(toolbar.getComponent());
+
+        project.getMessageBus()
+                .connect(this)
+                .subscribe(HandlerMetrics.TOPIC, () -> ApplicationManager.getApplication()
+                        .invokeLater(this::update, ModalityState.any(), project.getDisposed()));
+        update();
+    }
+
+    private void update() {
+        model.setItems(new ArrayList<>(HandlerMetrics.getInstance(project).getMetrics()));
+    }
+
+    private void navigate(@NotNull HandlerMetrics.Metric metric) {
+        ReadAction.nonBlocking(() -> findHandler(metric))
+                .inSmartMode(project)
+                .expireWith(this)
+                .finishOnUiThread(ModalityState.defaultModalityState(), element -> {
+                    if (element != null) {
+                        PsiNavigateUtil.navigate(element);
+                    }
+                })
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    @Nullable
+    private PsiElement findHandler(@NotNull HandlerMetrics.Metric metric) {
+        PsiClass[] actorClasses = metric.actor().contains(".")
+                ? JavaPsiFacade.getInstance(project)
+                .findClasses(metric.actor(), GlobalSearchScope.allScope(project))
+                : PsiShortNamesCache.getInstance(project)
+                .getClassesByName(metric.actor(), GlobalSearchScope.projectScope(project));
+        for (PsiClass actorClass : actorClasses) {
+            for (PsiMethod method : actorClass.getMethods()) {
+                String messageClass = MessageHandlerImplicitUsageProvider.isMessageHandler(method)
+                        ? MessageFlow.getHandledMessageClass(method)
+                        : null;
+                if (messageClass != null
+                        && (messageClass.equals(metric.message())
+                        || StringUtil.getShortName(messageClass).equals(metric.message()))) {
+                    return method;
+                }
+            }
+        }
+        return actorClasses.length > 0 ? actorClasses[0] : null;
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    private static class TextColumn extends ColumnInfo<HandlerMetrics.Metric, String> {
+
+        private final Function<HandlerMetrics.Metric, String> getter;
+
+        private TextColumn(
+                @NotNull String name,
+                @NotNull Function<HandlerMetrics.Metric, String> getter) {
+            super(name);
+            this.getter = getter;
+        }
+
+        @Override
+        public String valueOf(HandlerMetrics.Metric metric) {
+            return getter.apply(metric);
+        }
+
+        @Override
+        public Comparator<HandlerMetrics.Metric> getComparator() {
+            return Comparator.comparing(getter);
+        }
+    }
+
+    private static class NumberColumn extends ColumnInfo<HandlerMetrics.Metric, String> {
+
+        private final Function<HandlerMetrics.Metric, Double> getter;
+        private final Function<Double, String> formatter;
+
+        private NumberColumn(
+                @NotNull String name,
+                @NotNull Function<HandlerMetrics.Metric, Double> getter,
+                @NotNull Function<Double, String> formatter) {
+            super(name);
+            this.getter = getter;
+            this.formatter = formatter;
+        }
+
+        @Override
+        public String valueOf(HandlerMetrics.Metric metric) {
+            return formatter.apply(getter.apply(metric));
+        }
+
+        @Override
+        public Comparator<HandlerMetrics.Metric> getComparator() {
+            return Comparator.comparing(getter);
+        }
+    }
+}
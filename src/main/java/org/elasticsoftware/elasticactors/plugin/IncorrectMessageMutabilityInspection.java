@@ -1,85 +1,198 @@
 package org.elasticsoftware.elasticactors.plugin;
 
 import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
+import com.intellij.codeInspection.ProblemHighlightType;
 import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.codeInspection.options.OptPane;
+import com.intellij.openapi.project.DumbAware;
 import com.intellij.psi.JavaElementVisitor;
 import com.intellij.psi.PsiAnnotation;
 import com.intellij.psi.PsiAnnotationMemberValue;
 import com.intellij.psi.PsiClass;
-import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiElementVisitor;
 import com.intellij.psi.PsiField;
 import com.intellij.psi.PsiIdentifier;
+import com.intellij.psi.PsiReferenceList;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
+import static com.intellij.codeInspection.options.OptPane.checkbox;
+import static com.intellij.codeInspection.options.OptPane.pane;
 import static com.intellij.psi.PsiModifier.FINAL;
 import static com.intellij.psi.PsiModifier.STATIC;
 import static org.elasticsoftware.elasticactors.Utils.MESSAGE_ANNOTATION_CLASS;
+import static org.elasticsoftware.elasticactors.Utils.findAnnotationSyntactically;
 import static org.elasticsoftware.elasticactors.Utils.isConcrete;
+import static org.elasticsoftware.elasticactors.Utils.isDumb;
 import static org.elasticsoftware.elasticactors.Utils.isMessage;
 
-import static java.util.Arrays.stream;
+public class IncorrectMessageMutabilityInspection extends AbstractBaseJavaLocalInspectionTool
+        implements DumbAware {
 
-public class IncorrectMessageMutabilityInspection extends AbstractBaseJavaLocalInspectionTool {
+    /**
+     * Whether to follow the types of the fields of immutable messages, reporting final fields
+     * which still allow modifying the message, such as modifiable collections.
+     */
+    public boolean checkDeepImmutability = true;
+
+    @NotNull
+    @Override
+    public OptPane getOptionsPane() {
+        return pane(checkbox(
+                "checkDeepImmutability",
+                "Report final fields of immutable messages holding modifiable values"));
+    }
 
     @NotNull
     @Override
     public PsiElementVisitor buildVisitor(
             @NotNull ProblemsHolder holder, boolean isOnTheFly) {
+        boolean checkDeep = checkDeepImmutability;
         return new JavaElementVisitor() {
             @Override
             public void visitClass(PsiClass aClass) {
                 super.visitClass(aClass);
-                if (isMessage(aClass) && isConcrete(aClass)) {
-                    PsiIdentifier nameIdentifier = aClass.getNameIdentifier();
-                    if (nameIdentifier != null) {
-                        PsiAnnotation message = aClass.getAnnotation(MESSAGE_ANNOTATION_CLASS);
-                        if (message != null) {
-                            PsiAnnotationMemberValue immutable =
-                                    message.findAttributeValue("immutable");
-                            if (immutable != null) {
-                                List<PsiField> nonStaticFields = stream(aClass.getAllFields())
-                                        .filter(PsiElement::isValid)
-                                        .filter(psiField -> !psiField.hasModifierProperty(STATIC))
-                                        .filter(psiField -> psiField.getContainingClass() != null)
-                                        .filter(psiField -> !Throwable.class.getName()
-                                                .equals(psiField.getContainingClass()
-                                                        .getQualifiedName()))
-                                        .collect(Collectors.toList());
-                                validateNonStaticFields(
-                                        nameIdentifier,
-                                        immutable,
-                                        nonStaticFields,
-                                        holder);
-                            }
+                long start = PluginDiagnostics.start();
+                try {
+                    checkClass(aClass, holder, isOnTheFly, checkDeep);
+                } finally {
+                    PluginDiagnostics.stop(
+                            PluginDiagnostics.Probe.MESSAGE_MUTABILITY_INSPECTION,
+                            start);
+                }
+            }
+        };
+    }
+
+    private static void checkClass(
+            @NotNull PsiClass aClass,
+            @NotNull ProblemsHolder holder,
+            boolean isOnTheFly,
+            boolean checkDeep) {
+        if (isDumb(aClass)) {
+            checkClassSyntactically(aClass, holder);
+            return;
+        }
+        if (isMessage(aClass) && isConcrete(aClass)) {
+            PsiIdentifier nameIdentifier = aClass.getNameIdentifier();
+            if (nameIdentifier != null) {
+                PsiAnnotation message = aClass.getAnnotation(MESSAGE_ANNOTATION_CLASS);
+                if (message != null) {
+                    PsiAnnotationMemberValue immutable =
+                            message.findAttributeValue("immutable");
+                    if (immutable != null) {
+                        List<PsiField> nonStaticFields =
+                                DeepImmutability.getInstanceFields(aClass);
+                        validateNonStaticFields(
+                                nameIdentifier,
+                                immutable,
+                                nonStaticFields,
+                                holder,
+                                isOnTheFly);
+                        if (checkDeep
+                                && Boolean.parseBoolean(immutable.getText())
+                                && nonStaticFields.stream()
+                                .allMatch(psiField -> psiField.hasModifierProperty(FINAL))) {
+                            validateDeepImmutability(
+                                    aClass,
+                                    nameIdentifier,
+                                    nonStaticFields,
+                                    holder);
                         }
                     }
                 }
             }
-        };
+        }
+    }
+
+    /**
+     * Checks the mutability of the message while indexing, when neither the default value of
+     * {@code immutable} nor the fields of superclasses are known. Only messages declaring
+     * {@code immutable} explicitly and without superclasses are checked, and not deeply.
+     */
+    private static void checkClassSyntactically(
+            @NotNull PsiClass aClass,
+            @NotNull ProblemsHolder holder) {
+        PsiIdentifier nameIdentifier = aClass.getNameIdentifier();
+        PsiAnnotation message = findAnnotationSyntactically(aClass, MESSAGE_ANNOTATION_CLASS);
+        PsiReferenceList extendsList = aClass.getExtendsList();
+        if (nameIdentifier == null
+                || message == null
+                || !isConcrete(aClass)
+                || extendsList != null && extendsList.getReferenceElements().length > 0) {
+            return;
+        }
+        PsiAnnotationMemberValue immutable = message.findDeclaredAttributeValue("immutable");
+        if (immutable != null) {
+            List<PsiField> nonStaticFields = Arrays.stream(aClass.getFields())
+                    .filter(field -> !field.hasModifierProperty(STATIC))
+                    .toList();
+            validateNonStaticFields(nameIdentifier, immutable, nonStaticFields, holder, false);
+        }
+    }
+
+    /**
+     * Reports the final fields of an immutable message which still allow modifying it, e.g.
+     * because they hold a modifiable collection or a class with non-final fields. Fields inherited
+     * from superclasses are reported on the message's name.
+     */
+    private static void validateDeepImmutability(
+            @NotNull PsiClass aClass,
+            @NotNull PsiIdentifier nameIdentifier,
+            @NotNull List<PsiField> fields,
+            @NotNull ProblemsHolder holder) {
+        for (PsiField field : fields) {
+            String reason = DeepImmutability.checkField(field);
+            if (reason == null) {
+                continue;
+            }
+            PsiIdentifier fieldIdentifier = field.getNameIdentifier();
+            if (aClass.equals(field.getContainingClass())) {
+                holder.registerProblem(
+                        fieldIdentifier,
+                        "Field of @Message-annotated class marked as immutable can be modified: "
+                                + reason);
+            } else {
+                holder.registerProblem(
+                        nameIdentifier,
+                        "@Message-annotated class marked as immutable can be modified through "
+                                + "inherited field '" + field.getName() + "': " + reason);
+            }
+        }
     }
 
     private static void validateNonStaticFields(
             PsiIdentifier nameIdentifier,
             PsiAnnotationMemberValue immutable,
             List<PsiField> fields,
-            @NotNull ProblemsHolder holder) {
+            @NotNull ProblemsHolder holder,
+            boolean isOnTheFly) {
         if (Boolean.parseBoolean(immutable.getText())) {
             if (!fields.isEmpty()
                     && fields.stream().anyMatch(psiField -> !psiField.hasModifierProperty(FINAL))) {
                 holder.registerProblem(
                         nameIdentifier,
-                        "@Message-annotated class marked as immutable has non-final fields");
+                        "@Message-annotated class marked as immutable has non-final fields",
+                        new MakeMessageImmutableFix(),
+                        new SetMessageMutabilityFix(false));
             }
         } else {
             if (fields.isEmpty()
                     || fields.stream().allMatch(psiField -> psiField.hasModifierProperty(FINAL))) {
                 holder.registerProblem(
                         nameIdentifier,
-                        "@Message-annotated class marked as mutable does not have non-final fields");
+                        "@Message-annotated class marked as mutable does not have non-final fields",
+                        new SetMessageMutabilityFix(true));
+            } else if (isOnTheFly
+                    && nameIdentifier.getParent() instanceof PsiClass aClass
+                    && MessageImmutabilityConverter.isConvertible(aClass)) {
+                holder.registerProblem(
+                        nameIdentifier,
+                        "@Message-annotated class can be made immutable",
+                        ProblemHighlightType.INFORMATION,
+                        new MakeMessageImmutableFix());
             }
         }
     }
@@ -0,0 +1,80 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.fileChooser.FileChooser;
+import com.intellij.openapi.fileChooser.FileChooserDescriptor;
+import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * Loads {@link HandlerMetrics} from a JSON or CSV file chosen by the user.
+ */
+public class LoadHandlerMetricsAction extends DumbAwareAction {
+
+    @NotNull
+    @Override
+    public ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(e.getProject() != null);
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+        FileChooserDescriptor descriptor = FileChooserDescriptorFactory
+                .createSingleFileDescriptor()
+                .withFileFilter(file -> "json".equalsIgnoreCase(file.getExtension())
+                        || "csv".equalsIgnoreCase(file.getExtension()))
+                .withTitle("Load Handler Metrics")
+                .withDescription("Choose a JSON or CSV file with handler latency and throughput");
+        VirtualFile file = FileChooser.chooseFile(descriptor, project, null);
+        if (file != null) {
+            load(project, file.getPath());
+        }
+    }
+
+    /**
+     * Loads the metrics from the given file path or URL in the background.
+     */
+    static void load(@NotNull Project project, @NotNull String source) {
+        new Task.Backgroundable(project, "Loading handler metrics", true) {
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                try {
+                    HandlerMetrics metrics = HandlerMetrics.getInstance(project);
+                    metrics.load(source);
+                    notify(metrics.getMetrics().size() + " handler metrics loaded from " + source,
+                            NotificationType.INFORMATION);
+                } catch (IOException e) {
+                    notify("Could not load handler metrics from " + source + ": "
+                                    + e.getMessage(),
+                            NotificationType.ERROR);
+                }
+            }
+
+            private void notify(@NotNull String content, @NotNull NotificationType type) {
+                NotificationGroupManager.getInstance()
+                        .getNotificationGroup("Elastic Actors")
+                        .createNotification(content, type)
+                        .notify(project);
+            }
+        }.queue();
+    }
+}
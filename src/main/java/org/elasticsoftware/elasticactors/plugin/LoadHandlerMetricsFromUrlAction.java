@@ -0,0 +1,89 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.InputValidator;
+import com.intellij.openapi.ui.Messages;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * Loads {@link HandlerMetrics} from an HTTP endpoint, such as a local service exporting them.
+ * Endpoints on other hosts are only contacted after the user confirms it.
+ */
+public class LoadHandlerMetricsFromUrlAction extends DumbAwareAction {
+
+    private static final String DEFAULT_URL = "http://localhost:8080/metrics/handlers";
+
+    @NotNull
+    @Override
+    public ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(e.getProject() != null);
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+        String source = HandlerMetrics.getInstance(project).getSource();
+        String url = Messages.showInputDialog(
+                project,
+                "URL returning handler metrics as JSON or CSV:",
+                "Load Handler Metrics",
+                null,
+                source != null && source.startsWith("http") ? source : DEFAULT_URL,
+                new InputValidator() {
+                    @Override
+                    public boolean checkInput(String inputString) {
+                        return inputString.startsWith("http://")
+                                || inputString.startsWith("https://");
+                    }
+
+                    @Override
+                    public boolean canClose(String inputString) {
+                        return checkInput(inputString);
+                    }
+                });
+        if (url == null) {
+            return;
+        }
+        url = url.strip();
+        if (!isLoopback(url)
+                && Messages.showYesNoDialog(
+                project,
+                "Handler metrics will be requested from " + url + ", which is not on this "
+                        + "machine. Continue?",
+                "Load Handler Metrics",
+                Messages.getWarningIcon()) != Messages.YES) {
+            return;
+        }
+        LoadHandlerMetricsAction.load(project, url);
+    }
+
+    /**
+     * Checks if the URL points to this machine, without resolving its host name.
+     */
+    static boolean isLoopback(@NotNull String url) {
+        String host;
+        try {
+            host = new URI(url).getHost();
+        } catch (URISyntaxException e) {
+            return false;
+        }
+        return host != null
+                && (host.equalsIgnoreCase("localhost")
+                || host.startsWith("127.")
+                || host.equals("[::1]"));
+    }
+}
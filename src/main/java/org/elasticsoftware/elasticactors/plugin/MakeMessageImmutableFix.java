@@ -0,0 +1,77 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInsight.intention.preview.IntentionPreviewInfo;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiClass;
+import com.intellij.refactoring.util.CommonRefactoringUtil;
+import org.jetbrains.annotations.NotNull;
+
+import static com.intellij.psi.util.PsiTreeUtil.getParentOfType;
+
+/**
+ * Makes a {@code @Message}-annotated class immutable using {@link MessageImmutabilityConverter}.
+ * Usages are searched under a modal progress, so this fix does not start in a write action.
+ */
+class MakeMessageImmutableFix implements LocalQuickFix {
+
+    @NotNull
+    @Override
+    public String getFamilyName() {
+        return "Make message class immutable";
+    }
+
+    @Override
+    public boolean startInWriteAction() {
+        return false;
+    }
+
+    @NotNull
+    @Override
+    public IntentionPreviewInfo generatePreview(
+            @NotNull Project project,
+            @NotNull ProblemDescriptor previewDescriptor) {
+        return IntentionPreviewInfo.EMPTY;
+    }
+
+    @Override
+    public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+        PsiClass messageClass = getParentOfType(descriptor.getPsiElement(), PsiClass.class);
+        if (messageClass == null) {
+            return;
+        }
+        MessageImmutabilityConverter.Conversion conversion = ProgressManager.getInstance()
+                .runProcessWithProgressSynchronously(
+                        () -> ReadAction.compute(
+                                () -> MessageImmutabilityConverter.prepare(messageClass)),
+                        getFamilyName(),
+                        true,
+                        project);
+        if (conversion.problem() != null) {
+            CommonRefactoringUtil.showErrorHint(
+                    project,
+                    null,
+                    "Cannot make " + messageClass.getName() + " immutable: "
+                            + conversion.problem(),
+                    getFamilyName(),
+                    null);
+            return;
+        }
+        boolean applied = WriteCommandAction.writeCommandAction(project)
+                .withName(getFamilyName())
+                .compute(() -> MessageImmutabilityConverter.apply(conversion));
+        if (!applied) {
+            CommonRefactoringUtil.showErrorHint(
+                    project,
+                    null,
+                    "Cannot make " + messageClass.getName() + " immutable: the code changed "
+                            + "while looking for its usages",
+                    getFamilyName(),
+                    null);
+        }
+    }
+}
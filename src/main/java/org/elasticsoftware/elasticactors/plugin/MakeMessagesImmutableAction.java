@@ -0,0 +1,142 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiAnnotation;
+import com.intellij.psi.PsiAnnotationMemberValue;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.searches.AnnotatedElementsSearch;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.elasticsoftware.elasticactors.Utils.MESSAGE_ANNOTATION_CLASS;
+import static org.elasticsoftware.elasticactors.Utils.isConcrete;
+
+/**
+ * Makes all eligible mutable {@code @Message}-annotated classes in the project immutable.
+ * <p>
+ * Each class is analyzed in a background read action and converted in its own write command
+ * right after, so the UI stays responsive on large projects, and the changes of a class never
+ * invalidate the analysis of another one. A class whose code changed between the analysis and
+ * the conversion is skipped.
+ */
+public class MakeMessagesImmutableAction extends AnAction {
+
+    @NotNull
+    @Override
+    public ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(e.getProject() != null);
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+        new Task.Backgroundable(project, "Making message classes immutable", true) {
+
+            private int converted;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                indicator.setText("Looking for message classes");
+                List<SmartPsiElementPointer<PsiClass>> messageClasses =
+                        DumbService.getInstance(project)
+                                .runReadActionInSmartMode(() -> findMutableMessageClasses(project));
+                indicator.setIndeterminate(false);
+                for (int i = 0; i < messageClasses.size(); i++) {
+                    indicator.checkCanceled();
+                    indicator.setFraction((double) i / messageClasses.size());
+                    indicator.setText("Converting message classes (" + i + "/"
+                            + messageClasses.size() + ")");
+                    SmartPsiElementPointer<PsiClass> pointer = messageClasses.get(i);
+                    MessageImmutabilityConverter.Conversion conversion =
+                            DumbService.getInstance(project)
+                                    .runReadActionInSmartMode(() -> prepare(pointer));
+                    if (conversion != null) {
+                        ApplicationManager.getApplication().invokeAndWait(() -> {
+                            if (WriteCommandAction.writeCommandAction(project)
+                                    .withName("Make Message Classes Immutable")
+                                    .compute(() -> MessageImmutabilityConverter.apply(
+                                            conversion))) {
+                                converted++;
+                            }
+                        });
+                    }
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                NotificationGroupManager.getInstance()
+                        .getNotificationGroup("Elastic Actors")
+                        .createNotification(
+                                converted + " message classes were made immutable",
+                                NotificationType.INFORMATION)
+                        .notify(project);
+            }
+        }.queue();
+    }
+
+    @NotNull
+    private static List<SmartPsiElementPointer<PsiClass>> findMutableMessageClasses(
+            @NotNull Project project) {
+        PsiClass annotationClass = JavaPsiFacade.getInstance(project)
+                .findClass(MESSAGE_ANNOTATION_CLASS, GlobalSearchScope.allScope(project));
+        if (annotationClass == null) {
+            return Collections.emptyList();
+        }
+        SmartPointerManager pointerManager = SmartPointerManager.getInstance(project);
+        List<SmartPsiElementPointer<PsiClass>> result = new ArrayList<>();
+        AnnotatedElementsSearch.searchPsiClasses(
+                annotationClass,
+                GlobalSearchScope.projectScope(project)).forEach(psiClass -> {
+            if (isConcrete(psiClass) && !isImmutable(psiClass)) {
+                result.add(pointerManager.createSmartPsiElementPointer(psiClass));
+            }
+        });
+        return result;
+    }
+
+    @Nullable
+    private static MessageImmutabilityConverter.Conversion prepare(
+            @NotNull SmartPsiElementPointer<PsiClass> pointer) {
+        PsiClass psiClass = pointer.getElement();
+        if (psiClass == null) {
+            return null;
+        }
+        MessageImmutabilityConverter.Conversion conversion =
+                MessageImmutabilityConverter.prepare(psiClass);
+        return conversion.problem() == null && !conversion.fields().isEmpty() ? conversion : null;
+    }
+
+    private static boolean isImmutable(@NotNull PsiClass psiClass) {
+        PsiAnnotation message = psiClass.getAnnotation(MESSAGE_ANNOTATION_CLASS);
+        PsiAnnotationMemberValue immutable =
+                message != null ? message.findAttributeValue("immutable") : null;
+        return immutable != null && Boolean.parseBoolean(immutable.getText());
+    }
+}
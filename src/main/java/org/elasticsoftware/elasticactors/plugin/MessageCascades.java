@@ -0,0 +1,276 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.concurrency.JobLauncher;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiIfStatement;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValueProvider.Result;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.util.indexing.FileBasedIndex;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static com.intellij.psi.util.PsiTreeUtil.getParentOfType;
+import static com.intellij.psi.util.PsiTreeUtil.isAncestor;
+import static org.elasticsoftware.elasticactors.Utils.getJavaModificationTracker;
+import static org.elasticsoftware.elasticactors.Utils.isMessage;
+
+/**
+ * Follows the cascades of messages triggered by each entry-point message: when the handler of
+ * message X sends Y and Z, and the handler of Y sends W, handling X costs three more messages.
+ * <p>
+ * The messages sent while handling each message type are found per file, in parallel, and
+ * cached until the file changes, so recomputing the cascades only resolves the changed files.
+ * Entry points are the handled message types which are never sent from another handler. When a
+ * message type has several handlers, the messages sent by all of them are counted, so the
+ * totals are upper bounds.
+ */
+public final class MessageCascades {
+
+    /**
+     * The total number of messages at which the cascade stops being followed.
+     */
+    public static final long MAX_TOTAL = 1_000_000;
+
+    /**
+     * The cascade triggered by an entry-point message.
+     *
+     * @param messageClass the qualified name of the entry-point message type
+     * @param fanOut the number of messages sent directly by its handlers
+     * @param depth the length of the longest chain of messages it triggers
+     * @param totalMessages the number of messages it triggers, including indirect ones
+     * @param cyclic whether the cascade contains a cycle, in which case it may not terminate
+     * @param handler one of the handlers of the entry-point message
+     */
+    public record Cascade(
+            @NotNull String messageClass,
+            int fanOut,
+            int depth,
+            long totalMessages,
+            boolean cyclic,
+            @Nullable SmartPsiElementPointer<PsiElement> handler) {
+    }
+
+    /**
+     * The messages sent while handling each message type received in a file.
+     */
+    private record FileCascades(
+            @NotNull Map<String, List<String>> sentMessages,
+            @NotNull Map<String, SmartPsiElementPointer<PsiElement>> handlers) {
+    }
+
+    private record Node(int depth, long totalMessages, boolean cyclic) {
+    }
+
+    private MessageCascades() {
+    }
+
+    /**
+     * Computes the cascades of all entry points in the project, the largest ones first. Must be
+     * called in a background thread without holding a read action.
+     */
+    @NotNull
+    public static List<Cascade> compute(
+            @NotNull Project project,
+            @NotNull ProgressIndicator indicator) {
+        DumbService dumbService = DumbService.getInstance(project);
+        List<VirtualFile> files = dumbService.runReadActionInSmartMode(() -> findFiles(project));
+
+        Collection<FileCascades> fileCascades = new ConcurrentLinkedQueue<>();
+        PsiManager psiManager = PsiManager.getInstance(project);
+        JobLauncher.getInstance().invokeConcurrentlyUnderProgress(
+                files,
+                indicator,
+                file -> {
+                    dumbService.runReadActionInSmartMode(() -> {
+                        PsiFile psiFile = file.isValid() ? psiManager.findFile(file) : null;
+                        if (psiFile != null) {
+                            fileCascades.add(getFileCascades(psiFile));
+                        }
+                    });
+                    return true;
+                });
+
+        Map<String, List<String>> sentMessages = new HashMap<>();
+        Map<String, SmartPsiElementPointer<PsiElement>> handlers = new HashMap<>();
+        for (FileCascades cascades : fileCascades) {
+            cascades.sentMessages().forEach((messageClass, sent) -> sentMessages
+                    .computeIfAbsent(messageClass, k -> new ArrayList<>())
+                    .addAll(sent));
+            cascades.handlers().forEach(handlers::putIfAbsent);
+        }
+        Set<String> internalMessages = new HashSet<>();
+        sentMessages.values().forEach(internalMessages::addAll);
+
+        Map<String, Node> nodes = new HashMap<>();
+        List<Cascade> result = new ArrayList<>();
+        for (String messageClass : handlers.keySet()) {
+            indicator.checkCanceled();
+            if (!internalMessages.contains(messageClass)) {
+                Node node = computeNode(messageClass, sentMessages, nodes, new HashSet<>());
+                result.add(new Cascade(
+                        messageClass,
+                        sentMessages.getOrDefault(messageClass, List.of()).size(),
+                        node.depth(),
+                        node.totalMessages(),
+                        node.cyclic(),
+                        handlers.get(messageClass)));
+            }
+        }
+        result.sort(Comparator.comparingLong(Cascade::totalMessages).reversed()
+                .thenComparing(Cascade::messageClass));
+        return result;
+    }
+
+    @NotNull
+    private static Node computeNode(
+            @NotNull String messageClass,
+            @NotNull Map<String, List<String>> sentMessages,
+            @NotNull Map<String, Node> nodes,
+            @NotNull Set<String> path) {
+        Node node = nodes.get(messageClass);
+        if (node != null) {
+            return node;
+        }
+        if (!path.add(messageClass)) {
+            return new Node(0, 0, true);
+        }
+        int depth = 0;
+        long totalMessages = 0;
+        boolean cyclic = false;
+        for (String sent : sentMessages.getOrDefault(messageClass, List.of())) {
+            ProgressManager.checkCanceled();
+            Node child = computeNode(sent, sentMessages, nodes, path);
+            depth = Math.max(depth, child.depth() + 1);
+            totalMessages = Math.min(MAX_TOTAL, totalMessages + 1 + child.totalMessages());
+            cyclic |= child.cyclic();
+        }
+        path.remove(messageClass);
+        node = new Node(depth, totalMessages, cyclic);
+        nodes.put(messageClass, node);
+        return node;
+    }
+
+    @NotNull
+    private static List<VirtualFile> findFiles(@NotNull Project project) {
+        GlobalSearchScope scope = GlobalSearchScope.projectScope(project);
+        FileBasedIndex index = FileBasedIndex.getInstance();
+        Set<VirtualFile> files = new HashSet<>();
+        for (MessageFlow.Kind kind : MessageFlow.Kind.values()) {
+            if (kind != MessageFlow.Kind.SEND) {
+                files.addAll(index.getContainingFiles(MessageFlowIndex.NAME, kind.name(), scope));
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * Returns the messages sent while handling each message type received in the given file,
+     * cached until the file or the Java declarations change.
+     */
+    @NotNull
+    private static FileCascades getFileCascades(@NotNull PsiFile file) {
+        return CachedValuesManager.getCachedValue(file, () -> Result.create(
+                computeFileCascades(file),
+                file,
+                getJavaModificationTracker(file),
+                MessageFlow.getInvalidationTracker()));
+    }
+
+    @NotNull
+    private static FileCascades computeFileCascades(@NotNull PsiFile file) {
+        ElasticActorsFileModel model = ElasticActorsFileModel.getInstance(file);
+        Map<String, List<String>> sentMessages = new HashMap<>();
+        Map<String, SmartPsiElementPointer<PsiElement>> handlers = new HashMap<>();
+        SmartPointerManager pointerManager = SmartPointerManager.getInstance(file.getProject());
+        for (ElasticActorsFileModel.Handler handler : model.getHandlers()) {
+            addHandler(
+                    model,
+                    getQualifiedName(handler.messageClass()),
+                    handler.method(),
+                    handler.method(),
+                    sentMessages,
+                    handlers,
+                    pointerManager);
+        }
+        for (ElasticActorsFileModel.ReceiveBranch branch : model.getReceiveBranches()) {
+            PsiIfStatement ifStatement =
+                    getParentOfType(branch.typeElement(), PsiIfStatement.class);
+            if (!branch.cast()
+                    && isMessage(branch.checkedClass())
+                    && ifStatement != null
+                    && ifStatement.getThenBranch() != null
+                    && isAncestor(ifStatement.getCondition(), branch.typeElement(), true)) {
+                addHandler(
+                        model,
+                        getQualifiedName(branch.checkedClass()),
+                        branch.typeElement(),
+                        ifStatement.getThenBranch(),
+                        sentMessages,
+                        handlers,
+                        pointerManager);
+            }
+        }
+        for (ElasticActorsFileModel.DelegateHandler delegateHandler : model.getDelegateHandlers()) {
+            PsiExpression[] arguments = delegateHandler.call().getArgumentList().getExpressions();
+            if (arguments.length > 1) {
+                addHandler(
+                        model,
+                        getQualifiedName(delegateHandler.messageClass()),
+                        delegateHandler.classArgument(),
+                        arguments[1],
+                        sentMessages,
+                        handlers,
+                        pointerManager);
+            }
+        }
+        return new FileCascades(sentMessages, handlers);
+    }
+
+    private static void addHandler(
+            @NotNull ElasticActorsFileModel model,
+            @Nullable String messageClass,
+            @NotNull PsiElement handler,
+            @NotNull PsiElement body,
+            @NotNull Map<String, List<String>> sentMessages,
+            @NotNull Map<String, SmartPsiElementPointer<PsiElement>> handlers,
+            @NotNull SmartPointerManager pointerManager) {
+        if (messageClass == null) {
+            return;
+        }
+        List<String> sent = sentMessages.computeIfAbsent(messageClass, k -> new ArrayList<>());
+        for (ElasticActorsFileModel.SendSite sendSite : model.getSendSites()) {
+            String sentClass = getQualifiedName(sendSite.messageClass());
+            if (sentClass != null && isAncestor(body, sendSite.call(), true)) {
+                sent.add(sentClass);
+            }
+        }
+        handlers.putIfAbsent(messageClass, pointerManager.createSmartPsiElementPointer(handler));
+    }
+
+    @Nullable
+    private static String getQualifiedName(@Nullable PsiClass psiClass) {
+        return psiClass != null ? psiClass.getQualifiedName() : null;
+    }
+}
@@ -0,0 +1,147 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.actionSystem.ActionManager;
+import com.intellij.openapi.actionSystem.ActionToolbar;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.DefaultActionGroup;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.psi.PsiElement;
+import com.intellij.ui.DoubleClickListener;
+import com.intellij.ui.ScrollPaneFactory;
+import com.intellij.ui.table.TableView;
+import com.intellij.util.PsiNavigateUtil;
+import com.intellij.util.ui.ColumnInfo;
+import com.intellij.util.ui.ListTableModel;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.event.MouseEvent;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Lists the message cascades computed by {@link MessageCascades}, the ones triggering the most
+ * messages first. Double-clicking a row navigates to a handler of the entry-point message.
+ */
+class MessageCascadesPanel extends SimpleToolWindowPanel implements Disposable {
+
+    private final Project project;
+    private final ListTableModel<MessageCascades.Cascade> model;
+    private final TableView<MessageCascades.Cascade> table;
+
+    MessageCascadesPanel(@NotNull Project project) {
+        super(true, true);
+        this.project = project;
+        this.model = new ListTableModel<>(
+                new Column<>(
+                        "Entry Point",
+                        MessageCascades.Cascade::messageClass,
+                        MessageCascades.Cascade::messageClass),
+                new Column<>(
+                        "Fan-out",
+                        MessageCascades.Cascade::fanOut,
+                        cascade -> String.valueOf(cascade.fanOut())),
+                new Column<>(
+                        "Depth",
+                        MessageCascades.Cascade::depth,
+                        cascade -> cascade.cyclic()
+                                ? cascade.depth() + " (cyclic)"
+                                : String.valueOf(cascade.depth())),
+                new Column<>(
+                        "Total Messages",
+                        MessageCascades.Cascade::totalMessages,
+                        cascade -> cascade.totalMessages() >= MessageCascades.MAX_TOTAL
+                                ? MessageCascades.MAX_TOTAL + "+"
+                                : String.valueOf(cascade.totalMessages())));
+        model.setSortable(true);
+        this.table = new TableView<>(model);
+        table.getEmptyText().setText("No message handlers found");
+        new DoubleClickListener() {
+            @Override
+            protected boolean onDoubleClick(@NotNull MouseEvent event) {
+                MessageCascades.Cascade cascade = table.getSelectedObject();
+                PsiElement handler = cascade != null && cascade.handler() != null
+                        ? cascade.handler().getElement()
+                        : null;
+                if (handler != null) {
+                    PsiNavigateUtil.navigate(handler);
+                    return true;
+                }
+                return false;
+            }
+        }.installOn(table);
+        setContent(ScrollPaneFactory.createScrollPane(table));
+
+        DefaultActionGroup actions = new DefaultActionGroup();
+        actions.add(new DumbAwareAction(
+                "Refresh",
+                "Recompute the message cascades, resolving only the files changed since",
+                AllIcons.Actions.Refresh) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                refresh();
+            }
+        });
+        ActionToolbar toolbar = ActionManager.getInstance()
+                .createActionToolbar("ElasticActorsMessageCascades", actions, true);
+        toolbar.setTargetComponent(this);
+        setToolbar(toolbar.getComponent());
+
+        refresh();
+    }
+
+    private void refresh() {
+        table.getEmptyText().setText("Computing message cascades...");
+        new Task.Backgroundable(project, "Computing message cascades", true) {
+
+            private List<MessageCascades.Cascade> cascades;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                cascades = MessageCascades.compute(project, indicator);
+            }
+
+            @Override
+            public void onSuccess() {
+                table.getEmptyText().setText("No message handlers found");
+                model.setItems(cascades);
+            }
+        }.queue();
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    private static class Column<T extends Comparable<T>>
+            extends ColumnInfo<MessageCascades.Cascade, String> {
+
+        private final Function<MessageCascades.Cascade, T> key;
+        private final Function<MessageCascades.Cascade, String> formatter;
+
+        private Column(
+                @NotNull String name,
+                @NotNull Function<MessageCascades.Cascade, T> key,
+                @NotNull Function<MessageCascades.Cascade, String> formatter) {
+            super(name);
+            this.key = key;
+            this.formatter = formatter;
+        }
+
+        @Override
+        public String valueOf(MessageCascades.Cascade cascade) {
+            return formatter.apply(cascade);
+        }
+
+        @Override
+        public Comparator<MessageCascades.Cascade> getComparator() {
+            return Comparator.comparing(key);
+        }
+    }
+}
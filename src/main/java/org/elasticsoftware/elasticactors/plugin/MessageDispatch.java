@@ -0,0 +1,162 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValueProvider.Result;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.InheritanceUtil;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.util.PsiUtilCore;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cross-references the message types sent in the project with the ones handled in it, based on
+ * a {@link MessageFlow}.
+ * <p>
+ * Message types are matched along their hierarchy: a message is handled if there is a receiver
+ * for its type, one of its supertypes or one of its subtypes (since the static type of a sent
+ * message may be less specific than its runtime type), and vice versa. Messages are only
+ * reported as never sent if they are declared in the project, since messages declared in
+ * libraries may be sent by other applications.
+ */
+public final class MessageDispatch {
+
+    private final MessageFlow flow;
+    private final Set<String> neverHandled;
+    private final Set<String> neverSent;
+
+    private MessageDispatch(
+            @NotNull MessageFlow flow,
+            @NotNull Set<String> neverHandled,
+            @NotNull Set<String> neverSent) {
+        this.flow = flow;
+        this.neverHandled = neverHandled;
+        this.neverSent = neverSent;
+    }
+
+    /**
+     * Returns the dispatch of the whole project, cached until any PSI changes, since send sites
+     * live in method bodies. Recomputing it is cheap as long as the sites of most files are still
+     * cached by {@link MessageFlow}. Must be called in a read action with indexes available.
+     */
+    @NotNull
+    public static MessageDispatch getInstance(@NotNull Project project) {
+        return CachedValuesManager.getManager(project).getCachedValue(project, () -> Result.create(
+                compute(project, MessageFlow.compute(project)),
+                PsiModificationTracker.getInstance(project),
+                MessageFlow.getInvalidationTracker()));
+    }
+
+    /**
+     * Cross-references the sites of the given flow. Must be called in a read action.
+     */
+    @NotNull
+    public static MessageDispatch compute(@NotNull Project project, @NotNull MessageFlow flow) {
+        Map<String, Set<String>> supertypes = new HashMap<>();
+        Set<String> sent = new HashSet<>();
+        Set<String> received = new HashSet<>();
+        Set<String> sentSupertypes = new HashSet<>();
+        Set<String> receivedSupertypes = new HashSet<>();
+        JavaPsiFacade psiFacade = JavaPsiFacade.getInstance(project);
+        GlobalSearchScope allScope = GlobalSearchScope.allScope(project);
+        for (String messageClass : flow.getMessageClasses()) {
+            ProgressManager.checkCanceled();
+            Set<String> names = getSupertypes(psiFacade.findClass(messageClass, allScope));
+            names.add(messageClass);
+            supertypes.put(messageClass, names);
+            if (!flow.getSenders(messageClass).isEmpty()) {
+                sent.add(messageClass);
+                sentSupertypes.addAll(names);
+            }
+            if (!flow.getReceivers(messageClass).isEmpty()) {
+                received.add(messageClass);
+                receivedSupertypes.addAll(names);
+            }
+        }
+
+        Set<String> neverHandled = new LinkedHashSet<>();
+        for (String messageClass : sent) {
+            if (Collections.disjoint(supertypes.get(messageClass), received)
+                    && !receivedSupertypes.contains(messageClass)) {
+                neverHandled.add(messageClass);
+            }
+        }
+        GlobalSearchScope projectScope = GlobalSearchScope.projectScope(project);
+        Set<String> neverSent = new LinkedHashSet<>();
+        for (String messageClass : received) {
+            if (Collections.disjoint(supertypes.get(messageClass), sent)
+                    && !sentSupertypes.contains(messageClass)
+                    && isInScope(psiFacade.findClass(messageClass, allScope), projectScope)) {
+                neverSent.add(messageClass);
+            }
+        }
+        return new MessageDispatch(
+                flow,
+                Collections.unmodifiableSet(neverHandled),
+                Collections.unmodifiableSet(neverSent));
+    }
+
+    @NotNull
+    private static Set<String> getSupertypes(@Nullable PsiClass psiClass) {
+        Set<String> names = new HashSet<>();
+        if (psiClass != null) {
+            Set<PsiClass> supertypes = new HashSet<>();
+            InheritanceUtil.getSuperClasses(psiClass, supertypes, true);
+            for (PsiClass supertype : supertypes) {
+                String name = supertype.getQualifiedName();
+                if (name != null && !name.startsWith("java.")) {
+                    names.add(name);
+                }
+            }
+        }
+        return names;
+    }
+
+    private static boolean isInScope(
+            @Nullable PsiClass psiClass,
+            @NotNull GlobalSearchScope scope) {
+        VirtualFile file = PsiUtilCore.getVirtualFile(psiClass);
+        return file != null && scope.contains(file);
+    }
+
+    @NotNull
+    public MessageFlow getFlow() {
+        return flow;
+    }
+
+    /**
+     * The message types which are sent, but have no receivers in the project.
+     */
+    @NotNull
+    public Set<String> getNeverHandled() {
+        return neverHandled;
+    }
+
+    /**
+     * The message types declared in the project which have receivers, but are never sent.
+     */
+    @NotNull
+    public Set<String> getNeverSent() {
+        return neverSent;
+    }
+
+    public boolean isNeverHandled(@NotNull String messageClass) {
+        return neverHandled.contains(messageClass);
+    }
+
+    public boolean isNeverSent(@NotNull String messageClass) {
+        return neverSent.contains(messageClass);
+    }
+}
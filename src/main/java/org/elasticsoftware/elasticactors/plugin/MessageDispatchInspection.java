@@ -0,0 +1,113 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.analysis.AnalysisScope;
+import com.intellij.codeInspection.CommonProblemDescriptor;
+import com.intellij.codeInspection.GlobalInspectionContext;
+import com.intellij.codeInspection.GlobalInspectionTool;
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptionsProcessor;
+import com.intellij.codeInspection.ProblemHighlightType;
+import com.intellij.codeInspection.options.OptPane;
+import com.intellij.codeInspection.reference.RefElement;
+import com.intellij.openapi.progress.ProgressIndicatorProvider;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiMethod;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+import static com.intellij.codeInspection.options.OptPane.checkbox;
+import static com.intellij.codeInspection.options.OptPane.pane;
+
+/**
+ * Reports messages which are sent but never handled, and handlers of messages which are never
+ * sent, based on the {@link MessageDispatch} of the whole project.
+ */
+public class MessageDispatchInspection extends GlobalInspectionTool {
+
+    public boolean reportNeverHandled = true;
+
+    public boolean reportNeverSent = true;
+
+    @NotNull
+    @Override
+    public OptPane getOptionsPane() {
+        return pane(
+                checkbox("reportNeverHandled", "Report messages which are never handled"),
+                checkbox("reportNeverSent", "Report handlers of messages which are never sent"));
+    }
+
+    @Override
+    public boolean isGraphNeeded() {
+        return false;
+    }
+
+    @Override
+    public void runInspection(
+            @NotNull AnalysisScope scope,
+            @NotNull InspectionManager manager,
+            @NotNull GlobalInspectionContext globalContext,
+            @NotNull ProblemDescriptionsProcessor problemDescriptionsProcessor) {
+        MessageDispatch dispatch = MessageDispatch.getInstance(globalContext.getProject());
+        MessageFlow flow = dispatch.getFlow();
+        if (reportNeverHandled) {
+            for (String messageClass : dispatch.getNeverHandled()) {
+                report(
+                        flow.getSenders(messageClass),
+                        "Message '" + StringUtil.getShortName(messageClass)
+                                + "' is sent, but no actor in the project handles it; it will "
+                                + "be treated as an unhandled message",
+                        scope,
+                        manager,
+                        globalContext,
+                        problemDescriptionsProcessor);
+            }
+        }
+        if (reportNeverSent) {
+            for (String messageClass : dispatch.getNeverSent()) {
+                report(
+                        flow.getReceivers(messageClass),
+                        "Message '" + StringUtil.getShortName(messageClass)
+                                + "' is handled, but never sent in the project",
+                        scope,
+                        manager,
+                        globalContext,
+                        problemDescriptionsProcessor);
+            }
+        }
+    }
+
+    private static void report(
+            @NotNull List<MessageFlow.Site> sites,
+            @NotNull String message,
+            @NotNull AnalysisScope scope,
+            @NotNull InspectionManager manager,
+            @NotNull GlobalInspectionContext globalContext,
+            @NotNull ProblemDescriptionsProcessor problemDescriptionsProcessor) {
+        for (MessageFlow.Site site : sites) {
+            ProgressIndicatorProvider.checkCanceled();
+            PsiElement element = site.pointer().getElement();
+            if (element instanceof PsiMethod method && method.getNameIdentifier() != null) {
+                element = method.getNameIdentifier();
+            }
+            if (element == null || !scope.contains(element)) {
+                continue;
+            }
+            RefElement refElement =
+                    globalContext.getRefManager().getReference(element.getContainingFile());
+            if (refElement != null) {
+                problemDescriptionsProcessor.addProblemElement(
+                        refElement,
+                        new CommonProblemDescriptor[]{
+                                manager.createProblemDescriptor(
+                                        element,
+                                        message,
+                                        false,
+                                        LocalQuickFix.EMPTY_ARRAY,
+                                        ProblemHighlightType.GENERIC_ERROR_OR_WARNING)});
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.SimpleModificationTracker;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValueProvider.Result;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.util.indexing.FileBasedIndex;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.intellij.psi.util.PsiTreeUtil.getParentOfType;
+import static com.intellij.psi.util.PsiTypesUtil.getPsiClass;
+import static org.elasticsoftware.elasticactors.Utils.getJavaModificationTracker;
+import static org.elasticsoftware.elasticactors.Utils.isMessage;
+
+/**
+ * Project-wide map of message types to the places sending and receiving them.
+ * <p>
+ * The sites of each file are taken from its {@link ElasticActorsFileModel} and cached until that
+ * file or the Java declarations change, since the message type of a site may be declared in
+ * another file. {@link MessageFlowIndex} is used to skip files which cannot contain any site, and
+ * {@link #invalidate()} can be used to drop all cached sites.
+ */
+public final class MessageFlow {
+
+    private static final SimpleModificationTracker INVALIDATION_TRACKER =
+            new SimpleModificationTracker();
+
+    public enum Kind {
+        /**
+         * A call to {@code ActorRef.tell(...)} or {@code ActorRef.ask(...)}.
+         */
+        SEND,
+        /**
+         * A method annotated with {@code @MessageHandler}.
+         */
+        HANDLER,
+        /**
+         * An {@code instanceof} check inside {@code ElasticActor.onReceive(...)}.
+         */
+        RECEIVE,
+        /**
+         * A message type passed to {@code ActorDelegate.Builder.onReceive(...)}.
+         */
+        DELEGATE
+    }
+
+    /**
+     * A place in the code where a message is sent or received.
+     *
+     * @param kind the kind of site
+     * @param messageClass the qualified name of the message type
+     * @param location a short description of the method containing the site
+     * @param pointer the site's element
+     */
+    public record Site(
+            @NotNull Kind kind,
+            @NotNull String messageClass,
+            @NotNull String location,
+            @NotNull SmartPsiElementPointer<PsiElement> pointer) {
+
+        public boolean isReceiver() {
+            return kind != Kind.SEND;
+        }
+    }
+
+    private final Map<String, List<Site>> senders = new HashMap<>();
+    private final Map<String, List<Site>> receivers = new HashMap<>();
+
+    private MessageFlow() {
+    }
+
+    @NotNull
+    public Set<String> getMessageClasses() {
+        Set<String> messageClasses = new HashSet<>(senders.keySet());
+        messageClasses.addAll(receivers.keySet());
+        return messageClasses;
+    }
+
+    @NotNull
+    public List<Site> getSenders(@NotNull String messageClass) {
+        return senders.getOrDefault(messageClass, Collections.emptyList());
+    }
+
+    @NotNull
+    public List<Site> getReceivers(@NotNull String messageClass) {
+        return receivers.getOrDefault(messageClass, Collections.emptyList());
+    }
+
+    /**
+     * Drops the cached sites of all files.
+     */
+    public static void invalidate() {
+        INVALIDATION_TRACKER.incModificationCount();
+    }
+
+    /**
+     * The tracker incremented by {@link #invalidate()}.
+     */
+    @NotNull
+    static ModificationTracker getInvalidationTracker() {
+        return INVALIDATION_TRACKER;
+    }
+
+    /**
+     * Collects the sites of all files in the project. Must be called in a read action with
+     * indexes available.
+     */
+    @NotNull
+    public static MessageFlow compute(@NotNull Project project) {
+        GlobalSearchScope scope = GlobalSearchScope.projectScope(project);
+        FileBasedIndex index = FileBasedIndex.getInstance();
+        Set<VirtualFile> files = new HashSet<>();
+        for (Kind kind : Kind.values()) {
+            files.addAll(index.getContainingFiles(MessageFlowIndex.NAME, kind.name(), scope));
+        }
+        PsiManager psiManager = PsiManager.getInstance(project);
+        MessageFlow flow = new MessageFlow();
+        for (VirtualFile file : files) {
+            ProgressManager.checkCanceled();
+            PsiFile psiFile = psiManager.findFile(file);
+            if (psiFile != null) {
+                for (Site site : getSites(psiFile)) {
+                    (site.isReceiver() ? flow.receivers : flow.senders)
+                            .computeIfAbsent(site.messageClass(), k -> new ArrayList<>())
+                            .add(site);
+                }
+            }
+        }
+        return flow;
+    }
+
+    /**
+     * Returns the sites found in the given file, cached until the file or the Java declarations
+     * change.
+     */
+    @NotNull
+    public static List<Site> getSites(@NotNull PsiFile file) {
+        return CachedValuesManager.getCachedValue(file, () -> Result.create(
+                computeSites(file),
+                file,
+                getJavaModificationTracker(file),
+                INVALIDATION_TRACKER));
+    }
+
+    @NotNull
+    private static List<Site> computeSites(@NotNull PsiFile file) {
+        SmartPointerManager pointerManager = SmartPointerManager.getInstance(file.getProject());
+        ElasticActorsFileModel model = ElasticActorsFileModel.getInstance(file);
+        List<Site> sites = new ArrayList<>();
+        for (ElasticActorsFileModel.SendSite sendSite : model.getSendSites()) {
+            addSite(sites, pointerManager, Kind.SEND, sendSite.call(), sendSite.messageClass());
+        }
+        for (ElasticActorsFileModel.Handler handler : model.getHandlers()) {
+            addSite(sites, pointerManager, Kind.HANDLER, handler.method(), handler.messageClass());
+        }
+        for (ElasticActorsFileModel.ReceiveBranch branch : model.getReceiveBranches()) {
+            if (!branch.cast() && isMessage(branch.checkedClass())) {
+                addSite(
+                        sites,
+                        pointerManager,
+                        Kind.RECEIVE,
+                        branch.typeElement(),
+                        branch.checkedClass());
+            }
+        }
+        for (ElasticActorsFileModel.DelegateHandler delegateHandler : model.getDelegateHandlers()) {
+            addSite(
+                    sites,
+                    pointerManager,
+                    Kind.DELEGATE,
+                    delegateHandler.classArgument(),
+                    delegateHandler.messageClass());
+        }
+        return sites;
+    }
+
+    private static void addSite(
+            @NotNull List<Site> sites,
+            @NotNull SmartPointerManager pointerManager,
+            @NotNull Kind kind,
+            @NotNull PsiElement element,
+            @Nullable PsiClass messageClass) {
+        String qualifiedName = getQualifiedName(messageClass);
+        if (qualifiedName != null) {
+            sites.add(new Site(
+                    kind,
+                    qualifiedName,
+                    getLocation(element),
+                    pointerManager.createSmartPsiElementPointer(element)));
+        }
+    }
+
+    @Nullable
+    static String getHandledMessageClass(@NotNull PsiMethod handler) {
+        for (PsiParameter parameter : handler.getParameterList().getParameters()) {
+            PsiClass parameterClass = getPsiClass(parameter.getType());
+            if (isMessage(parameterClass)) {
+                return getQualifiedName(parameterClass);
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static String getQualifiedName(@Nullable PsiClass psiClass) {
+        return psiClass != null ? psiClass.getQualifiedName() : null;
+    }
+
+    @NotNull
+    private static String getLocation(@NotNull PsiElement element) {
+        PsiMethod method = getParentOfType(element, PsiMethod.class, false);
+        PsiClass psiClass = method != null
+                ? method.getContainingClass()
+                : getParentOfType(element, PsiClass.class);
+        String className = psiClass != null && psiClass.getName() != null
+                ? psiClass.getName()
+                : element.getContainingFile().getName();
+        return method != null ? className + "." + method.getName() + "()" : className;
+    }
+}
@@ -0,0 +1,148 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.psi.JavaRecursiveElementWalkingVisitor;
+import com.intellij.psi.PsiClassObjectAccessExpression;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiIdentifier;
+import com.intellij.psi.PsiInstanceOfExpression;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.PsiTypeElement;
+import com.intellij.util.indexing.DataIndexer;
+import com.intellij.util.indexing.DefaultFileTypeSpecificInputFilter;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FileBasedIndexExtension;
+import com.intellij.util.indexing.FileContent;
+import com.intellij.util.indexing.ID;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorIntegerDescriptor;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static com.intellij.psi.util.PsiTreeUtil.getParentOfType;
+import static org.elasticsoftware.elasticactors.Utils.MESSAGE_HANDLER_ANNOTATION_CLASS;
+import static org.elasticsoftware.elasticactors.Utils.getInstanceOfCheckType;
+import static org.elasticsoftware.elasticactors.Utils.isAnnotatedSyntactically;
+
+/**
+ * Indexes the number of potential message flow sites (message sends, message handler methods,
+ * {@code instanceof} checks inside {@code onReceive} and message types passed to
+ * {@code ActorDelegate.Builder.onReceive(...)}) in every Java file, keyed by
+ * {@link MessageFlow.Kind}.
+ * <p>
+ * The candidates are found syntactically, so this index is used to narrow down the files that
+ * need to be resolved by {@link MessageFlow}.
+ */
+public class MessageFlowIndex extends FileBasedIndexExtension<String, Integer> {
+
+    public static final ID<String, Integer> NAME =
+            ID.create("org.elasticsoftware.elasticactors.MessageFlowIndex");
+
+    @NotNull
+    @Override
+    public ID<String, Integer> getName() {
+        return NAME;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<String, Integer, FileContent> getIndexer() {
+        return inputData -> {
+            Map<String, Integer> result = new HashMap<>();
+            processCandidates(
+                    inputData.getPsiFile(),
+                    (kind, element) -> result.merge(kind.name(), 1, Integer::sum));
+            return result;
+        };
+    }
+
+    /**
+     * Finds the elements which may be message flow sites without resolving any references.
+     * The element passed to the consumer is the method name identifier for sends and handlers,
+     * the checked type element for {@code instanceof} expressions and the message type argument
+     * for {@code ActorDelegate} handlers.
+     */
+    static void processCandidates(
+            @NotNull PsiFile file,
+            @NotNull BiConsumer<MessageFlow.Kind, PsiElement> consumer) {
+        file.accept(new JavaRecursiveElementWalkingVisitor() {
+            @Override
+            public void visitMethodCallExpression(@NotNull PsiMethodCallExpression methodCall) {
+                super.visitMethodCallExpression(methodCall);
+                PsiElement nameElement = methodCall.getMethodExpression().getReferenceNameElement();
+                if (nameElement != null
+                        && ("tell".equals(nameElement.getText())
+                        || "ask".equals(nameElement.getText()))
+                        && !methodCall.getArgumentList().isEmpty()) {
+                    consumer.accept(MessageFlow.Kind.SEND, nameElement);
+                } else if (nameElement != null
+                        && ElasticActorsFileModel.DELEGATE_HANDLER_METHOD
+                        .equals(nameElement.getText())) {
+                    PsiExpression[] arguments = methodCall.getArgumentList().getExpressions();
+                    if (arguments.length > 0
+                            && arguments[0] instanceof PsiClassObjectAccessExpression) {
+                        consumer.accept(MessageFlow.Kind.DELEGATE, arguments[0]);
+                    }
+                }
+            }
+
+            @Override
+            public void visitMethod(@NotNull PsiMethod method) {
+                super.visitMethod(method);
+                PsiIdentifier nameIdentifier = method.getNameIdentifier();
+                if (nameIdentifier != null
+                        && isAnnotatedSyntactically(method, MESSAGE_HANDLER_ANNOTATION_CLASS)) {
+                    consumer.accept(MessageFlow.Kind.HANDLER, nameIdentifier);
+                }
+            }
+
+            @Override
+            public void visitInstanceOfExpression(@NotNull PsiInstanceOfExpression expression) {
+                super.visitInstanceOfExpression(expression);
+                PsiTypeElement checkType = getInstanceOfCheckType(expression);
+                PsiMethod method = getParentOfType(expression, PsiMethod.class);
+                if (checkType != null
+                        && method != null
+                        && "onReceive".equals(method.getName())) {
+                    consumer.accept(MessageFlow.Kind.RECEIVE, checkType);
+                }
+            }
+        });
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return EnumeratorStringDescriptor.INSTANCE;
+    }
+
+    @NotNull
+    @Override
+    public DataExternalizer<Integer> getValueExternalizer() {
+        return EnumeratorIntegerDescriptor.INSTANCE;
+    }
+
+    @Override
+    public int getVersion() {
+        return 2;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new DefaultFileTypeSpecificInputFilter(JavaFileType.INSTANCE);
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+}
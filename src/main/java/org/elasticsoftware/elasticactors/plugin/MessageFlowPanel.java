@@ -0,0 +1,251 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.actionSystem.ActionManager;
+import com.intellij.openapi.actionSystem.ActionToolbar;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.DefaultActionGroup;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.ui.ColoredTreeCellRenderer;
+import com.intellij.ui.DoubleClickListener;
+import com.intellij.ui.ScrollPaneFactory;
+import com.intellij.ui.SimpleTextAttributes;
+import com.intellij.ui.treeStructure.Tree;
+import com.intellij.util.Alarm;
+import com.intellij.util.PsiNavigateUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.ui.update.Activatable;
+import com.intellij.util.ui.update.UiNotifyConnector;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.JTree;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreePath;
+import java.awt.event.MouseEvent;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Shows, for every message type, the places sending it and the handlers receiving it.
+ * The tree is rebuilt in the background whenever the PSI changes while it's showing; changes
+ * made while it's hidden only rebuild it once it's shown again.
+ */
+class MessageFlowPanel extends SimpleToolWindowPanel implements Disposable {
+
+    private static final int REFRESH_DELAY_MS = 1000;
+
+    private final Project project;
+    private final Tree tree;
+    private final Alarm refreshAlarm;
+    private boolean stale = true;
+
+    private record MessageNode(
+            @NotNull String messageClass,
+            int senders,
+            int receivers,
+            boolean neverHandled,
+            boolean neverSent) {
+    }
+
+    private record GroupNode(@NotNull String name, int size) {
+    }
+
+    MessageFlowPanel(@NotNull Project project) {
+        super(true, true);
+        this.project = project;
+        this.tree = new Tree(new DefaultTreeModel(new DefaultMutableTreeNode()));
+        this.refreshAlarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, this);
+
+        tree.setRootVisible(false);
+        tree.setCellRenderer(new MessageFlowRenderer());
+        new DoubleClickListener() {
+            @Override
+            protected boolean onDoubleClick(@NotNull MouseEvent event) {
+                return navigateToSelection();
+            }
+        }.installOn(tree);
+        setContent(ScrollPaneFactory.createScrollPane(tree));
+
+        DefaultActionGroup actions = new DefaultActionGroup();
+        actions.add(new DumbAwareAction(
+                "Refresh",
+                "Rebuild the actor message flow",
+                AllIcons.Actions.Refresh) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                MessageFlow.invalidate();
+                refresh();
+            }
+        });
+        ActionToolbar toolbar = ActionManager.getInstance()
+                .createActionToolbar("ElasticActorsMessageFlow", actions, true);
+        toolbar.setTargetComponent(this);
+        setToolbar(toolbar.getComponent());
+
+        project.getMessageBus()
+                .connect(this)
+                .subscribe(PsiModificationTracker.TOPIC, this::scheduleRefresh);
+        Disposer.register(this, new UiNotifyConnector(this, new Activatable() {
+            @Override
+            public void showNotify() {
+                if (stale) {
+                    refresh();
+                }
+            }
+        }));
+    }
+
+    private void scheduleRefresh() {
+        stale = true;
+        refreshAlarm.cancelAllRequests();
+        if (isShowing()) {
+            refreshAlarm.addRequest(this::refreshIfShowing, REFRESH_DELAY_MS);
+        }
+    }
+
+    private void refreshIfShowing() {
+        if (isShowing()) {
+            refresh();
+        }
+    }
+
+    private void refresh() {
+        stale = false;
+        ReadAction.nonBlocking(() -> MessageDispatch.compute(
+                        project,
+                        MessageFlow.compute(project)))
+                .inSmartMode(project)
+                .expireWith(this)
+                .coalesceBy(this)
+                .finishOnUiThread(ModalityState.defaultModalityState(), this::update)
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    private void update(@NotNull MessageDispatch dispatch) {
+        MessageFlow flow = dispatch.getFlow();
+        DefaultTreeModel model = (DefaultTreeModel) tree.getModel();
+        Set<String> expanded = getExpandedMessageClasses(model);
+
+        DefaultMutableTreeNode root = new DefaultMutableTreeNode();
+        flow.getMessageClasses().stream()
+                .map(messageClass -> new MessageNode(
+                        messageClass,
+                        flow.getSenders(messageClass).size(),
+                        flow.getReceivers(messageClass).size(),
+                        dispatch.isNeverHandled(messageClass),
+                        dispatch.isNeverSent(messageClass)))
+                .sorted(Comparator.comparingInt(MessageNode::senders).reversed()
+                        .thenComparing(MessageNode::messageClass))
+                .forEach(messageNode -> {
+                    DefaultMutableTreeNode node = new DefaultMutableTreeNode(messageNode);
+                    addGroup(node, "Senders", flow.getSenders(messageNode.messageClass()));
+                    addGroup(node, "Handlers", flow.getReceivers(messageNode.messageClass()));
+                    root.add(node);
+                });
+        model.setRoot(root);
+
+        for (int i = 0; i < root.getChildCount(); i++) {
+            DefaultMutableTreeNode node = (DefaultMutableTreeNode) root.getChildAt(i);
+            if (expanded.contains(((MessageNode) node.getUserObject()).messageClass())) {
+                tree.expandPath(new TreePath(node.getPath()));
+            }
+        }
+    }
+
+    @NotNull
+    private Set<String> getExpandedMessageClasses(@NotNull DefaultTreeModel model) {
+        Set<String> expanded = new HashSet<>();
+        DefaultMutableTreeNode root = (DefaultMutableTreeNode) model.getRoot();
+        for (int i = 0; i < root.getChildCount(); i++) {
+            DefaultMutableTreeNode node = (DefaultMutableTreeNode) root.getChildAt(i);
+            if (node.getUserObject() instanceof MessageNode messageNode
+                    && tree.isExpanded(new TreePath(node.getPath()))) {
+                expanded.add(messageNode.messageClass());
+            }
+        }
+        return expanded;
+    }
+
+    private static void addGroup(
+            @NotNull DefaultMutableTreeNode parent,
+            @NotNull String name,
+            @NotNull List<MessageFlow.Site> sites) {
+        if (!sites.isEmpty()) {
+            DefaultMutableTreeNode group =
+                    new DefaultMutableTreeNode(new GroupNode(name, sites.size()));
+            sites.stream()
+                    .sorted(Comparator.comparing(MessageFlow.Site::location))
+                    .forEach(site -> group.add(new DefaultMutableTreeNode(site)));
+            parent.add(group);
+        }
+    }
+
+    private boolean navigateToSelection() {
+        TreePath path = tree.getSelectionPath();
+        if (path != null
+                && path.getLastPathComponent() instanceof DefaultMutableTreeNode node
+                && node.getUserObject() instanceof MessageFlow.Site site) {
+            PsiElement element = site.pointer().getElement();
+            if (element != null) {
+                PsiNavigateUtil.navigate(element);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    private static class MessageFlowRenderer extends ColoredTreeCellRenderer {
+
+        @Override
+        public void customizeCellRenderer(
+                @NotNull JTree tree,
+                Object value,
+                boolean selected,
+                boolean expanded,
+                boolean leaf,
+                int row,
+                boolean hasFocus) {
+            Object userObject = ((DefaultMutableTreeNode) value).getUserObject();
+            if (userObject instanceof MessageNode node) {
+                setIcon(AllIcons.Nodes.Class);
+                append(node.messageClass());
+                append("  " + node.senders() + " senders, " + node.receivers() + " handlers",
+                        SimpleTextAttributes.GRAYED_ATTRIBUTES);
+                if (node.neverHandled()) {
+                    append("  never handled", SimpleTextAttributes.ERROR_ATTRIBUTES);
+                } else if (node.neverSent()) {
+                    append("  never sent", SimpleTextAttributes.GRAYED_ITALIC_ATTRIBUTES);
+                }
+            } else if (userObject instanceof GroupNode group) {
+                setIcon(AllIcons.Nodes.Folder);
+                append(group.name());
+                append(" (" + group.size() + ")", SimpleTextAttributes.GRAYED_ATTRIBUTES);
+            } else if (userObject instanceof MessageFlow.Site site) {
+                setIcon(site.kind() == MessageFlow.Kind.HANDLER
+                        ? AllIcons.Nodes.Method
+                        : AllIcons.Nodes.Variable);
+                append(site.location());
+                if (site.kind() == MessageFlow.Kind.RECEIVE) {
+                    append("  instanceof", SimpleTextAttributes.GRAYED_ATTRIBUTES);
+                } else if (site.kind() == MessageFlow.Kind.DELEGATE) {
+                    append("  ActorDelegate", SimpleTextAttributes.GRAYED_ATTRIBUTES);
+                }
+            }
+        }
+    }
+}
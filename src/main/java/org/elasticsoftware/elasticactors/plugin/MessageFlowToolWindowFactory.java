@@ -0,0 +1,42 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import org.jetbrains.annotations.NotNull;
+
+public class MessageFlowToolWindowFactory implements ToolWindowFactory, DumbAware {
+
+    @Override
+    public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
+        ContentFactory contentFactory = ContentFactory.getInstance();
+
+        MessageFlowPanel panel = new MessageFlowPanel(project);
+        Content content = contentFactory.createContent(panel, "Message Flow", false);
+        content.setDisposer(panel);
+        toolWindow.getContentManager().addContent(content);
+
+        HottestHandlersPanel hottestHandlersPanel = new HottestHandlersPanel(project);
+        Content hottestHandlersContent =
+                contentFactory.createContent(hottestHandlersPanel, "Hottest Handlers", false);
+        hottestHandlersContent.setDisposer(hottestHandlersPanel);
+        toolWindow.getContentManager().addContent(hottestHandlersContent);
+
+        HeaviestActorStatesPanel heaviestActorStatesPanel = new HeaviestActorStatesPanel(project);
+        Content heaviestActorStatesContent = contentFactory.createContent(
+                heaviestActorStatesPanel,
+                "Heaviest Actor States",
+                false);
+        heaviestActorStatesContent.setDisposer(heaviestActorStatesPanel);
+        toolWindow.getContentManager().addContent(heaviestActorStatesContent);
+
+        MessageCascadesPanel messageCascadesPanel = new MessageCascadesPanel(project);
+        Content messageCascadesContent =
+                contentFactory.createContent(messageCascadesPanel, "Message Cascades", false);
+        messageCascadesContent.setDisposer(messageCascadesPanel);
+        toolWindow.getContentManager().addContent(messageCascadesContent);
+    }
+}
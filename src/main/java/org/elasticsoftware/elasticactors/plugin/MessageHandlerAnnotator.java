@@ -2,113 +2,136 @@ package org.elasticsoftware.elasticactors.plugin;
 
 import com.intellij.lang.annotation.AnnotationHolder;
 import com.intellij.lang.annotation.Annotator;
-import com.intellij.psi.PsiClass;
+import com.intellij.lang.annotation.HighlightSeverity;
+import com.intellij.openapi.project.DumbAware;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiMethod;
 import com.intellij.psi.PsiParameter;
-import com.intellij.psi.PsiParameterList;
-import com.intellij.psi.PsiType;
 import com.intellij.psi.PsiTypes;
+import org.elasticsoftware.elasticactors.plugin.ElasticActorsFileModel.ParameterKind;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 
 import static com.intellij.lang.annotation.HighlightSeverity.ERROR;
 import static com.intellij.lang.annotation.HighlightSeverity.WARNING;
 import static com.intellij.psi.PsiModifier.PUBLIC;
-import static com.intellij.psi.util.InheritanceUtil.isInheritor;
-import static com.intellij.psi.util.PsiTypesUtil.getParameterType;
-import static com.intellij.psi.util.PsiTypesUtil.getPsiClass;
-import static org.elasticsoftware.elasticactors.Utils.ACTOR_REF_CLASS;
 import static org.elasticsoftware.elasticactors.Utils.ACTOR_STATE_CLASS;
 import static org.elasticsoftware.elasticactors.Utils.ACTOR_SYSTEM_CLASS;
 import static org.elasticsoftware.elasticactors.Utils.ELASTIC_ACTOR_CLASS;
+import static org.elasticsoftware.elasticactors.Utils.isDumb;
 import static org.elasticsoftware.elasticactors.Utils.isHandler;
-import static org.elasticsoftware.elasticactors.Utils.isMessage;
 
-public class MessageHandlerAnnotator implements Annotator {
+/**
+ * Validates the signature of Message Handler methods. While indexing, only the checks which don't
+ * need to resolve types (visibility, return type and varargs) are made.
+ */
+public class MessageHandlerAnnotator implements Annotator, DumbAware {
+
+    /**
+     * Receives the problems found in an element, so the same rules can be checked outside the
+     * editor, e.g. by {@link ElasticActorsAnalyzerStarter}.
+     */
+    interface ProblemSink {
+
+        void report(
+                @NotNull HighlightSeverity severity,
+                @NotNull String message,
+                @NotNull PsiElement range);
+    }
 
     @Override
     public void annotate(
             @NotNull PsiElement element, @NotNull AnnotationHolder holder) {
+        long start = PluginDiagnostics.start();
+        try {
+            checkElement(element, (severity, message, range) -> holder
+                    .newAnnotation(severity, message)
+                    .range(range)
+                    .create());
+        } finally {
+            PluginDiagnostics.stop(PluginDiagnostics.Probe.ANNOTATOR, start);
+        }
+    }
+
+    static void checkElement(@NotNull PsiElement element, @NotNull ProblemSink sink) {
         if (element instanceof PsiMethod) {
             PsiMethod method = (PsiMethod) element;
             if (isHandler(method)) {
-                List<String> invalidReasons = validateArguments(method.getParameterList());
+                List<ParameterKind> parameterKinds = getParameterKinds(method);
+                List<String> invalidReasons =
+                        parameterKinds != null ? validateArguments(parameterKinds) : null;
                 if (!method.hasModifierProperty(PUBLIC)) {
-                    holder.newAnnotation(ERROR, "Message Handler methods must be public")
-                            .range(element)
-                            .create();
+                    sink.report(ERROR, "Message Handler methods must be public", element);
                 }
                 if (invalidReasons != null) {
-                    invalidReasons.forEach(s -> holder.newAnnotation(ERROR, s)
-                            .range(element)
-                            .create());
+                    invalidReasons.forEach(s -> sink.report(ERROR, s, element));
                 }
                 if (!PsiTypes.voidType().equals(method.getReturnType())) {
-                    holder.newAnnotation(WARNING, "Message Handler methods should return void")
-                            .range(element)
-                            .create();
+                    sink.report(WARNING, "Message Handler methods should return void", element);
                 }
             }
         } else if (element instanceof PsiParameter parameter) {
             if (parameter.getDeclarationScope() instanceof PsiMethod method) {
                 if (isHandler(method)) {
-                    PsiType paramType = parameter.getType();
-                    if (!isValidHandlerParameterType(paramType)) {
+                    int index = method.getParameterList().getParameterIndex(parameter);
+                    List<ParameterKind> parameterKinds = getParameterKinds(method);
+                    if (parameter.isVarArgs()
+                            || parameterKinds != null
+                            && (index < 0
+                            || index >= parameterKinds.size()
+                            || parameterKinds.get(index) == ParameterKind.UNEXPECTED)) {
                         String message = "Unexpected parameter type for handler method: "
                                 + parameter.getType().getCanonicalText();
-                        holder.newAnnotation(ERROR, message)
-                                .range(parameter)
-                                .create();
+                        sink.report(ERROR, message, parameter);
                     }
                     if (parameter.isVarArgs()) {
-                        holder.newAnnotation(ERROR, "Cannot use varargs in handler method")
-                                .range(parameter)
-                                .create();
+                        sink.report(ERROR, "Cannot use varargs in handler method", parameter);
                     }
                 }
             }
         }
     }
 
-    private static boolean isValidHandlerParameterType(@Nullable PsiType paramType) {
-        PsiClass paramClass = getPsiClass(paramType);
-        return isMessage(paramClass)
-                || isActorRef(paramClass)
-                || isActorState(paramClass)
-                || isActorSystem(paramClass);
+    /**
+     * Returns the classification of the parameters of a handler method, shared between the method
+     * and its parameters through the file's {@link ElasticActorsFileModel}, or {@code null} if
+     * they can't be classified, e.g. while indexing.
+     */
+    @Nullable
+    private static List<ParameterKind> getParameterKinds(@NotNull PsiMethod method) {
+        if (isDumb(method)) {
+            return null;
+        }
+        ElasticActorsFileModel.Handler handler =
+                ElasticActorsFileModel.getInstance(method).getHandler(method);
+        return handler != null ? handler.parameterKinds() : null;
     }
 
-    private static List<String> validateArguments(PsiParameterList psiParameterList) {
+    private static List<String> validateArguments(@NotNull List<ParameterKind> parameterKinds) {
         int foundMessage = 0;
         int foundSender = 0;
         int foundState = 0;
         int foundActorSystem = 0;
-        PsiParameter[] parameters = psiParameterList.getParameters();
-        for (int i = 0; i < psiParameterList.getParametersCount(); i++) {
-            PsiClass paramClass =
-                    getPsiClass(getParameterType(parameters, i, parameters[i].isVarArgs()));
-            if (isMessage(paramClass)) {
-                foundMessage++;
-            } else if (isActorRef(paramClass)) {
-                foundSender++;
-            } else if (isActorState(paramClass)) {
-                foundState++;
-            } else if (isActorSystem(paramClass)) {
-                foundActorSystem++;
+        for (ParameterKind kind : parameterKinds) {
+            switch (kind) {
+                case MESSAGE -> foundMessage++;
+                case ACTOR_REF -> foundSender++;
+                case ACTOR_STATE -> foundState++;
+                case ACTOR_SYSTEM -> foundActorSystem++;
+                default -> {
+                }
             }
         }
-        if (psiParameterList.getParametersCount() == 0
+        if (parameterKinds.isEmpty()
                 || foundMessage != 1
                 || foundSender > 1
                 || foundState > 1
                 || foundActorSystem > 1) {
             List<String> reasons = new ArrayList<>();
-            if (psiParameterList.getParametersCount() == 0) {
+            if (parameterKinds.isEmpty()) {
                 reasons.add("Handler Method should have at least one parameter (message)");
             }
             if (foundMessage == 0) {
@@ -137,18 +160,4 @@ public class MessageHandlerAnnotator implements Annotator {
         return null;
     }
 
-    private static boolean isActorState(@Nullable PsiClass paramClass) {
-        return isInheritor(paramClass, ACTOR_STATE_CLASS);
-    }
-
-    private static boolean isActorSystem(@Nullable PsiClass paramClass) {
-        return paramClass != null
-                && Objects.equals(paramClass.getQualifiedName(), ACTOR_SYSTEM_CLASS);
-    }
-
-    private static boolean isActorRef(@Nullable PsiClass paramClass) {
-        return paramClass != null
-                && Objects.equals(paramClass.getQualifiedName(), ACTOR_REF_CLASS);
-    }
-
 }
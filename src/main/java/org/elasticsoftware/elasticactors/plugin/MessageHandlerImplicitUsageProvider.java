@@ -12,9 +12,19 @@ public class MessageHandlerImplicitUsageProvider implements ImplicitUsageProvide
 
     @Override
     public boolean isImplicitUsage(@NotNull PsiElement psiElement) {
-        return psiElement instanceof PsiMethod
-                && ((PsiMethod) psiElement).hasModifierProperty(PUBLIC)
-                && isHandler((PsiMethod) psiElement);
+        long start = PluginDiagnostics.start();
+        try {
+            return psiElement instanceof PsiMethod method && isMessageHandler(method);
+        } finally {
+            PluginDiagnostics.stop(PluginDiagnostics.Probe.IMPLICIT_USAGE_PROVIDER, start);
+        }
+    }
+
+    /**
+     * Checks if the method is a Message Handler which is invoked by the framework.
+     */
+    static boolean isMessageHandler(@NotNull PsiMethod method) {
+        return method.hasModifierProperty(PUBLIC) && isHandler(method);
     }
 
     @Override
@@ -7,18 +7,18 @@ import com.intellij.psi.PsiMethod;
 import com.intellij.psi.PsiMethodCallExpression;
 import com.intellij.psi.PsiParameter;
 import com.intellij.psi.PsiTypeCastExpression;
+import com.intellij.psi.PsiTypeElement;
 import com.intellij.usages.impl.rules.UsageType;
 import com.intellij.usages.impl.rules.UsageTypeProvider;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import static com.intellij.psi.util.PsiTreeUtil.getParentOfType;
 import static com.intellij.psi.util.PsiTreeUtil.isAncestor;
 import static org.elasticsoftware.elasticactors.Utils.isActorDelegateBuilderMethod;
-import static org.elasticsoftware.elasticactors.Utils.isActorRef;
-import static org.elasticsoftware.elasticactors.Utils.isActorRefMethod;
-import static org.elasticsoftware.elasticactors.Utils.isElasticActor;
-import static org.elasticsoftware.elasticactors.Utils.isElasticActorMethod;
+import static org.elasticsoftware.elasticactors.Utils.isDumb;
 import static org.elasticsoftware.elasticactors.Utils.isHandler;
+import static org.elasticsoftware.elasticactors.Utils.isOnReceiveMethod;
 
 public class MessageHandlerUsageTypeProvider implements UsageTypeProvider {
 
@@ -35,6 +35,16 @@ public class MessageHandlerUsageTypeProvider implements UsageTypeProvider {
 
     @Override
     public UsageType getUsageType(@NotNull PsiElement element) {
+        long start = PluginDiagnostics.start();
+        try {
+            return computeUsageType(element);
+        } finally {
+            PluginDiagnostics.stop(PluginDiagnostics.Probe.USAGE_TYPE_PROVIDER, start);
+        }
+    }
+
+    @Nullable
+    private static UsageType computeUsageType(@NotNull PsiElement element) {
 
         PsiParameter psiParameter = getParentOfType(element, PsiParameter.class);
         if (psiParameter != null) {
@@ -46,27 +56,45 @@ public class MessageHandlerUsageTypeProvider implements UsageTypeProvider {
 
         PsiClassObjectAccessExpression psiClassObjectAccess =
                 getParentOfType(element, PsiClassObjectAccessExpression.class);
+
+        if (isDumb(element)) {
+            // Sends and called methods can't be resolved while indexing, so only usages written
+            // inside onReceive are classified
+            PsiMethod method = getParentOfType(element, PsiMethod.class);
+            return method != null && isOnReceiveMethod(method)
+                    ? getReceiveUsageType(element, psiClassObjectAccess)
+                    : null;
+        }
+
+        ElasticActorsFileModel model = ElasticActorsFileModel.getInstance(element);
+
         if (psiClassObjectAccess != null) {
             PsiMethodCallExpression methodCall =
                     getParentOfType(psiClassObjectAccess, PsiMethodCallExpression.class);
             if (methodCall != null) {
-                PsiElement nameElement = methodCall.getMethodExpression().getReferenceNameElement();
-                if (nameElement != null) {
+                ElasticActorsFileModel.SendSite sendSite = model.getSendSite(methodCall);
+                if (sendSite != null) {
+                    if (sendSite.ask()) {
+                        return MESSAGE_ASK;
+                    }
+                } else {
                     PsiMethod method = methodCall.resolveMethod();
-                    if (method != null) {
-                        if ("ask".equals(nameElement.getText())
-                                && isActorRef(method.getContainingClass())
-                                && isActorRefMethod(method)) {
-                            return MESSAGE_ASK;
-                        }
-                        if (isActorDelegateBuilderMethod(method)) {
-                            return ACTOR_DELEGATE_BUILDER;
-                        }
+                    if (method != null && isActorDelegateBuilderMethod(method)) {
+                        return ACTOR_DELEGATE_BUILDER;
                     }
                 }
             }
         }
 
+        for (PsiTypeElement typeElement = getParentOfType(element, PsiTypeElement.class);
+             typeElement != null;
+             typeElement = getParentOfType(typeElement, PsiTypeElement.class)) {
+            ElasticActorsFileModel.ReceiveBranch branch = model.getReceiveBranch(typeElement);
+            if (branch != null) {
+                return branch.cast() ? CLASS_CAST_TO : CLASS_INSTANCE_OF;
+            }
+        }
+
         PsiMethod method;
         PsiMethodCallExpression methodCall =
                 getParentOfType(element, PsiMethodCallExpression.class);
@@ -77,37 +105,39 @@ public class MessageHandlerUsageTypeProvider implements UsageTypeProvider {
         }
         if (method != null
                 && (isOnReceiveMethod(method) || isActorDelegateBuilderMethod(method))) {
+            return getReceiveUsageType(element, psiClassObjectAccess);
+        }
 
-            if (psiClassObjectAccess != null) {
-                return CLASS_CLASS_OBJECT_ACCESS;
-            }
+        return null;
 
-            PsiTypeCastExpression castExpression =
-                    getParentOfType(element, PsiTypeCastExpression.class);
-            if (castExpression != null) {
-                if (isAncestor(castExpression.getCastType(), element, true)) {
-                    return CLASS_CAST_TO;
-                }
-            }
+    }
 
-            PsiInstanceOfExpression instanceOfExpression =
-                    getParentOfType(element, PsiInstanceOfExpression.class);
-            if (instanceOfExpression != null) {
-                if (isAncestor(instanceOfExpression.getCheckType(), element, true)) {
-                    return CLASS_INSTANCE_OF;
-                }
-            }
+    @Nullable
+    private static UsageType getReceiveUsageType(
+            @NotNull PsiElement element,
+            @Nullable PsiClassObjectAccessExpression psiClassObjectAccess) {
 
+        if (psiClassObjectAccess != null) {
+            return CLASS_CLASS_OBJECT_ACCESS;
         }
 
-        return null;
+        PsiTypeCastExpression castExpression =
+                getParentOfType(element, PsiTypeCastExpression.class);
+        if (castExpression != null) {
+            if (isAncestor(castExpression.getCastType(), element, true)) {
+                return CLASS_CAST_TO;
+            }
+        }
 
-    }
+        PsiInstanceOfExpression instanceOfExpression =
+                getParentOfType(element, PsiInstanceOfExpression.class);
+        if (instanceOfExpression != null) {
+            if (isAncestor(instanceOfExpression.getCheckType(), element, true)) {
+                return CLASS_INSTANCE_OF;
+            }
+        }
 
-    private boolean isOnReceiveMethod(PsiMethod method) {
-        return "onReceive".equals(method.getName())
-                && isElasticActor(method.getContainingClass())
-                && isElasticActorMethod(method);
+        return null;
     }
 
     @NotNull
@@ -0,0 +1,735 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.JavaTokenType;
+import com.intellij.psi.PsiAnnotation;
+import com.intellij.psi.PsiAssignmentExpression;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassInitializer;
+import com.intellij.psi.PsiCodeBlock;
+import com.intellij.psi.PsiDeclarationStatement;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiElementFactory;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiExpressionStatement;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiJavaCodeReferenceElement;
+import com.intellij.psi.PsiLiteralExpression;
+import com.intellij.psi.PsiLocalVariable;
+import com.intellij.psi.PsiMember;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.PsiModifierList;
+import com.intellij.psi.PsiNewExpression;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.PsiReferenceExpression;
+import com.intellij.psi.PsiStatement;
+import com.intellij.psi.PsiThisExpression;
+import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.PsiSearchHelper;
+import com.intellij.psi.search.searches.ClassInheritorsSearch;
+import com.intellij.psi.search.searches.ReferencesSearch;
+import com.intellij.psi.util.CachedValueProvider.Result;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.JavaPsiConstructorUtil;
+import com.intellij.psi.util.PropertyUtilBase;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.PsiTypesUtil;
+import com.intellij.psi.util.PsiUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.intellij.psi.PsiModifier.FINAL;
+import static com.intellij.psi.PsiModifier.PRIVATE;
+import static com.intellij.psi.PsiModifier.STATIC;
+import static org.elasticsoftware.elasticactors.Utils.MESSAGE_ANNOTATION_CLASS;
+import static org.elasticsoftware.elasticactors.Utils.getJavaModificationTracker;
+
+/**
+ * Turns {@code @Message}-annotated classes into immutable ones by making their fields final,
+ * removing their setters and setting {@code immutable = true}.
+ * <p>
+ * A class can only be converted if its fields are declared in the class itself and are not
+ * modified anywhere else than in constructors, which assign them with top-level statements, and
+ * in simple setters. Setters may only be called in the statements right after the message is
+ * created and assigned to a local variable:
+ * <pre>{@code
+ * Greeting greeting = new Greeting();
+ * greeting.setName(name);
+ * greeting.setLanguage("en");
+ * }</pre>
+ * Such statements are replaced by a call to a constructor taking all the fields, which is
+ * generated if the class doesn't have it yet. The constructors not assigning every field are
+ * removed, and their calls are rewritten the same way, provided that they only assign parameters
+ * or literals to the fields.
+ */
+public final class MessageImmutabilityConverter {
+
+    private static final String JSON_CREATOR_ANNOTATION =
+            "com.fasterxml.jackson.annotation.JsonCreator";
+
+    private static final String JSON_PROPERTY_ANNOTATION =
+            "com.fasterxml.jackson.annotation.JsonProperty";
+
+    /**
+     * The changes needed to make a class immutable.
+     *
+     * @param messageClass the class to convert
+     * @param fields the fields to be made final
+     * @param setters the setters to be removed
+     * @param constructors the constructors to be replaced by the one taking all the fields
+     * @param creations the creations of the message to be rewritten into calls to the constructor
+     * taking all the fields, with the setter calls following them
+     * @param problem why the class cannot be converted, or {@code null} if it can
+     */
+    public record Conversion(
+            @NotNull PsiClass messageClass,
+            @NotNull List<PsiField> fields,
+            @NotNull List<PsiMethod> setters,
+            @NotNull List<PsiMethod> constructors,
+            @NotNull Map<PsiNewExpression, List<PsiExpressionStatement>> creations,
+            @Nullable String problem) {
+
+        private static Conversion failed(@NotNull PsiClass messageClass, @NotNull String problem) {
+            return new Conversion(messageClass, List.of(), List.of(), List.of(), Map.of(), problem);
+        }
+    }
+
+    private MessageImmutabilityConverter() {
+    }
+
+    /**
+     * Checks if the class can be converted, for highlighting. Usages are only searched if the
+     * names of the class, its non-private fields and its setters are cheap enough to search for;
+     * otherwise the class is considered not convertible. Must be called in a read action.
+     * <p>
+     * The result is cached until declarations change or the class' file is edited, so edits in
+     * the bodies of other files, e.g. adding a call to a setter, are only taken into account
+     * after that. {@link #prepare} checks again before converting.
+     */
+    public static boolean isConvertible(@NotNull PsiClass messageClass) {
+        return CachedValuesManager.getCachedValue(messageClass, () -> Result.create(
+                isCheapToSearch(messageClass) && prepare(messageClass).problem() == null,
+                getJavaModificationTracker(messageClass),
+                messageClass.getContainingFile()));
+    }
+
+    /**
+     * Finds the changes needed to make the class immutable. Must be called in a read action.
+     */
+    @NotNull
+    public static Conversion prepare(@NotNull PsiClass messageClass) {
+        List<PsiField> parameters = getConstructorFields(messageClass);
+        Set<PsiReferenceExpression> constructorAssignments = new HashSet<>();
+        List<PsiMethod> constructors = new ArrayList<>();
+        for (PsiMethod constructor : messageClass.getConstructors()) {
+            PsiCodeBlock body = constructor.getBody();
+            if (body == null
+                    || JavaPsiConstructorUtil.isChainedConstructorCall(
+                    JavaPsiConstructorUtil.findThisOrSuperCallInConstructor(constructor))) {
+                // The fields are assigned by the constructor being delegated to
+                continue;
+            }
+            for (PsiField field : parameters) {
+                List<PsiReferenceExpression> assignments = getAssignments(body, field);
+                constructorAssignments.addAll(assignments);
+                if (assignments.size() != 1 && !constructors.contains(constructor)) {
+                    if (getSimpleAssignments(constructor, parameters) == null) {
+                        return Conversion.failed(messageClass, "Field '" + field.getName()
+                                + "' is not assigned exactly once in every constructor");
+                    }
+                    constructors.add(constructor);
+                }
+            }
+        }
+
+        List<PsiField> fields = new ArrayList<>();
+        Set<PsiMethod> setters = new LinkedHashSet<>();
+        for (PsiField field : messageClass.getAllFields()) {
+            if (field.hasModifierProperty(STATIC) || field.hasModifierProperty(FINAL)) {
+                continue;
+            }
+            PsiClass containingClass = field.getContainingClass();
+            if (containingClass == null
+                    || Throwable.class.getName().equals(containingClass.getQualifiedName())) {
+                continue;
+            }
+            if (!messageClass.equals(containingClass)) {
+                return Conversion.failed(messageClass, "Field '" + field.getName()
+                        + "' is declared in " + containingClass.getName());
+            }
+            for (PsiReference reference : ReferencesSearch.search(field)) {
+                PsiElement element = reference.getElement();
+                if (!(element instanceof PsiExpression expression)
+                        || !PsiUtil.isAccessedForWriting(expression)
+                        || constructorAssignments.contains(element)) {
+                    continue;
+                }
+                PsiMethod method = PsiTreeUtil.getParentOfType(element, PsiMethod.class);
+                if (method != null
+                        && messageClass.equals(method.getContainingClass())
+                        && PropertyUtilBase.isSimplePropertySetter(method)
+                        && field.equals(PropertyUtilBase.getFieldOfSetter(method))) {
+                    setters.add(method);
+                } else {
+                    return Conversion.failed(messageClass, "Field '" + field.getName()
+                            + "' is modified in " + getDescription(element));
+                }
+            }
+            fields.add(field);
+        }
+
+        Map<PsiNewExpression, List<PsiExpressionStatement>> creations = new LinkedHashMap<>();
+        boolean implicitConstructor =
+                messageClass.getConstructors().length == 0 && !parameters.isEmpty();
+        if (implicitConstructor || !constructors.isEmpty()) {
+            PsiClass inheritor = ClassInheritorsSearch.search(messageClass, false).findFirst();
+            if (inheritor != null) {
+                return Conversion.failed(messageClass, "The class is extended by "
+                        + (inheritor.getName() != null
+                        ? inheritor.getName()
+                        : "an anonymous class"));
+            }
+        }
+        for (PsiMethod constructor : constructors) {
+            for (PsiReference reference : ReferencesSearch.search(constructor)) {
+                PsiNewExpression creation = getCreation(reference.getElement());
+                if (creation == null) {
+                    return Conversion.failed(messageClass, "Constructor '"
+                            + getSignature(constructor) + "' is used in "
+                            + getDescription(reference.getElement()));
+                }
+                creations.put(creation, new ArrayList<>());
+            }
+        }
+        if (implicitConstructor) {
+            for (PsiReference reference : ReferencesSearch.search(messageClass)) {
+                PsiNewExpression creation = getCreation(reference.getElement());
+                if (creation != null) {
+                    creations.put(creation, new ArrayList<>());
+                }
+            }
+        }
+
+        Set<PsiExpressionStatement> setterCalls = new HashSet<>();
+        for (PsiMethod setter : setters) {
+            if (setter.findSuperMethods().length > 0) {
+                return Conversion.failed(messageClass, "Setter '" + setter.getName()
+                        + "()' overrides a method from a supertype");
+            }
+            PsiField field = PropertyUtilBase.getFieldOfSetter(setter);
+            for (PsiReference reference : ReferencesSearch.search(setter)) {
+                PsiElement element = reference.getElement();
+                if (field == null || field.getInitializer() != null) {
+                    return Conversion.failed(messageClass, "Setter '" + setter.getName()
+                            + "()' of a field with an initializer is used in "
+                            + getDescription(element));
+                }
+                if (element.getParent() instanceof PsiMethodCallExpression call
+                        && call.getParent() instanceof PsiExpressionStatement statement
+                        && setterCalls.contains(statement)) {
+                    continue;
+                }
+                String problem = addSetterCalls(
+                        messageClass,
+                        element,
+                        setters,
+                        constructors,
+                        implicitConstructor,
+                        parameters,
+                        creations,
+                        setterCalls);
+                if (problem != null) {
+                    return Conversion.failed(messageClass, "Setter '" + setter.getName()
+                            + "()' is called in " + getDescription(element) + " " + problem);
+                }
+            }
+        }
+
+        if (!constructors.isEmpty() || !creations.isEmpty() || implicitConstructor) {
+            PsiMethod constructor = findConstructor(messageClass, parameters);
+            if (constructor != null
+                    && (constructors.contains(constructor)
+                    || !isAssigningInOrder(constructor, parameters))) {
+                return Conversion.failed(messageClass, "Constructor '"
+                        + getSignature(constructor)
+                        + "' does not assign its parameters to the fields in order");
+            }
+        }
+        return new Conversion(
+                messageClass,
+                fields,
+                new ArrayList<>(setters),
+                constructors,
+                creations,
+                null);
+    }
+
+    /**
+     * Applies a successful conversion, returning whether it was applied. Nothing is changed if any
+     * element of the conversion was invalidated since it was prepared, e.g. because another
+     * conversion rewrote the code around it. Must be called in a write action.
+     */
+    public static boolean apply(@NotNull Conversion conversion) {
+        PsiClass messageClass = conversion.messageClass();
+        if (conversion.problem() != null || !isValid(conversion)) {
+            return false;
+        }
+        List<PsiField> parameters = getConstructorFields(messageClass);
+        boolean needsConstructor = !conversion.constructors().isEmpty()
+                || !conversion.creations().isEmpty()
+                || messageClass.getConstructors().length == 0 && !parameters.isEmpty();
+
+        // Nested creations come later in the file, and are rewritten before the enclosing ones
+        List<PsiNewExpression> creations = conversion.creations().keySet().stream()
+                .sorted(Comparator.comparingInt(PsiElement::getTextOffset).reversed())
+                .toList();
+        for (PsiNewExpression creation : creations) {
+            rewriteCreation(creation, conversion.creations().get(creation), parameters);
+        }
+        for (PsiMethod setter : conversion.setters()) {
+            if (setter.isValid()) {
+                setter.delete();
+            }
+        }
+        if (needsConstructor && findConstructor(messageClass, parameters) == null) {
+            addConstructor(messageClass, parameters, conversion.constructors());
+        }
+        for (PsiMethod constructor : conversion.constructors()) {
+            if (constructor.isValid()) {
+                constructor.delete();
+            }
+        }
+        for (PsiField field : conversion.fields()) {
+            PsiModifierList modifierList = field.getModifierList();
+            if (field.isValid() && modifierList != null) {
+                modifierList.setModifierProperty(FINAL, true);
+            }
+        }
+        setImmutable(messageClass, true);
+        return true;
+    }
+
+    private static boolean isValid(@NotNull Conversion conversion) {
+        return conversion.messageClass().isValid()
+                && conversion.fields().stream().allMatch(PsiElement::isValid)
+                && conversion.setters().stream().allMatch(PsiElement::isValid)
+                && conversion.constructors().stream().allMatch(PsiElement::isValid)
+                && conversion.creations().entrySet().stream().allMatch(entry ->
+                entry.getKey().isValid()
+                        && entry.getValue().stream().allMatch(PsiElement::isValid));
+    }
+
+    /**
+     * Sets the {@code immutable} attribute of the class' {@code @Message} annotation.
+     * Must be called in a write action.
+     */
+    public static void setImmutable(@NotNull PsiClass messageClass, boolean immutable) {
+        PsiAnnotation message = messageClass.getAnnotation(MESSAGE_ANNOTATION_CLASS);
+        if (message != null) {
+            message.setDeclaredAttributeValue(
+                    "immutable",
+                    JavaPsiFacade.getElementFactory(messageClass.getProject())
+                            .createExpressionFromText(Boolean.toString(immutable), message));
+        }
+    }
+
+    private static boolean isCheapToSearch(@NotNull PsiClass messageClass) {
+        if (!(messageClass.getUseScope() instanceof GlobalSearchScope scope)) {
+            return true;
+        }
+        Set<String> names = new LinkedHashSet<>();
+        names.add(messageClass.getName());
+        for (PsiField field : messageClass.getFields()) {
+            if (!field.hasModifierProperty(STATIC)) {
+                if (!field.hasModifierProperty(PRIVATE)) {
+                    names.add(field.getName());
+                }
+                names.add(PropertyUtilBase.suggestSetterName(field));
+            }
+        }
+        PsiSearchHelper searchHelper = PsiSearchHelper.getInstance(messageClass.getProject());
+        return names.stream().allMatch(name -> name != null
+                && searchHelper.isCheapEnoughToSearch(name, scope, null, null)
+                != PsiSearchHelper.SearchCostResult.TOO_MANY_OCCURRENCES);
+    }
+
+    /**
+     * Returns the fields to be assigned by the constructor taking all the fields, i.e. the
+     * instance fields without an initializer, in declaration order.
+     */
+    @NotNull
+    private static List<PsiField> getConstructorFields(@NotNull PsiClass messageClass) {
+        return Arrays.stream(messageClass.getFields())
+                .filter(field -> !field.hasModifierProperty(STATIC)
+                        && field.getInitializer() == null)
+                .toList();
+    }
+
+    @NotNull
+    private static List<PsiReferenceExpression> getAssignments(
+            @NotNull PsiCodeBlock body,
+            @NotNull PsiField field) {
+        List<PsiReferenceExpression> assignments = new ArrayList<>();
+        for (PsiStatement statement : body.getStatements()) {
+            if (statement instanceof PsiExpressionStatement expressionStatement
+                    && expressionStatement.getExpression()
+                    instanceof PsiAssignmentExpression assignment
+                    && assignment.getLExpression() instanceof PsiReferenceExpression reference
+                    && field.equals(reference.resolve())) {
+                assignments.add(reference);
+            }
+        }
+        return assignments;
+    }
+
+    /**
+     * Returns the values assigned to the fields by the constructor, if it consists only of
+     * assignments of parameters or literals to distinct fields, optionally after a
+     * {@code super()} call without arguments. Returns {@code null} otherwise.
+     */
+    @Nullable
+    private static Map<PsiField, PsiExpression> getSimpleAssignments(
+            @NotNull PsiMethod constructor,
+            @NotNull List<PsiField> fields) {
+        PsiCodeBlock body = constructor.getBody();
+        if (body == null || constructor.isVarArgs()) {
+            return null;
+        }
+        Map<PsiField, PsiExpression> assignments = new HashMap<>();
+        for (PsiStatement statement : body.getStatements()) {
+            if (!(statement instanceof PsiExpressionStatement expressionStatement)) {
+                return null;
+            }
+            if (JavaPsiConstructorUtil.isSuperConstructorCall(expressionStatement.getExpression())
+                    && ((PsiMethodCallExpression) expressionStatement.getExpression())
+                    .getArgumentList().isEmpty()) {
+                continue;
+            }
+            if (!(expressionStatement.getExpression() instanceof PsiAssignmentExpression assignment)
+                    || !(assignment.getLExpression() instanceof PsiReferenceExpression reference)
+                    || reference.getQualifierExpression() != null
+                    && !(reference.getQualifierExpression() instanceof PsiThisExpression)
+                    || !(reference.resolve() instanceof PsiField field)
+                    || !fields.contains(field)) {
+                return null;
+            }
+            PsiExpression value = PsiUtil.skipParenthesizedExprDown(assignment.getRExpression());
+            boolean isParameter = value instanceof PsiReferenceExpression valueReference
+                    && valueReference.resolve() instanceof PsiParameter parameter
+                    && constructor.equals(parameter.getDeclarationScope());
+            if (!isParameter && !(value instanceof PsiLiteralExpression)
+                    || assignments.put(field, value) != null) {
+                return null;
+            }
+        }
+        return assignments;
+    }
+
+    private static boolean isAssigningInOrder(
+            @NotNull PsiMethod constructor,
+            @NotNull List<PsiField> fields) {
+        Map<PsiField, PsiExpression> assignments = getSimpleAssignments(constructor, fields);
+        if (assignments == null || assignments.size() != fields.size()) {
+            return false;
+        }
+        PsiParameter[] parameters = constructor.getParameterList().getParameters();
+        for (int i = 0; i < fields.size(); i++) {
+            if (!(assignments.get(fields.get(i)) instanceof PsiReferenceExpression reference)
+                    || !parameters[i].equals(reference.resolve())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the constructor whose parameters have the types of the given fields.
+     */
+    @Nullable
+    private static PsiMethod findConstructor(
+            @NotNull PsiClass messageClass,
+            @NotNull List<PsiField> fields) {
+        for (PsiMethod constructor : messageClass.getConstructors()) {
+            PsiParameter[] parameters = constructor.getParameterList().getParameters();
+            if (parameters.length == fields.size()) {
+                boolean matches = true;
+                for (int i = 0; i < parameters.length && matches; i++) {
+                    matches = parameters[i].getType().equals(fields.get(i).getType());
+                }
+                if (matches) {
+                    return constructor;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static PsiNewExpression getCreation(@NotNull PsiElement classReference) {
+        return classReference.getParent() instanceof PsiNewExpression creation
+                && creation.getClassReference() == classReference
+                && creation.getAnonymousClass() == null
+                && !creation.isArrayCreation()
+                ? creation
+                : null;
+    }
+
+    /**
+     * Finds the creation of the message on which the setter is called, and adds it to the
+     * creations to rewrite with all the setter calls following it. Returns why it can't be
+     * rewritten, or {@code null} if it can.
+     */
+    @Nullable
+    private static String addSetterCalls(
+            @NotNull PsiClass messageClass,
+            @NotNull PsiElement setterReference,
+            @NotNull Set<PsiMethod> setters,
+            @NotNull List<PsiMethod> constructors,
+            boolean implicitConstructor,
+            @NotNull List<PsiField> parameters,
+            @NotNull Map<PsiNewExpression, List<PsiExpressionStatement>> creations,
+            @NotNull Set<PsiExpressionStatement> setterCalls) {
+        if (!(setterReference instanceof PsiReferenceExpression methodExpression)
+                || !(methodExpression.getParent() instanceof PsiMethodCallExpression call)
+                || !(call.getParent() instanceof PsiExpressionStatement statement)
+                || !(methodExpression.getQualifierExpression()
+                instanceof PsiReferenceExpression qualifier)
+                || !(qualifier.resolve() instanceof PsiLocalVariable variable)) {
+            return "other than as a statement on a local variable";
+        }
+        PsiStatement previous = statement;
+        do {
+            previous = PsiTreeUtil.getPrevSiblingOfType(previous, PsiStatement.class);
+        } while (previous != null && getSetterCall(previous, variable, setters) != null);
+        PsiNewExpression creation = findInitialization(previous, variable, messageClass);
+        if (creation == null) {
+            return "other than right after creating '" + variable.getName() + "'";
+        }
+        PsiMethod constructor = creation.resolveConstructor();
+        Map<PsiField, PsiExpression> assignments = null;
+        if (constructor != null) {
+            assignments = getSimpleAssignments(constructor, parameters);
+        } else if (implicitConstructor) {
+            assignments = Map.of();
+        }
+        if (assignments == null) {
+            return "after a constructor which does not just assign its parameters";
+        }
+        List<PsiExpressionStatement> calls = new ArrayList<>();
+        Set<PsiField> assigned = new HashSet<>(assignments.keySet());
+        for (PsiStatement next = PsiTreeUtil.getNextSiblingOfType(previous, PsiStatement.class);
+             next != null && getSetterCall(next, variable, setters) instanceof PsiMethod setter;
+             next = PsiTreeUtil.getNextSiblingOfType(next, PsiStatement.class)) {
+            if (!assigned.add(PropertyUtilBase.getFieldOfSetter(setter))) {
+                return "on '" + variable.getName() + "' after its field is already assigned";
+            }
+            calls.add((PsiExpressionStatement) next);
+        }
+        setterCalls.addAll(calls);
+        creations.computeIfAbsent(creation, key -> new ArrayList<>()).addAll(calls);
+        return null;
+    }
+
+    /**
+     * Returns the setter called by the statement on the variable, if its argument doesn't refer
+     * to the variable.
+     */
+    @Nullable
+    private static PsiMethod getSetterCall(
+            @NotNull PsiStatement statement,
+            @NotNull PsiLocalVariable variable,
+            @NotNull Set<PsiMethod> setters) {
+        if (!(statement instanceof PsiExpressionStatement expressionStatement)
+                || !(expressionStatement.getExpression() instanceof PsiMethodCallExpression call)
+                || !(call.getMethodExpression().getQualifierExpression()
+                instanceof PsiReferenceExpression qualifier)
+                || !variable.equals(qualifier.resolve())) {
+            return null;
+        }
+        PsiMethod method = call.resolveMethod();
+        if (method == null || !setters.contains(method)) {
+            return null;
+        }
+        return PsiTreeUtil.findChildrenOfType(call.getArgumentList(), PsiReferenceExpression.class)
+                .stream()
+                .anyMatch(reference -> variable.equals(reference.resolve()))
+                ? null
+                : method;
+    }
+
+    /**
+     * Returns the creation of the message if the statement declares or assigns the variable with
+     * it.
+     */
+    @Nullable
+    private static PsiNewExpression findInitialization(
+            @Nullable PsiStatement statement,
+            @NotNull PsiLocalVariable variable,
+            @NotNull PsiClass messageClass) {
+        PsiExpression value = null;
+        if (statement instanceof PsiDeclarationStatement declaration
+                && declaration.getDeclaredElements().length == 1
+                && declaration.getDeclaredElements()[0] == variable) {
+            value = variable.getInitializer();
+        } else if (statement instanceof PsiExpressionStatement expressionStatement
+                && expressionStatement.getExpression() instanceof PsiAssignmentExpression assignment
+                && assignment.getOperationTokenType() == JavaTokenType.EQ
+                && assignment.getLExpression() instanceof PsiReferenceExpression reference
+                && variable.equals(reference.resolve())) {
+            value = assignment.getRExpression();
+        }
+        value = PsiUtil.skipParenthesizedExprDown(value);
+        if (value instanceof PsiNewExpression creation
+                && creation.getClassReference() instanceof PsiJavaCodeReferenceElement reference
+                && messageClass.equals(reference.resolve())) {
+            return getCreation(reference);
+        }
+        return null;
+    }
+
+    /**
+     * Replaces the creation by a call to the constructor taking all the fields, with the values
+     * assigned by the original constructor and the setters, and removes the setter calls.
+     */
+    private static void rewriteCreation(
+            @NotNull PsiNewExpression creation,
+            @NotNull List<PsiExpressionStatement> setterCalls,
+            @NotNull List<PsiField> parameters) {
+        PsiJavaCodeReferenceElement classReference = creation.getClassReference();
+        PsiMethod constructor = creation.resolveConstructor();
+        Map<PsiField, PsiExpression> assignments = constructor == null
+                ? Map.of()
+                : getSimpleAssignments(constructor, parameters);
+        if (classReference == null || assignments == null || creation.getArgumentList() == null) {
+            return;
+        }
+        PsiExpression[] arguments = creation.getArgumentList().getExpressions();
+        Map<PsiField, String> values = new HashMap<>();
+        assignments.forEach((field, value) -> {
+            if (value instanceof PsiReferenceExpression reference
+                    && reference.resolve() instanceof PsiParameter parameter) {
+                int index = constructor.getParameterList().getParameterIndex(parameter);
+                values.put(field, arguments[index].getText());
+            } else {
+                values.put(field, value.getText());
+            }
+        });
+        for (PsiExpressionStatement setterCall : setterCalls) {
+            if (setterCall.isValid()
+                    && setterCall.getExpression() instanceof PsiMethodCallExpression call
+                    && call.resolveMethod() instanceof PsiMethod setter) {
+                PsiExpression[] setterArguments = call.getArgumentList().getExpressions();
+                PsiField field = PropertyUtilBase.getFieldOfSetter(setter);
+                if (field != null && setterArguments.length == 1) {
+                    values.put(field, setterArguments[0].getText());
+                }
+            }
+        }
+        String text = "new " + classReference.getText() + "("
+                + parameters.stream()
+                .map(field -> values.getOrDefault(
+                        field,
+                        PsiTypesUtil.getDefaultValueOfType(field.getType())))
+                .collect(Collectors.joining(", "))
+                + ")";
+        creation.replace(JavaPsiFacade.getElementFactory(creation.getProject())
+                .createExpressionFromText(text, creation));
+        for (PsiExpressionStatement setterCall : setterCalls) {
+            if (setterCall.isValid()) {
+                setterCall.delete();
+            }
+        }
+    }
+
+    /**
+     * Adds the constructor taking all the fields, in place of the first constructor to be removed
+     * or after the fields. It's annotated as the Jackson creator if Jackson is available and the
+     * class doesn't have one yet.
+     */
+    private static void addConstructor(
+            @NotNull PsiClass messageClass,
+            @NotNull List<PsiField> fields,
+            @NotNull List<PsiMethod> replacedConstructors) {
+        Project project = messageClass.getProject();
+        boolean jackson = JavaPsiFacade.getInstance(project)
+                .findClass(JSON_CREATOR_ANNOTATION, messageClass.getResolveScope()) != null
+                && Arrays.stream(messageClass.getConstructors())
+                .noneMatch(constructor -> constructor.hasAnnotation(JSON_CREATOR_ANNOTATION));
+        String text = (jackson ? "@" + JSON_CREATOR_ANNOTATION + "\n" : "")
+                + "public " + messageClass.getName() + "("
+                + fields.stream()
+                .map(field -> (jackson
+                        ? "@" + JSON_PROPERTY_ANNOTATION + "(\"" + getJsonName(field) + "\") "
+                        : "")
+                        + field.getType().getCanonicalText() + " " + field.getName())
+                .collect(Collectors.joining(", "))
+                + ") {\n"
+                + fields.stream()
+                .map(field -> "this." + field.getName() + " = " + field.getName() + ";\n")
+                .collect(Collectors.joining())
+                + "}";
+        PsiElementFactory factory = JavaPsiFacade.getElementFactory(project);
+        PsiMethod constructor = factory.createMethodFromText(text, messageClass);
+        PsiMethod replaced = replacedConstructors.stream()
+                .filter(PsiElement::isValid)
+                .findFirst()
+                .orElse(null);
+        PsiElement added = replaced != null
+                ? messageClass.addBefore(constructor, replaced)
+                : messageClass.addAfter(constructor, fields.get(fields.size() - 1));
+        JavaCodeStyleManager.getInstance(project).shortenClassReferences(added);
+    }
+
+    @NotNull
+    private static String getJsonName(@NotNull PsiField field) {
+        PsiAnnotation jsonProperty = field.getAnnotation(JSON_PROPERTY_ANNOTATION);
+        if (jsonProperty != null
+                && jsonProperty.findAttributeValue("value") instanceof PsiLiteralExpression literal
+                && literal.getValue() instanceof String value
+                && !value.isEmpty()) {
+            return value;
+        }
+        return field.getName();
+    }
+
+    @NotNull
+    private static String getSignature(@NotNull PsiMethod constructor) {
+        return constructor.getName() + "("
+                + Arrays.stream(constructor.getParameterList().getParameters())
+                .map(parameter -> parameter.getType().getPresentableText())
+                .collect(Collectors.joining(", "))
+                + ")";
+    }
+
+    @NotNull
+    private static String getDescription(@NotNull PsiElement element) {
+        PsiMember member = PsiTreeUtil.getParentOfType(
+                element,
+                PsiMethod.class,
+                PsiClassInitializer.class,
+                PsiField.class);
+        if (member instanceof PsiMethod method) {
+            return "'" + method.getName() + "()'";
+        }
+        PsiClass containingClass = member != null ? member.getContainingClass() : null;
+        return containingClass != null && containingClass.getName() != null
+                ? containingClass.getName()
+                : element.getContainingFile().getName();
+    }
+}
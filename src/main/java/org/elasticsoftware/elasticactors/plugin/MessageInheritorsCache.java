@@ -0,0 +1,279 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassType;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.searches.AnnotatedElementsSearch;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import static com.intellij.psi.PsiModifier.FINAL;
+import static org.elasticsoftware.elasticactors.Utils.MESSAGE_ANNOTATION_CLASS;
+import static org.elasticsoftware.elasticactors.Utils.getJavaModificationTracker;
+
+/**
+ * Caches the results of {@link MessageInheritorsIndex#findNonMessageInheritors(PsiClass, int)}
+ * per base class, computing them in the background so the highlighting pass never has to walk a
+ * wide hierarchy.
+ * <p>
+ * Results are kept until the Java declarations change, so edits inside method bodies don't
+ * affect them. While a result is being computed, the previous one is returned if it's still
+ * valid, or {@code null} ("unknown yet") if there is none. Once a result changes, highlighting
+ * is restarted in the open files referring to the base class so it can be reported. The cache
+ * is pre-warmed with the base classes of all {@code @Message}-annotated classes when the project
+ * is opened and after indexing.
+ */
+@Service(Service.Level.PROJECT)
+public final class MessageInheritorsCache implements Disposable {
+
+    /**
+     * The maximum number of inheritors not annotated with {@code @Message} to look up.
+     */
+    static final int LIMIT = 5;
+
+    private record Entry(
+            long modificationCount,
+            boolean hasInheritors,
+            @NotNull List<SmartPsiElementPointer<PsiClass>> nonMessageInheritors) {
+    }
+
+    private final Project project;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor(
+            "Elastic Actors message inheritors",
+            2);
+
+    public MessageInheritorsCache(@NotNull Project project) {
+        this.project = project;
+    }
+
+    @NotNull
+    public static MessageInheritorsCache getInstance(@NotNull Project project) {
+        return project.getService(MessageInheritorsCache.class);
+    }
+
+    /**
+     * Returns the inheritors of the given class if they are known, scheduling their computation
+     * otherwise. Never walks the hierarchy in the calling thread.
+     */
+    @Nullable
+    public MessageInheritorsIndex.Result getIfKnown(@NotNull PsiClass baseClass) {
+        String key = baseClass.getQualifiedName();
+        if (key == null) {
+            return null;
+        }
+        PluginDiagnostics.lookup(PluginDiagnostics.Cache.MESSAGE_INHERITORS);
+        long modificationCount = getJavaModificationTracker(baseClass).getModificationCount();
+        Entry entry = entries.get(key);
+        if (entry == null || entry.modificationCount() != modificationCount) {
+            PluginDiagnostics.miss(PluginDiagnostics.Cache.MESSAGE_INHERITORS);
+            schedule(key);
+        }
+        return entry != null ? toResult(entry) : null;
+    }
+
+    /**
+     * Computes the inheritors of the given class in the calling thread, or returns them from the
+     * cache if they are up-to-date.
+     */
+    @NotNull
+    public MessageInheritorsIndex.Result get(@NotNull PsiClass baseClass) {
+        String key = baseClass.getQualifiedName();
+        if (key == null) {
+            PluginDiagnostics.increment(PluginDiagnostics.Counter.BLOCKING_INHERITOR_SEARCHES);
+            return MessageInheritorsIndex.findNonMessageInheritors(baseClass, LIMIT);
+        }
+        PluginDiagnostics.lookup(PluginDiagnostics.Cache.MESSAGE_INHERITORS);
+        long modificationCount = getJavaModificationTracker(baseClass).getModificationCount();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.modificationCount() == modificationCount) {
+            MessageInheritorsIndex.Result result = toResult(entry);
+            if (result != null) {
+                return result;
+            }
+        }
+        PluginDiagnostics.miss(PluginDiagnostics.Cache.MESSAGE_INHERITORS);
+        PluginDiagnostics.increment(PluginDiagnostics.Counter.BLOCKING_INHERITOR_SEARCHES);
+        MessageInheritorsIndex.Result result =
+                MessageInheritorsIndex.findNonMessageInheritors(baseClass, LIMIT);
+        entries.put(key, createEntry(modificationCount, result));
+        return result;
+    }
+
+    /**
+     * Checks if no computation scheduled by {@link #getIfKnown} is still pending.
+     */
+    @TestOnly
+    boolean isIdle() {
+        return pending.isEmpty();
+    }
+
+    /**
+     * Schedules the computation of the inheritors of the base classes of all
+     * {@code @Message}-annotated classes in the project.
+     */
+    public void prewarm() {
+        ReadAction.nonBlocking(this::findBaseClasses)
+                .inSmartMode(project)
+                .expireWith(this)
+                .coalesceBy(this)
+                .submit(executor)
+                .onSuccess(baseClasses -> baseClasses.forEach(this::schedule));
+    }
+
+    @NotNull
+    private Set<String> findBaseClasses() {
+        Set<String> baseClasses = new LinkedHashSet<>();
+        PsiClass annotationClass = JavaPsiFacade.getInstance(project)
+                .findClass(MESSAGE_ANNOTATION_CLASS, GlobalSearchScope.allScope(project));
+        if (annotationClass == null) {
+            return baseClasses;
+        }
+        AnnotatedElementsSearch.searchPsiClasses(
+                annotationClass,
+                GlobalSearchScope.projectScope(project)).forEach(messageClass -> {
+            ProgressManager.checkCanceled();
+            if (!messageClass.hasModifierProperty(FINAL)) {
+                addBaseClass(messageClass, baseClasses);
+            }
+            for (PsiClassType superType : messageClass.getSuperTypes()) {
+                addBaseClass(superType.resolve(), baseClasses);
+            }
+        });
+        return baseClasses;
+    }
+
+    private static void addBaseClass(@Nullable PsiClass psiClass, @NotNull Set<String> names) {
+        String name = psiClass != null ? psiClass.getQualifiedName() : null;
+        if (name != null && !name.startsWith("java.")) {
+            names.add(name);
+        }
+    }
+
+    private void schedule(@NotNull String key) {
+        if (!pending.add(key)) {
+            return;
+        }
+        ReadAction.nonBlocking(() -> compute(key))
+                .inSmartMode(project)
+                .expireWith(this)
+                .submit(executor)
+                .onProcessed(filesToRestart -> {
+                    // Also called with null if the computation failed or was cancelled
+                    pending.remove(key);
+                    if (filesToRestart != null) {
+                        DaemonCodeAnalyzer daemonCodeAnalyzer =
+                                DaemonCodeAnalyzer.getInstance(project);
+                        filesToRestart.stream()
+                                .filter(PsiFile::isValid)
+                                .forEach(daemonCodeAnalyzer::restart);
+                    }
+                });
+    }
+
+    /**
+     * Computes and stores the inheritors of the given class, returning the open files whose
+     * highlighting is affected if the result differs from the previous one.
+     */
+    @NotNull
+    private List<PsiFile> compute(@NotNull String key) {
+        PsiClass baseClass = JavaPsiFacade.getInstance(project)
+                .findClass(key, GlobalSearchScope.allScope(project));
+        if (baseClass == null) {
+            entries.remove(key);
+            return List.of();
+        }
+        long modificationCount = getJavaModificationTracker(baseClass).getModificationCount();
+        MessageInheritorsIndex.Result result =
+                MessageInheritorsIndex.findNonMessageInheritors(baseClass, LIMIT);
+        Entry previous = entries.put(key, createEntry(modificationCount, result));
+        MessageInheritorsIndex.Result previousResult =
+                previous != null ? toResult(previous) : null;
+        boolean changed = previousResult == null
+                // An unknown result is treated as valid, so only problems need to be highlighted
+                ? !result.hasInheritors() || !result.nonMessageInheritors().isEmpty()
+                : !previousResult.equals(result);
+        return changed ? findOpenFilesReferringTo(baseClass) : List.of();
+    }
+
+    /**
+     * Returns the open Java files which may refer to the given class, i.e. which contain its
+     * name.
+     */
+    @NotNull
+    private List<PsiFile> findOpenFilesReferringTo(@NotNull PsiClass baseClass) {
+        String name = baseClass.getName();
+        if (name == null) {
+            return List.of();
+        }
+        PsiManager psiManager = PsiManager.getInstance(project);
+        List<PsiFile> files = new ArrayList<>();
+        for (VirtualFile virtualFile : FileEditorManager.getInstance(project).getOpenFiles()) {
+            if (psiManager.findFile(virtualFile) instanceof PsiJavaFile file
+                    && StringUtil.contains(file.getViewProvider().getContents(), name)) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    @NotNull
+    private Entry createEntry(
+            long modificationCount,
+            @NotNull MessageInheritorsIndex.Result result) {
+        SmartPointerManager pointerManager = SmartPointerManager.getInstance(project);
+        List<SmartPsiElementPointer<PsiClass>> pointers = new ArrayList<>();
+        for (PsiClass inheritor : result.nonMessageInheritors()) {
+            pointers.add(pointerManager.createSmartPsiElementPointer(inheritor));
+        }
+        return new Entry(modificationCount, result.hasInheritors(), List.copyOf(pointers));
+    }
+
+    /**
+     * Restores the result stored in the entry, or returns {@code null} if any of its inheritors
+     * no longer exists.
+     */
+    @Nullable
+    private static MessageInheritorsIndex.Result toResult(@NotNull Entry entry) {
+        List<PsiClass> inheritors = new ArrayList<>(entry.nonMessageInheritors().size());
+        for (SmartPsiElementPointer<PsiClass> pointer : entry.nonMessageInheritors()) {
+            PsiClass inheritor = pointer.getElement();
+            if (inheritor == null) {
+                return null;
+            }
+            inheritors.add(inheritor);
+        }
+        return new MessageInheritorsIndex.Result(entry.hasInheritors(), inheritors);
+    }
+
+    @Override
+    public void dispose() {
+        entries.clear();
+    }
+}
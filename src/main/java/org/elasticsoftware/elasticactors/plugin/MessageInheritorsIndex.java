@@ -0,0 +1,291 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiAnonymousClass;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiIdentifier;
+import com.intellij.psi.PsiJavaCodeReferenceElement;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiReferenceList;
+import com.intellij.psi.PsiTypeParameter;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.searches.ClassInheritorsSearch;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.indexing.DataIndexer;
+import com.intellij.util.indexing.DefaultFileTypeSpecificInputFilter;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FileBasedIndexExtension;
+import com.intellij.util.indexing.FileContent;
+import com.intellij.util.indexing.ID;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.elasticsoftware.elasticactors.Utils.MESSAGE_ANNOTATION_CLASS;
+import static org.elasticsoftware.elasticactors.Utils.isAnnotatedSyntactically;
+import static org.elasticsoftware.elasticactors.Utils.isConcrete;
+import static org.elasticsoftware.elasticactors.Utils.isMessage;
+
+/**
+ * Indexes, for every Java file, the classes it declares keyed by the short names of their direct
+ * supertypes, along with whether they are concrete and annotated with {@code @Message}.
+ * <p>
+ * Since indexing cannot resolve references, the data is only a superset of the real hierarchy.
+ * Candidates are verified against the resolved PSI before being reported. Inheritors which are
+ * not declared in Java source files are found with {@link ClassInheritorsSearch} instead.
+ */
+public class MessageInheritorsIndex
+        extends FileBasedIndexExtension<String, List<MessageInheritorsIndex.Entry>> {
+
+    public static final ID<String, List<Entry>> NAME =
+            ID.create("org.elasticsoftware.elasticactors.MessageInheritorsIndex");
+
+    /**
+     * A class extending or implementing the type used as the index key.
+     *
+     * @param name the short name of the class, or an empty string for anonymous classes
+     * @param offset the offset of the class' name (or base class reference, if anonymous)
+     * @param message whether the class looks like it's annotated with {@code @Message}
+     * @param concrete whether the class can be instantiated
+     */
+    public record Entry(@NotNull String name, int offset, boolean message, boolean concrete) {
+    }
+
+    /**
+     * The result of looking up the inheritors of a class.
+     *
+     * @param hasInheritors whether the class has any inheritors at all
+     * @param nonMessageInheritors concrete inheritors not annotated with {@code @Message}
+     */
+    public record Result(boolean hasInheritors, @NotNull List<PsiClass> nonMessageInheritors) {
+    }
+
+    @NotNull
+    @Override
+    public ID<String, List<Entry>> getName() {
+        return NAME;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<String, List<Entry>, FileContent> getIndexer() {
+        return inputData -> {
+            Map<String, List<Entry>> result = new HashMap<>();
+            for (PsiClass psiClass : PsiTreeUtil.findChildrenOfType(
+                    inputData.getPsiFile(),
+                    PsiClass.class)) {
+                if (psiClass instanceof PsiTypeParameter) {
+                    continue;
+                }
+                Entry entry = createEntry(psiClass);
+                if (entry != null) {
+                    for (String superName : getSuperNames(psiClass)) {
+                        result.computeIfAbsent(superName, k -> new ArrayList<>()).add(entry);
+                    }
+                }
+            }
+            return result;
+        };
+    }
+
+    @Nullable
+    private static Entry createEntry(@NotNull PsiClass psiClass) {
+        PsiElement anchor;
+        String name;
+        if (psiClass instanceof PsiAnonymousClass anonymousClass) {
+            anchor = anonymousClass.getBaseClassReference();
+            name = "";
+        } else {
+            PsiIdentifier nameIdentifier = psiClass.getNameIdentifier();
+            anchor = nameIdentifier;
+            name = nameIdentifier != null ? nameIdentifier.getText() : null;
+        }
+        if (anchor == null || name == null) {
+            return null;
+        }
+        return new Entry(
+                name,
+                anchor.getTextRange().getStartOffset(),
+                isAnnotatedSyntactically(psiClass, MESSAGE_ANNOTATION_CLASS),
+                isConcrete(psiClass));
+    }
+
+    @NotNull
+    private static List<String> getSuperNames(@NotNull PsiClass psiClass) {
+        if (psiClass instanceof PsiAnonymousClass anonymousClass) {
+            String name = anonymousClass.getBaseClassReference().getReferenceName();
+            return name != null ? List.of(name) : List.of();
+        }
+        List<String> names = new ArrayList<>();
+        addReferenceNames(psiClass.getExtendsList(), names);
+        addReferenceNames(psiClass.getImplementsList(), names);
+        return names;
+    }
+
+    private static void addReferenceNames(
+            @Nullable PsiReferenceList referenceList,
+            @NotNull List<String> names) {
+        if (referenceList != null) {
+            for (PsiJavaCodeReferenceElement reference : referenceList.getReferenceElements()) {
+                String name = reference.getReferenceName();
+                if (name != null) {
+                    names.add(name);
+                }
+            }
+        }
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return EnumeratorStringDescriptor.INSTANCE;
+    }
+
+    @NotNull
+    @Override
+    public DataExternalizer<List<Entry>> getValueExternalizer() {
+        return new DataExternalizer<>() {
+            @Override
+            public void save(@NotNull DataOutput out, List<Entry> value) throws IOException {
+                DataInputOutputUtil.writeINT(out, value.size());
+                for (Entry entry : value) {
+                    out.writeUTF(entry.name());
+                    DataInputOutputUtil.writeINT(out, entry.offset());
+                    out.writeBoolean(entry.message());
+                    out.writeBoolean(entry.concrete());
+                }
+            }
+
+            @Override
+            public List<Entry> read(@NotNull DataInput in) throws IOException {
+                int size = DataInputOutputUtil.readINT(in);
+                List<Entry> entries = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    entries.add(new Entry(
+                            in.readUTF(),
+                            DataInputOutputUtil.readINT(in),
+                            in.readBoolean(),
+                            in.readBoolean()));
+                }
+                return entries;
+            }
+        };
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new DefaultFileTypeSpecificInputFilter(JavaFileType.INSTANCE);
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    /**
+     * Looks up the inheritors of the given class, stopping after {@code limit} concrete
+     * inheritors not annotated with {@code @Message} have been found.
+     * Only the candidates which may affect the result are resolved. Since only Java source files
+     * are indexed, inheritors in compiled classes (e.g. library jars) and in other JVM languages
+     * are looked up with {@link ClassInheritorsSearch} first.
+     */
+    @NotNull
+    public static Result findNonMessageInheritors(@NotNull PsiClass baseClass, int limit) {
+        PluginDiagnostics.increment(PluginDiagnostics.Counter.INHERITOR_SEARCHES);
+        String baseName = baseClass.getName();
+        if (baseName == null) {
+            return new Result(false, Collections.emptyList());
+        }
+        Project project = baseClass.getProject();
+        PsiManager psiManager = PsiManager.getInstance(project);
+        GlobalSearchScope scope = GlobalSearchScope.allScope(project);
+        FileBasedIndex index = FileBasedIndex.getInstance();
+
+        Deque<String> queue = new ArrayDeque<>();
+        Set<String> visited = new HashSet<>();
+        List<PsiClass> found = new ArrayList<>(limit);
+        boolean[] hasInheritors = {false};
+        queue.add(baseName);
+        visited.add(baseName);
+
+        GlobalSearchScope notIndexedScope = GlobalSearchScope.notScope(
+                GlobalSearchScope.getScopeRestrictedByFileTypes(scope, JavaFileType.INSTANCE));
+        ClassInheritorsSearch.search(baseClass, notIndexedScope, true).forEach(candidate -> {
+            ProgressManager.checkCanceled();
+            // Java sources may in turn extend the inheritors which aren't indexed
+            if (candidate.getName() != null && visited.add(candidate.getName())) {
+                queue.add(candidate.getName());
+            }
+            hasInheritors[0] = true;
+            if (isConcrete(candidate) && !isMessage(candidate)) {
+                found.add(candidate);
+            }
+            return found.size() < limit;
+        });
+
+        while (!queue.isEmpty() && found.size() < limit) {
+            ProgressManager.checkCanceled();
+            index.processValues(NAME, queue.poll(), null, (file, entries) -> {
+                for (Entry entry : entries) {
+                    if (!entry.name().isEmpty() && visited.add(entry.name())) {
+                        queue.add(entry.name());
+                    }
+                    if (hasInheritors[0] && (entry.message() || !entry.concrete())) {
+                        continue;
+                    }
+                    PsiClass candidate = findClass(psiManager, file, entry.offset());
+                    if (candidate != null && candidate.isInheritor(baseClass, true)) {
+                        hasInheritors[0] = true;
+                        if (isConcrete(candidate) && !isMessage(candidate)) {
+                            found.add(candidate);
+                            if (found.size() >= limit) {
+                                return false;
+                            }
+                        }
+                    }
+                }
+                return true;
+            }, scope);
+        }
+        return new Result(hasInheritors[0], found);
+    }
+
+    @Nullable
+    private static PsiClass findClass(
+            @NotNull PsiManager psiManager,
+            @NotNull VirtualFile file,
+            int offset) {
+        PsiFile psiFile = psiManager.findFile(file);
+        if (psiFile == null) {
+            return null;
+        }
+        return PsiTreeUtil.getParentOfType(psiFile.findElementAt(offset), PsiClass.class, false);
+    }
+}
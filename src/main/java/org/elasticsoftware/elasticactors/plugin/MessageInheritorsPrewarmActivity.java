@@ -0,0 +1,34 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.ProjectActivity;
+import kotlin.Unit;
+import kotlin.coroutines.Continuation;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Pre-warms the {@link MessageInheritorsCache} once the project is opened, and again every time
+ * indexing finishes.
+ */
+public class MessageInheritorsPrewarmActivity implements ProjectActivity {
+
+    @Nullable
+    @Override
+    public Object execute(
+            @NotNull Project project,
+            @NotNull Continuation<? super Unit> continuation) {
+        MessageInheritorsCache cache = MessageInheritorsCache.getInstance(project);
+        project.getMessageBus().connect(cache).subscribe(
+                DumbService.DUMB_MODE,
+                new DumbService.DumbModeListener() {
+                    @Override
+                    public void exitDumbMode() {
+                        cache.prewarm();
+                    }
+                });
+        cache.prewarm();
+        return Unit.INSTANCE;
+    }
+}
@@ -0,0 +1,987 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiAnnotation;
+import com.intellij.psi.PsiArrayType;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiDirectory;
+import com.intellij.psi.PsiEnumConstant;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiFileFactory;
+import com.intellij.psi.PsiImportList;
+import com.intellij.psi.PsiImportStatementBase;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiLiteralExpression;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiModifierListOwner;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.PsiPrimitiveType;
+import com.intellij.psi.PsiRecordComponent;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.PsiTypes;
+import com.intellij.psi.codeStyle.CodeStyleManager;
+import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PropertyUtilBase;
+import com.intellij.psi.util.PsiUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jps.model.java.JavaSourceRootType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static com.intellij.psi.PsiModifier.ABSTRACT;
+import static com.intellij.psi.PsiModifier.PRIVATE;
+import static com.intellij.psi.PsiModifier.PUBLIC;
+import static com.intellij.psi.PsiModifier.STATIC;
+import static com.intellij.psi.PsiModifier.TRANSIENT;
+import static com.intellij.psi.util.InheritanceUtil.isInheritor;
+import static com.intellij.psi.util.PsiTypesUtil.getPsiClass;
+import static org.elasticsoftware.elasticactors.Utils.isMessage;
+
+/**
+ * Generates a reflection-free serializer for a {@code @Message} class, along with a round-trip
+ * unit test.
+ * <p>
+ * The serializer implements the framework's {@code MessageSerializer} and
+ * {@code MessageDeserializer} interfaces and writes the same JSON as Jackson's default binding of
+ * the message's fields, but through the streaming API, without intermediate trees, maps or
+ * reflection. It's generated next to the message as {@code <Message>Serializer}, and records the
+ * fields it was generated from in its {@value #FIELDS_CONSTANT} constant, so
+ * {@link StaleMessageSerializerInspection} can detect when it must be regenerated.
+ */
+public final class MessageSerializerGenerator {
+
+    static final String SERIALIZER_SUFFIX = "Serializer";
+    static final String FIELDS_CONSTANT = "FIELDS";
+
+    private static final String JSON_FACTORY_CLASS = "com.fasterxml.jackson.core.JsonFactory";
+    private static final String JSON_GENERATOR_CLASS = "com.fasterxml.jackson.core.JsonGenerator";
+    private static final String JSON_PARSER_CLASS = "com.fasterxml.jackson.core.JsonParser";
+    private static final String JSON_TOKEN_CLASS = "com.fasterxml.jackson.core.JsonToken";
+    private static final String BYTE_ARRAY_BUILDER_CLASS =
+            "com.fasterxml.jackson.core.util.ByteArrayBuilder";
+    private static final String JSON_PROPERTY_ANNOTATION =
+            "com.fasterxml.jackson.annotation.JsonProperty";
+    private static final String JSON_IGNORE_ANNOTATION =
+            "com.fasterxml.jackson.annotation.JsonIgnore";
+    private static final String MESSAGE_SERIALIZER_CLASS =
+            "org.elasticsoftware.elasticactors.serialization.MessageSerializer";
+    private static final String MESSAGE_DESERIALIZER_CLASS =
+            "org.elasticsoftware.elasticactors.serialization.MessageDeserializer";
+    private static final String COLLECTION = "java.util.Collection";
+    private static final String MAP = "java.util.Map";
+    private static final String JUNIT5_TEST_ANNOTATION = "org.junit.jupiter.api.Test";
+    private static final String JUNIT4_TEST_ANNOTATION = "org.junit.Test";
+
+    /**
+     * Classes written as JSON strings, with the expression converting them back.
+     */
+    private static final Map<String, String> STRING_CLASSES = Map.of(
+            "java.lang.String", "%s",
+            "java.util.UUID", "java.util.UUID.fromString(%s)");
+
+    /**
+     * Classes written as JSON numbers or booleans, with the {@code JsonParser} method reading them.
+     */
+    private static final Map<String, String> SCALAR_CLASSES = Map.ofEntries(
+            Map.entry("java.lang.Boolean", "getBooleanValue"),
+            Map.entry("java.lang.Integer", "getIntValue"),
+            Map.entry("java.lang.Long", "getLongValue"),
+            Map.entry("java.lang.Double", "getDoubleValue"),
+            Map.entry("java.lang.Float", "getFloatValue"),
+            Map.entry("java.math.BigDecimal", "getDecimalValue"),
+            Map.entry("java.math.BigInteger", "getBigIntegerValue"));
+
+    /**
+     * A serialized field of the message.
+     *
+     * @param field the field
+     * @param jsonName the name of the field in the JSON object
+     * @param getter the expression reading the field from {@code message}
+     * @param setter the setter of the field, if the message is created through its no-arg
+     * constructor
+     */
+    record Property(
+            @NotNull PsiField field,
+            @NotNull String jsonName,
+            @NotNull String getter,
+            @Nullable String setter) {
+
+        @NotNull
+        PsiType type() {
+            return field.getType();
+        }
+
+        @NotNull
+        String local() {
+            return field.getName() + "Value";
+        }
+    }
+
+    /**
+     * How a message can be serialized.
+     *
+     * @param messageClass the message class
+     * @param properties the serialized fields, in the order of the constructor's parameters if
+     * the message is created through a constructor
+     * @param constructor whether the message is created by passing all fields to a constructor,
+     * rather than through its no-arg constructor and setters
+     * @param problems the reasons why a serializer can't be generated, if any
+     */
+    public record Plan(
+            @NotNull PsiClass messageClass,
+            @NotNull List<Property> properties,
+            boolean constructor,
+            @NotNull List<String> problems) {
+    }
+
+    private MessageSerializerGenerator() {
+    }
+
+    /**
+     * Returns the generated serializer of the given message class, if any.
+     */
+    @Nullable
+    public static PsiClass findSerializer(@NotNull PsiClass messageClass) {
+        String qualifiedName = getSerializerQualifiedName(messageClass);
+        if (qualifiedName == null) {
+            return null;
+        }
+        PsiClass serializer = JavaPsiFacade.getInstance(messageClass.getProject())
+                .findClass(qualifiedName, messageClass.getResolveScope());
+        return serializer != null && serializer.findFieldByName(FIELDS_CONSTANT, false) != null
+                ? serializer
+                : null;
+    }
+
+    /**
+     * Returns the fields the given serializer was generated from, as recorded in its
+     * {@value #FIELDS_CONSTANT} constant.
+     */
+    @Nullable
+    public static String getRecordedFields(@NotNull PsiClass serializer) {
+        PsiField field = serializer.findFieldByName(FIELDS_CONSTANT, false);
+        return field != null
+                && field.getInitializer() instanceof PsiLiteralExpression literal
+                && literal.getValue() instanceof String value
+                ? value
+                : null;
+    }
+
+    /**
+     * Returns the serialized fields of the message class, with their types, in the format
+     * recorded by the generated serializer.
+     */
+    @NotNull
+    public static String getFields(@NotNull PsiClass messageClass) {
+        return getSerializedFields(messageClass).stream()
+                .map(field -> field.getName() + ":" + field.getType().getCanonicalText())
+                .collect(Collectors.joining(","));
+    }
+
+    @NotNull
+    private static List<PsiField> getSerializedFields(@NotNull PsiClass messageClass) {
+        return DeepImmutability.getInstanceFields(messageClass).stream()
+                .filter(field -> !field.hasModifierProperty(TRANSIENT)
+                        && !field.hasAnnotation(JSON_IGNORE_ANNOTATION))
+                .toList();
+    }
+
+    @NotNull
+    public static Plan analyze(@NotNull PsiClass messageClass) {
+        List<String> problems = new ArrayList<>();
+        GlobalSearchScope scope = messageClass.getResolveScope();
+        JavaPsiFacade facade = JavaPsiFacade.getInstance(messageClass.getProject());
+        if (facade.findClass(JSON_FACTORY_CLASS, scope) == null) {
+            problems.add("Jackson core is not available");
+        }
+        if (facade.findClass(MESSAGE_SERIALIZER_CLASS, scope) == null) {
+            problems.add("MessageSerializer is not available");
+        }
+        if (getSerializerQualifiedName(messageClass) == null
+                || messageClass.getContainingClass() != null
+                && !messageClass.hasModifierProperty(STATIC)
+                || messageClass.hasTypeParameters()) {
+            problems.add("only top-level or static nested non-generic classes are supported");
+        }
+
+        List<PsiField> fields = getSerializedFields(messageClass);
+        List<Property> properties = new ArrayList<>();
+        for (PsiField field : fields) {
+            String typeProblem = findUnsupportedType(field.getType());
+            if (typeProblem != null) {
+                problems.add("field '" + field.getName() + "': " + typeProblem);
+            }
+            String getter = findGetter(messageClass, field);
+            if (getter == null) {
+                problems.add("field '" + field.getName() + "' has no accessible getter");
+                continue;
+            }
+            PsiMethod setter = PropertyUtilBase.findPropertySetter(
+                    messageClass,
+                    field.getName(),
+                    false,
+                    true);
+            properties.add(new Property(
+                    field,
+                    getJsonName(field, field.getName()),
+                    getter,
+                    setter != null && !setter.hasModifierProperty(PRIVATE)
+                            ? setter.getName()
+                            : null));
+        }
+
+        List<Property> constructorOrder = findConstructorOrder(messageClass, properties);
+        if (constructorOrder != null) {
+            return new Plan(messageClass, constructorOrder, true, problems);
+        }
+        boolean hasNoArgConstructor = messageClass.getConstructors().length == 0
+                || Arrays.stream(messageClass.getConstructors())
+                .anyMatch(constructor -> constructor.getParameterList().isEmpty()
+                        && !constructor.hasModifierProperty(PRIVATE));
+        if (!hasNoArgConstructor
+                || properties.stream().anyMatch(property -> property.setter() == null)) {
+            problems.add("the message can neither be created with a constructor taking all its "
+                    + "fields nor with a no-arg constructor and setters");
+        }
+        return new Plan(messageClass, properties, false, problems);
+    }
+
+    /**
+     * Returns the simple name of the serializer of the given message class: the names of the
+     * message class and of its containing classes joined with underscores, followed by
+     * {@value #SERIALIZER_SUFFIX}, e.g. {@code Outer_InnerSerializer}. The serializer is generated
+     * as a top-level class, so nested message classes with the same name in one package must not
+     * share the name of their serializer.
+     */
+    @Nullable
+    private static String getSerializerName(@NotNull PsiClass messageClass) {
+        if (PsiUtil.isLocalOrAnonymousClass(messageClass) || messageClass.getName() == null) {
+            return null;
+        }
+        String name = messageClass.getName() + SERIALIZER_SUFFIX;
+        for (PsiClass outerClass = messageClass.getContainingClass();
+             outerClass != null;
+             outerClass = outerClass.getContainingClass()) {
+            if (outerClass.getName() == null) {
+                return null;
+            }
+            name = outerClass.getName() + "_" + name;
+        }
+        return name;
+    }
+
+    @Nullable
+    private static String getSerializerQualifiedName(@NotNull PsiClass messageClass) {
+        String serializerName = getSerializerName(messageClass);
+        if (!(messageClass.getContainingFile() instanceof PsiJavaFile javaFile)
+                || serializerName == null) {
+            return null;
+        }
+        return StringUtil.getQualifiedName(javaFile.getPackageName(), serializerName);
+    }
+
+    @NotNull
+    private static String getJsonName(@NotNull PsiModifierListOwner owner, @NotNull String name) {
+        PsiAnnotation jsonProperty = owner.getAnnotation(JSON_PROPERTY_ANNOTATION);
+        if (jsonProperty != null
+                && jsonProperty.findAttributeValue("value") instanceof PsiLiteralExpression literal
+                && literal.getValue() instanceof String value
+                && !value.isEmpty()) {
+            return value;
+        }
+        return name;
+    }
+
+    @Nullable
+    private static String findGetter(@NotNull PsiClass messageClass, @NotNull PsiField field) {
+        if (messageClass.isRecord()) {
+            return "message." + field.getName() + "()";
+        }
+        PsiMethod getter = PropertyUtilBase.findPropertyGetter(
+                messageClass,
+                field.getName(),
+                false,
+                true);
+        if (getter != null && !getter.hasModifierProperty(PRIVATE)) {
+            return "message." + getter.getName() + "()";
+        }
+        return !field.hasModifierProperty(PRIVATE) ? "message." + field.getName() : null;
+    }
+
+    /**
+     * Returns the properties in the order of the parameters of a constructor taking all of them,
+     * matched by name or {@code @JsonProperty} and type, or {@code null} if there's none.
+     */
+    @Nullable
+    private static List<Property> findConstructorOrder(
+            @NotNull PsiClass messageClass,
+            @NotNull List<Property> properties) {
+        if (messageClass.isRecord()) {
+            List<Property> ordered = new ArrayList<>();
+            for (PsiRecordComponent component : messageClass.getRecordComponents()) {
+                properties.stream()
+                        .filter(property -> property.field().getName().equals(component.getName()))
+                        .findFirst()
+                        .ifPresent(ordered::add);
+            }
+            return ordered.size() == properties.size() ? ordered : null;
+        }
+        for (PsiMethod constructor : messageClass.getConstructors()) {
+            PsiParameter[] parameters = constructor.getParameterList().getParameters();
+            if (constructor.hasModifierProperty(PRIVATE)
+                    || parameters.length != properties.size()
+                    || parameters.length == 0) {
+                continue;
+            }
+            List<Property> ordered = new ArrayList<>();
+            for (PsiParameter parameter : parameters) {
+                String name = getJsonName(parameter, parameter.getName());
+                properties.stream()
+                        .filter(property -> property.jsonName().equals(name)
+                                && property.type().equals(parameter.getType()))
+                        .findFirst()
+                        .ifPresent(ordered::add);
+            }
+            if (ordered.size() == properties.size()) {
+                return ordered;
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static String findUnsupportedType(@NotNull PsiType type) {
+        if (type instanceof PsiPrimitiveType
+                || PsiTypes.byteType().createArrayType().equals(type)) {
+            return null;
+        }
+        if (type instanceof PsiArrayType) {
+            return "arrays other than byte[] are not supported";
+        }
+        PsiClass psiClass = getPsiClass(type);
+        String qualifiedName = psiClass != null ? psiClass.getQualifiedName() : null;
+        if (qualifiedName == null) {
+            return "type '" + type.getPresentableText() + "' is not supported";
+        }
+        if (psiClass.isEnum()
+                || STRING_CLASSES.containsKey(qualifiedName)
+                || SCALAR_CLASSES.containsKey(qualifiedName)
+                || "java.lang.Character".equals(qualifiedName)
+                || "java.lang.Short".equals(qualifiedName)
+                || "java.lang.Byte".equals(qualifiedName)) {
+            return null;
+        }
+        if (isInheritor(psiClass, COLLECTION)) {
+            if (getCollectionImplementation(psiClass) == null) {
+                return "collection type '" + type.getPresentableText() + "' is not supported";
+            }
+            PsiType element = PsiUtil.substituteTypeParameter(type, COLLECTION, 0, true);
+            return element != null
+                    ? findUnsupportedType(element)
+                    : "raw collections are not supported";
+        }
+        if (isInheritor(psiClass, MAP)) {
+            if (getMapImplementation(psiClass) == null) {
+                return "map type '" + type.getPresentableText() + "' is not supported";
+            }
+            PsiType key = PsiUtil.substituteTypeParameter(type, MAP, 0, true);
+            PsiType value = PsiUtil.substituteTypeParameter(type, MAP, 1, true);
+            if (key == null || value == null || !key.equalsToText("java.lang.String")) {
+                return "only maps with String keys are supported";
+            }
+            return findUnsupportedType(value);
+        }
+        if (isMessage(psiClass)) {
+            return findSerializer(psiClass) != null
+                    ? null
+                    : "generate the serializer of '" + psiClass.getName() + "' first";
+        }
+        return "type '" + type.getPresentableText() + "' is not supported";
+    }
+
+    /**
+     * Returns the class instantiated when reading a collection of the given type.
+     */
+    @Nullable
+    private static String getCollectionImplementation(@NotNull PsiClass collectionClass) {
+        String qualifiedName = collectionClass.getQualifiedName();
+        if ("java.util.List".equals(qualifiedName) || COLLECTION.equals(qualifiedName)) {
+            return "java.util.ArrayList";
+        }
+        if ("java.util.Set".equals(qualifiedName)) {
+            return "java.util.LinkedHashSet";
+        }
+        if ("java.util.SortedSet".equals(qualifiedName)
+                || "java.util.NavigableSet".equals(qualifiedName)) {
+            return "java.util.TreeSet";
+        }
+        return hasPublicNoArgConstructor(collectionClass) ? qualifiedName : null;
+    }
+
+    /**
+     * Returns the class instantiated when reading a map of the given type.
+     */
+    @Nullable
+    private static String getMapImplementation(@NotNull PsiClass mapClass) {
+        String qualifiedName = mapClass.getQualifiedName();
+        if (MAP.equals(qualifiedName)) {
+            return "java.util.LinkedHashMap";
+        }
+        if ("java.util.SortedMap".equals(qualifiedName)
+                || "java.util.NavigableMap".equals(qualifiedName)) {
+            return "java.util.TreeMap";
+        }
+        return hasPublicNoArgConstructor(mapClass) ? qualifiedName : null;
+    }
+
+    private static boolean hasPublicNoArgConstructor(@NotNull PsiClass psiClass) {
+        return !psiClass.isInterface()
+                && !psiClass.hasModifierProperty(ABSTRACT)
+                && Arrays.stream(psiClass.getConstructors())
+                .anyMatch(constructor -> constructor.getParameterList().isEmpty()
+                        && constructor.hasModifierProperty(PUBLIC));
+    }
+
+    /**
+     * Generates the serializer of the message, replacing the previously generated one if any, and
+     * its round-trip test if the module has a test source root with JUnit available. Must be
+     * called in a write action with a plan without problems.
+     *
+     * @return the serializer class
+     */
+    @NotNull
+    public static PsiClass generate(@NotNull Plan plan) throws IOException {
+        PsiClass messageClass = plan.messageClass();
+        Project project = messageClass.getProject();
+        String serializerName = Objects.requireNonNull(getSerializerName(messageClass));
+        PsiJavaFile messageFile = (PsiJavaFile) messageClass.getContainingFile();
+        PsiDirectory directory = messageFile.getContainingDirectory();
+
+        PsiClass serializer = writeClass(
+                project,
+                directory,
+                messageFile.getPackageName(),
+                serializerName,
+                createSerializerText(plan, serializerName));
+
+        String junitAnnotation = findJUnitTestAnnotation(messageClass);
+        PsiDirectory testDirectory = findTestDirectory(messageClass, messageFile.getPackageName());
+        if (junitAnnotation != null && testDirectory != null) {
+            writeClass(
+                    project,
+                    testDirectory,
+                    messageFile.getPackageName(),
+                    serializerName + "Test",
+                    createTestText(plan, serializerName, junitAnnotation));
+        }
+        return serializer;
+    }
+
+    @NotNull
+    private static PsiClass writeClass(
+            @NotNull Project project,
+            @NotNull PsiDirectory directory,
+            @NotNull String packageName,
+            @NotNull String className,
+            @NotNull String classText) {
+        String fileText = (packageName.isEmpty() ? "" : "package " + packageName + ";\n\n")
+                + classText;
+        PsiFile file = PsiFileFactory.getInstance(project).createFileFromText(
+                className + "." + JavaFileType.DEFAULT_EXTENSION,
+                JavaFileType.INSTANCE,
+                fileText);
+        PsiFile existing = directory.findFile(file.getName());
+        PsiJavaFile written;
+        if (existing instanceof PsiJavaFile existingJavaFile
+                && existingJavaFile.getClasses().length > 0) {
+            // Keep the file, so it stays open in editors and its history is preserved
+            PsiImportList imports = existingJavaFile.getImportList();
+            if (imports != null) {
+                for (PsiImportStatementBase statement : imports.getAllImportStatements()) {
+                    statement.delete();
+                }
+            }
+            existingJavaFile.getClasses()[0].replace(((PsiJavaFile) file).getClasses()[0]);
+            written = existingJavaFile;
+        } else {
+            written = (PsiJavaFile) directory.add(file);
+        }
+        JavaCodeStyleManager.getInstance(project).shortenClassReferences(written);
+        CodeStyleManager.getInstance(project).reformat(written);
+        return written.getClasses()[0];
+    }
+
+    @Nullable
+    private static String findJUnitTestAnnotation(@NotNull PsiClass messageClass) {
+        Module module = ModuleUtilCore.findModuleForPsiElement(messageClass);
+        if (module == null) {
+            return null;
+        }
+        GlobalSearchScope scope = GlobalSearchScope.moduleWithDependenciesAndLibrariesScope(module);
+        JavaPsiFacade facade = JavaPsiFacade.getInstance(messageClass.getProject());
+        if (facade.findClass(JUNIT5_TEST_ANNOTATION, scope) != null) {
+            return JUNIT5_TEST_ANNOTATION;
+        }
+        return facade.findClass(JUNIT4_TEST_ANNOTATION, scope) != null
+                ? JUNIT4_TEST_ANNOTATION
+                : null;
+    }
+
+    @Nullable
+    private static PsiDirectory findTestDirectory(
+            @NotNull PsiClass messageClass,
+            @NotNull String packageName) throws IOException {
+        Module module = ModuleUtilCore.findModuleForPsiElement(messageClass);
+        if (module == null) {
+            return null;
+        }
+        List<VirtualFile> roots = ModuleRootManager.getInstance(module)
+                .getSourceRoots(JavaSourceRootType.TEST_SOURCE);
+        if (roots.isEmpty()) {
+            return null;
+        }
+        VirtualFile directory = packageName.isEmpty()
+                ? roots.get(0)
+                : VfsUtil.createDirectoryIfMissing(roots.get(0), packageName.replace('.', '/'));
+        return directory != null
+                ? PsiManager.getInstance(messageClass.getProject()).findDirectory(directory)
+                : null;
+    }
+
+    @NotNull
+    private static String createSerializerText(@NotNull Plan plan, @NotNull String name) {
+        String message = plan.messageClass().getQualifiedName();
+        StringBuilder text = new StringBuilder()
+                .append("/**\n")
+                .append(" * Reflection-free serializer for {@link ").append(message)
+                .append("}, generated by the Elastic Actors plugin.\n")
+                .append(" * Regenerate it when the fields of the message change.\n")
+                .append(" */\n")
+                .append("public final class ").append(name)
+                .append(" implements ").append(MESSAGE_SERIALIZER_CLASS).append('<')
+                .append(message).append(">, ").append(MESSAGE_DESERIALIZER_CLASS).append('<')
+                .append(message).append("> {\n\n")
+                .append("static final String ").append(FIELDS_CONSTANT).append(" = \"")
+                .append(StringUtil.escapeStringCharacters(getFields(plan.messageClass())))
+                .append("\";\n\n")
+                .append("private static final ").append(JSON_FACTORY_CLASS)
+                .append(" JSON_FACTORY = new ").append(JSON_FACTORY_CLASS).append("();\n\n");
+
+        text.append("@Override\n")
+                .append("public java.nio.ByteBuffer serialize(").append(message)
+                .append(" message) throws java.io.IOException {\n")
+                .append(BYTE_ARRAY_BUILDER_CLASS).append(" output = new ")
+                .append(BYTE_ARRAY_BUILDER_CLASS).append("();\n")
+                .append("try (").append(JSON_GENERATOR_CLASS)
+                .append(" generator = JSON_FACTORY.createGenerator(output)) {\n")
+                .append("write(generator, message);\n")
+                .append("}\n")
+                .append("return java.nio.ByteBuffer.wrap(output.toByteArray());\n")
+                .append("}\n\n");
+
+        text.append("@Override\n")
+                .append("public ").append(message)
+                .append(" deserialize(java.nio.ByteBuffer serializedObject) ")
+                .append("throws java.io.IOException {\n")
+                .append("byte[] bytes;\n")
+                .append("int offset;\n")
+                .append("if (serializedObject.hasArray()) {\n")
+                .append("bytes = serializedObject.array();\n")
+                .append("offset = serializedObject.arrayOffset() + serializedObject.position();\n")
+                .append("} else {\n")
+                .append("bytes = new byte[serializedObject.remaining()];\n")
+                .append("serializedObject.duplicate().get(bytes);\n")
+                .append("offset = 0;\n")
+                .append("}\n")
+                .append("try (").append(JSON_PARSER_CLASS)
+                .append(" parser = JSON_FACTORY.createParser(")
+                .append("bytes, offset, serializedObject.remaining())) {\n")
+                .append("parser.nextToken();\n")
+                .append("return read(parser);\n")
+                .append("}\n")
+                .append("}\n\n");
+
+        text.append("@Override\n")
+                .append("public Class<").append(message).append("> getMessageClass() {\n")
+                .append("return ").append(message).append(".class;\n")
+                .append("}\n\n");
+
+        text.append("public static void write(").append(JSON_GENERATOR_CLASS)
+                .append(" generator, ").append(message)
+                .append(" message) throws java.io.IOException {\n")
+                .append("if (message == null) {\n")
+                .append("generator.writeNull();\n")
+                .append("return;\n")
+                .append("}\n")
+                .append("generator.writeStartObject();\n");
+        for (Property property : plan.properties()) {
+            text.append("generator.writeFieldName(\"")
+                    .append(StringUtil.escapeStringCharacters(property.jsonName()))
+                    .append("\");\n");
+            appendWrite(text, property.type(), property.getter(), 0);
+        }
+        text.append("generator.writeEndObject();\n")
+                .append("}\n\n");
+
+        text.append("public static ").append(message).append(" read(")
+                .append(JSON_PARSER_CLASS).append(" parser) throws java.io.IOException {\n")
+                .append("if (parser.getCurrentToken() == ").append(JSON_TOKEN_CLASS)
+                .append(".VALUE_NULL) {\n")
+                .append("return null;\n")
+                .append("}\n");
+        for (Property property : plan.properties()) {
+            text.append(property.type().getCanonicalText()).append(' ')
+                    .append(property.local()).append(" = ")
+                    .append(getDefaultValue(property.type())).append(";\n");
+        }
+        text.append("while (parser.nextToken() == ").append(JSON_TOKEN_CLASS)
+                .append(".FIELD_NAME) {\n")
+                .append("String fieldName = parser.getCurrentName();\n")
+                .append("parser.nextToken();\n")
+                .append("switch (fieldName) {\n");
+        for (Property property : plan.properties()) {
+            text.append("case \"").append(StringUtil.escapeStringCharacters(property.jsonName()))
+                    .append("\":\n");
+            appendRead(text, property.type(), property.local(), 0);
+            text.append("break;\n");
+        }
+        text.append("default:\n")
+                .append("parser.skipChildren();\n")
+                .append("}\n")
+                .append("}\n");
+        appendCreation(text, plan, "message", plan.properties().stream()
+                .map(Property::local)
+                .toList());
+        text.append("return message;\n")
+                .append("}\n")
+                .append("}\n");
+        return text.toString();
+    }
+
+    private static void appendWrite(
+            @NotNull StringBuilder text,
+            @NotNull PsiType type,
+            @NotNull String value,
+            int depth) {
+        if (type instanceof PsiPrimitiveType) {
+            if (PsiTypes.booleanType().equals(type)) {
+                text.append("generator.writeBoolean(").append(value).append(");\n");
+            } else if (PsiTypes.charType().equals(type)) {
+                text.append("generator.writeString(String.valueOf(").append(value).append("));\n");
+            } else {
+                text.append("generator.writeNumber(").append(value).append(");\n");
+            }
+            return;
+        }
+        String local = "value" + depth;
+        text.append("{\n")
+                .append(type.getCanonicalText()).append(' ').append(local).append(" = ")
+                .append(value).append(";\n")
+                .append("if (").append(local).append(" == null) {\n")
+                .append("generator.writeNull();\n")
+                .append("} else {\n");
+        PsiClass psiClass = getPsiClass(type);
+        String qualifiedName = psiClass != null ? psiClass.getQualifiedName() : null;
+        if (type instanceof PsiArrayType) {
+            text.append("generator.writeBinary(").append(local).append(");\n");
+        } else if (psiClass == null || qualifiedName == null) {
+            throw new IllegalArgumentException("Unsupported type " + type.getCanonicalText());
+        } else if (psiClass.isEnum()) {
+            text.append("generator.writeString(").append(local).append(".name());\n");
+        } else if (STRING_CLASSES.containsKey(qualifiedName)
+                || "java.lang.Character".equals(qualifiedName)) {
+            text.append("generator.writeString(").append(local).append(".toString());\n");
+        } else if ("java.lang.Boolean".equals(qualifiedName)) {
+            text.append("generator.writeBoolean(").append(local).append(");\n");
+        } else if (SCALAR_CLASSES.containsKey(qualifiedName)
+                || "java.lang.Short".equals(qualifiedName)
+                || "java.lang.Byte".equals(qualifiedName)) {
+            text.append("generator.writeNumber(").append(local).append(");\n");
+        } else if (isInheritor(psiClass, COLLECTION)) {
+            PsiType element = PsiUtil.substituteTypeParameter(type, COLLECTION, 0, true);
+            String elementLocal = "element" + depth;
+            text.append("generator.writeStartArray();\n")
+                    .append("for (").append(getCanonicalText(element)).append(' ')
+                    .append(elementLocal).append(" : ").append(local).append(") {\n");
+            appendWrite(text, element, elementLocal, depth + 1);
+            text.append("}\n")
+                    .append("generator.writeEndArray();\n");
+        } else if (isInheritor(psiClass, MAP)) {
+            PsiType mapValue = PsiUtil.substituteTypeParameter(type, MAP, 1, true);
+            String entryLocal = "entry" + depth;
+            text.append("generator.writeStartObject();\n")
+                    .append("for (java.util.Map.Entry<String, ").append(getCanonicalText(mapValue))
+                    .append("> ").append(entryLocal).append(" : ").append(local)
+                    .append(".entrySet()) {\n")
+                    .append("generator.writeFieldName(").append(entryLocal).append(".getKey());\n");
+            appendWrite(text, mapValue, entryLocal + ".getValue()", depth + 1);
+            text.append("}\n")
+                    .append("generator.writeEndObject();\n");
+        } else {
+            text.append(getSerializerQualifiedName(psiClass))
+                    .append(".write(generator, ").append(local).append(");\n");
+        }
+        text.append("}\n")
+                .append("}\n");
+    }
+
+    private static void appendRead(
+            @NotNull StringBuilder text,
+            @NotNull PsiType type,
+            @NotNull String target,
+            int depth) {
+        if (type instanceof PsiPrimitiveType) {
+            text.append(target).append(" = ").append(getPrimitiveRead(type)).append(";\n");
+            return;
+        }
+        text.append("if (parser.getCurrentToken() == ").append(JSON_TOKEN_CLASS)
+                .append(".VALUE_NULL) {\n")
+                .append(target).append(" = null;\n")
+                .append("} else {\n");
+        PsiClass psiClass = getPsiClass(type);
+        String qualifiedName = psiClass != null ? psiClass.getQualifiedName() : null;
+        if (type instanceof PsiArrayType) {
+            text.append(target).append(" = parser.getBinaryValue();\n");
+        } else if (psiClass == null || qualifiedName == null) {
+            throw new IllegalArgumentException("Unsupported type " + type.getCanonicalText());
+        } else if (psiClass.isEnum()) {
+            text.append(target).append(" = ").append(qualifiedName)
+                    .append(".valueOf(parser.getText());\n");
+        } else if (STRING_CLASSES.containsKey(qualifiedName)) {
+            text.append(target).append(" = ")
+                    .append(String.format(STRING_CLASSES.get(qualifiedName), "parser.getText()"))
+                    .append(";\n");
+        } else if ("java.lang.Character".equals(qualifiedName)) {
+            text.append(target).append(" = parser.getText().charAt(0);\n");
+        } else if ("java.lang.Short".equals(qualifiedName)) {
+            text.append(target).append(" = (short) parser.getIntValue();\n");
+        } else if ("java.lang.Byte".equals(qualifiedName)) {
+            text.append(target).append(" = (byte) parser.getIntValue();\n");
+        } else if (SCALAR_CLASSES.containsKey(qualifiedName)) {
+            text.append(target).append(" = parser.").append(SCALAR_CLASSES.get(qualifiedName))
+                    .append("();\n");
+        } else if (isInheritor(psiClass, COLLECTION)) {
+            PsiType element = PsiUtil.substituteTypeParameter(type, COLLECTION, 0, true);
+            String elementType = getCanonicalText(element);
+            String collectionLocal = "collection" + depth;
+            String elementLocal = "element" + depth;
+            text.append(type.getCanonicalText()).append(' ').append(collectionLocal)
+                    .append(" = new ").append(getCollectionImplementation(psiClass))
+                    .append("<>();\n")
+                    .append("while (parser.nextToken() != ").append(JSON_TOKEN_CLASS)
+                    .append(".END_ARRAY) {\n")
+                    .append(elementType).append(' ').append(elementLocal).append(";\n");
+            appendRead(text, element, elementLocal, depth + 1);
+            text.append(collectionLocal).append(".add(").append(elementLocal).append(");\n")
+                    .append("}\n")
+                    .append(target).append(" = ").append(collectionLocal).append(";\n");
+        } else if (isInheritor(psiClass, MAP)) {
+            PsiType mapValue = PsiUtil.substituteTypeParameter(type, MAP, 1, true);
+            String mapLocal = "map" + depth;
+            String keyLocal = "key" + depth;
+            String valueLocal = "value" + depth;
+            text.append(type.getCanonicalText()).append(' ').append(mapLocal)
+                    .append(" = new ").append(getMapImplementation(psiClass))
+                    .append("<>();\n")
+                    .append("while (parser.nextToken() == ").append(JSON_TOKEN_CLASS)
+                    .append(".FIELD_NAME) {\n")
+                    .append("String ").append(keyLocal).append(" = parser.getCurrentName();\n")
+                    .append("parser.nextToken();\n")
+                    .append(getCanonicalText(mapValue)).append(' ').append(valueLocal)
+                    .append(";\n");
+            appendRead(text, mapValue, valueLocal, depth + 1);
+            text.append(mapLocal).append(".put(").append(keyLocal).append(", ")
+                    .append(valueLocal).append(");\n")
+                    .append("}\n")
+                    .append(target).append(" = ").append(mapLocal).append(";\n");
+        } else {
+            text.append(target).append(" = ").append(getSerializerQualifiedName(psiClass))
+                    .append(".read(parser);\n");
+        }
+        text.append("}\n");
+    }
+
+    @NotNull
+    private static String getPrimitiveRead(@NotNull PsiType type) {
+        if (PsiTypes.booleanType().equals(type)) {
+            return "parser.getBooleanValue()";
+        } else if (PsiTypes.charType().equals(type)) {
+            return "parser.getText().charAt(0)";
+        } else if (PsiTypes.longType().equals(type)) {
+            return "parser.getLongValue()";
+        } else if (PsiTypes.doubleType().equals(type)) {
+            return "parser.getDoubleValue()";
+        } else if (PsiTypes.floatType().equals(type)) {
+            return "parser.getFloatValue()";
+        } else if (PsiTypes.intType().equals(type)) {
+            return "parser.getIntValue()";
+        }
+        return "(" + type.getCanonicalText() + ") parser.getIntValue()";
+    }
+
+    @NotNull
+    private static String getDefaultValue(@NotNull PsiType type) {
+        if (PsiTypes.booleanType().equals(type)) {
+            return "false";
+        }
+        if (PsiTypes.charType().equals(type)) {
+            return "'\\0'";
+        }
+        return type instanceof PsiPrimitiveType ? "0" : "null";
+    }
+
+    @NotNull
+    private static String getCanonicalText(@Nullable PsiType type) {
+        return type != null ? type.getCanonicalText() : "java.lang.Object";
+    }
+
+    /**
+     * Appends the statements declaring a variable with the given name and assigning it a new
+     * message, created from the given expressions in the order of the plan's properties.
+     */
+    private static void appendCreation(
+            @NotNull StringBuilder text,
+            @NotNull Plan plan,
+            @NotNull String variable,
+            @NotNull List<String> values) {
+        String message = plan.messageClass().getQualifiedName();
+        text.append(message).append(' ').append(variable).append(" = new ").append(message);
+        if (plan.constructor()) {
+            text.append('(').append(String.join(", ", values)).append(");\n");
+            return;
+        }
+        text.append("();\n");
+        for (int i = 0; i < values.size(); i++) {
+            text.append(variable).append('.').append(plan.properties().get(i).setter())
+                    .append('(').append(values.get(i)).append(");\n");
+        }
+    }
+
+    @NotNull
+    private static String createTestText(
+            @NotNull Plan plan,
+            @NotNull String serializerName,
+            @NotNull String testAnnotation) {
+        boolean junit5 = JUNIT5_TEST_ANNOTATION.equals(testAnnotation);
+        String message = plan.messageClass().getQualifiedName();
+        StringBuilder text = new StringBuilder()
+                .append("/**\n")
+                .append(" * Round-trip test of {@link ").append(serializerName)
+                .append("}, generated by the Elastic Actors plugin.\n")
+                .append(" */\n")
+                .append(junit5 ? "" : "public ")
+                .append("class ").append(serializerName).append("Test {\n\n")
+                .append('@').append(testAnnotation).append('\n')
+                .append(junit5 ? "" : "public ")
+                .append("void roundTrip() throws Exception {\n")
+                .append(serializerName).append(" serializer = new ").append(serializerName)
+                .append("();\n");
+        appendCreation(text, plan, "message", plan.properties().stream()
+                .map(property -> getSampleValue(property.type()))
+                .toList());
+        text.append("java.nio.ByteBuffer serialized = serializer.serialize(message);\n")
+                .append(message)
+                .append(" deserialized = serializer.deserialize(serialized.duplicate());\n")
+                .append(junit5 ? "org.junit.jupiter.api.Assertions" : "org.junit.Assert")
+                .append(".assertEquals(serialized, serializer.serialize(deserialized));\n")
+                .append("}\n")
+                .append("}\n");
+        return text.toString();
+    }
+
+    /**
+     * Returns an expression creating a non-default value of the given type, or {@code null} for
+     * nested messages.
+     */
+    @NotNull
+    private static String getSampleValue(@NotNull PsiType type) {
+        if (type instanceof PsiPrimitiveType) {
+            if (PsiTypes.booleanType().equals(type)) {
+                return "true";
+            }
+            if (PsiTypes.charType().equals(type)) {
+                return "'a'";
+            }
+            return "(" + type.getCanonicalText() + ") 42";
+        }
+        if (type instanceof PsiArrayType) {
+            return "new byte[]{1, 2, 3}";
+        }
+        PsiClass psiClass = getPsiClass(type);
+        String qualifiedName = psiClass != null ? psiClass.getQualifiedName() : null;
+        if (psiClass == null || qualifiedName == null) {
+            return "null";
+        }
+        if (psiClass.isEnum()) {
+            return Arrays.stream(psiClass.getFields())
+                    .filter(field -> field instanceof PsiEnumConstant)
+                    .findFirst()
+                    .map(constant -> qualifiedName + "." + constant.getName())
+                    .orElse("null");
+        }
+        switch (qualifiedName) {
+            case "java.lang.String":
+                return "\"value\"";
+            case "java.util.UUID":
+                return "java.util.UUID.fromString(\"00000000-0000-0000-0000-000000000001\")";
+            case "java.lang.Boolean":
+                return "Boolean.TRUE";
+            case "java.lang.Character":
+                return "'a'";
+            case "java.lang.Byte":
+                return "(byte) 42";
+            case "java.lang.Short":
+                return "(short) 42";
+            case "java.lang.Integer":
+                return "42";
+            case "java.lang.Long":
+                return "42L";
+            case "java.lang.Float":
+                return "4.2f";
+            case "java.lang.Double":
+                return "4.2";
+            case "java.math.BigDecimal":
+                return "new java.math.BigDecimal(\"4.2\")";
+            case "java.math.BigInteger":
+                return "java.math.BigInteger.valueOf(42)";
+            default:
+                break;
+        }
+        if (isInheritor(psiClass, COLLECTION)) {
+            PsiType element = PsiUtil.substituteTypeParameter(type, COLLECTION, 0, true);
+            return "new " + getCollectionImplementation(psiClass) + "<"
+                    + getCanonicalText(element) + ">(java.util.Collections.singletonList("
+                    + getSampleValue(getNotNull(element)) + "))";
+        }
+        if (isInheritor(psiClass, MAP)) {
+            PsiType mapValue = PsiUtil.substituteTypeParameter(type, MAP, 1, true);
+            return "new " + getMapImplementation(psiClass) + "<String, "
+                    + getCanonicalText(mapValue) + ">(java.util.Collections.singletonMap(\"key\", "
+                    + getSampleValue(getNotNull(mapValue)) + "))";
+        }
+        return "null";
+    }
+
+    @NotNull
+    private static PsiType getNotNull(@Nullable PsiType type) {
+        return type != null ? type : PsiTypes.nullType();
+    }
+}
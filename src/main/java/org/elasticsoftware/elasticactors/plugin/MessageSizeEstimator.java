@@ -0,0 +1,306 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.CommonClassNames;
+import com.intellij.psi.PsiAnnotation;
+import com.intellij.psi.PsiArrayType;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassObjectAccessExpression;
+import com.intellij.psi.PsiClassType;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiPrimitiveType;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.PsiTypes;
+import com.intellij.psi.util.CachedValueProvider.Result;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiTypesUtil;
+import com.intellij.psi.util.PsiUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.intellij.psi.PsiModifier.STATIC;
+import static com.intellij.psi.PsiModifier.TRANSIENT;
+import static com.intellij.psi.util.InheritanceUtil.isInheritor;
+import static org.elasticsoftware.elasticactors.Utils.MESSAGE_ANNOTATION_CLASS;
+import static org.elasticsoftware.elasticactors.Utils.getJavaModificationTracker;
+
+/**
+ * Estimates the serialized size of a class based on the types of its fields.
+ * <p>
+ * The numbers are rough approximations meant for comparing classes against each other, not the
+ * exact size on the wire. Collections and arrays are assumed to contain
+ * {@value #ASSUMED_COLLECTION_SIZE} elements and are reported as unbounded.
+ */
+public final class MessageSizeEstimator {
+
+    private static final int ASSUMED_COLLECTION_SIZE = 10;
+    private static final int ASSUMED_STRING_LENGTH = 32;
+    private static final int MAX_DEPTH = 8;
+
+    private static final String PROTOBUF_SERIALIZATION_FRAMEWORK_CLASS =
+            "org.elasticsoftware.elasticactors.serialization.protobuf"
+                    + ".ProtobufSerializationFramework";
+
+    public enum Encoding {
+        JSON,
+        PROTOBUF
+    }
+
+    /**
+     * The estimated size of a class.
+     *
+     * @param bytes the estimated number of bytes
+     * @param unboundedFields paths of the fields holding collections or arrays
+     * @param recursiveFields paths of the fields pointing back to a type being serialized
+     * @param reachableTypes qualified names of the other classes serialized along with the class
+     */
+    public record Estimate(
+            long bytes,
+            @NotNull List<String> unboundedFields,
+            @NotNull List<String> recursiveFields,
+            @NotNull List<String> reachableTypes) {
+
+        public boolean isBounded() {
+            return unboundedFields.isEmpty() && recursiveFields.isEmpty();
+        }
+    }
+
+    private MessageSizeEstimator() {
+    }
+
+    /**
+     * Returns the encoding of the serialization framework declared in the class' {@code @Message}
+     * annotation, defaulting to JSON.
+     */
+    @NotNull
+    public static Encoding getEncoding(@NotNull PsiClass psiClass) {
+        PsiAnnotation message = psiClass.getAnnotation(MESSAGE_ANNOTATION_CLASS);
+        if (message != null
+                && message.findAttributeValue("serializationFramework")
+                instanceof PsiClassObjectAccessExpression classObjectAccess) {
+            return getFrameworkEncoding(classObjectAccess.getOperand().getType());
+        }
+        return Encoding.JSON;
+    }
+
+    /**
+     * Returns the encoding of the given serialization framework class, defaulting to JSON.
+     */
+    @NotNull
+    static Encoding getFrameworkEncoding(@NotNull PsiType frameworkType) {
+        PsiClass frameworkClass = PsiTypesUtil.getPsiClass(frameworkType);
+        return frameworkClass != null
+                && isInheritor(frameworkClass, PROTOBUF_SERIALIZATION_FRAMEWORK_CLASS)
+                ? Encoding.PROTOBUF
+                : Encoding.JSON;
+    }
+
+    /**
+     * Estimates the size of the given class, cached until the Java PSI changes. The estimates of
+     * the classes serialized along with it are cached as well, so they are only computed once.
+     */
+    @NotNull
+    public static Estimate estimate(@NotNull PsiClass psiClass, @NotNull Encoding encoding) {
+        Estimate estimate = getCache(psiClass).get(encoding);
+        return estimate != null ? estimate : new Estimator(encoding).estimateClass(psiClass);
+    }
+
+    @NotNull
+    private static Map<Encoding, Estimate> getCache(@NotNull PsiClass psiClass) {
+        return CachedValuesManager.getCachedValue(
+                psiClass,
+                () -> Result.create(
+                        new ConcurrentHashMap<Encoding, Estimate>(),
+                        getJavaModificationTracker(psiClass)));
+    }
+
+    @NotNull
+    public static String formatSize(long bytes) {
+        return bytes < 1024
+                ? bytes + " B"
+                : String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+    }
+
+    /**
+     * Walks the fields of a class and of the classes serialized along with it. The estimate of
+     * every class walked is computed relative to that class, and cached unless it depends on the
+     * classes it's serialized along with, i.e. it has fields pointing back to them.
+     */
+    private static final class Estimator {
+
+        private final Encoding encoding;
+        private final List<PsiClass> stack = new ArrayList<>();
+        private List<String> unboundedFields = new ArrayList<>();
+        private List<String> recursiveFields = new ArrayList<>();
+        private Set<String> reachableTypes = new LinkedHashSet<>();
+        /**
+         * The lowest position in the stack of the classes pointed back to by recursive fields.
+         */
+        private int recursionDepth = Integer.MAX_VALUE;
+        private boolean truncated;
+
+        private Estimator(@NotNull Encoding encoding) {
+            this.encoding = encoding;
+        }
+
+        @NotNull
+        Estimate estimateClass(@NotNull PsiClass psiClass) {
+            List<String> outerUnboundedFields = unboundedFields;
+            List<String> outerRecursiveFields = recursiveFields;
+            Set<String> outerReachableTypes = reachableTypes;
+            int outerRecursionDepth = recursionDepth;
+            boolean outerTruncated = truncated;
+            unboundedFields = new ArrayList<>();
+            recursiveFields = new ArrayList<>();
+            reachableTypes = new LinkedHashSet<>();
+            recursionDepth = Integer.MAX_VALUE;
+            truncated = false;
+
+            int depth = stack.size();
+            stack.add(psiClass);
+            long bytes = encoding == Encoding.JSON ? 2 : 0;
+            for (PsiField field : psiClass.getAllFields()) {
+                if (isSerialized(field)) {
+                    bytes += getFieldOverhead(field)
+                            + estimateType(field.getType(), field.getName());
+                }
+            }
+            stack.remove(depth);
+            Estimate estimate = new Estimate(
+                    bytes,
+                    List.copyOf(unboundedFields),
+                    List.copyOf(recursiveFields),
+                    List.copyOf(reachableTypes));
+            // Only the estimate of the outermost class may be cut off by MAX_DEPTH
+            if (recursionDepth >= depth && (depth == 0 || !truncated)) {
+                getCache(psiClass).putIfAbsent(encoding, estimate);
+            }
+
+            unboundedFields = outerUnboundedFields;
+            recursiveFields = outerRecursiveFields;
+            reachableTypes = outerReachableTypes;
+            recursionDepth = Math.min(outerRecursionDepth, recursionDepth);
+            truncated |= outerTruncated;
+            return estimate;
+        }
+
+        private long estimateType(@Nullable PsiType type, @NotNull String path) {
+            if (type instanceof PsiPrimitiveType primitiveType) {
+                return estimatePrimitive(primitiveType);
+            }
+            if (type instanceof PsiArrayType arrayType) {
+                unboundedFields.add(path + " (" + type.getPresentableText() + ")");
+                return ASSUMED_COLLECTION_SIZE
+                        * estimateType(arrayType.getComponentType(), path + "[]");
+            }
+            if (!(type instanceof PsiClassType classType)) {
+                return ASSUMED_STRING_LENGTH;
+            }
+            PsiPrimitiveType unboxed = PsiPrimitiveType.getUnboxedType(type);
+            if (unboxed != null) {
+                return estimatePrimitive(unboxed);
+            }
+            PsiClass psiClass = classType.resolve();
+            if (psiClass == null) {
+                return ASSUMED_STRING_LENGTH;
+            }
+            if (isInheritor(psiClass, CommonClassNames.JAVA_LANG_CHAR_SEQUENCE)) {
+                return encoding == Encoding.JSON
+                        ? ASSUMED_STRING_LENGTH + 2
+                        : ASSUMED_STRING_LENGTH + 1;
+            }
+            if (psiClass.isEnum()) {
+                return 16;
+            }
+            if (isInheritor(psiClass, CommonClassNames.JAVA_UTIL_MAP)) {
+                unboundedFields.add(path + " (" + type.getPresentableText() + ")");
+                return ASSUMED_COLLECTION_SIZE * (
+                        estimateType(PsiUtil.substituteTypeParameter(
+                                type, CommonClassNames.JAVA_UTIL_MAP, 0, false), path + "{key}")
+                        + estimateType(PsiUtil.substituteTypeParameter(
+                                type, CommonClassNames.JAVA_UTIL_MAP, 1, false), path + "{}"));
+            }
+            if (isInheritor(psiClass, CommonClassNames.JAVA_LANG_ITERABLE)) {
+                unboundedFields.add(path + " (" + type.getPresentableText() + ")");
+                return ASSUMED_COLLECTION_SIZE * estimateType(
+                        PsiUtil.substituteTypeParameter(
+                                type, CommonClassNames.JAVA_LANG_ITERABLE, 0, false),
+                        path + "[]");
+            }
+            String qualifiedName = psiClass.getQualifiedName();
+            if (qualifiedName == null || qualifiedName.startsWith("java.")) {
+                return ASSUMED_STRING_LENGTH;
+            }
+            int index = stack.indexOf(psiClass);
+            if (index >= 0) {
+                recursiveFields.add(path + " (" + type.getPresentableText() + ")");
+                recursionDepth = Math.min(recursionDepth, index);
+                return 0;
+            }
+            Estimate estimate = getCache(psiClass).get(encoding);
+            if (estimate == null || estimate.reachableTypes().stream().anyMatch(this::isOnStack)) {
+                if (stack.size() >= MAX_DEPTH) {
+                    truncated = true;
+                    return ASSUMED_STRING_LENGTH;
+                }
+                estimate = estimateClass(psiClass);
+            }
+            reachableTypes.add(qualifiedName);
+            reachableTypes.addAll(estimate.reachableTypes());
+            for (String field : estimate.unboundedFields()) {
+                unboundedFields.add(path + "." + field);
+            }
+            for (String field : estimate.recursiveFields()) {
+                recursiveFields.add(path + "." + field);
+            }
+            return estimate.bytes();
+        }
+
+        private boolean isOnStack(@NotNull String qualifiedName) {
+            return stack.stream()
+                    .anyMatch(psiClass -> qualifiedName.equals(psiClass.getQualifiedName()));
+        }
+
+        private long estimatePrimitive(@NotNull PsiPrimitiveType type) {
+            boolean json = encoding == Encoding.JSON;
+            if (PsiTypes.booleanType().equals(type)) {
+                return json ? 5 : 1;
+            }
+            if (PsiTypes.longType().equals(type)) {
+                return json ? 20 : 10;
+            }
+            if (PsiTypes.doubleType().equals(type)) {
+                return json ? 24 : 8;
+            }
+            if (PsiTypes.floatType().equals(type)) {
+                return json ? 15 : 4;
+            }
+            if (PsiTypes.charType().equals(type)) {
+                return json ? 3 : 2;
+            }
+            return json ? 11 : 5;
+        }
+
+        private long getFieldOverhead(@NotNull PsiField field) {
+            // JSON writes the quoted name followed by a colon and a comma, protobuf writes a tag
+            return encoding == Encoding.JSON ? field.getName().length() + 4 : 2;
+        }
+
+        private static boolean isSerialized(@NotNull PsiField field) {
+            PsiClass containingClass = field.getContainingClass();
+            return !field.hasModifierProperty(STATIC)
+                    && !field.hasModifierProperty(TRANSIENT)
+                    && containingClass != null
+                    && !StringUtil.notNullize(containingClass.getQualifiedName())
+                    .startsWith("java.");
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInsight.hints.declarative.InlayHintsCollector;
+import com.intellij.codeInsight.hints.declarative.InlayHintsProvider;
+import com.intellij.codeInsight.hints.declarative.InlayTreeSink;
+import com.intellij.codeInsight.hints.declarative.InlineInlayPosition;
+import com.intellij.codeInsight.hints.declarative.SharedBypassCollector;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiIdentifier;
+import kotlin.Unit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static org.elasticsoftware.elasticactors.Utils.isConcrete;
+import static org.elasticsoftware.elasticactors.Utils.isMessage;
+import static org.elasticsoftware.elasticactors.plugin.MessageSizeEstimator.estimate;
+import static org.elasticsoftware.elasticactors.plugin.MessageSizeEstimator.formatSize;
+import static org.elasticsoftware.elasticactors.plugin.MessageSizeEstimator.getEncoding;
+
+/**
+ * Shows the estimated serialized size of {@code @Message}-annotated classes next to their names.
+ */
+public class MessageSizeInlayHintsProvider implements InlayHintsProvider {
+
+    @Nullable
+    @Override
+    public InlayHintsCollector createCollector(@NotNull PsiFile file, @NotNull Editor editor) {
+        return new SharedBypassCollector() {
+            @Override
+            public void collectFromElement(
+                    @NotNull PsiElement element,
+                    @NotNull InlayTreeSink sink) {
+                if (element instanceof PsiClass psiClass
+                        && isMessage(psiClass)
+                        && isConcrete(psiClass)) {
+                    PsiIdentifier nameIdentifier = psiClass.getNameIdentifier();
+                    if (nameIdentifier != null) {
+                        MessageSizeEstimator.Estimate estimate =
+                                estimate(psiClass, getEncoding(psiClass));
+                        String text = "~" + formatSize(estimate.bytes())
+                                + (estimate.isBounded() ? "" : "+");
+                        String tooltip = estimate.isBounded()
+                                ? "Estimated serialized size"
+                                : "Estimated serialized size, assuming 10 elements per collection";
+                        sink.addPresentation(
+                                new InlineInlayPosition(
+                                        nameIdentifier.getTextRange().getEndOffset(),
+                                        true,
+                                        0),
+                                null,
+                                tooltip,
+                                true,
+                                builder -> {
+                                    builder.text(text, null);
+                                    return Unit.INSTANCE;
+                                });
+                    }
+                }
+            }
+        };
+    }
+}
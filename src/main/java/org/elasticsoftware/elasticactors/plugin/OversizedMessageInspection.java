@@ -0,0 +1,79 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.codeInspection.options.OptPane;
+import com.intellij.psi.JavaElementVisitor;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElementVisitor;
+import com.intellij.psi.PsiIdentifier;
+import org.jetbrains.annotations.NotNull;
+
+import static com.intellij.codeInspection.options.OptPane.checkbox;
+import static com.intellij.codeInspection.options.OptPane.number;
+import static com.intellij.codeInspection.options.OptPane.pane;
+import static org.elasticsoftware.elasticactors.Utils.isConcrete;
+import static org.elasticsoftware.elasticactors.Utils.isMessage;
+import static org.elasticsoftware.elasticactors.plugin.MessageSizeEstimator.estimate;
+import static org.elasticsoftware.elasticactors.plugin.MessageSizeEstimator.formatSize;
+import static org.elasticsoftware.elasticactors.plugin.MessageSizeEstimator.getEncoding;
+
+public class OversizedMessageInspection extends AbstractBaseJavaLocalInspectionTool {
+
+    /**
+     * Maximum estimated serialized size, in bytes.
+     */
+    public int maxSize = 16 * 1024;
+
+    public boolean reportUnboundedFields = true;
+
+    @NotNull
+    @Override
+    public OptPane getOptionsPane() {
+        return pane(
+                number("maxSize",
+                        "Maximum estimated serialized size (bytes):",
+                        1,
+                        Integer.MAX_VALUE),
+                checkbox("reportUnboundedFields",
+                        "Report collections, arrays and recursive types"));
+    }
+
+    @NotNull
+    @Override
+    public PsiElementVisitor buildVisitor(
+            @NotNull ProblemsHolder holder, boolean isOnTheFly) {
+        return new JavaElementVisitor() {
+            @Override
+            public void visitClass(@NotNull PsiClass aClass) {
+                super.visitClass(aClass);
+                PsiIdentifier nameIdentifier = aClass.getNameIdentifier();
+                if (nameIdentifier != null && isMessage(aClass) && isConcrete(aClass)) {
+                    MessageSizeEstimator.Estimate estimate = estimate(aClass, getEncoding(aClass));
+                    if (estimate.bytes() > maxSize) {
+                        holder.registerProblem(
+                                nameIdentifier,
+                                "Estimated serialized size of @Message-annotated class ("
+                                        + formatSize(estimate.bytes()) + ") exceeds "
+                                        + formatSize(maxSize));
+                    }
+                    if (reportUnboundedFields) {
+                        if (!estimate.unboundedFields().isEmpty()) {
+                            holder.registerProblem(
+                                    nameIdentifier,
+                                    "@Message-annotated class has fields of unbounded size: "
+                                            + String.join(", ", estimate.unboundedFields()));
+                        }
+                        if (!estimate.recursiveFields().isEmpty()) {
+                            holder.registerProblem(
+                                    nameIdentifier,
+                                    "@Message-annotated class has fields of recursive types: "
+                                            + String.join(", ", estimate.recursiveFields()));
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+}
@@ -0,0 +1,249 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.intellij.ide.util.PropertiesComponent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lightweight instrumentation of the plugin's own extensions, used to find out whether they
+ * slow down highlighting.
+ * <p>
+ * All measurements are kept in {@link LongAdder}s, so recording them never blocks. When the
+ * instrumentation is disabled, recording only costs a read of a volatile field. Timed sections
+ * follow this pattern:
+ * <pre>{@code
+ * long start = PluginDiagnostics.start();
+ * try {
+ *     ...
+ * } finally {
+ *     PluginDiagnostics.stop(PluginDiagnostics.Probe.ANNOTATOR, start);
+ * }
+ * }</pre>
+ */
+public final class PluginDiagnostics {
+
+    private static final String ENABLED_KEY = "org.elasticsoftware.elasticactors.diagnostics";
+
+    /**
+     * The timed extension points.
+     */
+    public enum Probe {
+        ANNOTATOR("MessageHandlerAnnotator.annotate"),
+        ACTOR_REF_CALL_INSPECTION("SuspectActorRefCallsInspection visitor"),
+        MESSAGE_MUTABILITY_INSPECTION("IncorrectMessageMutabilityInspection visitor"),
+        USAGE_TYPE_PROVIDER("MessageHandlerUsageTypeProvider.getUsageType"),
+        IMPLICIT_USAGE_PROVIDER("MessageHandlerImplicitUsageProvider.isImplicitUsage");
+
+        private final String displayName;
+
+        Probe(@NotNull String displayName) {
+            this.displayName = displayName;
+        }
+
+        @NotNull
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * The counted operations.
+     */
+    public enum Counter {
+        INHERITOR_SEARCHES("Message inheritor searches"),
+        BLOCKING_INHERITOR_SEARCHES("Message inheritor searches in the calling thread");
+
+        private final String displayName;
+
+        Counter(@NotNull String displayName) {
+            this.displayName = displayName;
+        }
+
+        @NotNull
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * The caches whose hit rates are measured.
+     */
+    public enum Cache {
+        FILE_MODEL("ElasticActorsFileModel"),
+        MESSAGE_INHERITORS("MessageInheritorsCache"),
+        IMMUTABILITY_VERDICTS("DeepImmutability");
+
+        private final String displayName;
+
+        Cache(@NotNull String displayName) {
+            this.displayName = displayName;
+        }
+
+        @NotNull
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    public record ProbeStats(@NotNull Probe probe, long invocations, long nanos) {
+    }
+
+    public record CounterStats(@NotNull Counter counter, long value) {
+    }
+
+    public record CacheStats(@NotNull Cache cache, long lookups, long misses) {
+
+        public double getHitRate() {
+            return lookups > 0 ? (double) (lookups - misses) / lookups : 0;
+        }
+    }
+
+    public record Snapshot(
+            boolean enabled,
+            @NotNull List<ProbeStats> probes,
+            @NotNull List<CounterStats> counters,
+            @NotNull List<CacheStats> caches) {
+    }
+
+    private static final LongAdder[] INVOCATIONS = createAdders(Probe.values().length);
+    private static final LongAdder[] NANOS = createAdders(Probe.values().length);
+    private static final LongAdder[] COUNTERS = createAdders(Counter.values().length);
+    private static final LongAdder[] LOOKUPS = createAdders(Cache.values().length);
+    private static final LongAdder[] MISSES = createAdders(Cache.values().length);
+
+    private static volatile boolean enabled =
+            PropertiesComponent.getInstance().getBoolean(ENABLED_KEY);
+
+    private PluginDiagnostics() {
+    }
+
+    @NotNull
+    private static LongAdder[] createAdders(int size) {
+        LongAdder[] adders = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        PluginDiagnostics.enabled = enabled;
+        PropertiesComponent.getInstance().setValue(ENABLED_KEY, enabled);
+    }
+
+    /**
+     * Starts timing a section, returning {@code 0} if the instrumentation is disabled.
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a section started with {@link #start()}.
+     */
+    public static void stop(@NotNull Probe probe, long start) {
+        if (start != 0) {
+            NANOS[probe.ordinal()].add(System.nanoTime() - start);
+            INVOCATIONS[probe.ordinal()].increment();
+        }
+    }
+
+    public static void increment(@NotNull Counter counter) {
+        if (enabled) {
+            COUNTERS[counter.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Records a lookup in the given cache.
+     */
+    public static void lookup(@NotNull Cache cache) {
+        if (enabled) {
+            LOOKUPS[cache.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Records a lookup in the given cache which had to compute the value.
+     */
+    public static void miss(@NotNull Cache cache) {
+        if (enabled) {
+            MISSES[cache.ordinal()].increment();
+        }
+    }
+
+    public static void reset() {
+        for (LongAdder[] adders : List.of(INVOCATIONS, NANOS, COUNTERS, LOOKUPS, MISSES)) {
+            for (LongAdder adder : adders) {
+                adder.reset();
+            }
+        }
+    }
+
+    @NotNull
+    public static Snapshot snapshot() {
+        List<ProbeStats> probes = new ArrayList<>();
+        for (Probe probe : Probe.values()) {
+            probes.add(new ProbeStats(
+                    probe,
+                    INVOCATIONS[probe.ordinal()].sum(),
+                    NANOS[probe.ordinal()].sum()));
+        }
+        List<CounterStats> counters = new ArrayList<>();
+        for (Counter counter : Counter.values()) {
+            counters.add(new CounterStats(counter, COUNTERS[counter.ordinal()].sum()));
+        }
+        List<CacheStats> caches = new ArrayList<>();
+        for (Cache cache : Cache.values()) {
+            // Misses are recorded after lookups, so reading them first keeps the hit rate positive
+            long misses = MISSES[cache.ordinal()].sum();
+            long lookups = Math.max(LOOKUPS[cache.ordinal()].sum(), misses);
+            caches.add(new CacheStats(cache, lookups, misses));
+        }
+        return new Snapshot(enabled, probes, counters, caches);
+    }
+
+    @NotNull
+    public static String toJson(@NotNull Snapshot snapshot) {
+        JsonObject root = new JsonObject();
+        root.addProperty("enabled", snapshot.enabled());
+        JsonArray probes = new JsonArray();
+        for (ProbeStats stats : snapshot.probes()) {
+            JsonObject probe = new JsonObject();
+            probe.addProperty("name", stats.probe().getDisplayName());
+            probe.addProperty("invocations", stats.invocations());
+            probe.addProperty("totalNanos", stats.nanos());
+            probes.add(probe);
+        }
+        root.add("probes", probes);
+        JsonArray counters = new JsonArray();
+        for (CounterStats stats : snapshot.counters()) {
+            JsonObject counter = new JsonObject();
+            counter.addProperty("name", stats.counter().getDisplayName());
+            counter.addProperty("value", stats.value());
+            counters.add(counter);
+        }
+        root.add("counters", counters);
+        JsonArray caches = new JsonArray();
+        for (CacheStats stats : snapshot.caches()) {
+            JsonObject cache = new JsonObject();
+            cache.addProperty("name", stats.cache().getDisplayName());
+            cache.addProperty("lookups", stats.lookups());
+            cache.addProperty("misses", stats.misses());
+            cache.addProperty("hitRate", stats.getHitRate());
+            caches.add(cache);
+        }
+        root.add("caches", caches);
+        return new GsonBuilder().setPrettyPrinting().create().toJson(root);
+    }
+}
@@ -0,0 +1,209 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.actionSystem.ActionManager;
+import com.intellij.openapi.actionSystem.ActionToolbar;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.DefaultActionGroup;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.DumbAwareToggleAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.intellij.ui.ScrollPaneFactory;
+import com.intellij.ui.table.TableView;
+import com.intellij.util.Alarm;
+import com.intellij.util.ui.ColumnInfo;
+import com.intellij.util.ui.ListTableModel;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Shows the measurements recorded by {@link PluginDiagnostics}, refreshed every second while the
+ * instrumentation is enabled.
+ */
+class PluginDiagnosticsPanel extends SimpleToolWindowPanel implements Disposable {
+
+    private static final int REFRESH_DELAY_MS = 1000;
+
+    private final Project project;
+    private final ListTableModel<Row> model;
+    private final Alarm refreshAlarm;
+
+    private record Row(
+            @NotNull String name,
+            @NotNull String count,
+            @NotNull String time,
+            @NotNull String details) {
+    }
+
+    PluginDiagnosticsPanel(@NotNull Project project) {
+        super(true, true);
+        this.project = project;
+        this.model = new ListTableModel<>(
+                new Column("Measurement", Row::name),
+                new Column("Count", Row::count),
+                new Column("Total Time", Row::time),
+                new Column("Details", Row::details));
+        this.refreshAlarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, this);
+        TableView<Row> table = new TableView<>(model);
+        setContent(ScrollPaneFactory.createScrollPane(table));
+
+        DefaultActionGroup actions = new DefaultActionGroup();
+        actions.add(new DumbAwareToggleAction(
+                "Enable Instrumentation",
+                "Record timings and counters of the Elastic Actors plugin",
+                AllIcons.Actions.Profile) {
+            @NotNull
+            @Override
+            public ActionUpdateThread getActionUpdateThread() {
+                return ActionUpdateThread.EDT;
+            }
+
+            @Override
+            public boolean isSelected(@NotNull AnActionEvent e) {
+                return PluginDiagnostics.isEnabled();
+            }
+
+            @Override
+            public void setSelected(@NotNull AnActionEvent e, boolean state) {
+                PluginDiagnostics.setEnabled(state);
+                refresh();
+            }
+        });
+        actions.add(new DumbAwareAction(
+                "Reset",
+                "Reset all timings and counters",
+                AllIcons.Actions.GC) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                PluginDiagnostics.reset();
+                refresh();
+            }
+        });
+        actions.add(new DumbAwareAction(
+                "Export as JSON...",
+                "Save the timings and counters to a JSON file",
+                AllIcons.ToolbarDecorator.Export) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                export();
+            }
+        });
+        ActionToolbar toolbar = ActionManager.getInstance()
+                .createActionToolbar("ElasticActorsDiagnostics", actions, true);
+        toolbar.setTargetComponent(this);
+        setToolbar(toolbar.getComponent());
+
+        refresh();
+    }
+
+    private void refresh() {
+        refreshAlarm.cancelAllRequests();
+        PluginDiagnostics.Snapshot snapshot = PluginDiagnostics.snapshot();
+        List<Row> rows = new ArrayList<>();
+        for (PluginDiagnostics.ProbeStats stats : snapshot.probes()) {
+            rows.add(new Row(
+                    stats.probe().getDisplayName(),
+                    String.valueOf(stats.invocations()),
+                    formatNanos(stats.nanos()),
+                    stats.invocations() > 0
+                            ? "avg " + formatNanos(stats.nanos() / stats.invocations())
+                            : ""));
+        }
+        for (PluginDiagnostics.CounterStats stats : snapshot.counters()) {
+            rows.add(new Row(
+                    stats.counter().getDisplayName(),
+                    String.valueOf(stats.value()),
+                    "",
+                    ""));
+        }
+        for (PluginDiagnostics.CacheStats stats : snapshot.caches()) {
+            rows.add(new Row(
+                    stats.cache().getDisplayName() + " lookups",
+                    String.valueOf(stats.lookups()),
+                    "",
+                    stats.lookups() > 0
+                            ? String.format(
+                            Locale.ROOT,
+                            "%.1f%% hit rate, %d misses",
+                            stats.getHitRate() * 100,
+                            stats.misses())
+                            : ""));
+        }
+        model.setItems(rows);
+        if (snapshot.enabled()) {
+            refreshAlarm.addRequest(this::refresh, REFRESH_DELAY_MS);
+        }
+    }
+
+    private void export() {
+        VirtualFileWrapper wrapper = FileChooserFactory.getInstance()
+                .createSaveFileDialog(
+                        new FileSaverDescriptor(
+                                "Export Diagnostics",
+                                "Save the Elastic Actors plugin diagnostics as JSON",
+                                "json"),
+                        project)
+                .save("elasticactors-diagnostics.json");
+        if (wrapper == null) {
+            return;
+        }
+        try {
+            Files.writeString(
+                    wrapper.getFile().toPath(),
+                    PluginDiagnostics.toJson(PluginDiagnostics.snapshot()),
+                    StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            NotificationGroupManager.getInstance()
+                    .getNotificationGroup("Elastic Actors")
+                    .createNotification(
+                            "Could not export diagnostics: " + e.getMessage(),
+                            NotificationType.ERROR)
+                    .notify(project);
+        }
+    }
+
+    @NotNull
+    private static String formatNanos(long nanos) {
+        if (nanos >= 1_000_000_000L) {
+            return String.format(Locale.ROOT, "%.1fs", nanos / 1e9);
+        }
+        if (nanos >= 1_000_000L) {
+            return String.format(Locale.ROOT, "%.1fms", nanos / 1e6);
+        }
+        return String.format(Locale.ROOT, "%.1fµs", nanos / 1e3);
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    private static class Column extends ColumnInfo<Row, String> {
+
+        private final Function<Row, String> getter;
+
+        private Column(@NotNull String name, @NotNull Function<Row, String> getter) {
+            super(name);
+            this.getter = getter;
+        }
+
+        @Override
+        public String valueOf(Row row) {
+            return getter.apply(row);
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInsight.daemon.impl.analysis.HighlightingFeature;
+import com.intellij.lang.annotation.HighlightSeverity;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiBlockStatement;
+import com.intellij.psi.PsiBreakStatement;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassType;
+import com.intellij.psi.PsiCodeBlock;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiElementFactory;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiIfStatement;
+import com.intellij.psi.PsiInstanceOfExpression;
+import com.intellij.psi.PsiJavaCodeReferenceElement;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.PsiPatternVariable;
+import com.intellij.psi.PsiReferenceExpression;
+import com.intellij.psi.PsiStatement;
+import com.intellij.psi.PsiTypeElement;
+import com.intellij.psi.PsiTypeTestPattern;
+import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.PsiUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.intellij.psi.util.InheritanceUtil.isInheritor;
+import static com.intellij.psi.util.PsiTreeUtil.getParentOfType;
+import static com.intellij.psi.util.PsiTypesUtil.getPsiClass;
+import static org.elasticsoftware.elasticactors.Utils.ACTOR_REF_CLASS;
+import static org.elasticsoftware.elasticactors.Utils.MESSAGE_HANDLER_ANNOTATION_CLASS;
+import static org.elasticsoftware.elasticactors.Utils.isMessage;
+import static org.elasticsoftware.elasticactors.Utils.isOnReceiveMethod;
+
+/**
+ * An {@code if}/{@code else if} chain of {@code instanceof} checks on the message inside
+ * {@code ElasticActor.onReceive(...)}, which makes every message pay for the checks of the message
+ * types before its own.
+ * <p>
+ * A chain spanning the whole method can be split into one {@code @MessageHandler} method per
+ * branch, which {@code MethodActor} dispatches by message type. Any chain can also be converted
+ * into a pattern-matching {@code switch} when the language level supports it.
+ *
+ * @param ifStatement the first {@code if} of the chain
+ * @param messageParameter the message parameter of {@code onReceive}
+ * @param senderParameter the sender parameter of {@code onReceive}
+ * @param branches the branches of the chain, in order
+ * @param elseBranch the final {@code else} branch, if any
+ */
+public record ReceiveDispatchChain(
+        @NotNull PsiIfStatement ifStatement,
+        @NotNull PsiParameter messageParameter,
+        @NotNull PsiParameter senderParameter,
+        @NotNull List<Branch> branches,
+        @Nullable PsiStatement elseBranch) {
+
+    static final String METHOD_ACTOR_CLASS =
+            "org.elasticsoftware.elasticactors.MethodActor";
+    private static final String UNTYPED_ACTOR_CLASS =
+            "org.elasticsoftware.elasticactors.UntypedActor";
+
+    /**
+     * A branch of the chain.
+     *
+     * @param messageClass the checked message type
+     * @param patternVariable the pattern variable declared by the check, if any
+     * @param body the statement executed for the message type
+     */
+    public record Branch(
+            @NotNull PsiClass messageClass,
+            @Nullable PsiPatternVariable patternVariable,
+            @NotNull PsiStatement body) {
+    }
+
+    /**
+     * Counts the {@code instanceof} checks on the message parameter inside the given
+     * {@code onReceive} method, whether they form an {@code else if} chain or not.
+     */
+    public static int countChecks(@NotNull PsiMethod onReceive) {
+        PsiParameter messageParameter = getMessageParameter(onReceive);
+        if (messageParameter == null) {
+            return 0;
+        }
+        int count = 0;
+        ElasticActorsFileModel model = ElasticActorsFileModel.getInstance(onReceive);
+        for (ElasticActorsFileModel.ReceiveBranch branch : model.getReceiveBranches()) {
+            PsiInstanceOfExpression instanceOf =
+                    getParentOfType(branch.typeElement(), PsiInstanceOfExpression.class);
+            if (!branch.cast()
+                    && instanceOf != null
+                    && PsiTreeUtil.isAncestor(onReceive, instanceOf, true)
+                    && isReferenceTo(instanceOf.getOperand(), messageParameter)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the longest chain among the top-level statements of the given {@code onReceive}
+     * method, or {@code null} if there's none.
+     */
+    @Nullable
+    public static ReceiveDispatchChain find(@NotNull PsiMethod onReceive) {
+        PsiCodeBlock body = onReceive.getBody();
+        PsiParameter messageParameter = getMessageParameter(onReceive);
+        PsiParameter senderParameter = getSenderParameter(onReceive);
+        if (body == null || messageParameter == null || senderParameter == null) {
+            return null;
+        }
+        ReceiveDispatchChain longest = null;
+        for (PsiStatement statement : body.getStatements()) {
+            if (statement instanceof PsiIfStatement ifStatement) {
+                ReceiveDispatchChain chain =
+                        createChain(ifStatement, messageParameter, senderParameter);
+                if (chain != null
+                        && (longest == null
+                        || chain.branches().size() > longest.branches().size())) {
+                    longest = chain;
+                }
+            }
+        }
+        return longest;
+    }
+
+    @Nullable
+    private static ReceiveDispatchChain createChain(
+            @NotNull PsiIfStatement ifStatement,
+            @NotNull PsiParameter messageParameter,
+            @NotNull PsiParameter senderParameter) {
+        List<Branch> branches = new ArrayList<>();
+        PsiStatement current = ifStatement;
+        while (current instanceof PsiIfStatement currentIf) {
+            Branch branch = createBranch(currentIf, messageParameter);
+            if (branch == null) {
+                break;
+            }
+            branches.add(branch);
+            current = currentIf.getElseBranch();
+        }
+        return branches.size() > 1
+                ? new ReceiveDispatchChain(
+                ifStatement,
+                messageParameter,
+                senderParameter,
+                branches,
+                current)
+                : null;
+    }
+
+    @Nullable
+    private static Branch createBranch(
+            @NotNull PsiIfStatement ifStatement,
+            @NotNull PsiParameter messageParameter) {
+        PsiStatement body = ifStatement.getThenBranch();
+        if (body == null
+                || !(PsiUtil.skipParenthesizedExprDown(ifStatement.getCondition())
+                instanceof PsiInstanceOfExpression instanceOf)
+                || !isReferenceTo(instanceOf.getOperand(), messageParameter)) {
+            return null;
+        }
+        PsiTypeElement checkType = instanceOf.getCheckType();
+        PsiPatternVariable patternVariable = null;
+        if (checkType == null && instanceOf.getPattern() instanceof PsiTypeTestPattern pattern) {
+            checkType = pattern.getCheckType();
+            patternVariable = pattern.getPatternVariable();
+        }
+        PsiClass messageClass = checkType != null ? getPsiClass(checkType.getType()) : null;
+        return messageClass != null && messageClass.getQualifiedName() != null
+                ? new Branch(messageClass, patternVariable, body)
+                : null;
+    }
+
+    /**
+     * Checks if the whole {@code onReceive} method can be replaced by {@code @MessageHandler}
+     * methods: the chain must be its only statement, every checked type must be a distinct
+     * {@code @Message} class, and the actor must be a {@code MethodActor} or an
+     * {@code UntypedActor}, which is then turned into a {@code MethodActor}.
+     */
+    public boolean canConvertToHandlers() {
+        PsiMethod onReceive = getParentOfType(ifStatement, PsiMethod.class);
+        PsiClass actorClass = onReceive != null ? onReceive.getContainingClass() : null;
+        PsiCodeBlock body = onReceive != null ? onReceive.getBody() : null;
+        if (actorClass == null
+                || body == null
+                || body.getStatementCount() != 1
+                || getDirectSuperclass(actorClass) == null) {
+            return false;
+        }
+        Set<PsiClass> messageClasses = new HashSet<>();
+        for (Branch branch : branches) {
+            if (!isMessage(branch.messageClass()) || !messageClasses.add(branch.messageClass())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replaces {@code onReceive} with one {@code @MessageHandler} method per branch, and the
+     * final {@code else} branch, if any, with {@code onUnhandled}. The generated handlers are
+     * first validated with the rules of {@link MessageHandlerAnnotator}, and nothing is changed if
+     * any of them is invalid.
+     *
+     * @return the problems found in the generated handlers, empty if the conversion was applied
+     */
+    @NotNull
+    public List<String> convertToHandlers() {
+        PsiMethod onReceive = getParentOfType(ifStatement, PsiMethod.class);
+        PsiClass actorClass = onReceive != null ? onReceive.getContainingClass() : null;
+        if (onReceive == null || actorClass == null) {
+            return List.of("The onReceive method could not be found");
+        }
+        PsiElementFactory factory = JavaPsiFacade.getElementFactory(ifStatement.getProject());
+        String throwsList = onReceive.getThrowsList().getText();
+        Set<String> methodNames = new HashSet<>();
+        for (PsiMethod method : actorClass.getMethods()) {
+            methodNames.add(method.getName());
+        }
+
+        List<PsiMethod> methods = new ArrayList<>();
+        for (Branch branch : branches) {
+            PsiClass messageClass = branch.messageClass();
+            String name = "handle" + messageClass.getName();
+            for (int i = 2; methodNames.contains(name); i++) {
+                name = "handle" + messageClass.getName() + i;
+            }
+            methodNames.add(name);
+            String parameterName = branch.patternVariable() != null
+                    ? branch.patternVariable().getName()
+                    : messageParameter.getName();
+            methods.add(factory.createMethodFromText(
+                    "@" + MESSAGE_HANDLER_ANNOTATION_CLASS + "\n"
+                            + "public void " + name + "("
+                            + messageClass.getQualifiedName() + " " + parameterName + ", "
+                            + ACTOR_REF_CLASS + " " + senderParameter.getName() + ") "
+                            + throwsList + " "
+                            + getBodyText(branch.body(), parameterName),
+                    actorClass));
+        }
+        if (elseBranch != null) {
+            methods.add(factory.createMethodFromText(
+                    "@java.lang.Override\n"
+                            + "protected void onUnhandled("
+                            + ACTOR_REF_CLASS + " " + senderParameter.getName() + ", "
+                            + "java.lang.Object " + messageParameter.getName() + ") "
+                            + throwsList + " "
+                            + getBodyText(elseBranch, messageParameter.getName()),
+                    actorClass));
+        }
+
+        List<String> problems = new ArrayList<>();
+        for (PsiMethod method : methods) {
+            List<PsiElement> elements = new ArrayList<>();
+            elements.add(method);
+            elements.addAll(List.of(method.getParameterList().getParameters()));
+            for (PsiElement element : elements) {
+                MessageHandlerAnnotator.checkElement(element, (severity, message, range) -> {
+                    if (severity.compareTo(HighlightSeverity.ERROR) >= 0) {
+                        problems.add(method.getName() + ": " + message);
+                    }
+                });
+            }
+        }
+        if (!problems.isEmpty()) {
+            return problems;
+        }
+
+        PsiJavaCodeReferenceElement superclass = getDirectSuperclass(actorClass);
+        if (superclass != null && UNTYPED_ACTOR_CLASS.equals(superclass.getQualifiedName())) {
+            superclass.replace(factory.createReferenceElementByFQClassName(
+                    METHOD_ACTOR_CLASS,
+                    actorClass.getResolveScope()));
+        }
+        JavaCodeStyleManager codeStyleManager =
+                JavaCodeStyleManager.getInstance(ifStatement.getProject());
+        PsiElement anchor = onReceive;
+        for (PsiMethod method : methods) {
+            anchor = actorClass.addAfter(method, anchor);
+            codeStyleManager.shortenClassReferences(anchor);
+        }
+        onReceive.delete();
+        if (superclass != null && superclass.isValid()) {
+            codeStyleManager.shortenClassReferences(superclass);
+        }
+        return List.of();
+    }
+
+    /**
+     * Returns the body of a branch as a code block, referencing the message through the given
+     * name instead of the {@code onReceive} parameter.
+     */
+    @NotNull
+    private String getBodyText(@NotNull PsiStatement body, @NotNull String messageName) {
+        PsiStatement copy = (PsiStatement) body.copy();
+        if (!messageName.equals(messageParameter.getName())) {
+            PsiElementFactory factory = JavaPsiFacade.getElementFactory(body.getProject());
+            // The copy can't be resolved, so references are matched against the original body
+            List<PsiReferenceExpression> references = new ArrayList<>();
+            for (PsiReferenceExpression reference
+                    : PsiTreeUtil.findChildrenOfType(body, PsiReferenceExpression.class)) {
+                if (isReferenceTo(reference, messageParameter)) {
+                    references.add(reference);
+                }
+            }
+            for (PsiReferenceExpression reference : references) {
+                PsiElement copied = PsiTreeUtil.findSameElementInCopy(reference, copy);
+                copied.replace(factory.createExpressionFromText(messageName, copied));
+            }
+        }
+        return copy instanceof PsiBlockStatement
+                ? copy.getText()
+                : "{\n" + copy.getText() + "\n}";
+    }
+
+    /**
+     * Checks if the chain can be replaced by a pattern-matching {@code switch}: the language
+     * level must support it, no branch may be dominated by a previous one, and no branch may
+     * {@code break} out of the chain, since it would then only leave the {@code switch}.
+     */
+    public boolean canConvertToSwitch() {
+        if (!HighlightingFeature.PATTERNS_IN_SWITCH.isAvailable(ifStatement)) {
+            return false;
+        }
+        List<PsiClass> previous = new ArrayList<>();
+        for (Branch branch : branches) {
+            for (PsiClass previousClass : previous) {
+                if (branch.messageClass().equals(previousClass)
+                        || branch.messageClass().isInheritor(previousClass, true)) {
+                    return false;
+                }
+            }
+            previous.add(branch.messageClass());
+            if (breaksOut(branch.body())) {
+                return false;
+            }
+        }
+        return elseBranch == null || !breaksOut(elseBranch);
+    }
+
+    private static boolean breaksOut(@NotNull PsiStatement body) {
+        for (PsiBreakStatement breakStatement
+                : PsiTreeUtil.findChildrenOfType(body, PsiBreakStatement.class)) {
+            PsiStatement exited = breakStatement.findExitedStatement();
+            if (exited == null || !PsiTreeUtil.isAncestor(body, exited, false)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replaces the chain with a pattern-matching {@code switch} on the message.
+     */
+    public void convertToSwitch() {
+        JavaCodeStyleManager codeStyleManager =
+                JavaCodeStyleManager.getInstance(ifStatement.getProject());
+        StringBuilder text = new StringBuilder("switch (")
+                .append(messageParameter.getName())
+                .append(") {\n");
+        for (Branch branch : branches) {
+            String variableName = branch.patternVariable() != null
+                    ? branch.patternVariable().getName()
+                    : codeStyleManager.suggestUniqueVariableName(
+                    StringUtil.decapitalize(branch.messageClass().getName()),
+                    ifStatement,
+                    true);
+            text.append("case ")
+                    .append(branch.messageClass().getQualifiedName())
+                    .append(' ')
+                    .append(variableName)
+                    .append(" -> ")
+                    .append(getBlockText(branch.body()))
+                    .append('\n');
+        }
+        text.append("default -> ")
+                .append(elseBranch != null ? getBlockText(elseBranch) : "{\n}")
+                .append("\n}");
+        PsiElementFactory factory = JavaPsiFacade.getElementFactory(ifStatement.getProject());
+        PsiElement replaced = ifStatement.replace(
+                factory.createStatementFromText(text.toString(), ifStatement));
+        codeStyleManager.shortenClassReferences(replaced);
+    }
+
+    @NotNull
+    private static String getBlockText(@NotNull PsiStatement statement) {
+        return statement instanceof PsiBlockStatement
+                ? statement.getText()
+                : "{\n" + statement.getText() + "\n}";
+    }
+
+    /**
+     * Returns the reference to the superclass of the actor if it's {@code MethodActor} or
+     * {@code UntypedActor}, or {@code null} otherwise.
+     */
+    @Nullable
+    private static PsiJavaCodeReferenceElement getDirectSuperclass(@NotNull PsiClass actorClass) {
+        PsiJavaCodeReferenceElement[] references = actorClass.getExtendsList() != null
+                ? actorClass.getExtendsList().getReferenceElements()
+                : PsiJavaCodeReferenceElement.EMPTY_ARRAY;
+        if (references.length != 1) {
+            return null;
+        }
+        String qualifiedName = references[0].getQualifiedName();
+        return METHOD_ACTOR_CLASS.equals(qualifiedName)
+                || UNTYPED_ACTOR_CLASS.equals(qualifiedName)
+                ? references[0]
+                : null;
+    }
+
+    @Nullable
+    private static PsiParameter getMessageParameter(@NotNull PsiMethod onReceive) {
+        PsiParameter[] parameters = onReceive.getParameterList().getParameters();
+        return isOnReceiveMethod(onReceive)
+                && parameters.length == 2
+                && !isActorRefType(parameters[1])
+                ? parameters[1]
+                : null;
+    }
+
+    @Nullable
+    private static PsiParameter getSenderParameter(@NotNull PsiMethod onReceive) {
+        PsiParameter[] parameters = onReceive.getParameterList().getParameters();
+        return parameters.length == 2 && isActorRefType(parameters[0]) ? parameters[0] : null;
+    }
+
+    private static boolean isActorRefType(@NotNull PsiParameter parameter) {
+        return parameter.getType() instanceof PsiClassType classType
+                && isInheritor(classType.resolve(), ACTOR_REF_CLASS);
+    }
+
+    private static boolean isReferenceTo(
+            @Nullable PsiExpression expression,
+            @NotNull PsiParameter parameter) {
+        return PsiUtil.skipParenthesizedExprDown(expression) instanceof PsiReferenceExpression ref
+                && ref.getQualifierExpression() == null
+                && parameter.equals(ref.resolve());
+    }
+}
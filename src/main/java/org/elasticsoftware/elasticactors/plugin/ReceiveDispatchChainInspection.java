@@ -0,0 +1,69 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.codeInspection.options.OptPane;
+import com.intellij.psi.JavaElementVisitor;
+import com.intellij.psi.PsiElementVisitor;
+import com.intellij.psi.PsiIdentifier;
+import com.intellij.psi.PsiMethod;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.intellij.codeInspection.options.OptPane.number;
+import static com.intellij.codeInspection.options.OptPane.pane;
+import static org.elasticsoftware.elasticactors.Utils.isOnReceiveMethod;
+
+public class ReceiveDispatchChainInspection extends AbstractBaseJavaLocalInspectionTool {
+
+    static final String SHORT_NAME = "ReceiveDispatchChain";
+
+    /**
+     * The number of {@code instanceof} checks on the message above which {@code onReceive} is
+     * reported.
+     */
+    public int maxChecks = 5;
+
+    @NotNull
+    @Override
+    public OptPane getOptionsPane() {
+        return pane(number("maxChecks", "Maximum instanceof checks on the message", 1, 1000));
+    }
+
+    @NotNull
+    @Override
+    public PsiElementVisitor buildVisitor(
+            @NotNull ProblemsHolder holder, boolean isOnTheFly) {
+        int max = maxChecks;
+        return new JavaElementVisitor() {
+            @Override
+            public void visitMethod(@NotNull PsiMethod method) {
+                super.visitMethod(method);
+                PsiIdentifier nameIdentifier = method.getNameIdentifier();
+                if (nameIdentifier == null || !isOnReceiveMethod(method)) {
+                    return;
+                }
+                int checks = ReceiveDispatchChain.countChecks(method);
+                if (checks <= max) {
+                    return;
+                }
+                List<LocalQuickFix> fixes = new ArrayList<>();
+                ReceiveDispatchChain chain = ReceiveDispatchChain.find(method);
+                if (chain != null && chain.canConvertToHandlers()) {
+                    fixes.add(new ConvertReceiveDispatchChainFix(true));
+                }
+                if (chain != null && chain.canConvertToSwitch()) {
+                    fixes.add(new ConvertReceiveDispatchChainFix(false));
+                }
+                holder.registerProblem(
+                        nameIdentifier,
+                        "'onReceive()' checks the type of the message " + checks + " times; "
+                                + "messages of the last types pay for all checks before them",
+                        fixes.toArray(LocalQuickFix.EMPTY_ARRAY));
+            }
+        };
+    }
+}
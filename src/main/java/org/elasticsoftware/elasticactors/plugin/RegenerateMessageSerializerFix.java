@@ -0,0 +1,39 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInsight.intention.preview.IntentionPreviewInfo;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiClass;
+import org.jetbrains.annotations.NotNull;
+
+import static com.intellij.psi.util.PsiTreeUtil.getParentOfType;
+
+/**
+ * Regenerates the serializer of a {@code @Message}-annotated class, and its round-trip test,
+ * after the fields of the class changed. See {@link MessageSerializerGenerator}.
+ */
+class RegenerateMessageSerializerFix implements LocalQuickFix {
+
+    @NotNull
+    @Override
+    public String getFamilyName() {
+        return "Regenerate message serializer";
+    }
+
+    @NotNull
+    @Override
+    public IntentionPreviewInfo generatePreview(
+            @NotNull Project project,
+            @NotNull ProblemDescriptor previewDescriptor) {
+        return IntentionPreviewInfo.EMPTY;
+    }
+
+    @Override
+    public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+        PsiClass messageClass = getParentOfType(descriptor.getPsiElement(), PsiClass.class);
+        if (messageClass != null) {
+            GenerateMessageSerializerIntention.generate(messageClass, null, getFamilyName());
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassType.ClassResolveResult;
+import com.intellij.psi.PsiCodeBlock;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiElementFactory;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiExpressionStatement;
+import com.intellij.psi.PsiLambdaExpression;
+import com.intellij.psi.PsiLocalVariable;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.PsiReferenceExpression;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.PsiTypeParameter;
+import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+
+import static com.intellij.psi.util.InheritanceUtil.isInheritor;
+import static com.intellij.psi.util.PsiTreeUtil.getParentOfType;
+import static com.intellij.psi.util.PsiTreeUtil.isAncestor;
+import static com.intellij.psi.util.PsiTypesUtil.getPsiClass;
+import static com.intellij.psi.util.PsiUtil.resolveGenericsClassInType;
+import static org.elasticsoftware.elasticactors.Utils.ACTOR_REF_CLASS;
+import static org.elasticsoftware.elasticactors.Utils.MESSAGE_HANDLER_ANNOTATION_CLASS;
+import static org.elasticsoftware.elasticactors.Utils.isHandler;
+
+/**
+ * Replaces a statement starting with {@code actorRef.ask(message, Response.class)} with
+ * {@code actorRef.tell(message, getSelf())}, and adds a Message Handler method for the response
+ * type to the actor.
+ * <p>
+ * Only actors extending {@code MethodActor} dispatch messages to Message Handler methods, so the
+ * fix is not available in other actors. A lambda passed to {@code thenAccept}, {@code thenRun}
+ * or {@code whenComplete} on the returned future becomes the body of the new handler; the fix is
+ * not available if the future is used in any other way, if the lambda uses local variables of
+ * the enclosing method or the failure passed to {@code whenComplete}, or if the actor already has
+ * a handler for the response type which the lambda would have to be merged into.
+ */
+class ReplaceAskWithTellFix implements LocalQuickFix {
+
+    /**
+     * The methods of the future returned by {@code ask} whose lambda can be moved into the
+     * response handler, mapped to the number of parameters of the lambda.
+     */
+    private static final Map<String, Integer> CONTINUATION_METHODS = Map.of(
+            "thenAccept", 1,
+            "thenRun", 0,
+            "whenComplete", 2);
+
+    /**
+     * The code to run when the response is received.
+     *
+     * @param lambda the lambda passed to the future, or {@code null} if there is none
+     */
+    private record Continuation(@Nullable PsiLambdaExpression lambda) {
+    }
+
+    @NotNull
+    @Override
+    public String getFamilyName() {
+        return "Replace 'ask()' with 'tell()' and handle the response in a Message Handler";
+    }
+
+    static boolean isAvailable(@NotNull PsiMethodCallExpression askCall) {
+        PsiExpression[] arguments = askCall.getArgumentList().getExpressions();
+        PsiExpressionStatement statement = getReplacedStatement(askCall);
+        PsiClass actorClass = getActorClass(askCall);
+        PsiClass responseClass =
+                arguments.length == 2 ? getClassTypeArgument(arguments[1].getType()) : null;
+        if (askCall.getMethodExpression().getQualifierExpression() == null
+                || statement == null
+                || actorClass == null
+                || responseClass == null
+                || responseClass.getQualifiedName() == null) {
+            return false;
+        }
+        Continuation continuation = getContinuation(askCall, statement);
+        return continuation != null
+                && (continuation.lambda() == null || !hasHandlerFor(actorClass, responseClass));
+    }
+
+    @Override
+    public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+        PsiMethodCallExpression askCall =
+                getParentOfType(descriptor.getPsiElement(), PsiMethodCallExpression.class);
+        if (askCall == null || !isAvailable(askCall)) {
+            return;
+        }
+        PsiExpressionStatement statement = getReplacedStatement(askCall);
+        PsiExpression qualifier = askCall.getMethodExpression().getQualifierExpression();
+        PsiExpression[] arguments = askCall.getArgumentList().getExpressions();
+        PsiClass actorClass = getActorClass(askCall);
+        PsiClass responseClass = getClassTypeArgument(arguments[1].getType());
+        Continuation continuation =
+                statement != null ? getContinuation(askCall, statement) : null;
+        if (statement == null
+                || qualifier == null
+                || actorClass == null
+                || responseClass == null
+                || continuation == null) {
+            return;
+        }
+
+        PsiElementFactory factory = JavaPsiFacade.getElementFactory(project);
+        PsiMethod handler = hasHandlerFor(actorClass, responseClass)
+                ? null
+                : factory.createMethodFromText(
+                createHandlerText(responseClass, continuation),
+                actorClass);
+        statement.replace(factory.createStatementFromText(
+                qualifier.getText() + ".tell(" + arguments[0].getText() + ", getSelf());",
+                statement));
+        if (handler != null) {
+            PsiElement added = actorClass.add(handler);
+            JavaCodeStyleManager.getInstance(project).shortenClassReferences(added);
+        }
+    }
+
+    /**
+     * Returns the actor containing the call if it extends {@code MethodActor}, so it dispatches
+     * messages to its Message Handler methods.
+     */
+    @Nullable
+    private static PsiClass getActorClass(@NotNull PsiElement element) {
+        PsiMethod enclosingMethod = getParentOfType(element, PsiMethod.class);
+        PsiClass actorClass = enclosingMethod != null ? enclosingMethod.getContainingClass() : null;
+        return actorClass != null
+                && actorClass.getQualifiedName() != null
+                && isInheritor(actorClass, ReceiveDispatchChain.METHOD_ACTOR_CLASS)
+                ? actorClass
+                : null;
+    }
+
+    /**
+     * Returns the statement consisting of the {@code ask} call, possibly followed by chained
+     * calls on its result, or {@code null} if the result is used in any other way.
+     */
+    @Nullable
+    private static PsiExpressionStatement getReplacedStatement(
+            @NotNull PsiMethodCallExpression askCall) {
+        PsiElement current = askCall;
+        while (true) {
+            PsiElement parent = current.getParent();
+            if (parent instanceof PsiExpressionStatement statement) {
+                return statement;
+            }
+            if (parent instanceof PsiReferenceExpression reference
+                    && reference.getQualifierExpression() == current
+                    && reference.getParent() instanceof PsiMethodCallExpression chainedCall) {
+                current = chainedCall;
+            } else {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Returns the code chained to the {@code ask} call if it can be moved into a Message Handler,
+     * i.e. there is none or it's a single lambda passed to one of {@link #CONTINUATION_METHODS}
+     * which doesn't use local variables of the enclosing method nor the failure.
+     */
+    @Nullable
+    private static Continuation getContinuation(
+            @NotNull PsiMethodCallExpression askCall,
+            @NotNull PsiExpressionStatement statement) {
+        if (statement.getExpression() == askCall) {
+            return new Continuation(null);
+        }
+        if (!(statement.getExpression() instanceof PsiMethodCallExpression chainedCall)
+                || chainedCall.getMethodExpression().getQualifierExpression() != askCall) {
+            return null;
+        }
+        Integer parameterCount =
+                CONTINUATION_METHODS.get(chainedCall.getMethodExpression().getReferenceName());
+        PsiExpression[] arguments = chainedCall.getArgumentList().getExpressions();
+        if (parameterCount == null
+                || arguments.length != 1
+                || !(arguments[0] instanceof PsiLambdaExpression lambda)
+                || lambda.getBody() == null
+                || lambda.getParameterList().getParametersCount() != parameterCount) {
+            return null;
+        }
+        PsiParameter[] parameters = lambda.getParameterList().getParameters();
+        for (PsiReferenceExpression reference : PsiTreeUtil.findChildrenOfType(
+                lambda.getBody(),
+                PsiReferenceExpression.class)) {
+            PsiElement target = reference.resolve();
+            boolean isLocal = target instanceof PsiLocalVariable || target instanceof PsiParameter;
+            if (isLocal && !isAncestor(lambda, target, false)
+                    || parameters.length == 2 && target == parameters[1]) {
+                return null;
+            }
+        }
+        return new Continuation(lambda);
+    }
+
+    @Nullable
+    private static PsiClass getClassTypeArgument(@Nullable PsiType classType) {
+        ClassResolveResult resolveResult = resolveGenericsClassInType(classType);
+        PsiClass psiClass = resolveResult.getElement();
+        if (psiClass == null) {
+            return null;
+        }
+        PsiTypeParameter[] typeParameters = psiClass.getTypeParameters();
+        return typeParameters.length == 1
+                ? getPsiClass(resolveResult.getSubstitutor().substitute(typeParameters[0]))
+                : null;
+    }
+
+    private static boolean hasHandlerFor(
+            @NotNull PsiClass actorClass,
+            @NotNull PsiClass messageClass) {
+        for (PsiMethod method : actorClass.getMethods()) {
+            if (isHandler(method)) {
+                for (PsiParameter parameter : method.getParameterList().getParameters()) {
+                    if (messageClass.equals(getPsiClass(parameter.getType()))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    @NotNull
+    private static String createHandlerText(
+            @NotNull PsiClass responseClass,
+            @NotNull Continuation continuation) {
+        PsiLambdaExpression lambda = continuation.lambda();
+        PsiParameter[] parameters = lambda != null
+                ? lambda.getParameterList().getParameters()
+                : PsiParameter.EMPTY_ARRAY;
+        String responseName = parameters.length > 0 ? parameters[0].getName() : "response";
+        // Don't shadow anything named 'sender' used by the moved code
+        boolean usesSender = responseName.equals("sender")
+                || lambda != null
+                && PsiTreeUtil.findChildrenOfType(lambda.getBody(), PsiReferenceExpression.class)
+                .stream()
+                .anyMatch(reference -> "sender".equals(reference.getReferenceName()));
+        String senderName = usesSender ? "responseSender" : "sender";
+        StringBuilder text = new StringBuilder()
+                .append('@').append(MESSAGE_HANDLER_ANNOTATION_CLASS).append('\n')
+                .append("public void handle").append(responseClass.getName())
+                .append('(').append(responseClass.getQualifiedName()).append(' ')
+                .append(responseName).append(", ")
+                .append(ACTOR_REF_CLASS).append(' ').append(senderName).append(") {\n");
+        if (lambda != null && lambda.getBody() instanceof PsiCodeBlock block) {
+            String blockText = block.getText();
+            text.append(blockText, 1, blockText.length() - 1).append('\n');
+        } else if (lambda != null && lambda.getBody() != null) {
+            text.append(lambda.getBody().getText()).append(";\n");
+        }
+        return text.append("}").toString();
+    }
+}
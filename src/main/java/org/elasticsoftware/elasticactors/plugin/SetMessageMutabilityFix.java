@@ -0,0 +1,38 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiClass;
+import org.jetbrains.annotations.NotNull;
+
+import static com.intellij.psi.util.PsiTreeUtil.getParentOfType;
+
+class SetMessageMutabilityFix implements LocalQuickFix {
+
+    private final boolean immutable;
+
+    SetMessageMutabilityFix(boolean immutable) {
+        this.immutable = immutable;
+    }
+
+    @NotNull
+    @Override
+    public String getName() {
+        return "Set 'immutable = " + immutable + "' in @Message";
+    }
+
+    @NotNull
+    @Override
+    public String getFamilyName() {
+        return "Set message mutability";
+    }
+
+    @Override
+    public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+        PsiClass messageClass = getParentOfType(descriptor.getPsiElement(), PsiClass.class);
+        if (messageClass != null) {
+            MessageImmutabilityConverter.setImmutable(messageClass, immutable);
+        }
+    }
+}
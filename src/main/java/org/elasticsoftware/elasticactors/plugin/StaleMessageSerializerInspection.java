@@ -0,0 +1,44 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.psi.JavaElementVisitor;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElementVisitor;
+import com.intellij.psi.PsiIdentifier;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+import static org.elasticsoftware.elasticactors.Utils.isMessage;
+import static org.elasticsoftware.elasticactors.plugin.MessageSerializerGenerator.findSerializer;
+import static org.elasticsoftware.elasticactors.plugin.MessageSerializerGenerator.getFields;
+import static org.elasticsoftware.elasticactors.plugin.MessageSerializerGenerator.getRecordedFields;
+
+public class StaleMessageSerializerInspection extends AbstractBaseJavaLocalInspectionTool {
+
+    @NotNull
+    @Override
+    public PsiElementVisitor buildVisitor(
+            @NotNull ProblemsHolder holder, boolean isOnTheFly) {
+        return new JavaElementVisitor() {
+            @Override
+            public void visitClass(@NotNull PsiClass aClass) {
+                super.visitClass(aClass);
+                PsiIdentifier nameIdentifier = aClass.getNameIdentifier();
+                if (nameIdentifier == null || !isMessage(aClass)) {
+                    return;
+                }
+                PsiClass serializer = findSerializer(aClass);
+                if (serializer != null
+                        && !Objects.equals(getRecordedFields(serializer), getFields(aClass))) {
+                    holder.registerProblem(
+                            nameIdentifier,
+                            "The fields of @Message-annotated class changed since '"
+                                    + serializer.getName() + "' was generated",
+                            new RegenerateMessageSerializerFix());
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,146 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.analysis.AnalysisScope;
+import com.intellij.codeInspection.CommonProblemDescriptor;
+import com.intellij.codeInspection.GlobalInspectionContext;
+import com.intellij.codeInspection.GlobalInspectionTool;
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptionsProcessor;
+import com.intellij.codeInspection.ProblemHighlightType;
+import com.intellij.codeInspection.reference.RefElement;
+import com.intellij.concurrency.JobLauncher;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProgressIndicatorProvider;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.FileBasedIndex;
+import org.elasticsoftware.elasticactors.plugin.SuspectActorRefCallsInspection.CheckedArgument;
+import org.elasticsoftware.elasticactors.plugin.SuspectActorRefCallsInspection.ClassVerdict;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.elasticsoftware.elasticactors.plugin.SuspectActorRefCallsInspection.validateClass;
+
+/**
+ * Batch variant of {@link SuspectActorRefCallsInspection}, meant for running over a whole
+ * project (e.g. through Analyze | Inspect Code or {@code inspect.sh}).
+ * <p>
+ * It works in two passes: first, the arguments of all {@code ActorRef} calls are collected from
+ * the {@link ElasticActorsFileModel} of the files known by {@link MessageFlowIndex} to contain
+ * any, in parallel. Then, every distinct
+ * argument class is validated only once, also in parallel, and the verdict is reported for all
+ * arguments using it.
+ */
+public class SuspectActorRefCallsGlobalInspection extends GlobalInspectionTool {
+
+    @Override
+    public boolean isGraphNeeded() {
+        return false;
+    }
+
+    @Override
+    public boolean isReadActionNeeded() {
+        return false;
+    }
+
+    @Override
+    public void runInspection(
+            @NotNull AnalysisScope scope,
+            @NotNull InspectionManager manager,
+            @NotNull GlobalInspectionContext globalContext,
+            @NotNull ProblemDescriptionsProcessor problemDescriptionsProcessor) {
+        Project project = globalContext.getProject();
+        List<VirtualFile> files = ReadAction.compute(() -> findFiles(project, scope));
+
+        Collection<CheckedArgument> arguments = ConcurrentHashMap.newKeySet();
+        PsiManager psiManager = PsiManager.getInstance(project);
+        JobLauncher.getInstance().invokeConcurrentlyUnderProgress(
+                files,
+                ProgressIndicatorProvider.getGlobalProgressIndicator(),
+                file -> {
+                    ReadAction.run(() -> {
+                        PsiFile psiFile = psiManager.findFile(file);
+                        if (psiFile != null) {
+                            collectArguments(psiFile, arguments);
+                        }
+                    });
+                    return true;
+                });
+
+        Map<PsiClass, ClassVerdict> verdicts = new ConcurrentHashMap<>();
+        List<PsiClass> argClasses = arguments.stream()
+                .map(CheckedArgument::argClass)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        JobLauncher.getInstance().invokeConcurrentlyUnderProgress(
+                argClasses,
+                ProgressIndicatorProvider.getGlobalProgressIndicator(),
+                argClass -> {
+                    verdicts.put(argClass, ReadAction.compute(() -> validateClass(argClass, true)));
+                    return true;
+                });
+
+        ReadAction.run(() -> {
+            for (CheckedArgument argument : arguments) {
+                ProgressIndicatorProvider.checkCanceled();
+                SuspectActorRefCallsInspection.reportProblems(
+                        argument,
+                        argument.argClass() != null ? verdicts.get(argument.argClass()) : null,
+                        (element, message) -> {
+                            RefElement refElement = globalContext.getRefManager()
+                                    .getReference(element.getContainingFile());
+                            if (refElement != null) {
+                                problemDescriptionsProcessor.addProblemElement(
+                                        refElement,
+                                        new CommonProblemDescriptor[]{
+                                                manager.createProblemDescriptor(
+                                                        element,
+                                                        message,
+                                                        false,
+                                                        LocalQuickFix.EMPTY_ARRAY,
+                                                        ProblemHighlightType
+                                                                .GENERIC_ERROR_OR_WARNING)});
+                            }
+                        });
+            }
+        });
+    }
+
+    @NotNull
+    private static List<VirtualFile> findFiles(
+            @NotNull Project project,
+            @NotNull AnalysisScope scope) {
+        List<VirtualFile> files = new ArrayList<>();
+        for (VirtualFile file : FileBasedIndex.getInstance().getContainingFiles(
+                MessageFlowIndex.NAME,
+                MessageFlow.Kind.SEND.name(),
+                GlobalSearchScope.projectScope(project))) {
+            if (scope.contains(file)) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private static void collectArguments(
+            @NotNull PsiFile file,
+            @NotNull Collection<CheckedArgument> arguments) {
+        for (ElasticActorsFileModel.SendSite sendSite :
+                ElasticActorsFileModel.getInstance(file).getSendSites()) {
+            SuspectActorRefCallsInspection.collectCheckedArguments(
+                    sendSite.call(), arguments::add);
+        }
+    }
+}
@@ -5,34 +5,50 @@ import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.psi.JavaElementVisitor;
 import com.intellij.psi.PsiAnonymousClass;
 import com.intellij.psi.PsiClass;
-import com.intellij.psi.PsiClassType.ClassResolveResult;
-import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiElementVisitor;
 import com.intellij.psi.PsiExpression;
 import com.intellij.psi.PsiMethod;
 import com.intellij.psi.PsiMethodCallExpression;
 import com.intellij.psi.PsiType;
-import com.intellij.psi.search.searches.ClassInheritorsSearch;
 import com.intellij.psi.util.PsiTreeUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.function.Supplier;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import static com.intellij.psi.PsiModifier.FINAL;
 import static com.intellij.psi.PsiModifier.PRIVATE;
-import static com.intellij.psi.util.PsiTypesUtil.getPsiClass;
-import static com.intellij.psi.util.PsiUtil.resolveGenericsClassInType;
-import static org.elasticsoftware.elasticactors.Utils.isActorRef;
-import static org.elasticsoftware.elasticactors.Utils.isActorRefMethod;
 import static org.elasticsoftware.elasticactors.Utils.isConcrete;
 import static org.elasticsoftware.elasticactors.Utils.isMessage;
 
 public class SuspectActorRefCallsInspection extends AbstractBaseJavaLocalInspectionTool {
 
+    /**
+     * An argument of an {@code ActorRef} call along with the class it's expected to be a
+     * {@code @Message}, i.e. the message's class or the response type of {@code ask}.
+     */
+    record CheckedArgument(
+            @NotNull PsiExpression argument,
+            @Nullable PsiType type,
+            @Nullable PsiClass argClass) {
+    }
+
+    /**
+     * The outcome of validating a class, which only depends on the class itself and can therefore
+     * be shared by all arguments using it.
+     *
+     * @param notAMessage whether the class is not suitable as a message at all
+     * @param nonMessageInheritors inheritors of the class not annotated with {@code @Message}
+     */
+    record ClassVerdict(boolean notAMessage, @NotNull List<PsiClass> nonMessageInheritors) {
+
+        static final ClassVerdict VALID = new ClassVerdict(false, List.of());
+        static final ClassVerdict NOT_A_MESSAGE = new ClassVerdict(true, List.of());
+    }
+
     @NotNull
     @Override
     public PsiElementVisitor buildVisitor(
@@ -41,127 +57,116 @@ public class SuspectActorRefCallsInspection extends AbstractBaseJavaLocalInspect
             @Override
             public void visitMethodCallExpression(PsiMethodCallExpression methodCall) {
                 super.visitMethodCallExpression(methodCall);
-                PsiElement nameElement = methodCall.getMethodExpression().getReferenceNameElement();
-                if (nameElement != null) {
-                    String methodName = nameElement.getText();
-                    boolean isTell = "tell".equals(methodName);
-                    boolean isAsk = !isTell && "ask".equals(methodName);
-                    if (isTell || isAsk) {
-                        PsiMethod method = methodCall.resolveMethod();
-                        if (method != null
-                                && isActorRef(method.getContainingClass())
-                                && isActorRefMethod(method)) {
-                            validateMessageArgument(holder, methodCall);
-                            if (!isTell) {
-                                validateResponseTypeArgument(holder, methodCall);
-                            }
-                        }
-                    }
+                long start = PluginDiagnostics.start();
+                try {
+                    collectCheckedArguments(methodCall, checkedArgument -> reportProblems(
+                            checkedArgument,
+                            checkedArgument.argClass() != null
+                                    ? validateClass(checkedArgument.argClass(), !isOnTheFly)
+                                    : null,
+                            (argument, message) -> holder.registerProblem(argument, message)));
+                } finally {
+                    PluginDiagnostics.stop(
+                            PluginDiagnostics.Probe.ACTOR_REF_CALL_INSPECTION,
+                            start);
                 }
             }
         };
     }
 
-    private static void validateMessageArgument(
-            @NotNull ProblemsHolder holder,
-            @NotNull PsiMethodCallExpression methodCall) {
-        PsiExpression argument = methodCall.getArgumentList().getExpressions()[0];
-        validateClass(
-                holder,
-                argument,
-                argument.getType(),
-                () -> getPsiClass(argument.getType()));
-    }
-
-    private static void validateResponseTypeArgument(
-            @NotNull ProblemsHolder holder,
-            @NotNull PsiMethodCallExpression methodCall) {
-        PsiExpression argument = methodCall.getArgumentList().getExpressions()[1];
-        ClassResolveResult resolveResult = resolveGenericsClassInType(argument.getType());
-        if (resolveResult.getElement() != null) {
-            validateClass(holder, argument, argument.getType(),
-                    () -> getPsiClass(resolveResult.getSubstitutor()
-                            .substitute(resolveResult.getElement()
-                                    .getTypeParameters()[0])));
+    /**
+     * Finds the arguments to be validated if the given call is made to
+     * {@code ActorRef.tell(...)} or {@code ActorRef.ask(...)}.
+     */
+    static void collectCheckedArguments(
+            @NotNull PsiMethodCallExpression methodCall,
+            @NotNull Consumer<CheckedArgument> consumer) {
+        ElasticActorsFileModel.SendSite sendSite =
+                ElasticActorsFileModel.getInstance(methodCall).getSendSite(methodCall);
+        if (sendSite != null) {
+            PsiExpression messageArgument = sendSite.messageArgument();
+            consumer.accept(new CheckedArgument(
+                    messageArgument,
+                    messageArgument.getType(),
+                    sendSite.messageClass()));
+            PsiExpression responseTypeArgument = sendSite.responseTypeArgument();
+            if (responseTypeArgument != null) {
+                consumer.accept(new CheckedArgument(
+                        responseTypeArgument,
+                        responseTypeArgument.getType(),
+                        sendSite.responseClass()));
+            }
         }
     }
 
-    private static void validateClass(
-            @NotNull ProblemsHolder holder,
-            @NotNull PsiExpression argument,
-            @Nullable PsiType type,
-            @NotNull Supplier<PsiClass> classSupplier) {
-        PsiClass argClass = classSupplier.get();
-        if (argClass == null) {
-            registerProblemForType(holder, argument, type);
+    /**
+     * Reports the problems found for an argument, given the verdict for its class
+     * ({@code null} if the class could not be resolved).
+     */
+    static void reportProblems(
+            @NotNull CheckedArgument checkedArgument,
+            @Nullable ClassVerdict verdict,
+            @NotNull BiConsumer<PsiExpression, String> reporter) {
+        PsiExpression argument = checkedArgument.argument();
+        if (verdict == null) {
+            PsiType type = checkedArgument.type();
+            reporter.accept(argument, "Unexpected argument type: "
+                    + (type != null ? type.getCanonicalText() : "UNKNOWN"));
             return;
         }
+        if (verdict.notAMessage()) {
+            reporter.accept(argument, "Argument should be of a type annotated with @Message");
+        }
+        verdict.nonMessageInheritors()
+                .forEach(inheritor -> reporter.accept(argument, getInheritorProblem(inheritor)));
+    }
+
+    /**
+     * Validates the given class. Unless {@code wait} is set, the inheritors of non-final classes
+     * are only taken from {@link MessageInheritorsCache}, and the class is considered valid while
+     * they are being computed.
+     */
+    @NotNull
+    static ClassVerdict validateClass(@NotNull PsiClass argClass, boolean wait) {
         if (isJavaCorePackage(argClass)) {
-            registerGenericProblem(holder, argument);
+            return ClassVerdict.NOT_A_MESSAGE;
         } else if (isConcrete(argClass)) {
             if (isFinal(argClass)) {
-                if (!isMessage(argClass)) {
-                    registerGenericProblem(holder, argument);
-                }
+                return isMessage(argClass) ? ClassVerdict.VALID : ClassVerdict.NOT_A_MESSAGE;
             } else {
-                registerProblemForInheritors(holder, argument, argClass, false);
+                return validateInheritors(argClass, false, wait);
             }
         } else {
-            registerProblemForInheritors(holder, argument, argClass, true);
+            return validateInheritors(argClass, true, wait);
         }
     }
 
-    private static void registerProblemForInheritors(
-            @NotNull ProblemsHolder holder,
-            @NotNull PsiExpression argument,
+    @NotNull
+    private static ClassVerdict validateInheritors(
             @NotNull PsiClass argClass,
-            boolean registerIfHasNoInheritors) {
-        List<PsiClass> foundClasses = new ArrayList<>(5);
-        boolean[] found = {false};
-        ClassInheritorsSearch.search(argClass).forEach(inheritor -> {
-            found[0] = true;
-            if (isConcrete(inheritor) && !isMessage(inheritor)) {
-                foundClasses.add(inheritor);
-            }
-            return foundClasses.size() < 5;
-        });
-        if (foundClasses.isEmpty()) {
-            if (registerIfHasNoInheritors && !found[0]) {
-                registerGenericProblem(holder, argument);
-            }
-        } else {
-            foundClasses
-                    .forEach(inheritor -> registerProblemForInheritor(holder, argument, inheritor));
+            boolean invalidIfHasNoInheritors,
+            boolean wait) {
+        MessageInheritorsCache cache = MessageInheritorsCache.getInstance(argClass.getProject());
+        MessageInheritorsIndex.Result result =
+                wait ? cache.get(argClass) : cache.getIfKnown(argClass);
+        if (result == null) {
+            return ClassVerdict.VALID;
         }
+        if (result.nonMessageInheritors().isEmpty()) {
+            return invalidIfHasNoInheritors && !result.hasInheritors()
+                    ? ClassVerdict.NOT_A_MESSAGE
+                    : ClassVerdict.VALID;
+        }
+        return new ClassVerdict(false, result.nonMessageInheritors());
     }
 
-    private static void registerProblemForType(
-            @NotNull ProblemsHolder holder,
-            @NotNull PsiExpression argument,
-            @Nullable PsiType type) {
-        holder.registerProblem(argument, "Unexpected argument type: "
-                + (type != null ? type.getCanonicalText() : "UNKNOWN"));
-    }
-
-    private static void registerGenericProblem(
-            @NotNull ProblemsHolder holder,
-            @NotNull PsiExpression argument) {
-        holder.registerProblem(
-                argument,
-                "Argument should be of a type annotated with @Message");
-    }
-
-    private static void registerProblemForInheritor(
-            @NotNull ProblemsHolder holder,
-            @NotNull PsiExpression argument,
-            @NotNull PsiClass psiClass) {
-        holder.registerProblem(
-                argument,
-                "Found possible inheritor not annotated with @Message: "
-                        + (psiClass instanceof PsiAnonymousClass
-                        ? "Anonymous class in "
-                        + getConcreteParentOfType(psiClass).getQualifiedName()
-                        : psiClass.getQualifiedName()));
+    @NotNull
+    private static String getInheritorProblem(@NotNull PsiClass psiClass) {
+        return "Found possible inheritor not annotated with @Message: "
+                + (psiClass instanceof PsiAnonymousClass
+                ? "Anonymous class in "
+                + getConcreteParentOfType(psiClass).getQualifiedName()
+                : psiClass.getQualifiedName());
     }
 
     @NotNull
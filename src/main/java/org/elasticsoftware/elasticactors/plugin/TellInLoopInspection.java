@@ -0,0 +1,182 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.codeInsight.daemon.impl.analysis.HighlightControlFlowUtil;
+import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.psi.JavaElementVisitor;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiElementVisitor;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiExpressionList;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiLambdaExpression;
+import com.intellij.psi.PsiLoopStatement;
+import com.intellij.psi.PsiMember;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.PsiModifier;
+import com.intellij.psi.PsiReferenceExpression;
+import com.intellij.psi.PsiThisExpression;
+import com.intellij.psi.PsiVariable;
+import com.intellij.psi.util.PsiUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Set;
+
+import static com.intellij.psi.util.InheritanceUtil.isInheritor;
+import static com.intellij.psi.util.PsiTreeUtil.isAncestor;
+
+public class TellInLoopInspection extends AbstractBaseJavaLocalInspectionTool {
+
+    /**
+     * The methods which call the lambda passed to them once per element, by the type declaring
+     * them. Other methods taking a lambda, such as {@code Map.computeIfAbsent()} or
+     * {@code Optional.map()}, call it at most once.
+     */
+    private static final Map<String, Set<String>> ITERATING_METHODS = Map.of(
+            "java.util.stream.BaseStream", Set.of(
+                    "forEach",
+                    "forEachOrdered",
+                    "map",
+                    "mapToObj",
+                    "mapToInt",
+                    "mapToLong",
+                    "mapToDouble",
+                    "mapMulti",
+                    "flatMap",
+                    "flatMapToInt",
+                    "flatMapToLong",
+                    "flatMapToDouble",
+                    "filter",
+                    "peek",
+                    "anyMatch",
+                    "allMatch",
+                    "noneMatch",
+                    "takeWhile",
+                    "dropWhile"),
+            "java.lang.Iterable", Set.of("forEach"),
+            "java.util.Collection", Set.of("removeIf"),
+            "java.util.List", Set.of("replaceAll"),
+            "java.util.Iterator", Set.of("forEachRemaining"),
+            "java.util.Map", Set.of("forEach", "replaceAll"));
+
+    /**
+     * The actor methods which return the same value in every iteration of a loop, without side
+     * effects.
+     */
+    private static final Set<String> INVARIANT_METHODS = Set.of(
+            "getSelf",
+            "getSender",
+            "getSystem");
+
+    @NotNull
+    @Override
+    public PsiElementVisitor buildVisitor(
+            @NotNull ProblemsHolder holder, boolean isOnTheFly) {
+        return new JavaElementVisitor() {
+            @Override
+            public void visitMethodCallExpression(@NotNull PsiMethodCallExpression methodCall) {
+                super.visitMethodCallExpression(methodCall);
+                PsiElement nameElement = methodCall.getMethodExpression().getReferenceNameElement();
+                if (nameElement == null || !"tell".equals(nameElement.getText())) {
+                    return;
+                }
+                PsiElement loop = findEnclosingLoop(methodCall);
+                if (loop == null
+                        || !isLoopInvariant(
+                        methodCall.getMethodExpression().getQualifierExpression(),
+                        loop)) {
+                    return;
+                }
+                ElasticActorsFileModel.SendSite sendSite =
+                        ElasticActorsFileModel.getInstance(methodCall).getSendSite(methodCall);
+                if (sendSite == null || sendSite.ask()) {
+                    return;
+                }
+                LocalQuickFix[] fixes = BatchTellsFix.isAvailable(sendSite, loop)
+                        ? new LocalQuickFix[]{new BatchTellsFix()}
+                        : LocalQuickFix.EMPTY_ARRAY;
+                holder.registerProblem(
+                        nameElement,
+                        "'tell()' sends a separate message to the same actor for every "
+                                + (loop instanceof PsiLoopStatement ? "iteration" : "element")
+                                + ", each one enqueued and serialized on its own",
+                        fixes);
+            }
+        };
+    }
+
+    /**
+     * Returns the loop statement, or the lambda called for every element of a stream, collection
+     * or map, whose body contains the given element within the same method.
+     */
+    @Nullable
+    static PsiElement findEnclosingLoop(@NotNull PsiElement element) {
+        PsiElement child = element;
+        for (PsiElement parent = element.getParent();
+             parent != null && !(parent instanceof PsiMember) && !(parent instanceof PsiFile);
+             child = parent, parent = parent.getParent()) {
+            if (parent instanceof PsiLoopStatement loop && loop.getBody() == child) {
+                return loop;
+            }
+            if (parent instanceof PsiLambdaExpression lambda) {
+                return isIteratingLambda(lambda) ? lambda : null;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isIteratingLambda(@NotNull PsiLambdaExpression lambda) {
+        if (!(lambda.getParent() instanceof PsiExpressionList arguments)
+                || !(arguments.getParent() instanceof PsiMethodCallExpression call)) {
+            return false;
+        }
+        PsiMethod method = call.resolveMethod();
+        PsiClass containingClass = method != null ? method.getContainingClass() : null;
+        return containingClass != null
+                && ITERATING_METHODS.entrySet().stream()
+                .anyMatch(entry -> entry.getValue().contains(method.getName())
+                        && isInheritor(containingClass, entry.getKey()));
+    }
+
+    /**
+     * Checks if the expression evaluates to the same value in every iteration of the loop, i.e.
+     * it's the actor itself, a final field, an effectively final variable declared outside the
+     * loop, or one of {@link #INVARIANT_METHODS} called on one of those. Other calls aren't
+     * considered invariant, even without arguments, since they might return a different value
+     * every time (e.g. {@code iterator.next()}).
+     */
+    static boolean isLoopInvariant(@Nullable PsiExpression expression, @NotNull PsiElement loop) {
+        expression = PsiUtil.skipParenthesizedExprDown(expression);
+        if (expression instanceof PsiThisExpression) {
+            return true;
+        }
+        if (expression instanceof PsiMethodCallExpression call) {
+            PsiExpression qualifier = call.getMethodExpression().getQualifierExpression();
+            return INVARIANT_METHODS.contains(call.getMethodExpression().getReferenceName())
+                    && call.getArgumentList().isEmpty()
+                    && (qualifier == null || isLoopInvariant(qualifier, loop));
+        }
+        if (expression instanceof PsiReferenceExpression reference) {
+            PsiElement target = reference.resolve();
+            if (target instanceof PsiClass) {
+                return true;
+            }
+            if (target instanceof PsiField field) {
+                PsiExpression qualifier = reference.getQualifierExpression();
+                return field.hasModifierProperty(PsiModifier.FINAL)
+                        && (qualifier == null || isLoopInvariant(qualifier, loop));
+            }
+            return target instanceof PsiVariable variable
+                    && !isAncestor(loop, variable, false)
+                    && (variable.hasModifierProperty(PsiModifier.FINAL)
+                    || HighlightControlFlowUtil.isEffectivelyFinal(variable, loop, null));
+        }
+        return false;
+    }
+}
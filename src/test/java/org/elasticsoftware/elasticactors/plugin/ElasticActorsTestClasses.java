@@ -0,0 +1,76 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.testFramework.fixtures.CodeInsightTestFixture;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The parts of the Elastic Actors API which the plugin relies on, for test projects which don't
+ * have the real library.
+ */
+final class ElasticActorsTestClasses {
+
+    private ElasticActorsTestClasses() {
+    }
+
+    static void addTo(@NotNull CodeInsightTestFixture fixture) {
+        fixture.addClass("""
+                package org.elasticsoftware.elasticactors.serialization;
+
+                public @interface Message {
+                    boolean immutable() default false;
+                    Class<?> serializationFramework();
+                }
+                """);
+        fixture.addClass("""
+                package org.elasticsoftware.elasticactors;
+
+                public @interface MessageHandler {
+                }
+                """);
+        fixture.addClass("""
+                package org.elasticsoftware.elasticactors;
+
+                public interface ActorState {
+                }
+                """);
+        fixture.addClass("""
+                package org.elasticsoftware.elasticactors;
+
+                public interface ActorSystem {
+                }
+                """);
+        fixture.addClass("""
+                package org.elasticsoftware.elasticactors;
+
+                public interface ActorRef {
+                    void tell(Object message, ActorRef sender);
+                    void tell(Object message);
+                }
+                """);
+        fixture.addClass("""
+                package org.elasticsoftware.elasticactors;
+
+                public interface ElasticActor<T> {
+                    void onReceive(ActorRef sender, T message) throws Exception;
+                }
+                """);
+        fixture.addClass("""
+                package org.elasticsoftware.elasticactors;
+
+                public abstract class TypedActor<T> implements ElasticActor<T> {
+                    protected ActorRef getSelf() {
+                        return null;
+                    }
+                }
+                """);
+        fixture.addClass("""
+                package org.elasticsoftware.elasticactors;
+
+                public abstract class MethodActor extends TypedActor<Object> {
+                    @Override
+                    public void onReceive(ActorRef sender, Object message) throws Exception {
+                    }
+                }
+                """);
+    }
+}
@@ -0,0 +1,268 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.search.searches.ReferencesSearch;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import com.sun.management.ThreadMXBean;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Measures the cost of the plugin's highlighting extensions on a synthetic Elastic Actors project
+ * with {@code N} actors and {@code M} messages, organized in hierarchies {@code K} classes deep.
+ * It uses the mock JDK of {@link LightJavaCodeInsightFixtureTestCase}, so that the calls of the
+ * generated actors resolve as in a real project.
+ * <p>
+ * Every actor file is highlighted with {@link SuspectActorRefCallsInspection} enabled, and
+ * {@link MessageHandlerUsageTypeProvider} is asked for the type of every usage of the messages.
+ * The time spent in each extension and the message inheritor searches are taken from
+ * {@link PluginDiagnostics}, along with the highlighting time and allocations per file. The
+ * searches made in the calling thread are counted apart from those scheduled in the background
+ * by {@link MessageInheritorsCache}, which are only counted once they're all done. The metrics
+ * are compared with {@code benchmark-baseline.properties}, and the benchmark fails if any of them
+ * exceeds its baseline by more than the tolerance (50% by default, none for the searches made in
+ * the calling thread).
+ * <p>
+ * The benchmark only runs with {@code -Delasticactors.benchmark=true}. The project size can be
+ * changed with {@code elasticactors.benchmark.actors}, {@code .messages} and {@code .depth},
+ * the tolerance with {@code .tolerance}, and {@code .baseline=<path>} writes the measurements to
+ * the given file to update the baseline.
+ */
+public class HighlightingBenchmarkTest extends LightJavaCodeInsightFixtureTestCase {
+
+    private static final String PROPERTY_PREFIX = "elasticactors.benchmark";
+
+    private static final String BASELINE_RESOURCE = "/benchmark-baseline.properties";
+
+    /**
+     * The metrics compared with the baseline without any tolerance, as they don't depend on the
+     * machine running the benchmark nor on the timing of background tasks.
+     */
+    private static final List<String> EXACT_METRICS = List.of("inheritorSearches.blocking");
+
+    /**
+     * How long to wait for the inheritor searches scheduled while highlighting.
+     */
+    private static final int BACKGROUND_TIMEOUT_SECONDS = 60;
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            PluginDiagnostics.setEnabled(false);
+            PluginDiagnostics.reset();
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testHighlighting() throws IOException {
+        if (!Boolean.getBoolean(PROPERTY_PREFIX)) {
+            return;
+        }
+        int actors = Integer.getInteger(PROPERTY_PREFIX + ".actors", 50);
+        int messages = Integer.getInteger(PROPERTY_PREFIX + ".messages", 60);
+        int depth = Integer.getInteger(PROPERTY_PREFIX + ".depth", 5);
+        ElasticActorsTestClasses.addTo(myFixture);
+        List<PsiClass> messageClasses = generateMessages(messages, depth);
+        List<PsiFile> actorFiles = generateActors(actors, messages);
+        myFixture.enableInspections(new SuspectActorRefCallsInspection());
+
+        PluginDiagnostics.setEnabled(true);
+        PluginDiagnostics.reset();
+        long highlightingNanos = 0;
+        long allocatedBytes = 0;
+        for (PsiFile actorFile : actorFiles) {
+            myFixture.configureFromExistingVirtualFile(actorFile.getVirtualFile());
+            long allocatedBefore = getAllocatedBytes();
+            long start = System.nanoTime();
+            myFixture.doHighlighting();
+            highlightingNanos += System.nanoTime() - start;
+            allocatedBytes += getAllocatedBytes() - allocatedBefore;
+        }
+        // On-the-fly highlighting only schedules inheritor searches, so wait for them to be done
+        // before reading the counters
+        MessageInheritorsCache inheritorsCache = MessageInheritorsCache.getInstance(getProject());
+        PlatformTestUtil.waitWithEventsDispatching(
+                "The message inheritor searches did not finish",
+                inheritorsCache::isIdle,
+                BACKGROUND_TIMEOUT_SECONDS);
+        MessageHandlerUsageTypeProvider usageTypeProvider = new MessageHandlerUsageTypeProvider();
+        for (PsiClass messageClass : messageClasses) {
+            for (PsiReference reference : ReferencesSearch.search(messageClass)) {
+                usageTypeProvider.getUsageType(reference.getElement());
+            }
+        }
+        PluginDiagnostics.Snapshot snapshot = PluginDiagnostics.snapshot();
+
+        Map<String, Double> metrics = new LinkedHashMap<>();
+        metrics.put("highlighting.millisPerFile", highlightingNanos / 1e6 / actorFiles.size());
+        metrics.put("highlighting.kilobytesPerFile", allocatedBytes / 1024.0 / actorFiles.size());
+        for (PluginDiagnostics.ProbeStats stats : snapshot.probes()) {
+            switch (stats.probe()) {
+                case ANNOTATOR -> metrics.put(
+                        "annotator.microsPerFile",
+                        stats.nanos() / 1e3 / actorFiles.size());
+                case ACTOR_REF_CALL_INSPECTION -> metrics.put(
+                        "actorRefCallInspection.microsPerFile",
+                        stats.nanos() / 1e3 / actorFiles.size());
+                case USAGE_TYPE_PROVIDER -> metrics.put(
+                        "usageTypeProvider.microsPerCall",
+                        stats.invocations() > 0 ? stats.nanos() / 1e3 / stats.invocations() : 0);
+                default -> {
+                }
+            }
+        }
+        long searches = 0;
+        long blockingSearches = 0;
+        for (PluginDiagnostics.CounterStats stats : snapshot.counters()) {
+            switch (stats.counter()) {
+                case INHERITOR_SEARCHES -> searches = stats.value();
+                case BLOCKING_INHERITOR_SEARCHES -> blockingSearches = stats.value();
+                default -> {
+                }
+            }
+        }
+        metrics.put("inheritorSearches.blocking", (double) blockingSearches);
+        metrics.put("inheritorSearches.background", (double) (searches - blockingSearches));
+
+        String baselinePath = System.getProperty(PROPERTY_PREFIX + ".baseline");
+        if (baselinePath != null) {
+            writeBaseline(Path.of(baselinePath), metrics);
+        }
+        double tolerance = Double.parseDouble(
+                System.getProperty(PROPERTY_PREFIX + ".tolerance", "0.5"));
+        Properties baseline = readBaseline();
+        List<String> regressions = new ArrayList<>();
+        StringBuilder report = new StringBuilder(String.format(
+                Locale.ROOT,
+                "Elastic Actors highlighting benchmark: %d actors, %d messages, depth %d%n",
+                actors,
+                messages,
+                depth));
+        metrics.forEach((name, value) -> {
+            String baselineValue = baseline.getProperty(name);
+            report.append(String.format(Locale.ROOT, "  %-40s %12.2f", name, value));
+            if (baselineValue != null) {
+                double expected = Double.parseDouble(baselineValue);
+                double allowed = EXACT_METRICS.contains(name)
+                        ? expected
+                        : expected * (1 + tolerance);
+                report.append(String.format(Locale.ROOT, "  (baseline %.2f)", expected));
+                if (value > allowed) {
+                    regressions.add(name);
+                }
+            }
+            report.append(System.lineSeparator());
+        });
+        System.out.print(report);
+        assertEmpty("Regressions compared with the baseline:\n" + report, regressions);
+    }
+
+    /**
+     * Generates the messages in hierarchies of the given depth, every class extending the
+     * previous one of its hierarchy.
+     */
+    @NotNull
+    private List<PsiClass> generateMessages(int count, int depth) {
+        List<PsiClass> messageClasses = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int level = i % depth;
+            messageClasses.add(myFixture.addClass("package com.example.messages;\n\n"
+                    + "import org.elasticsoftware.elasticactors.serialization.Message;\n\n"
+                    + "@Message(serializationFramework = Object.class)\n"
+                    + "public class Message" + i
+                    + (level > 0 ? " extends Message" + (i - 1) : "") + " {\n"
+                    + "    private int value" + i + ";\n"
+                    + "}\n"));
+        }
+        return messageClasses;
+    }
+
+    /**
+     * Generates the actors, each handling three messages and sending one to the sender and to
+     * another actor.
+     */
+    @NotNull
+    private List<PsiFile> generateActors(int count, int messages) {
+        List<PsiFile> actorFiles = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder text = new StringBuilder("package com.example.actors;\n\n"
+                    + "import com.example.messages.*;\n"
+                    + "import org.elasticsoftware.elasticactors.ActorRef;\n"
+                    + "import org.elasticsoftware.elasticactors.MessageHandler;\n"
+                    + "import org.elasticsoftware.elasticactors.MethodActor;\n\n"
+                    + "public class Actor" + i + " extends MethodActor {\n"
+                    + "    private ActorRef next;\n");
+            for (int j = 0; j < 3; j++) {
+                int handled = (i * 3 + j) % messages;
+                int sent = (handled + 1) % messages;
+                text.append("\n    @MessageHandler\n")
+                        .append("    public void handle(Message").append(handled)
+                        .append(" message, ActorRef sender) {\n")
+                        .append("        sender.tell(new Message").append(sent)
+                        .append("(), getSelf());\n")
+                        .append("        next.tell(new Message").append(sent).append("());\n")
+                        .append("    }\n");
+            }
+            text.append("}\n");
+            actorFiles.add(myFixture.addFileToProject(
+                    "com/example/actors/Actor" + i + ".java",
+                    text.toString()));
+        }
+        return actorFiles;
+    }
+
+    /**
+     * Returns the bytes allocated so far by all live threads, since highlighting passes may run
+     * in other threads than the test's.
+     */
+    private static long getAllocatedBytes() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean threadMXBean)) {
+            return 0;
+        }
+        long total = 0;
+        for (long allocated : threadMXBean.getThreadAllocatedBytes(
+                threadMXBean.getAllThreadIds())) {
+            total += Math.max(allocated, 0);
+        }
+        return total;
+    }
+
+    @NotNull
+    private static Properties readBaseline() throws IOException {
+        Properties baseline = new Properties();
+        try (InputStream input =
+                     HighlightingBenchmarkTest.class.getResourceAsStream(BASELINE_RESOURCE)) {
+            if (input != null) {
+                baseline.load(input);
+            }
+        }
+        return baseline;
+    }
+
+    private static void writeBaseline(
+            @NotNull Path path,
+            @NotNull Map<String, Double> metrics) throws IOException {
+        Properties baseline = new Properties();
+        metrics.forEach((name, value) ->
+                baseline.setProperty(name, String.format(Locale.ROOT, "%.2f", value)));
+        try (OutputStream output = Files.newOutputStream(path)) {
+            baseline.store(output, "Elastic Actors highlighting benchmark baseline");
+        }
+    }
+}
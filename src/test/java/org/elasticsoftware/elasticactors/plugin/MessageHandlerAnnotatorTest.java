@@ -0,0 +1,127 @@
+package org.elasticsoftware.elasticactors.plugin;
+
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.SyntaxTraverser;
+import com.intellij.psi.impl.PsiManagerEx;
+import com.intellij.psi.impl.PsiManagerImpl;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that {@link MessageHandlerAnnotator} only needs the AST of the file being annotated:
+ * the classes of the handlers' parameters must be classified from stubs.
+ */
+public class MessageHandlerAnnotatorTest extends BasePlatformTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        ElasticActorsTestClasses.addTo(myFixture);
+        myFixture.addClass("""
+                package com.example;
+
+                import org.elasticsoftware.elasticactors.serialization.Message;
+
+                @Message(serializationFramework = Object.class)
+                public class Greeting {
+                    private String name;
+                }
+                """);
+        myFixture.addClass("""
+                package com.example;
+
+                import org.elasticsoftware.elasticactors.ActorState;
+
+                public class GreeterState implements ActorState {
+                    private int greetings;
+                }
+                """);
+    }
+
+    public void testValidHandler() {
+        PsiFile file = configureWithoutLoadingOtherFiles("GreeterActor.java", """
+                package com.example;
+
+                import org.elasticsoftware.elasticactors.ActorRef;
+                import org.elasticsoftware.elasticactors.MessageHandler;
+                import org.elasticsoftware.elasticactors.MethodActor;
+
+                public class GreeterActor extends MethodActor {
+                    @MessageHandler
+                    public void handle(Greeting greeting, ActorRef sender, GreeterState state) {
+                    }
+                }
+                """);
+        assertEmpty(annotate(file));
+    }
+
+    public void testInvalidHandler() {
+        PsiFile file = configureWithoutLoadingOtherFiles("GreeterActor.java", """
+                package com.example;
+
+                import org.elasticsoftware.elasticactors.MessageHandler;
+                import org.elasticsoftware.elasticactors.MethodActor;
+
+                public class GreeterActor extends MethodActor {
+                    @MessageHandler
+                    public void handle(Greeting greeting, GreeterState state, GreeterState other,
+                                       int count) {
+                    }
+                }
+                """);
+        assertSameElements(
+                annotate(file),
+                "Handler Method should not have more than one parameter of type "
+                        + "org.elasticsoftware.elasticactors.ActorState",
+                "Unexpected parameter type for handler method: int");
+    }
+
+    public void testFileWithoutHandlers() {
+        PsiFile file = configureWithoutLoadingOtherFiles("Farewell.java", """
+                package com.example;
+
+                import org.elasticsoftware.elasticactors.serialization.Message;
+
+                @Message(serializationFramework = Object.class)
+                public class Farewell {
+                    private Greeting greeting;
+                    private GreeterState state;
+                }
+                """);
+        assertEmpty(annotate(file));
+    }
+
+    /**
+     * Unloads the ASTs of the files added so far, then configures the file and fails the test if
+     * the AST of any other file is loaded afterwards.
+     */
+    @NotNull
+    private PsiFile configureWithoutLoadingOtherFiles(
+            @NotNull String fileName,
+            @NotNull String text) {
+        WriteAction.run(() -> ((PsiManagerImpl) getPsiManager()).cleanupForNextTest());
+        PsiFile file = myFixture.configureByText(fileName, text);
+        VirtualFile virtualFile = file.getVirtualFile();
+        PsiManagerEx.getInstanceEx(getProject()).setAssertOnFileLoadingFilter(
+                loaded -> !loaded.equals(virtualFile),
+                getTestRootDisposable());
+        return file;
+    }
+
+    @NotNull
+    private static List<String> annotate(@NotNull PsiFile file) {
+        List<String> problems = new ArrayList<>();
+        for (PsiElement element : SyntaxTraverser.psiTraverser(file)) {
+            MessageHandlerAnnotator.checkElement(
+                    element,
+                    (severity, message, range) -> problems.add(message));
+        }
+        return problems;
+    }
+}